@@ -80,12 +80,10 @@ public class ReflectanceImpl
             int start = m_Spectrum.getShortestWavelength();
             int end = m_Spectrum.getLongestWavelength();
             int interval = m_Spectrum.getInterval();
-            double[] readings = m_Spectrum.getValues();
-
             int count = 0;
             for( int i = start; i <= end; i += interval )
             {
-                map.put( i, readings[ count++ ] );
+                map.put( i, m_Spectrum.getValue( count++ ) );
             }
         }
         m_SpectrumMap = map;
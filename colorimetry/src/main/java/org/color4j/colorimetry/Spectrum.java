@@ -18,6 +18,8 @@
 
 package org.color4j.colorimetry;
 
+import java.nio.DoubleBuffer;
+
 public class Spectrum
 {
     private int m_StartWavelength;
@@ -77,10 +79,54 @@ public class Spectrum
         return m_Interval;
     }
 
+    /**
+     * @return a copy of the values of the Spectrum.
+     */
     public double[] getValues()
     {
         double[] result = new double[ m_Values.length ];
         System.arraycopy( m_Values, 0, result, 0, result.length );
         return result;
     }
+
+    /**
+     * @return the number of values in the Spectrum.
+     */
+    public int getLength()
+    {
+        return m_Values.length;
+    }
+
+    /**
+     * @param index the position of the value, 0 being the value at the shortest wavelength.
+     * @return the value at the given position.
+     */
+    public double getValue( int index )
+    {
+        return m_Values[ index ];
+    }
+
+    /**
+     * Copies all values of the Spectrum into <code>dest</code>, starting at <code>offset</code>.
+     */
+    public void copyInto( double[] dest, int offset )
+    {
+        System.arraycopy( m_Values, 0, dest, offset, m_Values.length );
+    }
+
+    /**
+     * Copies <code>count</code> values, starting at position <code>from</code>, into <code>dest</code>.
+     */
+    public void copyInto( int from, double[] dest, int offset, int count )
+    {
+        System.arraycopy( m_Values, from, dest, offset, count );
+    }
+
+    /**
+     * @return a read-only view of the values of the Spectrum, without copying them.
+     */
+    public DoubleBuffer asDoubleBuffer()
+    {
+        return DoubleBuffer.wrap( m_Values ).asReadOnlyBuffer();
+    }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 package org.color4j.colorimetry.encodings;
 
 import org.color4j.colorimetry.ColorEncoding;
+import org.color4j.colorimetry.math.FastMath;
 import org.color4j.colorimetry.math.Maths;
 
 /**
@@ -36,6 +37,7 @@ public class CIELab
     private final double bStar;
     private double cStar;
     private double hStar;
+    private volatile boolean m_LChComputed;
 
     /**
      * by default, we will assume that the colors calculated are in-gamut
@@ -47,8 +49,35 @@ public class CIELab
         lStar = L;
         aStar = a;
         bStar = b;
-        cStar = Math.sqrt( Math.pow( a, 2.0 ) + Math.pow( b, 2.0 ) );
-        hStar = Maths.atan( a, b );
+    }
+
+    /**
+     * Computes the chroma C* of the given a* and b*.
+     */
+    public static double chroma( double a, double b )
+    {
+        return Math.sqrt( Math.pow( a, 2.0 ) + Math.pow( b, 2.0 ) );
+    }
+
+    /**
+     * Computes the hue angle h, in degrees, of the given a* and b*.
+     */
+    public static double hue( double a, double b )
+    {
+        return Maths.atan( a, b );
+    }
+
+    /**
+     * Computes L*, C* and h of the given L*, a* and b* without creating any objects.
+     *
+     * @param lch    The array to write L*, C* and h into.
+     * @param offset The position in <code>lch</code> to write L* into.
+     */
+    public static void toLCh( double L, double a, double b, double[] lch, int offset )
+    {
+        lch[ offset ] = L;
+        lch[ offset + 1 ] = chroma( a, b );
+        lch[ offset + 2 ] = hue( a, b );
     }
 
     public double getL()
@@ -68,14 +97,32 @@ public class CIELab
 
     public double getc()
     {
+        if( !m_LChComputed )
+        {
+            computeLCh();
+        }
         return cStar;
     }
 
     public double geth()
     {
+        if( !m_LChComputed )
+        {
+            computeLCh();
+        }
         return hStar;
     }
 
+    /**
+     * C* and h are computed on first use, as many uses only need L*, a* and b*.
+     */
+    private void computeLCh()
+    {
+        cStar = chroma( aStar, bStar );
+        hStar = hue( aStar, bStar );
+        m_LChComputed = true;
+    }
+
     public double getDE( CIELab batch )
     {
         double k;
@@ -105,16 +152,31 @@ public class CIELab
 
     public XYZ toXYZ( XYZ whitepoint )
     {
-        double fn1 = lStar / 116.0;
-        double fn0 = fn1 + aStar / 500.0;
-        double fn2 = fn1 - bStar / 200.0;
-        double x = morphToXyz( whitepoint.getX(), fn0 );
-        double y = morphToXyz( whitepoint.getY(), fn1 );
-        double z = morphToXyz( whitepoint.getZ(), fn2 );
-        return new XYZ( x, y, z );
+        double[] xyz = new double[ 3 ];
+        toXYZ( lStar, aStar, bStar, whitepoint.getX(), whitepoint.getY(), whitepoint.getZ(), xyz, 0 );
+        return new XYZ( xyz[ 0 ], xyz[ 1 ], xyz[ 2 ] );
     }
 
-    private double morphToXyz( double whitepoint, double function )
+    /**
+     * Computes the XYZ of the given L*, a* and b* without creating any objects.
+     *
+     * @param xyz    The array to write X, Y and Z into.
+     * @param offset The position in <code>xyz</code> of the X value.
+     */
+    public static void toXYZ( double L, double a, double b,
+                              double whiteX, double whiteY, double whiteZ,
+                              double[] xyz, int offset
+    )
+    {
+        double fn1 = L / 116.0;
+        double fn0 = fn1 + a / 500.0;
+        double fn2 = fn1 - b / 200.0;
+        xyz[ offset ] = morphToXyz( L, whiteX, fn0 );
+        xyz[ offset + 1 ] = morphToXyz( L, whiteY, fn1 );
+        xyz[ offset + 2 ] = morphToXyz( L, whiteZ, fn2 );
+    }
+
+    private static double morphToXyz( double lStar, double whitepoint, double function )
     {
         double luminance = lStar / 116.0;
         double result;
@@ -129,18 +191,63 @@ public class CIELab
         return result;
     }
 
+    private static final double DP = Math.PI / 180.0;
+    private static final double COS16 = Math.cos( 16 * DP );
+    private static final double SIN16 = Math.sin( 16 * DP );
+
     public Din99Lab toDin99Lab(double Ke, double Kch)
     {
-        double dp = Math.PI / 180.0;
-        double e = geta() * Math.cos( 16 * dp ) + getb() * Math.sin( 16 * dp );
-        double f = 0.7 * ( -geta() * Math.sin( 16 * dp ) + getb() * Math.cos( 16 * dp ) );
+        double[] din99 = new double[ 5 ];
+        toDin99Lab( lStar, aStar, bStar, Ke, Kch, din99, 0, true );
+        return new Din99Lab( din99[ 0 ], din99[ 1 ], din99[ 2 ], din99[ 3 ], din99[ 4 ] );
+    }
+
+    /**
+     * Computes the Din99 L, a and b of the given L*, a* and b* without creating any objects.
+     *
+     * @param din99  The array to write the Din99 L, a and b into.
+     * @param offset The position in <code>din99</code> of the L value.
+     */
+    public static void toDin99Lab( double L, double a, double b, double Ke, double Kch, double[] din99, int offset )
+    {
+        toDin99Lab( L, a, b, Ke, Kch, din99, offset, false );
+    }
+
+    /**
+     * @param all true to also write the Din99 chroma and hue after L, a and b.
+     */
+    private static void toDin99Lab( double L, double a, double b, double Ke, double Kch,
+                                    double[] din99, int offset, boolean all
+    )
+    {
+        double dp = DP;
+        double e = a * COS16 + b * SIN16;
+        double f = 0.7 * ( -a * SIN16 + b * COS16 );
 
         double g = Math.sqrt( Math.pow( e, 2 ) + Math.pow( f, 2 ) );
         double hef = Maths.atan( f, e ) * dp;
         double c99 = Math.log( 1 + 0.045 * g ) / ( 0.045 * Ke * Kch );
-        double lStar = ( 105.51 / Ke ) * Math.log( 1 + 0.0158 * getL() );
-        double aStar = c99 * Math.cos( hef );
-        double bStar = c99 * Math.sin( hef );
-        return new Din99Lab( lStar, aStar, bStar, c99, hef );
+        double lStar = ( 105.51 / Ke ) * Math.log( 1 + 0.0158 * L );
+        double aStar;
+        double bStar;
+        if( FastMath.isEnabled() && g > 0.0 )
+        {
+            // hef is the angle of the point (f, e)
+            aStar = c99 * f / g;
+            bStar = c99 * e / g;
+        }
+        else
+        {
+            aStar = c99 * Math.cos( hef );
+            bStar = c99 * Math.sin( hef );
+        }
+        din99[ offset ] = lStar;
+        din99[ offset + 1 ] = aStar;
+        din99[ offset + 2 ] = bStar;
+        if( all )
+        {
+            din99[ offset + 3 ] = c99;
+            din99[ offset + 4 ] = hef;
+        }
     }
-}
\ No newline at end of file
+}
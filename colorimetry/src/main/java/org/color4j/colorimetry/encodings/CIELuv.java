@@ -84,23 +84,39 @@ public class CIELuv
     }
 
     public XYZ toXYZ(XYZ whitepoint)
+    {
+        double[] xyz = new double[ 3 ];
+        toXYZ( getL(), getu(), getv(), whitepoint.getX(), whitepoint.getY(), whitepoint.getZ(), xyz, 0 );
+        return new XYZ( xyz[ 0 ], xyz[ 1 ], xyz[ 2 ] );
+    }
+
+    /**
+     * Computes the XYZ of the given L*, u* and v* without creating any objects.
+     *
+     * @param xyz    The array to write X, Y and Z into.
+     * @param offset The position in <code>xyz</code> of the X value.
+     */
+    public static void toXYZ( double L, double u, double v,
+                              double whiteX, double whiteY, double whiteZ,
+                              double[] xyz, int offset
+    )
     {
         double y;
-        if( ( getL() / 903.3 ) <= .008856 )
+        if( ( L / 903.3 ) <= .008856 )
         {
-            y = getL() * whitepoint.getY() / 903.3;
+            y = L * whiteY / 903.3;
         }
         else
         {
-            y = whitepoint.getY() * Math.pow( ( getL() + 16.0 ) / 116.0, 3.0 );
+            y = whiteY * Math.pow( ( L + 16.0 ) / 116.0, 3.0 );
         }
-        double denum = whitepoint.getX() + 15 * whitepoint.getY() + 3 * whitepoint.getZ();
-        double uak = getu() + 13 * getL() * 4 * whitepoint.getX() / denum;
-        double vak = getv() + 13 * getL() * 9 * whitepoint.getY() / denum;
-
+        double denum = whiteX + 15 * whiteY + 3 * whiteZ;
+        double uak = u + 13 * L * 4 * whiteX / denum;
+        double vak = v + 13 * L * 9 * whiteY / denum;
         double x = 9 * y * uak / ( 4 * vak );
-        double z = ( 4 * 13 * getL() * x - uak * ( x + 15 * y ) ) / ( 3 * uak );
-
-        return new XYZ( x, y, z );
+        double z = ( 4 * 13 * L * x - uak * ( x + 15 * y ) ) / ( 3 * uak );
+        xyz[ offset ] = x;
+        xyz[ offset + 1 ] = y;
+        xyz[ offset + 2 ] = z;
     }
 }
@@ -86,10 +86,41 @@ public class CMYK
 
     public double[] toRGB()
     {
-        double c = ( getC() * ( 1 - getK() ) + getK() );
-        double m = ( getM() * ( 1 - getK() ) + getK() );
-        double y = ( getY() * ( 1 - getK() ) + getK() );
-        return new double[]{ 1.0 - c, 1.0 - m, 1.0 - y };
+        double[] rgb = new double[ 3 ];
+        toRGB( getC(), getM(), getY(), getK(), rgb, 0 );
+        return rgb;
+    }
+
+    /**
+     * Computes the RGB of the given CMYK values without creating any objects.
+     *
+     * @param rgb    The array to write R, G and B into.
+     * @param offset The position in <code>rgb</code> of the R value.
+     */
+    public static void toRGB( double c, double m, double y, double k, double[] rgb, int offset )
+    {
+        rgb[ offset ] = 1.0 - ( c * ( 1 - k ) + k );
+        rgb[ offset + 1 ] = 1.0 - ( m * ( 1 - k ) + k );
+        rgb[ offset + 2 ] = 1.0 - ( y * ( 1 - k ) + k );
+    }
+
+    /**
+     * Computes the CMYK of the given RGB values without creating any objects.
+     *
+     * @param cmyk   The array to write C, M, Y and K into.
+     * @param offset The position in <code>cmyk</code> of the C value.
+     */
+    public static void fromRGB( double r, double g, double b, double[] cmyk, int offset )
+    {
+        double c = 1.0 - r;
+        double m = 1.0 - g;
+        double y = 1.0 - b;
+        double min = Math.min( Math.min( c, m ), y );
+
+        cmyk[ offset ] = ( c - min ) / ( 1 - min );
+        cmyk[ offset + 1 ] = ( m - min ) / ( 1 - min );
+        cmyk[ offset + 2 ] = ( y - min ) / ( 1 - min );
+        cmyk[ offset + 3 ] = min;
     }
 
     public boolean isInGamut()
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.encodings;
+
+import org.color4j.colorimetry.ColorException;
+import org.color4j.colorimetry.Illuminant;
+import org.color4j.colorimetry.Observer;
+import org.color4j.colorimetry.Spectrum;
+import org.color4j.colorimetry.Weights;
+import org.color4j.colorimetry.math.Maths;
+import org.color4j.colorimetry.weights.WeightsCache;
+
+/**
+ * Computes color values for spectra of one fixed wavelength range, under one Illuminant and Observer.
+ * <p>The weights are looked up, trimmed and compounded to the spectral range once, and the whitepoint is
+ * computed once, when the evaluator is created. The conversion methods write into arrays supplied by the
+ * caller and do not create any objects. The results are identical to those of the
+ * {@link DefaultEncodingFactory}.</p>
+ * <p>Instances are immutable and can be shared between threads.</p>
+ */
+public final class ColorimetricEvaluator
+{
+    private final int m_ShortestWavelength;
+    private final int m_Interval;
+    private final int m_Length;
+    private final int m_Offset;
+    private final double[] m_WeightsX;
+    private final double[] m_WeightsY;
+    private final double[] m_WeightsZ;
+    private final XYZ m_WhitePoint;
+    private final double m_WhiteX;
+    private final double m_WhiteY;
+    private final double m_WhiteZ;
+
+    /**
+     * Creates an evaluator for spectra with the given wavelength range.
+     *
+     * @param illuminant         The Illuminant to compute the values under.
+     * @param observer           The Observer to compute the values for.
+     * @param shortestWavelength The wavelength of the first value of each spectrum.
+     * @param interval           The wavelength interval between the values.
+     * @param length             The number of values in each spectrum.
+     * @return an evaluator for the given conditions.
+     * @throws ColorException if there are no weights for the illuminant, observer and interval.
+     * @throws IllegalArgumentException if there are no 10nm weights to compute the whitepoint from.
+     */
+    public static ColorimetricEvaluator create( Illuminant illuminant,
+                                                Observer observer,
+                                                int shortestWavelength,
+                                                int interval,
+                                                int length
+    )
+    {
+        if( illuminant == null )
+        {
+            throw new IllegalArgumentException( "A null parameter for Illuminant is not allowed." );   //NOI18N
+        }
+        if( observer == null )
+        {
+            throw new IllegalArgumentException( "A null parameter for Observer is not allowed." );     //NOI18N
+        }
+        if( interval <= 0 || length <= 0 )
+        {
+            throw new IllegalArgumentException( "Interval and length must be positive." );   //NOI18N
+        }
+        Weights weights = WeightsCache.getInstance().getWeights( illuminant, observer, interval );
+        if( weights == null )
+        {
+            throw new ColorException( "No weights available for " + illuminant.getName() + ", "
+                                      + observer.getName() + " and " + interval + "nm." ); //NOI18N
+        }
+        Weights whiteWeights = WeightsCache.getInstance().getWeights( illuminant, observer );
+        if( whiteWeights == null )
+        {
+            throw new IllegalArgumentException( "No whitepoint weights available for " + illuminant.getName() + " and "
+                                                + observer.getName() + "." ); //NOI18N
+        }
+        return new ColorimetricEvaluator( weights, whiteWeights.toWhitePoint(), shortestWavelength, interval, length );
+    }
+
+    /**
+     * Creates an evaluator for spectra with the same wavelength range as <code>spectrum</code>.
+     */
+    public static ColorimetricEvaluator create( Illuminant illuminant, Observer observer, Spectrum spectrum )
+    {
+        return create( illuminant, observer, spectrum.getShortestWavelength(), spectrum.getInterval(), spectrum.getLength() );
+    }
+
+    private ColorimetricEvaluator( Weights weights, XYZ whitepoint, int shortestWavelength, int interval, int length )
+    {
+        m_ShortestWavelength = shortestWavelength;
+        m_Interval = interval;
+        m_Length = length;
+        m_WhitePoint = whitepoint;
+        m_WhiteX = whitepoint.getX();
+        m_WhiteY = whitepoint.getY();
+        m_WhiteZ = whitepoint.getZ();
+
+        // Same alignment as DefaultEncodingFactory.createXYZ(), done once for all spectra.
+        int w_S = weights.getShortestWavelength();
+        int w_E = weights.getLongestWavelength();
+        int r_S = shortestWavelength;
+        int r_E = shortestWavelength + ( length - 1 ) * interval;
+        int start_r, end_r, start_w, end_w;
+        if( r_S < w_S )
+        {
+            start_r = ( w_S - r_S ) / interval;
+            start_w = 0;
+        }
+        else
+        {
+            start_r = 0;
+            start_w = ( r_S - w_S ) / interval;
+        }
+        if( r_E < w_E )
+        {
+            end_r = 0;
+            end_w = ( w_E - r_E ) / interval;
+        }
+        else
+        {
+            end_w = 0;
+            end_r = ( r_E - w_E ) / interval;
+        }
+        double[] w_x = Maths.getSameIntervalW( weights.getWeightsX(), start_w, end_w );
+        double[] w_y = Maths.getSameIntervalW( weights.getWeightsY(), start_w, end_w );
+        double[] w_z = Maths.getSameIntervalW( weights.getWeightsZ(), start_w, end_w );
+        int size = Math.max( 0, Math.min( w_x.length, length - start_r - end_r ) );
+        m_Offset = start_r;
+        m_WeightsX = new double[ size ];
+        m_WeightsY = new double[ size ];
+        m_WeightsZ = new double[ size ];
+        System.arraycopy( w_x, 0, m_WeightsX, 0, size );
+        System.arraycopy( w_y, 0, m_WeightsY, 0, size );
+        System.arraycopy( w_z, 0, m_WeightsZ, 0, size );
+    }
+
+    public int getShortestWavelength()
+    {
+        return m_ShortestWavelength;
+    }
+
+    public int getInterval()
+    {
+        return m_Interval;
+    }
+
+    /**
+     * @return the number of values in each spectrum.
+     */
+    public int getLength()
+    {
+        return m_Length;
+    }
+
+    /**
+     * @return the whitepoint of the illuminant and observer.
+     */
+    public XYZ getWhitePoint()
+    {
+        return m_WhitePoint;
+    }
+
+    /**
+     * @return the position in the spectrum of the value weighted by the first kernel entry.
+     */
+    int getKernelOffset()
+    {
+        return m_Offset;
+    }
+
+    /**
+     * @return the aligned weights for X, Y and Z, not to be modified.
+     */
+    double[][] getKernels()
+    {
+        return new double[][]{ m_WeightsX, m_WeightsY, m_WeightsZ };
+    }
+
+    /**
+     * Computes the XYZ of a spectrum.
+     *
+     * @param values The spectral values, <code>getLength()</code> long.
+     * @param xyz    The array to write X, Y and Z into.
+     */
+    public void toXYZ( double[] values, double[] xyz )
+    {
+        toXYZ( values, 0, xyz, 0 );
+    }
+
+    /**
+     * Computes the XYZ of the spectrum starting at <code>offset</code> in <code>values</code>.
+     *
+     * @param values    The array holding the spectral values.
+     * @param offset    The position of the first value of the spectrum.
+     * @param xyz       The array to write X, Y and Z into.
+     * @param xyzOffset The position in <code>xyz</code> to write X into.
+     */
+    public void toXYZ( double[] values, int offset, double[] xyz, int xyzOffset )
+    {
+        double[] w_x = m_WeightsX;
+        double[] w_y = m_WeightsY;
+        double[] w_z = m_WeightsZ;
+        int base = offset + m_Offset;
+        double x = 0.0;
+        double y = 0.0;
+        double z = 0.0;
+        for( int j = 0; j < w_x.length; j++ )
+        {
+            double r = values[ base + j ];
+            x += w_x[ j ] * r;
+            y += w_y[ j ] * r;
+            z += w_z[ j ] * r;
+        }
+        xyz[ xyzOffset ] = x;
+        xyz[ xyzOffset + 1 ] = y;
+        xyz[ xyzOffset + 2 ] = z;
+    }
+
+    /**
+     * Computes the XYZ of the spectrum starting at <code>offset</code> in <code>values</code>.
+     *
+     * @param values    The array holding the spectral values.
+     * @param offset    The position of the first value of the spectrum.
+     * @param xyz       The array to write X, Y and Z into.
+     * @param xyzOffset The position in <code>xyz</code> to write X into.
+     */
+    public void toXYZ( float[] values, int offset, double[] xyz, int xyzOffset )
+    {
+        double[] w_x = m_WeightsX;
+        double[] w_y = m_WeightsY;
+        double[] w_z = m_WeightsZ;
+        int base = offset + m_Offset;
+        double x = 0.0;
+        double y = 0.0;
+        double z = 0.0;
+        for( int j = 0; j < w_x.length; j++ )
+        {
+            double r = values[ base + j ];
+            x += w_x[ j ] * r;
+            y += w_y[ j ] * r;
+            z += w_z[ j ] * r;
+        }
+        xyz[ xyzOffset ] = x;
+        xyz[ xyzOffset + 1 ] = y;
+        xyz[ xyzOffset + 2 ] = z;
+    }
+
+    /**
+     * Computes the XYZ of a Spectrum, reading its values in place.
+     *
+     * @param spectrum The Spectrum, with the wavelength range of this evaluator.
+     * @param xyz      The array to write X, Y and Z into.
+     * @throws IllegalArgumentException if the Spectrum has a different wavelength range.
+     */
+    public void toXYZ( Spectrum spectrum, double[] xyz )
+    {
+        if( spectrum.getShortestWavelength() != m_ShortestWavelength
+            || spectrum.getInterval() != m_Interval
+            || spectrum.getLength() != m_Length )
+        {
+            throw new IllegalArgumentException( "The Spectrum does not have the wavelength range of the evaluator." );  //NOI18N
+        }
+        double[] w_x = m_WeightsX;
+        double[] w_y = m_WeightsY;
+        double[] w_z = m_WeightsZ;
+        double x = 0.0;
+        double y = 0.0;
+        double z = 0.0;
+        for( int j = 0; j < w_x.length; j++ )
+        {
+            double r = spectrum.getValue( m_Offset + j );
+            x += w_x[ j ] * r;
+            y += w_y[ j ] * r;
+            z += w_z[ j ] * r;
+        }
+        xyz[ 0 ] = x;
+        xyz[ 1 ] = y;
+        xyz[ 2 ] = z;
+    }
+
+    /**
+     * Computes the CIELab of a Spectrum, reading its values in place.
+     *
+     * @param spectrum The Spectrum, with the wavelength range of this evaluator.
+     * @param lab      The array to write L, a and b into.
+     * @throws IllegalArgumentException if the Spectrum has a different wavelength range.
+     */
+    public void toLab( Spectrum spectrum, double[] lab )
+    {
+        toXYZ( spectrum, lab );
+        XYZ.toCIELab( lab[ 0 ], lab[ 1 ], lab[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, lab, 0 );
+    }
+
+    /**
+     * Computes the CIELab of a spectrum.
+     *
+     * @param values The spectral values, <code>getLength()</code> long.
+     * @param lab    The array to write L, a and b into.
+     */
+    public void toLab( double[] values, double[] lab )
+    {
+        toLab( values, 0, lab, 0 );
+    }
+
+    /**
+     * Computes the CIELab of the spectrum starting at <code>offset</code> in <code>values</code>.
+     *
+     * @param values    The array holding the spectral values.
+     * @param offset    The position of the first value of the spectrum.
+     * @param lab       The array to write L, a and b into.
+     * @param labOffset The position in <code>lab</code> to write L into.
+     */
+    public void toLab( double[] values, int offset, double[] lab, int labOffset )
+    {
+        toXYZ( values, offset, lab, labOffset );
+        XYZ.toCIELab( lab[ labOffset ], lab[ labOffset + 1 ], lab[ labOffset + 2 ],
+                      m_WhiteX, m_WhiteY, m_WhiteZ, lab, labOffset );
+    }
+
+    /**
+     * Computes the CIELab of the spectrum starting at <code>offset</code> in <code>values</code>.
+     *
+     * @param values    The array holding the spectral values.
+     * @param offset    The position of the first value of the spectrum.
+     * @param lab       The array to write L, a and b into.
+     * @param labOffset The position in <code>lab</code> to write L into.
+     */
+    public void toLab( float[] values, int offset, double[] lab, int labOffset )
+    {
+        toXYZ( values, offset, lab, labOffset );
+        XYZ.toCIELab( lab[ labOffset ], lab[ labOffset + 1 ], lab[ labOffset + 2 ],
+                      m_WhiteX, m_WhiteY, m_WhiteZ, lab, labOffset );
+    }
+
+    /**
+     * Computes the CIELuv of the spectrum starting at <code>offset</code> in <code>values</code>.
+     *
+     * @param values    The array holding the spectral values.
+     * @param offset    The position of the first value of the spectrum.
+     * @param luv       The array to write L, u and v into.
+     * @param luvOffset The position in <code>luv</code> to write L into.
+     */
+    public void toLuv( double[] values, int offset, double[] luv, int luvOffset )
+    {
+        toXYZ( values, offset, luv, luvOffset );
+        XYZ.toCIELuv( luv[ luvOffset ], luv[ luvOffset + 1 ], luv[ luvOffset + 2 ],
+                      m_WhiteX, m_WhiteY, m_WhiteZ, luv, luvOffset );
+    }
+
+    /**
+     * Computes the HunterLab of the spectrum starting at <code>offset</code> in <code>values</code>.
+     *
+     * @param values    The array holding the spectral values.
+     * @param offset    The position of the first value of the spectrum.
+     * @param lab       The array to write L, a and b into.
+     * @param labOffset The position in <code>lab</code> to write L into.
+     */
+    public void toHunterLab( double[] values, int offset, double[] lab, int labOffset )
+    {
+        toXYZ( values, offset, lab, labOffset );
+        XYZ.toHunterLab( lab[ labOffset ], lab[ labOffset + 1 ], lab[ labOffset + 2 ],
+                         m_WhiteX, m_WhiteY, m_WhiteZ, lab, labOffset );
+    }
+}
@@ -190,17 +190,19 @@ public class DefaultEncodingFactory
             end_r = ( r_E - w_E ) / interval;
         }
 
-        double[] r_xyz = Maths.getSameIntervalR( reflectance.getSpectrum().getValues(), start_r, end_r );
         double[] w_x = Maths.getSameIntervalW( w.getWeightsX(), start_w, end_w );
         double[] w_y = Maths.getSameIntervalW( w.getWeightsY(), start_w, end_w );
         double[] w_z = Maths.getSameIntervalW( w.getWeightsZ(), start_w, end_w );
 
-        double length = ( w_x.length <= r_xyz.length ) ? w_x.length : r_xyz.length;
+        // read the reflectance in place, instead of copying the trimmed range
+        int r_length = spectrum.getLength() - start_r - end_r;
+        int length = ( w_x.length <= r_length ) ? w_x.length : r_length;
         for( int j = 0; j < length; j++ )
         {
-            rt_value[ 0 ] += w_x[ j ] * r_xyz[ j ];
-            rt_value[ 1 ] += w_y[ j ] * r_xyz[ j ];
-            rt_value[ 2 ] += w_z[ j ] * r_xyz[ j ];
+            double r = spectrum.getValue( start_r + j );
+            rt_value[ 0 ] += w_x[ j ] * r;
+            rt_value[ 1 ] += w_y[ j ] * r;
+            rt_value[ 2 ] += w_z[ j ] * r;
         }
         return new XYZ( rt_value[ 0 ], rt_value[ 1 ], rt_value[ 2 ] );
     }
@@ -41,6 +41,9 @@ public class Din99Lab
      */
     private final boolean m_InGamut = true;
 
+    private static final double COS16 = Math.cos( 16 * ( Math.PI / 180.0 ) );
+    private static final double SIN16 = Math.sin( 16 * ( Math.PI / 180.0 ) );
+
     public Din99Lab( double L, double a, double b, double c, double h )
     {
         lStar = L;
@@ -75,6 +78,48 @@ public class Din99Lab
         return hStar;
     }
 
+    /**
+     * Computes the CIELab of this Din99Lab, the inverse of {@link CIELab#toDin99Lab(double, double)}.
+     *
+     * @param Ke  The lightness factor used to compute this Din99Lab.
+     * @param Kch The chroma and hue factor used to compute this Din99Lab.
+     */
+    public CIELab toCIELab( double Ke, double Kch )
+    {
+        double[] lab = new double[ 3 ];
+        toCIELab( lStar, aStar, bStar, Ke, Kch, lab, 0 );
+        return new CIELab( lab[ 0 ], lab[ 1 ], lab[ 2 ] );
+    }
+
+    /**
+     * Computes the CIELab of the given Din99 L, a and b without creating any objects.
+     *
+     * @param lab    The array to write L*, a* and b* into.
+     * @param offset The position in <code>lab</code> of the L* value.
+     */
+    public static void toCIELab( double L, double a, double b, double Ke, double Kch, double[] lab, int offset )
+    {
+        double c99 = Math.sqrt( a * a + b * b );
+        double g = ( Math.exp( c99 * 0.045 * Ke * Kch ) - 1 ) / 0.045;
+        double e;
+        double f;
+        if( c99 > 0.0 )
+        {
+            // the Din99 hue is the angle of the point (f, e)
+            f = g * a / c99;
+            e = g * b / c99;
+        }
+        else
+        {
+            f = 0.0;
+            e = 0.0;
+        }
+        f = f / 0.7;
+        lab[ offset ] = ( Math.exp( L * Ke / 105.51 ) - 1 ) / 0.0158;
+        lab[ offset + 1 ] = e * COS16 - f * SIN16;
+        lab[ offset + 2 ] = e * SIN16 + f * COS16;
+    }
+
     public boolean isInGamut()
     {
         return m_InGamut;
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.encodings;
+
+import org.color4j.colorimetry.ColorEncoding;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * Converts packed arrays of color values between the supported ColorEncodings.
+ * <p>The supported encodings are XYZ, CIELab, CIELuv, HunterLab, RGB, CMYK and Din99Lab. CMYK colors have four
+ * values (C, M, Y, K), Din99Lab colors three (L, a, b) and all other encodings three values in the order of
+ * their constructor. The values are either {@link Layout#INTERLEAVED}, one color after the other, or
+ * {@link Layout#PLANAR}, all first values, then all second values and so on.</p>
+ * <p>Conversions go through XYZ, except between CIELab and Din99Lab and between RGB and CMYK, which are
+ * converted directly. Each step gives the same result as the corresponding method on the encoding objects,
+ * e.g. <code>xyz.toCIELab( whitepoint )</code>; RGB is converted to XYZ by {@link RGB#toXYZ()}, and XYZ to RGB
+ * by {@link XYZ#toRGB(XYZ)}.</p>
+ * <p>Instances are immutable and can be shared between threads. Large arrays are split across the
+ * available processors.</p>
+ */
+public final class EncodingConverter
+{
+    /**
+     * Number of colors below which an array is not split up.
+     */
+    private static final int GRAIN = 4096;
+
+    public enum Layout
+    {
+        INTERLEAVED, PLANAR
+    }
+
+    private static final int XYZ_ENCODING = 0;
+    private static final int CIELAB = 1;
+    private static final int CIELUV = 2;
+    private static final int HUNTERLAB = 3;
+    private static final int RGB_ENCODING = 4;
+    private static final int CMYK_ENCODING = 5;
+    private static final int DIN99LAB = 6;
+
+    private final int m_From;
+    private final int m_To;
+    private final double m_WhiteX;
+    private final double m_WhiteY;
+    private final double m_WhiteZ;
+    private final double m_D65X;
+    private final double m_D65Y;
+    private final double m_D65Z;
+    private final double m_Ke;
+    private final double m_Kch;
+
+    /**
+     * Converts interleaved color values.
+     *
+     * @param from       The encoding of the values in <code>src</code>.
+     * @param to         The encoding to convert to.
+     * @param src        The color values to convert.
+     * @param dst        The array to write the converted values into.
+     * @param count      The number of colors to convert.
+     * @param whitepoint The whitepoint of the conversions that need one.
+     * @throws UnsupportedConversionException if one of the encodings is not supported.
+     */
+    public static void convert( Class<? extends ColorEncoding> from,
+                                Class<? extends ColorEncoding> to,
+                                double[] src,
+                                double[] dst,
+                                int count,
+                                XYZ whitepoint
+    )
+    {
+        create( from, to, whitepoint ).convert( src, dst, count, Layout.INTERLEAVED );
+    }
+
+    /**
+     * Converts color values in the given layout.
+     *
+     * @see #convert(Class, Class, double[], double[], int, XYZ)
+     */
+    public static void convert( Class<? extends ColorEncoding> from,
+                                Class<? extends ColorEncoding> to,
+                                double[] src,
+                                double[] dst,
+                                int count,
+                                XYZ whitepoint,
+                                Layout layout
+    )
+    {
+        create( from, to, whitepoint ).convert( src, dst, count, layout );
+    }
+
+    /**
+     * Creates a converter using Ke = Kch = 1.0 for the Din99 conversions.
+     *
+     * @throws UnsupportedConversionException if one of the encodings is not supported.
+     */
+    public static EncodingConverter create( Class<? extends ColorEncoding> from,
+                                            Class<? extends ColorEncoding> to,
+                                            XYZ whitepoint
+    )
+    {
+        return create( from, to, whitepoint, 1.0, 1.0 );
+    }
+
+    /**
+     * Creates a converter.
+     *
+     * @param from       The encoding to convert from.
+     * @param to         The encoding to convert to.
+     * @param whitepoint The whitepoint of the conversions that need one.
+     * @param Ke         The lightness factor of the Din99 conversions.
+     * @param Kch        The chroma and hue factor of the Din99 conversions.
+     * @throws UnsupportedConversionException if one of the encodings is not supported.
+     */
+    public static EncodingConverter create( Class<? extends ColorEncoding> from,
+                                            Class<? extends ColorEncoding> to,
+                                            XYZ whitepoint,
+                                            double Ke,
+                                            double Kch
+    )
+    {
+        if( whitepoint == null )
+        {
+            throw new IllegalArgumentException( "A null parameter for the whitepoint is not allowed." ); //NOI18N
+        }
+        return new EncodingConverter( encodingOf( from ), encodingOf( to ), whitepoint, Ke, Kch );
+    }
+
+    private EncodingConverter( int from, int to, XYZ whitepoint, double Ke, double Kch )
+    {
+        m_From = from;
+        m_To = to;
+        m_WhiteX = whitepoint.getX();
+        m_WhiteY = whitepoint.getY();
+        m_WhiteZ = whitepoint.getZ();
+        m_D65X = XYZ.WHITEPOINT_D65_10.getX();
+        m_D65Y = XYZ.WHITEPOINT_D65_10.getY();
+        m_D65Z = XYZ.WHITEPOINT_D65_10.getZ();
+        m_Ke = Ke;
+        m_Kch = Kch;
+    }
+
+    /**
+     * @return the number of values of each color in the given encoding.
+     * @throws UnsupportedConversionException if the encoding is not supported.
+     */
+    public static int getValueCount( Class<? extends ColorEncoding> encoding )
+    {
+        return encodingOf( encoding ) == CMYK_ENCODING ? 4 : 3;
+    }
+
+    /**
+     * Converts <code>count</code> colors from <code>src</code> into <code>dst</code>.
+     * <p><code>src</code> and <code>dst</code> must not be the same array, unless both encodings have the
+     * same number of values per color and the layout is interleaved.</p>
+     */
+    public void convert( final double[] src, final double[] dst, final int count, Layout layout )
+    {
+        final int inValues = m_From == CMYK_ENCODING ? 4 : 3;
+        final int outValues = m_To == CMYK_ENCODING ? 4 : 3;
+        if( count < 0 || (long) count * inValues > src.length )
+        {
+            throw new IllegalArgumentException( "The source does not contain " + count + " colors." ); //NOI18N
+        }
+        if( (long) count * outValues > dst.length )
+        {
+            throw new IllegalArgumentException( "The destination can not hold " + count + " colors." ); //NOI18N
+        }
+        final boolean planar = layout == Layout.PLANAR;
+        Parallel.forRange( count, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                double[] in = new double[ 4 ];
+                double[] out = new double[ 4 ];
+                for( int i = from; i < to; i++ )
+                {
+                    for( int k = 0; k < inValues; k++ )
+                    {
+                        in[ k ] = src[ planar ? k * count + i : i * inValues + k ];
+                    }
+                    convert( in, out );
+                    for( int k = 0; k < outValues; k++ )
+                    {
+                        dst[ planar ? k * count + i : i * outValues + k ] = out[ k ];
+                    }
+                }
+            }
+        } );
+    }
+
+    /**
+     * Converts a single color. <code>in</code> may be modified.
+     */
+    private void convert( double[] in, double[] out )
+    {
+        int current = m_From;
+        if( current == m_To )
+        {
+            System.arraycopy( in, 0, out, 0, 4 );
+            return;
+        }
+        if( current == DIN99LAB )
+        {
+            Din99Lab.toCIELab( in[ 0 ], in[ 1 ], in[ 2 ], m_Ke, m_Kch, in, 0 );
+            current = CIELAB;
+        }
+        else if( current == CMYK_ENCODING )
+        {
+            CMYK.toRGB( in[ 0 ], in[ 1 ], in[ 2 ], in[ 3 ], in, 0 );
+            current = RGB_ENCODING;
+        }
+        if( current == m_To )
+        {
+            System.arraycopy( in, 0, out, 0, 3 );
+            return;
+        }
+        if( current == CIELAB && m_To == DIN99LAB )
+        {
+            CIELab.toDin99Lab( in[ 0 ], in[ 1 ], in[ 2 ], m_Ke, m_Kch, out, 0 );
+            return;
+        }
+        if( current == RGB_ENCODING && m_To == CMYK_ENCODING )
+        {
+            CMYK.fromRGB( in[ 0 ], in[ 1 ], in[ 2 ], out, 0 );
+            return;
+        }
+        switch( current )
+        {
+        case CIELAB:
+            CIELab.toXYZ( in[ 0 ], in[ 1 ], in[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, in, 0 );
+            break;
+        case CIELUV:
+            CIELuv.toXYZ( in[ 0 ], in[ 1 ], in[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, in, 0 );
+            break;
+        case HUNTERLAB:
+            HunterLab.toXYZ( in[ 0 ], in[ 1 ], in[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, in, 0 );
+            break;
+        case RGB_ENCODING:
+            RGB.toXYZ( in[ 0 ], in[ 1 ], in[ 2 ], in, 0 );
+            break;
+        default:
+            break;
+        }
+        switch( m_To )
+        {
+        case XYZ_ENCODING:
+            System.arraycopy( in, 0, out, 0, 3 );
+            break;
+        case CIELAB:
+            XYZ.toCIELab( in[ 0 ], in[ 1 ], in[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, out, 0 );
+            break;
+        case CIELUV:
+            XYZ.toCIELuv( in[ 0 ], in[ 1 ], in[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, out, 0 );
+            break;
+        case HUNTERLAB:
+            XYZ.toHunterLab( in[ 0 ], in[ 1 ], in[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, out, 0 );
+            break;
+        case RGB_ENCODING:
+            toRGB( in, out );
+            break;
+        case CMYK_ENCODING:
+            toRGB( in, in );
+            CMYK.fromRGB( in[ 0 ], in[ 1 ], in[ 2 ], out, 0 );
+            break;
+        case DIN99LAB:
+            XYZ.toCIELab( in[ 0 ], in[ 1 ], in[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, in, 0 );
+            CIELab.toDin99Lab( in[ 0 ], in[ 1 ], in[ 2 ], m_Ke, m_Kch, out, 0 );
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void toRGB( double[] xyz, double[] rgb )
+    {
+        XYZ.toRGB( xyz[ 0 ], xyz[ 1 ], xyz[ 2 ], m_WhiteX, m_WhiteY, m_WhiteZ, m_D65X, m_D65Y, m_D65Z, rgb, 0 );
+    }
+
+    private static int encodingOf( Class<? extends ColorEncoding> encoding )
+    {
+        if( XYZ.class.equals( encoding ) )
+        {
+            return XYZ_ENCODING;
+        }
+        else if( CIELab.class.equals( encoding ) )
+        {
+            return CIELAB;
+        }
+        else if( CIELuv.class.equals( encoding ) )
+        {
+            return CIELUV;
+        }
+        else if( HunterLab.class.equals( encoding ) )
+        {
+            return HUNTERLAB;
+        }
+        else if( RGB.class.equals( encoding ) )
+        {
+            return RGB_ENCODING;
+        }
+        else if( CMYK.class.equals( encoding ) )
+        {
+            return CMYK_ENCODING;
+        }
+        else if( Din99Lab.class.equals( encoding ) )
+        {
+            return DIN99LAB;
+        }
+        String name = encoding == null ? "null" : encoding.getName();  //NOI18N
+        throw new UnsupportedConversionException( "Unsupported ColorEncoding type: " + name );   //NOI18N
+    }
+}
@@ -87,6 +87,42 @@ public class HunterLab
         return Maths.atan( this.a, this.b );
     }
 
+    /**
+     * Computes the XYZ of this HunterLab, the inverse of {@link XYZ#toHunterLab(XYZ)}.
+     */
+    public XYZ toXYZ( XYZ whitepoint )
+    {
+        double[] xyz = new double[ 3 ];
+        toXYZ( l, a, b, whitepoint.getX(), whitepoint.getY(), whitepoint.getZ(), xyz, 0 );
+        return new XYZ( xyz[ 0 ], xyz[ 1 ], xyz[ 2 ] );
+    }
+
+    /**
+     * Computes the XYZ of the given HunterLab values without creating any objects.
+     *
+     * @param xyz    The array to write X, Y and Z into.
+     * @param offset The position in <code>xyz</code> of the X value.
+     */
+    public static void toXYZ( double L, double a, double b,
+                              double whiteX, double whiteY, double whiteZ,
+                              double[] xyz, int offset
+    )
+    {
+        double fnY = L / 100.0 * ( L / 100.0 );
+        if( fnY == 0.0 )
+        {
+            xyz[ offset ] = 0.0;
+            xyz[ offset + 1 ] = 0.0;
+            xyz[ offset + 2 ] = 0.0;
+            return;
+        }
+        double fnX = fnY + a / ( 175.0 * Math.pow( .0102 * whiteX / fnY, .5 ) );
+        double fnZ = fnY - b / ( .4 * 175.0 * Math.pow( .00847 * whiteZ / fnY, .5 ) );
+        xyz[ offset ] = fnX * whiteX;
+        xyz[ offset + 1 ] = fnY * whiteY;
+        xyz[ offset + 2 ] = fnZ * whiteZ;
+    }
+
     public boolean isInGamut()
     {
         return m_InGamut;
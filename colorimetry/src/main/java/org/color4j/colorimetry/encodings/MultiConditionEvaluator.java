@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.encodings;
+
+import org.color4j.colorimetry.Illuminant;
+import org.color4j.colorimetry.Observer;
+import org.color4j.colorimetry.Spectrum;
+
+/**
+ * Computes the color values of a spectrum under several viewing conditions in a single pass.
+ * <p>A viewing condition is a pair of Illuminant and Observer. The aligned weights of all conditions
+ * are stacked into one matrix, with the X, Y and Z rows of all conditions next to each other for each
+ * wavelength, so that every spectral value is read once and the work is a single matrix-vector product.
+ * The results are identical to those of a {@link ColorimetricEvaluator} per condition.</p>
+ * <p>Results are written in condition order, three values per condition. Instances are immutable and can
+ * be shared between threads.</p>
+ */
+public final class MultiConditionEvaluator
+{
+    private final Illuminant[] m_Illuminants;
+    private final Observer[] m_Observers;
+    private final XYZ[] m_WhitePoints;
+    private final int m_ShortestWavelength;
+    private final int m_Interval;
+    private final int m_Length;
+    private final int m_Rows;
+    private final int m_First;
+    private final int m_Columns;
+    private final double[] m_Matrix;
+    private final double[] m_White;
+
+    /**
+     * Creates an evaluator for the conditions <code>(illuminants[i], observers[i])</code>.
+     *
+     * @param illuminants        The Illuminant of each condition.
+     * @param observers          The Observer of each condition, as many as there are illuminants.
+     * @param shortestWavelength The wavelength of the first value of each spectrum.
+     * @param interval           The wavelength interval between the values.
+     * @param length             The number of values in each spectrum.
+     * @return an evaluator for the given conditions.
+     * @throws org.color4j.colorimetry.ColorException if there are no weights for one of the conditions.
+     */
+    public static MultiConditionEvaluator create( Illuminant[] illuminants,
+                                                  Observer[] observers,
+                                                  int shortestWavelength,
+                                                  int interval,
+                                                  int length
+    )
+    {
+        if( illuminants == null || observers == null )
+        {
+            throw new IllegalArgumentException( "A null parameter for the conditions is not allowed." ); //NOI18N
+        }
+        if( illuminants.length != observers.length )
+        {
+            throw new IllegalArgumentException( "There must be as many Observers as Illuminants." );     //NOI18N
+        }
+        ColorimetricEvaluator[] evaluators = new ColorimetricEvaluator[ illuminants.length ];
+        for( int i = 0; i < evaluators.length; i++ )
+        {
+            evaluators[ i ] = ColorimetricEvaluator.create( illuminants[ i ], observers[ i ], shortestWavelength, interval, length );
+        }
+        return new MultiConditionEvaluator( illuminants.clone(), observers.clone(), evaluators );
+    }
+
+    /**
+     * Creates an evaluator for the conditions, for spectra with the same wavelength range as <code>spectrum</code>.
+     */
+    public static MultiConditionEvaluator create( Illuminant[] illuminants, Observer[] observers, Spectrum spectrum )
+    {
+        return create( illuminants, observers, spectrum.getShortestWavelength(), spectrum.getInterval(), spectrum.getLength() );
+    }
+
+    private MultiConditionEvaluator( Illuminant[] illuminants, Observer[] observers, ColorimetricEvaluator[] evaluators )
+    {
+        m_Illuminants = illuminants;
+        m_Observers = observers;
+        m_Rows = evaluators.length * 3;
+        m_WhitePoints = new XYZ[ evaluators.length ];
+        m_White = new double[ m_Rows ];
+        if( evaluators.length == 0 )
+        {
+            m_ShortestWavelength = 0;
+            m_Interval = 0;
+            m_Length = 0;
+            m_First = 0;
+            m_Columns = 0;
+            m_Matrix = new double[ 0 ];
+            return;
+        }
+        m_ShortestWavelength = evaluators[ 0 ].getShortestWavelength();
+        m_Interval = evaluators[ 0 ].getInterval();
+        m_Length = evaluators[ 0 ].getLength();
+
+        int first = Integer.MAX_VALUE;
+        int end = 0;
+        for( ColorimetricEvaluator evaluator : evaluators )
+        {
+            int size = evaluator.getKernels()[ 0 ].length;
+            if( size > 0 )
+            {
+                first = Math.min( first, evaluator.getKernelOffset() );
+                end = Math.max( end, evaluator.getKernelOffset() + size );
+            }
+        }
+        if( first > end )
+        {
+            first = end;
+        }
+        m_First = first;
+        m_Columns = end - first;
+
+        // column-major: the rows of all conditions for one wavelength are adjacent.
+        m_Matrix = new double[ m_Columns * m_Rows ];
+        for( int c = 0; c < evaluators.length; c++ )
+        {
+            ColorimetricEvaluator evaluator = evaluators[ c ];
+            double[][] kernels = evaluator.getKernels();
+            int shift = evaluator.getKernelOffset() - first;
+            for( int k = 0; k < 3; k++ )
+            {
+                double[] kernel = kernels[ k ];
+                for( int j = 0; j < kernel.length; j++ )
+                {
+                    m_Matrix[ ( shift + j ) * m_Rows + c * 3 + k ] = kernel[ j ];
+                }
+            }
+            XYZ white = evaluator.getWhitePoint();
+            m_WhitePoints[ c ] = white;
+            m_White[ c * 3 ] = white.getX();
+            m_White[ c * 3 + 1 ] = white.getY();
+            m_White[ c * 3 + 2 ] = white.getZ();
+        }
+    }
+
+    /**
+     * @return the number of viewing conditions.
+     */
+    public int getConditionCount()
+    {
+        return m_Illuminants.length;
+    }
+
+    public Illuminant getIlluminant( int condition )
+    {
+        return m_Illuminants[ condition ];
+    }
+
+    public Observer getObserver( int condition )
+    {
+        return m_Observers[ condition ];
+    }
+
+    public XYZ getWhitePoint( int condition )
+    {
+        return m_WhitePoints[ condition ];
+    }
+
+    public int getShortestWavelength()
+    {
+        return m_ShortestWavelength;
+    }
+
+    public int getInterval()
+    {
+        return m_Interval;
+    }
+
+    /**
+     * @return the number of values in each spectrum.
+     */
+    public int getLength()
+    {
+        return m_Length;
+    }
+
+    /**
+     * Computes the XYZ of the spectrum starting at <code>offset</code> in <code>values</code>, for all conditions.
+     *
+     * @param values The array holding the spectral values.
+     * @param offset The position of the first value of the spectrum.
+     * @param xyz    The array to write X, Y and Z of each condition into, at least <code>3 * getConditionCount()</code> long.
+     */
+    public void toXYZ( double[] values, int offset, double[] xyz )
+    {
+        int rows = m_Rows;
+        double[] matrix = m_Matrix;
+        for( int k = 0; k < rows; k++ )
+        {
+            xyz[ k ] = 0.0;
+        }
+        int base = offset + m_First;
+        for( int j = 0; j < m_Columns; j++ )
+        {
+            double r = values[ base + j ];
+            int row = j * rows;
+            for( int k = 0; k < rows; k++ )
+            {
+                xyz[ k ] += matrix[ row + k ] * r;
+            }
+        }
+    }
+
+    /**
+     * Computes the XYZ of a Spectrum for all conditions, reading its values in place.
+     *
+     * @param spectrum The Spectrum, with the wavelength range of this evaluator.
+     * @param xyz      The array to write X, Y and Z of each condition into.
+     * @throws IllegalArgumentException if the Spectrum has a different wavelength range.
+     */
+    public void toXYZ( Spectrum spectrum, double[] xyz )
+    {
+        checkSpectrum( spectrum );
+        int rows = m_Rows;
+        double[] matrix = m_Matrix;
+        for( int k = 0; k < rows; k++ )
+        {
+            xyz[ k ] = 0.0;
+        }
+        for( int j = 0; j < m_Columns; j++ )
+        {
+            double r = spectrum.getValue( m_First + j );
+            int row = j * rows;
+            for( int k = 0; k < rows; k++ )
+            {
+                xyz[ k ] += matrix[ row + k ] * r;
+            }
+        }
+    }
+
+    /**
+     * Computes the CIELab of the spectrum starting at <code>offset</code> in <code>values</code>, for all conditions.
+     *
+     * @param values The array holding the spectral values.
+     * @param offset The position of the first value of the spectrum.
+     * @param lab    The array to write L, a and b of each condition into, at least <code>3 * getConditionCount()</code> long.
+     */
+    public void toLab( double[] values, int offset, double[] lab )
+    {
+        toXYZ( values, offset, lab );
+        xyzToLab( lab );
+    }
+
+    /**
+     * Computes the CIELab of a Spectrum for all conditions, reading its values in place.
+     *
+     * @param spectrum The Spectrum, with the wavelength range of this evaluator.
+     * @param lab      The array to write L, a and b of each condition into.
+     * @throws IllegalArgumentException if the Spectrum has a different wavelength range.
+     */
+    public void toLab( Spectrum spectrum, double[] lab )
+    {
+        toXYZ( spectrum, lab );
+        xyzToLab( lab );
+    }
+
+    private void xyzToLab( double[] values )
+    {
+        double[] white = m_White;
+        for( int k = 0; k < m_Rows; k += 3 )
+        {
+            XYZ.toCIELab( values[ k ], values[ k + 1 ], values[ k + 2 ],
+                          white[ k ], white[ k + 1 ], white[ k + 2 ], values, k );
+        }
+    }
+
+    private void checkSpectrum( Spectrum spectrum )
+    {
+        if( spectrum.getShortestWavelength() != m_ShortestWavelength
+            || spectrum.getInterval() != m_Interval
+            || spectrum.getLength() != m_Length )
+        {
+            throw new IllegalArgumentException( "The Spectrum does not have the wavelength range of the evaluator." );  //NOI18N
+        }
+    }
+}
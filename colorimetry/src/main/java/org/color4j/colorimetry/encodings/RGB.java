@@ -82,47 +82,36 @@ public class RGB
 
     public XYZ toXYZ()
     {
-        double r = getR();
-        double g = getG();
-        double b = getB();
-
-        if( r > 0.04045 )
-        {
-            r = Math.pow( ( r + 0.055 ) / 1.055, 2.4 );
-        }
-        else
-        {
-            r /= 12.92;
-        }
-        if( g > 0.04045 )
-        {
-            g = Math.pow( ( g + 0.055 ) / 1.055, 2.4 );
-        }
-        else
-        {
-            g /= 12.92;
-        }
-        if( b > 0.04045 )
-        {
-            b = Math.pow( ( b + 0.055 ) / 1.055, 2.4 );
-        }
-        else
-        {
-            b /= 12.92;
-        }
+        double[] xyz = new double[ 3 ];
+        toXYZ( getR(), getG(), getB(), xyz, 0 );
+        return new XYZ( xyz[ 0 ], xyz[ 1 ], xyz[ 2 ] );
+    }
 
-        r *= 100;
-        g *= 100;
-        b *= 100;
+    /**
+     * Computes the XYZ of the given sRGB values without creating any objects.
+     *
+     * @param xyz    The array to write X, Y and Z into.
+     * @param offset The position in <code>xyz</code> of the X value.
+     */
+    public static void toXYZ( double r, double g, double b, double[] xyz, int offset )
+    {
+        r = linearize( r ) * 100;
+        g = linearize( g ) * 100;
+        b = linearize( b ) * 100;
 
         // 	KH - Aug 25, 2004 : should be the inverse of m_RGBTristumulus
         Matrix m = XYZ.getInvertedTristimulusMatrix();
+        xyz[ offset ] = ( r * m.m00 ) + ( g * m.m01 ) + ( b * m.m02 );
+        xyz[ offset + 1 ] = ( r * m.m10 ) + ( g * m.m11 ) + ( b * m.m12 );
+        xyz[ offset + 2 ] = ( r * m.m20 ) + ( g * m.m21 ) + ( b * m.m22 );
+    }
 
-        double x = ( r * m.m00 ) + ( g * m.m01 ) + ( b * m.m02 );
-        double y = ( r * m.m10 ) + ( g * m.m11 ) + ( b * m.m12 );
-        double z = ( r * m.m20 ) + ( g * m.m21 ) + ( b * m.m22 );
-
-        return new XYZ( x, y, z );
+    private static double linearize( double value )
+    {
+        if( value > 0.04045 )
+        {
+            return Math.pow( ( value + 0.055 ) / 1.055, 2.4 );
+        }
+        return value / 12.92;
     }
 }
-
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.encodings;
+
+import org.color4j.colorimetry.ColorException;
+import org.color4j.colorimetry.Illuminant;
+import org.color4j.colorimetry.Observer;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * Computes XYZ and CIELab values for large blocks of spectra sharing the same wavelength range.
+ * <p>The spectra are handed over as one flat array, one spectrum after the other, each
+ * <code>getLength()</code> values long, and each spectrum is computed by a {@link ColorimetricEvaluator}.</p>
+ * <p>Instances are immutable and can be shared between threads. Large blocks are split across
+ * the available processors.</p>
+ */
+public class SpectralBatchCalculator
+{
+    /**
+     * Number of spectra below which a block is not split up.
+     */
+    private static final int GRAIN = 1024;
+
+    private final ColorimetricEvaluator m_Evaluator;
+    private final int m_Length;
+
+    /**
+     * Creates a calculator for spectra with the given wavelength range.
+     *
+     * @param illuminant         The Illuminant to compute the values under.
+     * @param observer           The Observer to compute the values for.
+     * @param shortestWavelength The wavelength of the first value of each spectrum.
+     * @param interval           The wavelength interval between the values.
+     * @param length             The number of values in each spectrum.
+     * @return a calculator for the given conditions.
+     * @throws ColorException if there are no weights for the illuminant, observer and interval.
+     */
+    public static SpectralBatchCalculator create( Illuminant illuminant,
+                                                  Observer observer,
+                                                  int shortestWavelength,
+                                                  int interval,
+                                                  int length
+    )
+    {
+        return create( ColorimetricEvaluator.create( illuminant, observer, shortestWavelength, interval, length ) );
+    }
+
+    /**
+     * Creates a calculator computing each spectrum with the given evaluator.
+     */
+    public static SpectralBatchCalculator create( ColorimetricEvaluator evaluator )
+    {
+        if( evaluator == null )
+        {
+            throw new IllegalArgumentException( "A null parameter for ColorimetricEvaluator is not allowed." );   //NOI18N
+        }
+        return new SpectralBatchCalculator( evaluator );
+    }
+
+    private SpectralBatchCalculator( ColorimetricEvaluator evaluator )
+    {
+        m_Evaluator = evaluator;
+        m_Length = evaluator.getLength();
+    }
+
+    public ColorimetricEvaluator getEvaluator()
+    {
+        return m_Evaluator;
+    }
+
+    public int getShortestWavelength()
+    {
+        return m_Evaluator.getShortestWavelength();
+    }
+
+    public int getInterval()
+    {
+        return m_Evaluator.getInterval();
+    }
+
+    /**
+     * @return the number of values in each spectrum.
+     */
+    public int getLength()
+    {
+        return m_Length;
+    }
+
+    /**
+     * @return the whitepoint used for the CIELab computations.
+     */
+    public XYZ getWhitePoint()
+    {
+        return m_Evaluator.getWhitePoint();
+    }
+
+    /**
+     * Computes the XYZ values of all spectra in the block.
+     *
+     * @param spectra The spectra, one after the other.
+     * @return X, Y and Z of each spectrum, one after the other.
+     */
+    public double[] computeXYZ( double[] spectra )
+    {
+        int count = countSpectra( spectra.length );
+        double[] xyz = new double[ count * 3 ];
+        computeXYZ( spectra, count, xyz );
+        return xyz;
+    }
+
+    /**
+     * Computes the XYZ values of all spectra in the block.
+     *
+     * @param spectra The spectra, one after the other.
+     * @return X, Y and Z of each spectrum, one after the other.
+     */
+    public double[] computeXYZ( float[] spectra )
+    {
+        int count = countSpectra( spectra.length );
+        double[] xyz = new double[ count * 3 ];
+        computeXYZ( spectra, count, xyz );
+        return xyz;
+    }
+
+    /**
+     * Computes the XYZ values of the first <code>count</code> spectra into <code>xyz</code>.
+     *
+     * @param spectra The spectra, one after the other.
+     * @param count   The number of spectra to compute.
+     * @param xyz     The array to write X, Y and Z of each spectrum into, at least <code>3 * count</code> long.
+     */
+    public void computeXYZ( final double[] spectra, int count, final double[] xyz )
+    {
+        checkBlock( spectra.length, count, xyz.length );
+        Parallel.forRange( count, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int i = from; i < to; i++ )
+                {
+                    m_Evaluator.toXYZ( spectra, i * m_Length, xyz, i * 3 );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Computes the XYZ values of the first <code>count</code> spectra into <code>xyz</code>.
+     *
+     * @param spectra The spectra, one after the other.
+     * @param count   The number of spectra to compute.
+     * @param xyz     The array to write X, Y and Z of each spectrum into, at least <code>3 * count</code> long.
+     */
+    public void computeXYZ( final float[] spectra, int count, final double[] xyz )
+    {
+        checkBlock( spectra.length, count, xyz.length );
+        Parallel.forRange( count, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int i = from; i < to; i++ )
+                {
+                    m_Evaluator.toXYZ( spectra, i * m_Length, xyz, i * 3 );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Computes the CIELab values of all spectra in the block.
+     *
+     * @param spectra The spectra, one after the other.
+     * @return L, a and b of each spectrum, one after the other.
+     */
+    public double[] computeCIELab( double[] spectra )
+    {
+        int count = countSpectra( spectra.length );
+        double[] lab = new double[ count * 3 ];
+        computeCIELab( spectra, count, lab );
+        return lab;
+    }
+
+    /**
+     * Computes the CIELab values of all spectra in the block.
+     *
+     * @param spectra The spectra, one after the other.
+     * @return L, a and b of each spectrum, one after the other.
+     */
+    public double[] computeCIELab( float[] spectra )
+    {
+        int count = countSpectra( spectra.length );
+        double[] lab = new double[ count * 3 ];
+        computeCIELab( spectra, count, lab );
+        return lab;
+    }
+
+    /**
+     * Computes the CIELab values of the first <code>count</code> spectra into <code>lab</code>.
+     *
+     * @param spectra The spectra, one after the other.
+     * @param count   The number of spectra to compute.
+     * @param lab     The array to write L, a and b of each spectrum into, at least <code>3 * count</code> long.
+     */
+    public void computeCIELab( final double[] spectra, int count, final double[] lab )
+    {
+        checkBlock( spectra.length, count, lab.length );
+        Parallel.forRange( count, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int i = from; i < to; i++ )
+                {
+                    m_Evaluator.toLab( spectra, i * m_Length, lab, i * 3 );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Computes the CIELab values of the first <code>count</code> spectra into <code>lab</code>.
+     *
+     * @param spectra The spectra, one after the other.
+     * @param count   The number of spectra to compute.
+     * @param lab     The array to write L, a and b of each spectrum into, at least <code>3 * count</code> long.
+     */
+    public void computeCIELab( final float[] spectra, int count, final double[] lab )
+    {
+        checkBlock( spectra.length, count, lab.length );
+        Parallel.forRange( count, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int i = from; i < to; i++ )
+                {
+                    m_Evaluator.toLab( spectra, i * m_Length, lab, i * 3 );
+                }
+            }
+        } );
+    }
+
+    private int countSpectra( int values )
+    {
+        if( values % m_Length != 0 )
+        {
+            throw new IllegalArgumentException( "The block of " + values + " values is not a multiple of the spectrum length " + m_Length + "." ); //NOI18N
+        }
+        return values / m_Length;
+    }
+
+    private void checkBlock( int values, int count, int results )
+    {
+        if( count < 0 || (long) count * m_Length > values )
+        {
+            throw new IllegalArgumentException( "The block does not contain " + count + " spectra of length " + m_Length + "." ); //NOI18N
+        }
+        if( (long) count * 3 > results )
+        {
+            throw new IllegalArgumentException( "The result array can not hold " + count + " values." ); //NOI18N
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.color4j.colorimetry.Illuminant;
 import org.color4j.colorimetry.Observer;
 import org.color4j.colorimetry.Weights;
 import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.math.FastMath;
 import org.color4j.colorimetry.math.Matrix;
 import org.color4j.colorimetry.observers.ObserverImpl;
 import org.color4j.colorimetry.weights.WeightsCache;
@@ -102,26 +103,48 @@ public class XYZ
 
     public CIELab toCIELab( XYZ whitepoint )
     {
-        double[] FN = new double[ 3 ];
-        double XYZ_v[] =
-            { getX(), getY(), getZ() };
-        double ILL[] =
-            { whitepoint.getX(), whitepoint.getY(), whitepoint.getZ() };
-        for( int i = 0; i < 3; i++ )
+        double[] lab = new double[ 3 ];
+        toCIELab( getX(), getY(), getZ(), whitepoint.getX(), whitepoint.getY(), whitepoint.getZ(), lab, 0 );
+        return new CIELab( lab[ 0 ], lab[ 1 ], lab[ 2 ] );
+    }
+
+    /**
+     * Computes the CIELab value of the given XYZ values without creating any objects.
+     *
+     * @param x      The X value
+     * @param y      The Y value
+     * @param z      The Z value
+     * @param whiteX The X value of the whitepoint
+     * @param whiteY The Y value of the whitepoint
+     * @param whiteZ The Z value of the whitepoint
+     * @param lab    The array to write L, a and b into.
+     * @param offset The position in <code>lab</code> of the L value.
+     */
+    public static void toCIELab( double x, double y, double z,
+                                 double whiteX, double whiteY, double whiteZ,
+                                 double[] lab, int offset
+    )
+    {
+        boolean fast = FastMath.isEnabled();
+        double fnX = labFunction( x, whiteX, fast );
+        double fnY = labFunction( y, whiteY, fast );
+        double fnZ = labFunction( z, whiteZ, fast );
+        lab[ offset ] = 116.0 * fnY - 16.0;
+        lab[ offset + 1 ] = 500.0 * ( fnX - fnY );
+        lab[ offset + 2 ] = 200.0 * ( fnY - fnZ );
+    }
+
+    private static double labFunction( double value, double white, boolean fast )
+    {
+        if( value / white < 0.008856 )
         {
-            if( XYZ_v[ i ] / ILL[ i ] < 0.008856 )
-            {
-                FN[ i ] = 7.787 * XYZ_v[ i ] / ILL[ i ] + 16.0 / 116.0;
-            }
-            else
-            {
-                FN[ i ] = Math.pow( XYZ_v[ i ] / ILL[ i ], 1.0 / 3.0 );
-            }
+            return 7.787 * value / white + 16.0 / 116.0;
         }
-        double lStar = 116.0 * FN[ 1 ] - 16.0;
-        double aStar = 500.0 * ( FN[ 0 ] - FN[ 1 ] );
-        double bStar = 200.0 * ( FN[ 1 ] - FN[ 2 ] );
-        return new CIELab( lStar, aStar, bStar );
+        if( fast )
+        {
+            return FastMath.cbrt( value / white );
+        }
+        return Math.pow( value / white, 1.0 / 3.0 );
     }
 
     public CMYK toCMYK( XYZ whitepoint )
@@ -154,35 +177,56 @@ public class XYZ
 
     public HunterLab toHunterLab( XYZ whitepoint )
     {
-        double fnX = getX() / whitepoint.getX();
-        double fnY = getY() / whitepoint.getY();
-        double fnZ = getZ() / whitepoint.getZ();
-
-        double l = 100.0 * Math.pow( fnY, .5 );
-        double a = 175.0 * ( fnX - fnY ) * Math.pow( .0102 * whitepoint.getX() / fnY, .5 );
-        double b = .4 * 175.0 * ( fnY - fnZ ) * Math.pow( .00847 * whitepoint.getZ() / fnY, .5 );
-        return new HunterLab( l, a, b );
+        double[] lab = new double[ 3 ];
+        toHunterLab( getX(), getY(), getZ(), whitepoint.getX(), whitepoint.getY(), whitepoint.getZ(), lab, 0 );
+        return new HunterLab( lab[ 0 ], lab[ 1 ], lab[ 2 ] );
     }
 
-    public RGB toRGB( XYZ whitepoint, XYZ whitepointD65 )//XYZ whitepointD50
+    /**
+     * Computes the HunterLab value of the given XYZ values without creating any objects.
+     *
+     * @see #toCIELab(double, double, double, double, double, double, double[], int)
+     */
+    public static void toHunterLab( double x, double y, double z,
+                                    double whiteX, double whiteY, double whiteZ,
+                                    double[] lab, int offset
+    )
     {
-        double temp[] = new double[ 3 ];
-        double D65[] =
-            { whitepointD65.getX(), whitepointD65.getY(), whitepointD65.getZ() };
+        double fnX = x / whiteX;
+        double fnY = y / whiteY;
+        double fnZ = z / whiteZ;
 
-        double illum[] =
-            { whitepoint.getX(), whitepoint.getY(), whitepoint.getZ() };
+        lab[ offset ] = 100.0 * Math.pow( fnY, .5 );
+        lab[ offset + 1 ] = 175.0 * ( fnX - fnY ) * Math.pow( .0102 * whiteX / fnY, .5 );
+        lab[ offset + 2 ] = .4 * 175.0 * ( fnY - fnZ ) * Math.pow( .00847 * whiteZ / fnY, .5 );
+    }
 
-        double xyzv[] =
-            { getX(), getY(), getZ() };
+    public RGB toRGB( XYZ whitepoint, XYZ whitepointD65 )//XYZ whitepointD50
+    {
+        double[] rgb = new double[ 3 ];
+        toRGB( getX(), getY(), getZ(),
+               whitepoint.getX(), whitepoint.getY(), whitepoint.getZ(),
+               whitepointD65.getX(), whitepointD65.getY(), whitepointD65.getZ(),
+               rgb, 0 );
+        return new RGB( rgb[ 0 ], rgb[ 1 ], rgb[ 2 ] );
+    }
 
-        for( int i = 0; i < 3; i++ )
-        {
-            temp[ i ] = xyzv[ i ] * D65[ i ] / illum[ i ];
-        }
-        double tempX = getX() * whitepointD65.getX() / whitepoint.getX();
-        double tempY = getY() * whitepointD65.getY() / whitepoint.getY();
-        double tempZ = getZ() * whitepointD65.getZ() / whitepoint.getZ();
+    /**
+     * Computes the sRGB value of the given XYZ values without creating any objects.
+     *
+     * @param rgb    The array to write R, G and B into.
+     * @param offset The position in <code>rgb</code> of the R value.
+     * @see #toRGB(XYZ, XYZ)
+     */
+    public static void toRGB( double x, double y, double z,
+                              double whiteX, double whiteY, double whiteZ,
+                              double d65X, double d65Y, double d65Z,
+                              double[] rgb, int offset
+    )
+    {
+        double tempX = x * d65X / whiteX;
+        double tempY = y * d65Y / whiteY;
+        double tempZ = z * d65Z / whiteZ;
 
         // KH - Aug 25, 2004 : adapting to use static matrix
         double r = RGBTristimulus[ 0 ][ 0 ] * tempX + RGBTristimulus[ 0 ][ 1 ] * tempY + RGBTristimulus[ 0 ][ 2 ] * tempZ;
@@ -194,13 +238,12 @@ public class XYZ
 
         // KH - Dec 26, 2004 : obviously, if rgb[i] ends up to be > 1, it is out of gamut
         // if it is less than 0
-        r = checkBoundaries( r );
-        g = checkBoundaries( g );
-        b = checkBoundaries( b );
-        return new RGB( r, g, b );
+        rgb[ offset ] = checkBoundaries( r );
+        rgb[ offset + 1 ] = checkBoundaries( g );
+        rgb[ offset + 2 ] = checkBoundaries( b );
     }
 
-    private double checkBoundaries( double value )
+    private static double checkBoundaries( double value )
     {
         if( value < 0.0 )
         {
@@ -215,6 +258,10 @@ public class XYZ
         {
             value = 12.92 * value;
         }
+        else if( FastMath.isEnabled() )
+        {
+            value = ( 1.055 * FastMath.pow5over12( value ) - 0.055 );
+        }
         else
         {
             value = ( 1.055 * Math.pow( value, 1.0 / 2.4 ) - 0.055 );
@@ -235,30 +282,48 @@ public class XYZ
      */
     public CIELuv toCIELuv( XYZ whitepoint )
     {
-        //the return value
+        double[] luv = new double[ 3 ];
+        toCIELuv( getX(), getY(), getZ(), whitepoint.getX(), whitepoint.getY(), whitepoint.getZ(), luv, 0 );
+        return new CIELuv( luv[ 0 ], luv[ 1 ], luv[ 2 ] );
+    }
+
+    /**
+     * Computes the CIELuv value of the given XYZ values without creating any objects.
+     *
+     * @see #toCIELab(double, double, double, double, double, double, double[], int)
+     */
+    public static void toCIELuv( double x, double y, double z,
+                                 double whiteX, double whiteY, double whiteZ,
+                                 double[] luv, int offset
+    )
+    {
         double IU, IV, denom, D, SU, SV;
 
-        denom = whitepoint.getX() + 15.0 * whitepoint.getY() + 3.0 * whitepoint.getZ();
+        denom = whiteX + 15.0 * whiteY + 3.0 * whiteZ;
 
-        IU = 4.0 * whitepoint.getX() / denom;
-        IV = 9.0 * whitepoint.getY() / denom;
-        D = getX() + 15.0 * getY() + 3.0 * getZ();
-        SU = 4.0 * getX() / D;
-        SV = 9.0 * getY() / D;
-        double l = getY() / whitepoint.getY();
+        IU = 4.0 * whiteX / denom;
+        IV = 9.0 * whiteY / denom;
+        D = x + 15.0 * y + 3.0 * z;
+        SU = 4.0 * x / D;
+        SV = 9.0 * y / D;
+        double l = y / whiteY;
 
         if( l <= 0.008856 )
         {
             l = 903.292 * l;
         }
+        else if( FastMath.isEnabled() )
+        {
+            l = 116.0 * FastMath.cbrt( l ) - 16.0;
+        }
         else
         {
             l = 116.0 * Math.pow( l, 1.0 / 3.0 ) - 16.0;
         }
 
-        double u = 13.0 * l * ( SU - IU );
-        double v = 13.0 * l * ( SV - IV );
-        return new CIELuv( l,  u, v);
+        luv[ offset ] = l;
+        luv[ offset + 1 ] = 13.0 * l * ( SU - IU );
+        luv[ offset + 2 ] = 13.0 * l * ( SV - IV );
     }
 
     public CMYK toCMYK( XYZ whitepoint, ICC_ColorSpace printerColorSpace )
@@ -273,16 +338,9 @@ public class XYZ
             }
         }
 
-        double c = 1.0 - rgb.getR();
-        double m = 1.0 - rgb.getG();
-        double y = 1.0 - rgb.getB();
-        double min = Math.min( Math.min( c, m ), y );
-
-        c = ( c - min ) / ( 1 - min );
-        m = ( m - min ) / ( 1 - min );
-        y = ( y - min ) / ( 1 - min );
-
-        return new CMYK( c, m, y, min );
+        double[] cmyk = new double[ 4 ];
+        CMYK.fromRGB( rgb.getR(), rgb.getG(), rgb.getB(), cmyk, 0 );
+        return new CMYK( cmyk[ 0 ], cmyk[ 1 ], cmyk[ 2 ], cmyk[ 3 ] );
     }
 
     public boolean isInGamut()
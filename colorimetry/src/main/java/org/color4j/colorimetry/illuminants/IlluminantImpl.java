@@ -21,12 +21,17 @@ package org.color4j.colorimetry.illuminants;
 import org.color4j.colorimetry.Illuminant;
 import org.color4j.colorimetry.IlluminationException;
 import org.color4j.colorimetry.Spectrum;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implementation of the Illuminant.
  * <p>The IlluminantImpl serves two independent purposes. First it is the implementation that understands the Standard Illuminant Names, and can create (<code>static public Illuminant create( String illlumant)</code> method) hardcoded Illuminant instances. But it also allows the user to create Illuminant objects out of given <code>org.color4j.colorimetry.Spectrum</code> objects, and associate it with a new.</p>
+ * <p>Named illuminants are kept in a registry that is read without locking. Besides the Standard Illuminants it holds the illuminants added with <code>register</code> and those supplied by any <code>IlluminantProvider</code> on the class path.</p>
  *
  * @see org.color4j.colorimetry.Illuminant
  * @see org.color4j.colorimetry.Spectrum
@@ -35,7 +40,7 @@ public class IlluminantImpl
     implements Illuminant
 {
     private Spectrum m_Spectrum;
-    private static Map<String, Illuminant> m_Illuminants;
+    private static final ConcurrentMap<String, Illuminant> m_Illuminants = new ConcurrentHashMap<String, Illuminant>( 32 );
 
     static private final String[] m_Standards =
         {
@@ -76,58 +81,140 @@ public class IlluminantImpl
      * @throws IlluminationException if the given <code>name</code> does not exist.
      * @return The requested Illuminant instance, which may be a shared copy as Illuminants are immutable.
      */
-    static synchronized public Illuminant create( String name )
+    static public Illuminant create( String name )
         throws IlluminationException
     {
         if( name == null )
         {
             throw new IlluminationException( "Illuminant's Name is required" ); //NOI18N
         }
-        if( m_Illuminants == null )
+        Illuminant cache = m_Illuminants.get( name );
+        if( cache != null )
+        {
+            return cache;
+        }
+        Spectrum spectrum = createStandard( name );
+        if( spectrum == null )
+        {
+            spectrum = Providers.getSpectrum( name );
+        }
+        if( spectrum == null )
         {
-            m_Illuminants = new HashMap<String, Illuminant>();
+            throw new IlluminationException( "Standard Illuminant '" + name + "' not known to the system." );   //NOI18N
         }
+        return intern( new IlluminantImpl( name, spectrum ) );
+    }
 
+    /**
+     * Adds a user defined illuminant to the registry, so that <code>create( name )</code> returns it.
+     *
+     * @return the registered Illuminant, which is an earlier one if the name was already taken.
+     * @throws IllegalArgumentException if the name is one of the Standard Illuminants.
+     */
+    static public Illuminant register( String name, Spectrum spectrum )
+        throws IlluminationException
+    {
+        if( isStandard( name ) )
+        {
+            throw new IllegalArgumentException( "The Standard Illuminant '" + name + "' can not be replaced." );  //NOI18N
+        }
         Illuminant cache = m_Illuminants.get( name );
         if( cache != null )
         {
             return cache;
         }
+        return intern( new IlluminantImpl( name, spectrum ) );
+    }
 
-        Spectrum spectrum = null;
+    private static boolean isStandard( String name )
+    {
         for( String standard : m_Standards )
         {
             if( standard.equals( name ) )
             {
-                try
-                {
-                    String classname = "org.color4j.colorimetry.illuminants." + standard;  //NOI18N
-                    Class cls = IlluminantImpl.class.getClassLoader().loadClass( classname );
-                    Object obj = cls.newInstance();
-                    if( !( obj instanceof Spectrum ) )
-                    {
-                        throw new IlluminationException( "Standard Illuminant '" + name + "' not known to the system." );   //NOI18N
-                    }
-                    spectrum = (Spectrum) obj;
-                    break;
-                }
-                catch( IllegalAccessException e )
-                {
-                    throw new IlluminationException( "Standard Illuminant '" + name + "' not known to the system." );   //NOI18N
-                }
-                catch( ClassNotFoundException e )
-                {
-                    throw new IlluminationException( "Standard Illuminant '" + name + "' not known to the system." );   //NOI18N
-                }
-                catch( InstantiationException e )
-                {
-                    throw new IlluminationException( "Standard Illuminant '" + name + "' not known to the system." );   //NOI18N
-                }
+                return true;
             }
         }
-        Illuminant result = new IlluminantImpl( name, spectrum );
-        m_Illuminants.put( name, result );
-        return result;
+        return false;
+    }
+
+    private static Illuminant intern( Illuminant illuminant )
+    {
+        Illuminant existing = m_Illuminants.putIfAbsent( illuminant.getName(), illuminant );
+        return existing == null ? illuminant : existing;
+    }
+
+    private static Spectrum createStandard( String name )
+    {
+        if( "A".equals( name ) )          //NOI18N
+        {
+            return new A();
+        }
+        if( "C".equals( name ) )          //NOI18N
+        {
+            return new C();
+        }
+        if( "CWF".equals( name ) )        //NOI18N
+        {
+            return new CWF();
+        }
+        if( "D50".equals( name ) )        //NOI18N
+        {
+            return new D50();
+        }
+        if( "D55".equals( name ) )        //NOI18N
+        {
+            return new D55();
+        }
+        if( "D65".equals( name ) )        //NOI18N
+        {
+            return new D65();
+        }
+        if( "D75".equals( name ) )        //NOI18N
+        {
+            return new D75();
+        }
+        if( "Daylight".equals( name ) )   //NOI18N
+        {
+            return new Daylight();
+        }
+        if( "Deluxe".equals( name ) )     //NOI18N
+        {
+            return new Deluxe();
+        }
+        if( "F2".equals( name ) )         //NOI18N
+        {
+            return new F2();
+        }
+        if( "F7".equals( name ) )         //NOI18N
+        {
+            return new F7();
+        }
+        if( "F11".equals( name ) )        //NOI18N
+        {
+            return new F11();
+        }
+        if( "F12".equals( name ) )        //NOI18N
+        {
+            return new F12();
+        }
+        if( "Incan".equals( name ) )      //NOI18N
+        {
+            return new Incan();
+        }
+        if( "TL83".equals( name ) )       //NOI18N
+        {
+            return new TL83();
+        }
+        if( "TL84".equals( name ) )       //NOI18N
+        {
+            return new TL84();
+        }
+        if( "U30".equals( name ) )        //NOI18N
+        {
+            return new U30();
+        }
+        return null;
     }
 
     static public Illuminant create( String name, Spectrum spectrum )
@@ -158,6 +245,33 @@ public class IlluminantImpl
         return m_Standards;
     }
 
+    /**
+     * @return the names of the Standard Illuminants, followed by those of the registered and provided illuminants.
+     */
+    static public String[] getIlluminantNames()
+    {
+        List<String> names = new ArrayList<String>();
+        for( String name : m_Standards )
+        {
+            names.add( name );
+        }
+        for( String name : m_Illuminants.keySet() )
+        {
+            if( !names.contains( name ) )
+            {
+                names.add( name );
+            }
+        }
+        for( String name : Providers.getIlluminantNames() )
+        {
+            if( !names.contains( name ) )
+            {
+                names.add( name );
+            }
+        }
+        return names.toArray( new String[ names.size() ] );
+    }
+
     public String getName()
     {
         return m_Name;
@@ -175,4 +289,49 @@ public class IlluminantImpl
     {
         return Illuminant.class;
     }
-}
\ No newline at end of file
+
+    /**
+     * The IlluminantProviders on the class path, looked up on the first request for an unknown name.
+     */
+    private static final class Providers
+    {
+        private static final List<IlluminantProvider> PROVIDERS = load();
+
+        private static List<IlluminantProvider> load()
+        {
+            List<IlluminantProvider> providers = new ArrayList<IlluminantProvider>();
+            Iterator<IlluminantProvider> iterator = ServiceLoader.load( IlluminantProvider.class, IlluminantImpl.class.getClassLoader() ).iterator();
+            while( iterator.hasNext() )
+            {
+                providers.add( iterator.next() );
+            }
+            return providers;
+        }
+
+        private static Spectrum getSpectrum( String name )
+        {
+            for( IlluminantProvider provider : PROVIDERS )
+            {
+                Spectrum spectrum = provider.getSpectrum( name );
+                if( spectrum != null )
+                {
+                    return spectrum;
+                }
+            }
+            return null;
+        }
+
+        private static List<String> getIlluminantNames()
+        {
+            List<String> names = new ArrayList<String>();
+            for( IlluminantProvider provider : PROVIDERS )
+            {
+                for( String name : provider.getIlluminantNames() )
+                {
+                    names.add( name );
+                }
+            }
+            return names;
+        }
+    }
+}
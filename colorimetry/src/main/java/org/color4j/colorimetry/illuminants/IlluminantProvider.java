@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.illuminants;
+
+import org.color4j.colorimetry.Spectrum;
+
+/**
+ * A source of user defined illuminants.
+ * <p>Implementations are found with <code>java.util.ServiceLoader</code>, by listing them in
+ * <code>META-INF/services/org.color4j.colorimetry.illuminants.IlluminantProvider</code>. They are
+ * asked for names that are not Standard Illuminants, and the resulting Illuminant is kept by
+ * <code>IlluminantImpl</code>, so each name is resolved at most once.</p>
+ */
+public interface IlluminantProvider
+{
+    /**
+     * @return the names of the illuminants this provider knows.
+     */
+    String[] getIlluminantNames();
+
+    /**
+     * @return the power distribution of the named illuminant, or null if the name is not known.
+     */
+    Spectrum getSpectrum( String name );
+}
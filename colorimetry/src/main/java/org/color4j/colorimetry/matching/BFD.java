@@ -23,8 +23,11 @@ import org.color4j.colorimetry.encodings.CIELab;
 import org.color4j.colorimetry.math.Maths;
 
 public class BFD
-    implements DifferenceAlgorithm<CIELab>
+    implements DifferenceAlgorithm<CIELab>, DifferenceKernel
 {
+    private static final double LOGE = .434294481;
+    private static final double DEGREES = 180 / 3.14159;
+
     public BFD()
     {
     }
@@ -45,19 +48,68 @@ public class BFD
 
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceB2000( this, 0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0, 0.0 );
-
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        for( int i = 0; i < s.length - 3; i++ )
+        return ColorDifferenceB2000.VALUE_NAMES.getNames();
+    }
+
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        double c1 = CIELab.chroma( a1, b1 );
+        double c2 = CIELab.chroma( a2, b2 );
+        double h1 = CIELab.hue( a1, b1 );
+        double h2 = CIELab.hue( a2, b2 );
+        double deltal = lightness( L2 ) - lightness( L1 );
+        double deltac = c2 - c1;
+        double dl = L2 - L1;
+        double da = a2 - a1;
+        double db = b2 - b1;
+        double de = Math.sqrt( dl * dl + da * da + db * db );
+        double deltah = 0;
+        if( de * de > dl * dl + deltac * deltac )
+        {
+            deltah = Math.sqrt( de * de - dl * dl - deltac * deltac );
+        }
+        double h21 = h2 - h1;
+        if( ( ( h21 < 0.0 ) && ( h21 > -180.0 ) ) || ( ( h21 > 180 ) && ( h21 < 360 ) ) )
         {
-            st[ i ] = s[ i ];
+            deltah = -deltah;
         }
+        double avec = ( c1 + c2 ) / 2;
+        double aveh = ( h1 + h2 ) / 2;
+        double dc = 0.035 * avec / ( 1 + 0.00365 * avec ) + 0.521;
+        double avec2 = avec * avec;
+        double avec4 = avec2 * avec2;
+        double g = Math.sqrt( avec4 / ( avec4 + 14000 ) );
+        double t = 0.627 + ( 0.055 * Math.cos( ( aveh - 254 ) / DEGREES ) -
+                             0.040 * Math.cos( ( 2 * aveh - 136 ) / DEGREES ) +
+                             0.070 * Math.cos( ( 3 * aveh - 31 ) / DEGREES ) +
+                             0.049 * Math.cos( ( 4 * aveh + 114 ) / DEGREES ) -
+                             0.015 * Math.cos( ( 5 * aveh - 103 ) / DEGREES ) );
+        double dh = dc * ( g * t + 1 - g );
+        double rh = -0.260 * Math.cos( ( aveh - 308 ) / DEGREES ) -
+                    0.379 * Math.cos( ( 2 * aveh - 160 ) / DEGREES ) -
+                    0.636 * Math.cos( ( 3 * aveh + 254 ) / DEGREES ) +
+                    0.226 * Math.cos( ( 4 * aveh + 140 ) / DEGREES ) -
+                    0.194 * Math.cos( ( 5 * aveh + 280 ) / DEGREES );
+        double avec6 = avec4 * avec2;
+        double rc = Math.sqrt( avec6 / ( avec6 + 70000000 ) );
+        double kC = deltac / dc;
+        double kH = deltah / dh;
+        return Math.sqrt( deltal * deltal + kC * kC + kH * kH + rh * rc * kC * kH );
+    }
 
-        return st;
+    private static double lightness( double l )
+    {
+        double yt;
+        if( l > 7.996969 )
+        {
+            double f = ( l + 16.0 ) / 116.0;
+            yt = f * f * f * 100.0;
+        }
+        else
+        {
+            yt = 100.0 * ( l / 903.3 );
+        }
+        return 54.6 * ( LOGE * ( Math.log( yt + 1.5 ) ) ) - 9.6;
     }
 
     private double[] computeAll( ColorEncoding standard, ColorEncoding batch )
@@ -18,13 +18,15 @@
 
 package org.color4j.colorimetry.matching;
 
-import org.color4j.colorimetry.ColorEncoding;
 import org.color4j.colorimetry.encodings.CIELab;
 import org.color4j.colorimetry.math.Maths;
 
 public class CIE2000
-    implements DifferenceAlgorithm<CIELab>
+    implements DifferenceAlgorithm<CIELab>, PreparableKernel
 {
+    private static final double DP = 3.14159 / 180.0;
+    private static final double SEVEN25 = Math.pow( 25.0, 7.0 );
+
     CIE2000()
     {
     }
@@ -36,87 +38,178 @@ public class CIE2000
 
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceB2000( this, 0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0, 0.0 );
-
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        System.arraycopy( s, 0, st, 0, s.length - 3 );
-        return st;
+        return ColorDifferenceB2000.VALUE_NAMES.getNames();
     }
 
     public ColorDifference compute( CIELab target, CIELab sample )
     {
-        double[] p = computeAll( target, sample );
-        return new ColorDifferenceB2000( this, p[ 0 ], p[ 1 ], p[ 2 ], p[ 3 ], p[ 4 ], p[ 5 ],
-                                                       p[ 6 ], p[ 7 ], p[ 8 ], p[ 9 ], p[ 10 ], p[ 11 ], p[ 12 ] );
+        return new Prepared( this, target ).compute( sample );
     }
 
-    private double[] computeAll( ColorEncoding standard, ColorEncoding batch )
+    public PreparedStandard prepare( CIELab standard )
     {
-        double[] p = new double[ 13 ];
-        double SL, SC, SH, RT, RC, CTA;//CT,DL,DC,DH;
-        double mean_lch22;
-        double dp = 3.14159 / 180.0;
-        double seven25 = Math.pow( 25.0, 7.0 );
-        CIELab tlab = (CIELab) standard;
-
-        CIELab blab = (CIELab) batch;
-
-        p[ 11 ] = blab.getc() - tlab.getc();
-        p[ 12 ] = Maths.computeDifferenceHue( tlab.geth(), tlab.getc(), blab.geth(), blab.getc() );
+        return new Prepared( this, standard );
+    }
 
-        double mean_lch1 = ( tlab.getc() + blab.getc() ) / 2.0;
-        double G = 0.5 * ( 1 - Math.pow( ( Math.pow( mean_lch1, 7.0 ) / ( Math.pow( mean_lch1, 7.0 ) + seven25 ) ), .5 ) );
-        CIELab tlab2 = new CIELab( tlab.getL(), ( 1 + G ) * tlab.geta(), tlab.getb() );
-        CIELab blab2 = new CIELab( blab.getL(), ( 1 + G ) * blab.geta(), blab.getb() );
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        return deltaE( L1, a1, b1, CIELab.chroma( a1, b1 ), L2, a2, b2, CIELab.chroma( a2, b2 ) );
+    }
 
-        double[] dlch = {
-            blab2.getL() - tlab2.getL(), blab2.getc() - tlab2.getc(),
-            Maths.computeDifferenceHue( tlab2.geth(), tlab2.getc(), blab2.geth(), blab2.getc() )
-        };
+    /**
+     * The mean chroma in the G term mixes standard and batch, so only the chromas <code>c1</code> and
+     * <code>c2</code> can be computed ahead.
+     */
+    static double deltaE( double L1, double a1, double b1, double c1, double L2, double a2, double b2, double c2 )
+    {
+        double dp = DP;
+        double meanC = ( c1 + c2 ) / 2.0;
+        double meanC7 = pow7( meanC );
+        double g1 = 1 + 0.5 * ( 1 - Math.sqrt( meanC7 / ( meanC7 + SEVEN25 ) ) );
+        double ta2 = g1 * a1;
+        double tc2 = CIELab.chroma( ta2, b1 );
+        double th2 = CIELab.hue( ta2, b1 );
+        double ba2 = g1 * a2;
+        double bc2 = CIELab.chroma( ba2, b2 );
+        double bh2 = CIELab.hue( ba2, b2 );
+
+        double dL = L2 - L1;
+        double dC = bc2 - tc2;
+        double dH = Maths.computeDifferenceHue( th2, tc2, bh2, bc2 );
+
+        double meanL = ( L1 + L2 ) / 2.0 - 50.0;
+        double meanC2 = ( tc2 + bc2 ) / 2.0;
+        double meanH;
+        if( Math.abs( th2 - bh2 ) < 180.0 )
+        {
+            meanH = ( th2 + bh2 ) / 2.0;
+        }
+        else
+        {
+            meanH = ( th2 + bh2 - 360.0 ) / 2.0;
+        }
+        double t = 1 - 0.17 * Math.cos( ( meanH - 30.0 ) * dp ) + .24 * Math.cos( 2 * meanH * dp ) +
+                   .32 * Math.cos( ( 3 * meanH + 6.0 ) * dp ) - .2 * Math.cos( ( 4.0 * meanH - 63.0 ) * dp );
+        double sl = 1 + ( 0.015 * meanL * meanL / Math.sqrt( 20.0 + meanL * meanL ) );
+        double sc = 1 + .045 * meanC2;
+        double sh = 1 + .015 * meanC2 * t;
+        double hr = ( meanH - 275.0 ) / 25.0;
+        double cta = 30.0 * Math.exp( -hr * hr );
+        double meanC27 = pow7( meanC2 );
+        double rt = -Math.sin( 2 * cta * dp ) * Math.sqrt( meanC27 / ( meanC27 + SEVEN25 ) ) * 2.0;
+
+        double kL = dL / sl;
+        double kC = dC / sc;
+        double kH = dH / sh;
+        return Math.sqrt( kL * kL + kC * kC + kH * kH + rt * kC * kH );
+    }
 
-        double mean_lch20 = ( tlab2.getL() + blab2.getL() ) / 2.0;
+    private static double pow7( double x )
+    {
+        double x2 = x * x;
+        return x2 * x2 * x2 * x;
+    }
 
-        double mean_lch21 = ( tlab2.getc() + blab2.getc() ) / 2.0;
+    private static final class Prepared
+        implements PreparedStandard
+    {
+        private final CIE2000 m_Algorithm;
+        private final CIELab m_Standard;
+        private final double m_L;
+        private final double m_a;
+        private final double m_b;
+        private final double m_c;
+        private final double m_h;
+
+        private Prepared( CIE2000 algorithm, CIELab standard )
+        {
+            m_Algorithm = algorithm;
+            m_Standard = standard;
+            m_L = standard.getL();
+            m_a = standard.geta();
+            m_b = standard.getb();
+            m_c = standard.getc();
+            m_h = standard.geth();
+        }
 
-        if( Math.abs( tlab2.geth() - blab2.geth() ) < 180.0 )
+        public CIELab getStandard()
         {
-            mean_lch22 = ( tlab2.geth() + blab2.geth() ) / 2.0;
+            return m_Standard;
         }
-        else
+
+        public double deltaE( double L, double a, double b )
         {
-            mean_lch22 = ( tlab2.geth() + blab2.geth() - 360.0 ) / 2.0;
+            return CIE2000.deltaE( m_L, m_a, m_b, m_c, L, a, b, CIELab.chroma( a, b ) );
         }
 
-        double T = 1 - 0.17 * Math.cos( ( mean_lch22 - 30.0 ) * dp ) + .24 * Math.cos( 2 * mean_lch22 * dp ) +
-                   .32 * Math.cos( ( 3 * mean_lch22 + 6.0 ) * dp ) - .2 * Math.cos( ( 4.0 * mean_lch22 - 63.0 ) * dp );
-
-        SL = 1 + ( 0.015 * Math.pow( mean_lch20 - 50.0, 2.0 ) / Math.pow( 20.0 + Math.pow( mean_lch20 - 50.0, 2.0 ), .5 ) );
-        SC = 1 + .045 * mean_lch21;
-        SH = 1 + .015 * mean_lch21 * T;
-        CTA = 30.0 * Math.exp( -( Math.pow( ( mean_lch22 - 275.0 ) / 25.0, 2.0 ) ) );
-        RC = Math.pow( Math.pow( mean_lch21, 7.0 ) / ( Math.pow( mean_lch21, 7.0 ) + seven25 ), .5 ) * 2.0;
-        RT = -Math.sin( 2 * CTA * dp ) * RC;
-        p[ 0 ] = dlch[ 0 ];        //delta L pram
-        p[ 1 ] = dlch[ 1 ];        //delta C pram
-        p[ 2 ] = dlch[ 2 ];        //delta H pram
-        p[ 3 ] = SL;             //weight L
-        p[ 4 ] = SC;             //weight C
-        p[ 5 ] = SH;             //weight H
-        p[ 6 ] = RT;             // total C,H intercept
-
-        double k1 = Math.pow( p[ 0 ] / p[ 3 ], 2.0 );
-        double k2 = Math.pow( p[ 1 ] / p[ 4 ], 2.0 );
-        double k3 = Math.pow( p[ 2 ] / p[ 5 ], 2.0 );
-        double k4 = p[ 6 ] * p[ 1 ] * p[ 2 ] / ( p[ 4 ] * p[ 5 ] );
-        p[ 7 ] = Math.pow( k1 + k2 + k3 + k4, .5 );  //deltaE
-        p[ 8 ] = blab.getL() - tlab.getL(); //delta L star
-        p[ 9 ] = blab.geta() - tlab.geta(); //delta a star
-        p[ 10 ] = blab.getb() - tlab.getb();//delta b star
-
-        return p;
+        public ColorDifference compute( CIELab blab )
+        {
+            double[] p = new double[ 13 ];
+            double SL, SC, SH, RT, RC, CTA;//CT,DL,DC,DH;
+            double mean_lch22;
+            double dp = DP;
+            double seven25 = SEVEN25;
+            p[ 11 ] = blab.getc() - m_c;
+            p[ 12 ] = Maths.computeDifferenceHue( m_h, m_c, blab.geth(), blab.getc() );
+
+            double mean_lch1 = ( m_c + blab.getc() ) / 2.0;
+            double G = 0.5 * ( 1 - Math.pow( ( Math.pow( mean_lch1, 7.0 ) / ( Math.pow( mean_lch1, 7.0 ) + seven25 ) ), .5 ) );
+            // the a* scaled L*C*h of standard and batch, without intermediate CIELab objects
+            double tL2 = m_L;
+            double ta2 = ( 1 + G ) * m_a;
+            double tc2 = CIELab.chroma( ta2, m_b );
+            double th2 = CIELab.hue( ta2, m_b );
+            double bL2 = blab.getL();
+            double ba2 = ( 1 + G ) * blab.geta();
+            double bc2 = CIELab.chroma( ba2, blab.getb() );
+            double bh2 = CIELab.hue( ba2, blab.getb() );
+
+            double[] dlch = {
+                bL2 - tL2, bc2 - tc2,
+                Maths.computeDifferenceHue( th2, tc2, bh2, bc2 )
+            };
+
+            double mean_lch20 = ( tL2 + bL2 ) / 2.0;
+
+            double mean_lch21 = ( tc2 + bc2 ) / 2.0;
+
+            if( Math.abs( th2 - bh2 ) < 180.0 )
+            {
+                mean_lch22 = ( th2 + bh2 ) / 2.0;
+            }
+            else
+            {
+                mean_lch22 = ( th2 + bh2 - 360.0 ) / 2.0;
+            }
+
+            double T = 1 - 0.17 * Math.cos( ( mean_lch22 - 30.0 ) * dp ) + .24 * Math.cos( 2 * mean_lch22 * dp ) +
+                       .32 * Math.cos( ( 3 * mean_lch22 + 6.0 ) * dp ) - .2 * Math.cos( ( 4.0 * mean_lch22 - 63.0 ) * dp );
+
+            SL = 1 + ( 0.015 * Math.pow( mean_lch20 - 50.0, 2.0 ) / Math.pow( 20.0 + Math.pow( mean_lch20 - 50.0, 2.0 ), .5 ) );
+            SC = 1 + .045 * mean_lch21;
+            SH = 1 + .015 * mean_lch21 * T;
+            CTA = 30.0 * Math.exp( -( Math.pow( ( mean_lch22 - 275.0 ) / 25.0, 2.0 ) ) );
+            RC = Math.pow( Math.pow( mean_lch21, 7.0 ) / ( Math.pow( mean_lch21, 7.0 ) + seven25 ), .5 ) * 2.0;
+            RT = -Math.sin( 2 * CTA * dp ) * RC;
+            p[ 0 ] = dlch[ 0 ];        //delta L pram
+            p[ 1 ] = dlch[ 1 ];        //delta C pram
+            p[ 2 ] = dlch[ 2 ];        //delta H pram
+            p[ 3 ] = SL;             //weight L
+            p[ 4 ] = SC;             //weight C
+            p[ 5 ] = SH;             //weight H
+            p[ 6 ] = RT;             // total C,H intercept
+
+            double k1 = Math.pow( p[ 0 ] / p[ 3 ], 2.0 );
+            double k2 = Math.pow( p[ 1 ] / p[ 4 ], 2.0 );
+            double k3 = Math.pow( p[ 2 ] / p[ 5 ], 2.0 );
+            double k4 = p[ 6 ] * p[ 1 ] * p[ 2 ] / ( p[ 4 ] * p[ 5 ] );
+            p[ 7 ] = Math.pow( k1 + k2 + k3 + k4, .5 );  //deltaE
+            p[ 8 ] = blab.getL() - m_L; //delta L star
+            p[ 9 ] = blab.geta() - m_a; //delta a star
+            p[ 10 ] = blab.getb() - m_b;//delta b star
+
+            return new ColorDifferenceB2000( m_Algorithm, p[ 0 ], p[ 1 ], p[ 2 ], p[ 3 ], p[ 4 ], p[ 5 ],
+                                             p[ 6 ], p[ 7 ], p[ 8 ], p[ 9 ], p[ 10 ], p[ 11 ], p[ 12 ] );
+        }
     }
 }
@@ -18,12 +18,11 @@
 
 package org.color4j.colorimetry.matching;
 
-import org.color4j.colorimetry.ColorEncoding;
 import org.color4j.colorimetry.encodings.CIELab;
 import org.color4j.colorimetry.math.Maths;
 
 public class CIE94
-    implements DifferenceAlgorithm<CIELab>
+    implements DifferenceAlgorithm<CIELab>, PreparableKernel
 {
     public CIE94()
     {
@@ -31,14 +30,7 @@ public class CIE94
 
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceCJ94( this, 0.0, 0.0, 0.0,
-                                                      0.0, 0.0, 0.0,
-                                                      0.0, 0.0, 0.0, 0.0 );
-
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        System.arraycopy( s, 0, st, 0, s.length - 3 );
-        return st;
+        return ColorDifferenceCJ94.VALUE_NAMES.getNames();
     }
 
     public String getName()
@@ -48,43 +40,88 @@ public class CIE94
 
     public ColorDifference compute( CIELab target, CIELab sample )
     {
-        double[] p = computeAll( target, sample );
-        ColorDifference cdiff = new ColorDifferenceCJ94( this, p[ 0 ], p[ 1 ], p[ 2 ], p[ 3 ],
-                                                         p[ 4 ], p[ 5 ], p[ 6 ], p[ 7 ],
-                                                         p[ 8 ], p[ 9 ] );
-        return cdiff;
+        return new Prepared( this, target ).compute( sample );
+    }
+
+    public PreparedStandard prepare( CIELab standard )
+    {
+        return new Prepared( this, standard );
+    }
+
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        double c1 = CIELab.chroma( a1, b1 );
+        double c2 = CIELab.chroma( a2, b2 );
+        return deltaELCh( L1, c1, L2, c2, Maths.computeDifferenceHue( CIELab.hue( a1, b1 ), c1, CIELab.hue( a2, b2 ), c2 ) );
+    }
+
+    /**
+     * The CIE94 difference from the LCh terms, for kernels and evaluators that already have them.
+     */
+    static double deltaELCh( double L1, double c1, double L2, double c2, double deltaH )
+    {
+        double dL = L2 - L1;
+        double dC = ( c2 - c1 ) / ( 1.0 + 0.045 * c1 );
+        double dH = deltaH / ( 1.0 + 0.015 * c1 );
+        return Math.sqrt( dL * dL + dC * dC + dH * dH );
     }
 
-    private double[] computeAll( ColorEncoding standard, ColorEncoding batch )
+    private static final class Prepared
+        implements PreparedStandard
     {
-        double p[] = new double[ 10 ];
-//        double dp=Math.PI/180.0;
-        double CT, HT;
-//        double  L1,a1,b1,c1,h1,L2,a2,b2,c2,h2;
-        double dlch[] = new double[ 3 ];
-        CIELab tlab = (CIELab) standard;
-        CIELab blab = (CIELab) batch;
+        private final CIE94 m_Algorithm;
+        private final CIELab m_Standard;
+        private final double m_L;
+        private final double m_c;
+        private final double m_h;
+        private final double m_WeightC;
+        private final double m_WeightH;
+
+        private Prepared( CIE94 algorithm, CIELab standard )
+        {
+            m_Algorithm = algorithm;
+            m_Standard = standard;
+            m_L = standard.getL();
+            m_c = standard.getc();
+            m_h = standard.geth();
+            m_WeightC = 1.0 + 0.045 * m_c;
+            m_WeightH = 1.0 + 0.015 * m_c;
+        }
+
+        public CIELab getStandard()
+        {
+            return m_Standard;
+        }
 
-        dlch[ 0 ] = blab.getL() - tlab.getL();
-        dlch[ 1 ] = blab.getc() - tlab.getc();
-        dlch[ 2 ] = Maths.computeDifferenceHue( tlab.geth(), tlab.getc(), blab.geth(), blab.getc() );
+        public double deltaE( double L, double a, double b )
+        {
+            double c2 = CIELab.chroma( a, b );
+            double dL = L - m_L;
+            double dC = ( c2 - m_c ) / m_WeightC;
+            double dH = Maths.computeDifferenceHue( m_h, m_c, CIELab.hue( a, b ), c2 ) / m_WeightH;
+            return Math.sqrt( dL * dL + dC * dC + dH * dH );
+        }
 
-        CT = 1.0 + 0.045 * tlab.getc();
-        HT = 1.0 + 0.015 * tlab.getc();
-        p[ 0 ] = dlch[ 0 ];                 //deltaL star
-        p[ 1 ] = dlch[ 1 ];                 //deltaC star
-        p[ 2 ] = dlch[ 2 ];                 //deltaH star
-        p[ 3 ] = 1.0;                     //L weight, LT no use
-        p[ 4 ] = CT;                      //C weight
-        p[ 5 ] = HT;                      //H weight
-        p[ 6 ] = 0.0;                     //delta R
-        double k1 = Math.pow( p[ 0 ] / p[ 3 ], 2.0 );
-        double k2 = Math.pow( p[ 1 ] / p[ 4 ], 2.0 );
-        double k3 = Math.pow( p[ 2 ] / p[ 5 ], 2.0 );
+        public ColorDifference compute( CIELab batch )
+        {
+            double p[] = new double[ 10 ];
+            p[ 0 ] = batch.getL() - m_L;                 //deltaL star
+            p[ 1 ] = batch.getc() - m_c;                 //deltaC star
+            p[ 2 ] = Maths.computeDifferenceHue( m_h, m_c, batch.geth(), batch.getc() );   //deltaH star
+            p[ 3 ] = 1.0;                     //L weight, LT no use
+            p[ 4 ] = m_WeightC;               //C weight
+            p[ 5 ] = m_WeightH;               //H weight
+            p[ 6 ] = 0.0;                     //delta R
+            double k1 = Math.pow( p[ 0 ] / p[ 3 ], 2.0 );
+            double k2 = Math.pow( p[ 1 ] / p[ 4 ], 2.0 );
+            double k3 = Math.pow( p[ 2 ] / p[ 5 ], 2.0 );
 
-        p[ 7 ] = Math.pow( k1 + k2 + k3, .5 );    //deltaEE
-        p[ 8 ] = blab.geta() - tlab.geta();
-        p[ 9 ] = blab.getb() - tlab.getb();
-        return p;
+            p[ 7 ] = Math.pow( k1 + k2 + k3, .5 );    //deltaEE
+            p[ 8 ] = batch.geta() - m_Standard.geta();
+            p[ 9 ] = batch.getb() - m_Standard.getb();
+            return new ColorDifferenceCJ94( m_Algorithm, p[ 0 ], p[ 1 ], p[ 2 ], p[ 3 ],
+                                            p[ 4 ], p[ 5 ], p[ 6 ], p[ 7 ],
+                                            p[ 8 ], p[ 9 ] );
+        }
     }
 }
@@ -23,7 +23,7 @@ import org.color4j.colorimetry.encodings.CIELab;
 import org.color4j.colorimetry.math.Maths;
 
 public class CIELabDE
-    implements DifferenceAlgorithm<CIELab>
+    implements DifferenceAlgorithm<CIELab>, DifferenceKernel
 {
     public CIELabDE()
     {
@@ -31,13 +31,7 @@ public class CIELabDE
 
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceCIELab( this, 0.0, 0.0, 0.0,
-                                                        0.0, 0.0, 0.0 );
-
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        System.arraycopy( s, 0, st, 0, s.length - 3 );
-        return st;
+        return ColorDifferenceCIELab.VALUE_NAMES.getNames();
     }
 
     public String getName()
@@ -54,6 +48,14 @@ public class CIELabDE
         return cd;
     }
 
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        double dL = L2 - L1;
+        double da = a2 - a1;
+        double db = b2 - b1;
+        return Math.sqrt( dL * dL + da * da + db * db );
+    }
+
     private double[] computeAll( ColorEncoding standard, ColorEncoding batch )
     {
         double[] p = new double[ 6 ];
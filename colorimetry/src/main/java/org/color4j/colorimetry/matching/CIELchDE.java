@@ -22,15 +22,11 @@ import org.color4j.colorimetry.encodings.CIELab;
 import org.color4j.colorimetry.math.Maths;
 
 public class CIELchDE
-    implements DifferenceAlgorithm<CIELab>
+    implements DifferenceAlgorithm<CIELab>, DifferenceKernel
 {
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceCIELab( this, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 );
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        System.arraycopy( s, 0, st, 0, s.length - 3 );
-        return st;
+        return ColorDifferenceCIELab.VALUE_NAMES.getNames();
     }
 
     public String getName()
@@ -53,4 +49,21 @@ public class CIELchDE
 
         return new ColorDifferenceCIELab( this, deltaL, deltaA, deltaB, deltaC, deltaH, deltaE );
     }
+
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        double c1 = CIELab.chroma( a1, b1 );
+        double c2 = CIELab.chroma( a2, b2 );
+        return deltaELCh( L1, c1, L2, c2, Maths.computeDifferenceHue( CIELab.hue( a1, b1 ), c1, CIELab.hue( a2, b2 ), c2 ) );
+    }
+
+    /**
+     * The LCh difference from the LCh terms, for kernels and evaluators that already have them.
+     */
+    static double deltaELCh( double L1, double c1, double L2, double c2, double dH )
+    {
+        double dL = L2 - L1;
+        double dC = c2 - c1;
+        return Math.sqrt( dL * dL + dC * dC + dH * dH );
+    }
 }
@@ -18,12 +18,14 @@
 
 package org.color4j.colorimetry.matching;
 
-import org.color4j.colorimetry.ColorEncoding;
 import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.math.Maths;
 
 public class CMC
-    implements DifferenceAlgorithm<CIELab>
+    implements DifferenceAlgorithm<CIELab>, PreparableKernel
 {
+    private static final double DP = Math.PI / 180.0;
+
     private double m_l;
 
     public CMC( double a )
@@ -31,16 +33,17 @@ public class CMC
         m_l = a;
     }
 
+    /**
+     * @return the lightness weight l of CMC(l:1).
+     */
+    public double getLightnessWeight()
+    {
+        return m_l;
+    }
+
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceCJ94( this, 0.0, 0.0, 0.0,
-                                                      0.0, 0.0, 0.0,
-                                                      0.0, 0.0, 0.0, 0.0 );
-
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        System.arraycopy( s, 0, st, 0, s.length - 3 );
-        return st;
+        return ColorDifferenceCJ94.VALUE_NAMES.getNames();
     }
 
     public String getName()
@@ -55,78 +58,133 @@ public class CMC
 
     public ColorDifference compute( CIELab target, CIELab sample )
     {
-        double[] p = computeAll( target, sample );
-        ColorDifference cd = new ColorDifferenceCJ94( this, p[ 0 ], p[ 1 ], p[ 2 ],
-                                                      p[ 3 ], p[ 4 ], p[ 5 ], p[ 6 ],
-                                                      p[ 7 ], p[ 8 ], p[ 9 ] );
+        return new Prepared( this, target ).compute( sample );
+    }
+
+    public PreparedStandard prepare( CIELab standard )
+    {
+        return new Prepared( this, standard );
+    }
 
-        return cd;
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        double c1 = CIELab.chroma( a1, b1 );
+        double c2 = CIELab.chroma( a2, b2 );
+        double h1 = CIELab.hue( a1, b1 );
+        double dH = Maths.computeDifferenceHue( h1, c1, CIELab.hue( a2, b2 ), c2 );
+        return deltaELCh( m_l, L1, c1, h1, L2, c2, dH );
     }
 
-    private double[] computeAll( ColorEncoding standard, ColorEncoding batch )
+    /**
+     * The CMC(l:1) difference from the LCh terms, for kernels and evaluators that already have them.
+     */
+    static double deltaELCh( double l, double L1, double c1, double h1, double L2, double c2, double dH )
     {
-        double[] p = new double[ 10 ];
-        double dp = Math.PI / 180.0;
-        double lt, ht, gt, t, ct;
-        double dlch[] = new double[ 3 ];
-        CIELab tlab = (CIELab) standard;
-        CIELab blab = (CIELab) batch;
-
-        double[] target_lch = { tlab.getL(), tlab.getc(), tlab.geth() };
-        double[] predict_lch = { blab.getL(), blab.getc(), blab.geth() };
-
-        //deltaL = batchL-StandardL
-        dlch[ 0 ] = predict_lch[ 0 ] - target_lch[ 0 ];
-        dlch[ 1 ] = predict_lch[ 1 ] - target_lch[ 1 ];
-        dlch[ 2 ] = predict_lch[ 2 ] - target_lch[ 2 ];
-
-        if( dlch[ 2 ] < -180.0 )
+        double ct = chromaWeight( c1 );
+        double kL = ( L2 - L1 ) / lightnessWeight( l, L1 );
+        double kC = ( c2 - c1 ) / ct;
+        double kH = dH / hueWeight( c1, h1, ct );
+        return Math.sqrt( kL * kL + kC * kC + kH * kH );
+    }
+
+    /**
+     * @return the weight SL of the lightness difference, for a standard of lightness <code>L1</code>.
+     */
+    static double lightnessWeight( double l, double L1 )
+    {
+        double lt = L1 > 16.0 ? 0.040975 * L1 / ( 1 + 0.01765 * L1 ) : 0.511;
+        return l * lt;
+    }
+
+    /**
+     * @return the weight SC of the chroma difference, for a standard of chroma <code>c1</code>.
+     */
+    static double chromaWeight( double c1 )
+    {
+        return 0.0638 * c1 / ( 1 + 0.0131 * c1 ) + 0.638;
+    }
+
+    /**
+     * @return the weight SH of the hue difference, for a standard of chroma <code>c1</code>, hue
+     * <code>h1</code> and chroma weight <code>ct</code>.
+     */
+    static double hueWeight( double c1, double h1, double ct )
+    {
+        double ht;
+        if( h1 > 164 && h1 < 345 )
         {
-            dlch[ 2 ] = dlch[ 2 ] + 360;
+            ht = 0.56 + Math.abs( .2 * Math.cos( ( h1 + 168 ) * DP ) );
         }
-        if( dlch[ 2 ] > 180 )
+        else
         {
-            dlch[ 2 ] = dlch[ 2 ] - 360;
+            ht = 0.36 + Math.abs( 0.4 * Math.cos( ( h1 + 35 ) * DP ) );
         }
-        dlch[ 2 ] = 2.0 * Math.sqrt( target_lch[ 1 ] * predict_lch[ 1 ] ) * Math.sin( dlch[ 2 ] * dp / 2 );
+        double gt = Math.sqrt( Math.pow( c1, 4.0 ) / ( Math.pow( c1, 4.0 ) + 1900 ) );
+        double t = ht * gt + 1 - gt;
+        return t * ct;
+    }
 
-        if( target_lch[ 0 ] > 16.0 )
+    private static final class Prepared
+        implements PreparedStandard
+    {
+        private final CMC m_Algorithm;
+        private final CIELab m_Standard;
+        private final double m_L;
+        private final double m_c;
+        private final double m_h;
+        private final double m_WeightL;
+        private final double m_WeightC;
+        private final double m_WeightH;
+
+        private Prepared( CMC algorithm, CIELab standard )
         {
-            lt = 0.040975 * target_lch[ 0 ] / ( 1 + 0.01765 * target_lch[ 0 ] );
+            m_Algorithm = algorithm;
+            m_Standard = standard;
+            m_L = standard.getL();
+            m_c = standard.getc();
+            m_h = standard.geth();
+            m_WeightL = lightnessWeight( algorithm.m_l, m_L );
+            m_WeightC = chromaWeight( m_c );
+            m_WeightH = hueWeight( m_c, m_h, m_WeightC );
         }
-        else
+
+        public CIELab getStandard()
         {
-            lt = 0.511;
+            return m_Standard;
         }
 
-        ct = 0.0638 * target_lch[ 1 ] / ( 1 + 0.0131 * target_lch[ 1 ] ) + 0.638;
-
-        if( target_lch[ 2 ] > 164 && target_lch[ 2 ] < 345 )
+        public double deltaE( double L, double a, double b )
         {
-            ht = 0.56 + Math.abs( .2 * Math.cos( ( target_lch[ 2 ] + 168 ) * dp ) );
+            double c2 = CIELab.chroma( a, b );
+            double kL = ( L - m_L ) / m_WeightL;
+            double kC = ( c2 - m_c ) / m_WeightC;
+            double kH = Maths.computeDifferenceHue( m_h, m_c, CIELab.hue( a, b ), c2 ) / m_WeightH;
+            return Math.sqrt( kL * kL + kC * kC + kH * kH );
         }
-        else
+
+        public ColorDifference compute( CIELab batch )
         {
-            ht = 0.36 + Math.abs( 0.4 * Math.cos( ( target_lch[ 2 ] + 35 ) * dp ) );
+            double dL = batch.getL() - m_L;
+            double dC = batch.getc() - m_c;
+            double dh = batch.geth() - m_h;
+            if( dh < -180.0 )
+            {
+                dh = dh + 360;
+            }
+            if( dh > 180 )
+            {
+                dh = dh - 360;
+            }
+            // This rounding of DeltaH and Math.pow keep the reported values identical to those computed
+            // before standards were prepared, Maths.computeDifferenceHue differs in the last bit.
+            double dH = 2.0 * Math.sqrt( m_c * batch.getc() ) * Math.sin( dh * DP / 2 );
+            double k1 = Math.pow( dL / m_WeightL, 2.0 );
+            double k2 = Math.pow( dC / m_WeightC, 2.0 );
+            double k3 = Math.pow( dH / m_WeightH, 2.0 );
+            return new ColorDifferenceCJ94( m_Algorithm, dL, dC, dH, m_WeightL, m_WeightC, m_WeightH, 0.0,
+                                            Math.pow( k1 + k2 + k3, .5 ),
+                                            batch.geta() - m_Standard.geta(),
+                                            batch.getb() - m_Standard.getb() );
         }
-
-        gt = Math.sqrt( Math.pow( target_lch[ 1 ], 4.0 ) / ( Math.pow( target_lch[ 1 ], 4.0 ) + 1900 ) );
-
-        t = ht * gt + 1 - gt;
-        ht = t * ct;
-        p[ 0 ] = dlch[ 0 ];          //deltaL Star
-        p[ 1 ] = dlch[ 1 ];          //deltaC Star
-        p[ 2 ] = dlch[ 2 ];          //deltaH Star
-        p[ 3 ] = m_l * lt;               //L weight
-        p[ 4 ] = ct;               //C weight
-        p[ 5 ] = ht;               //H weight
-        double k1 = Math.pow( p[ 0 ] / ( p[ 3 ] ), 2.0 );
-        double k2 = Math.pow( p[ 1 ] / p[ 4 ], 2.0 );
-        double k3 = Math.pow( p[ 2 ] / p[ 5 ], 2.0 );
-        p[ 6 ] = 0.0;
-        p[ 7 ] = Math.pow( k1 + k2 + k3, .5 );          //deltaE
-        p[ 8 ] = blab.geta() - tlab.geta();      //deltaA Star
-        p[ 9 ] = blab.getb() - tlab.getb();      //deltaB Star
-        return p;
     }
 }
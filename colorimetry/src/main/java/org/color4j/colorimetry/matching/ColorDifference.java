@@ -23,7 +23,22 @@ import org.color4j.colorimetry.ColorException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * The result of comparing two colors with a DifferenceAlgorithm.
+ * <p>The values of a difference are read by name, or by their index in <code>getAllValueNames()</code>.
+ * The subclasses in this package keep a fixed table of their value names, so that neither access
+ * needs reflection. Other subclasses have their values found by reflection, once per class: the public
+ * no-argument getters returning a <code>double</code> or a <code>Number</code> that are not declared by
+ * ColorDifference itself. <code>DELTA_E</code> is always at index <code>DELTA_E_INDEX</code>, and
+ * <code>getDeltaE()</code> fails with a ColorException for a subclass without it.</p>
+ */
 public abstract class ColorDifference<T extends ColorEncoding>
 {
     public static final String DELTA_E = "DeltaE";  //NOI18N
@@ -38,6 +53,10 @@ public abstract class ColorDifference<T extends ColorEncoding>
     public static final String DELTA_c = "DeltaC";  //NOI18N
     public static final String DELTA_h = "DeltaH";  //NOI18N
 
+    public static final int DELTA_E_INDEX = 0;
+
+    private static final ConcurrentMap<Class<?>, Accessors> m_Accessors = new ConcurrentHashMap<Class<?>, Accessors>();
+
     private DifferenceAlgorithm<T> m_Algorithm;
 
     protected ColorDifference( DifferenceAlgorithm<T> algorithm )
@@ -50,47 +69,221 @@ public abstract class ColorDifference<T extends ColorEncoding>
         return m_Algorithm;
     }
 
+    /**
+     * @return the names of the values of this difference, <code>DELTA_E</code> first.
+     */
     public String[] getAllValueNames()
     {
-        ArrayList<String> result = new ArrayList<String>();
-        Method[] methods = getClass().getMethods();
-        for( Method method : methods )
+        ValueNames names = getValueNames();
+        if( names != null )
+        {
+            return names.getNames();
+        }
+        return getAccessors().m_Names.getNames();
+    }
+
+    /**
+     * @return the index of the named value, or -1 if there is no such value.
+     */
+    public int getValueIndex( String name )
+    {
+        ValueNames names = getValueNames();
+        if( names == null )
+        {
+            names = getAccessors().m_Names;
+        }
+        return names.indexOf( name );
+    }
+
+    public double getValue( String name )
+        throws ColorException
+    {
+        int index = getValueIndex( name );
+        if( index < 0 )
         {
-            if( method.getName().startsWith( "get" ) &&     //NOI18N
-                method.getParameterTypes().length == 0 )
+            throw new ColorException( "No such method available for this calculator." );
+        }
+        return getValue( index );
+    }
+
+    /**
+     * @return the value at <code>index</code> in <code>getAllValueNames()</code>.
+     * @throws ColorException if there is no value at <code>index</code>.
+     */
+    public double getValue( int index )
+        throws ColorException
+    {
+        ValueNames names = getValueNames();
+        Accessors accessors = names == null ? getAccessors() : null;
+        int size = names == null ? accessors.m_Methods.length : names.size();
+        if( index < 0 || index >= size )
+        {
+            throw new ColorException( "No value with index " + index + " available for this calculator." );  //NOI18N
+        }
+        Method method;
+        if( accessors != null )
+        {
+            method = accessors.m_Methods[ index ];
+        }
+        else
+        {
+            try
             {
-                result.add( method.getName().substring( 3 ) );
+                method = getClass().getMethod( "get" + names.getName( index ) );     //NOI18N
+            }
+            catch( NoSuchMethodException e )
+            {
+                throw new ColorException( "No such method available for this calculator.", e );
             }
         }
-        String[] names = new String[ result.size() ];
-        for( int i = 0; i < names.length; i++ )
+        return invoke( method );
+    }
+
+    /**
+     * @throws ColorException if the subclass does not have a <code>DELTA_E</code> value.
+     */
+    public double getDeltaE()
+        throws ColorException
+    {
+        if( getValueNames() == null && getAccessors().m_Names.indexOf( DELTA_E ) != DELTA_E_INDEX )
         {
-            names[ i ] = result.get( i );
+            throw new ColorException( "No " + DELTA_E + " available for this calculator." );   //NOI18N
         }
-        return names;
+        return getValue( DELTA_E_INDEX );
     }
 
-    public double getValue( String name )
+    /**
+     * @return the value names of the subclass, or null to look the values up by reflection.
+     */
+    protected ValueNames getValueNames()
+    {
+        return null;
+    }
+
+    /**
+     * @return the getters of the values of this class, found by reflection once per class.
+     */
+    private Accessors getAccessors()
+    {
+        Class<?> type = getClass();
+        Accessors accessors = m_Accessors.get( type );
+        if( accessors == null )
+        {
+            accessors = new Accessors( type );
+            Accessors existing = m_Accessors.putIfAbsent( type, accessors );
+            if( existing != null )
+            {
+                accessors = existing;
+            }
+        }
+        return accessors;
+    }
+
+    private double invoke( Method method )
         throws ColorException
     {
         try
         {
-            Method method = getClass().getMethod( "get" + name );     //NOI18N
             Object obj = method.invoke( this );
+            if( !( obj instanceof Number ) )
+            {
+                throw new ColorException( "No value returned by " + method.getName() + "." );   //NOI18N
+            }
             return ( (Number) obj ).doubleValue();
         }
         catch( IllegalAccessException e )
         {
             throw new ColorException( "Method declared is not public.", e );
         }
-        catch( NoSuchMethodException e )
-        {
-            throw new ColorException( "No such method available for this calculator.", e );
-        }
         catch( InvocationTargetException e )
         {
             Throwable t = e.getTargetException();
             throw new ColorException( "Exception occured when calculating.", t );
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The public no-argument getters of a subclass that return a <code>double</code> or a
+     * <code>Number</code>, except those of ColorDifference and Object. <code>DELTA_E</code>
+     * comes first and the others follow by name, so the order does not depend on the order
+     * of <code>Class.getMethods()</code>.
+     */
+    private static final class Accessors
+    {
+        private final ValueNames m_Names;
+        private final Method[] m_Methods;
+
+        private Accessors( Class<?> type )
+        {
+            TreeMap<String, Method> getters = new TreeMap<String, Method>();
+            for( Method method : type.getMethods() )
+            {
+                Class<?> declaring = method.getDeclaringClass();
+                Class<?> returned = method.getReturnType();
+                if( method.getName().startsWith( "get" ) &&     //NOI18N
+                    method.getName().length() > 3 &&
+                    method.getParameterTypes().length == 0 &&
+                    declaring != ColorDifference.class && declaring != Object.class &&
+                    ( returned == double.class || Number.class.isAssignableFrom( returned ) ) )
+                {
+                    getters.put( method.getName().substring( 3 ), method );
+                }
+            }
+            List<String> names = new ArrayList<String>( getters.size() );
+            List<Method> methods = new ArrayList<Method>( getters.size() );
+            Method deltaE = getters.remove( DELTA_E );
+            if( deltaE != null )
+            {
+                names.add( DELTA_E );
+                methods.add( deltaE );
+            }
+            for( Map.Entry<String, Method> entry : getters.entrySet() )
+            {
+                names.add( entry.getKey() );
+                methods.add( entry.getValue() );
+            }
+            m_Names = new ValueNames( names.toArray( new String[ names.size() ] ) );
+            m_Methods = methods.toArray( new Method[ methods.size() ] );
+        }
+    }
+
+    /**
+     * An immutable table of value names and their indices, shared by all instances of a subclass.
+     */
+    protected static final class ValueNames
+    {
+        private final String[] m_Names;
+        private final Map<String, Integer> m_Indices;
+
+        public ValueNames( String... names )
+        {
+            m_Names = names.clone();
+            m_Indices = new HashMap<String, Integer>( names.length * 2 );
+            for( int i = 0; i < names.length; i++ )
+            {
+                m_Indices.put( names[ i ], i );
+            }
+        }
+
+        public int indexOf( String name )
+        {
+            Integer index = m_Indices.get( name );
+            return index == null ? -1 : index;
+        }
+
+        public String[] getNames()
+        {
+            return m_Names.clone();
+        }
+
+        public String getName( int index )
+        {
+            return m_Names[ index ];
+        }
+
+        public int size()
+        {
+            return m_Names.length;
+        }
+    }
+}
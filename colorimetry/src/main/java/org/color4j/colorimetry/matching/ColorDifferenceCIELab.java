@@ -22,6 +22,18 @@ import org.color4j.colorimetry.encodings.CIELab;
 
 public class ColorDifferenceCIELab extends ColorDifference<CIELab>
 {
+    static final ValueNames VALUE_NAMES = new ValueNames(
+        DELTA_E,
+        DELTA_L_s,
+        DELTA_a_s,
+        DELTA_b_s,
+        DELTA_c_s,
+        DELTA_h_s,
+        DELTA_L,
+        DELTA_c,
+        DELTA_h
+    );
+
     private double m_DeltaL;
     private double m_DeltaA;
     private double m_DeltaB;
@@ -93,4 +105,36 @@ public class ColorDifferenceCIELab extends ColorDifference<CIELab>
     {
         return m_DeltaB;
     }
+
+    protected ValueNames getValueNames()
+    {
+        return VALUE_NAMES;
+    }
+
+    public double getValue( int index )
+    {
+        switch( index )
+        {
+        case 0:
+            return m_DeltaE;
+        case 1:
+            return m_DeltaL;
+        case 2:
+            return m_DeltaA;
+        case 3:
+            return m_DeltaB;
+        case 4:
+            return m_DeltaChroma;
+        case 5:
+            return m_DeltaHue;
+        case 6:
+            return m_DeltaL;
+        case 7:
+            return m_DeltaChroma;
+        case 8:
+            return m_DeltaHue;
+        default:
+            return super.getValue( index );
+        }
+    }
 }
@@ -20,6 +20,22 @@ package org.color4j.colorimetry.matching;
 
 public class ColorDifferenceCJ94 extends ColorDifference
 {
+    static final ValueNames VALUE_NAMES = new ValueNames(
+        DELTA_E,
+        DELTA_L_s,
+        DELTA_a_s,
+        DELTA_b_s,
+        DELTA_c_s,
+        DELTA_h_s,
+        DELTA_L,
+        DELTA_c,
+        DELTA_h,
+        "DeltaR",     //NOI18N
+        "SL",     //NOI18N
+        "SC",     //NOI18N
+        "SH"     //NOI18N
+    );
+
     /**
      * the variable end with star mean is using CIELab model,just the difference of
      * the the value, without star means is more complex, ex:
@@ -130,4 +146,44 @@ public class ColorDifferenceCJ94 extends ColorDifference
     {
         return m_sH;
     }
+
+    protected ValueNames getValueNames()
+    {
+        return VALUE_NAMES;
+    }
+
+    public double getValue( int index )
+    {
+        switch( index )
+        {
+        case 0:
+            return m_dE;
+        case 1:
+            return m_dLStar;
+        case 2:
+            return m_dAStar;
+        case 3:
+            return m_dBStar;
+        case 4:
+            return m_dCStar;
+        case 5:
+            return m_dHStar;
+        case 6:
+            return getDeltaL();
+        case 7:
+            return getDeltaC();
+        case 8:
+            return getDeltaH();
+        case 9:
+            return m_dR;
+        case 10:
+            return m_sL;
+        case 11:
+            return m_sC;
+        case 12:
+            return m_sH;
+        default:
+            return super.getValue( index );
+        }
+    }
 }
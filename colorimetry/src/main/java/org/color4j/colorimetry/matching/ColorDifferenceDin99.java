@@ -22,6 +22,23 @@ import org.color4j.colorimetry.encodings.Din99Lab;
 
 public class ColorDifferenceDin99 extends ColorDifference<Din99Lab>
 {
+    static final ValueNames VALUE_NAMES = new ValueNames(
+        DELTA_E,
+        DELTA_L_s,
+        DELTA_a_s,
+        DELTA_b_s,
+        DELTA_c_s,
+        DELTA_h_s,
+        DELTA_L,
+        DELTA_c,
+        DELTA_h,
+        "DeltaL99",     //NOI18N
+        "Deltaa99",     //NOI18N
+        "Deltab99",     //NOI18N
+        "DeltaC99",     //NOI18N
+        "DeltaH99"     //NOI18N
+    );
+
     /**
      * the variable end with star mean is using CIELab model,just the difference of
      * the the value, without star means is more complex, ex:
@@ -146,4 +163,46 @@ public class ColorDifferenceDin99 extends ColorDifference<Din99Lab>
     {
         return m_dHStar;
     }
+
+    protected ValueNames getValueNames()
+    {
+        return VALUE_NAMES;
+    }
+
+    public double getValue( int index )
+    {
+        switch( index )
+        {
+        case 0:
+            return m_dE;
+        case 1:
+            return m_dLStar;
+        case 2:
+            return m_dAStar;
+        case 3:
+            return m_dBStar;
+        case 4:
+            return m_dCStar;
+        case 5:
+            return m_dHStar;
+        case 6:
+            return m_dL99;
+        case 7:
+            return m_dC99;
+        case 8:
+            return m_dH99;
+        case 9:
+            return m_dL99;
+        case 10:
+            return m_da99;
+        case 11:
+            return m_db99;
+        case 12:
+            return m_dC99;
+        case 13:
+            return m_dH99;
+        default:
+            return super.getValue( index );
+        }
+    }
 }
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.matching;
+
+import java.nio.DoubleBuffer;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * Computes the color differences of many pairs of colors with one DifferenceAlgorithm.
+ * <p>Colors are passed as packed CIELab arrays, <code>{ L0, a0, b0, L1, a1, b1, ... }</code>, and
+ * the differences are written to a <code>double[]</code> or a <code>DoubleBuffer</code>, which may
+ * be a view of a memory mapped file. Algorithms that implement <code>DifferenceKernel</code> are
+ * evaluated without allocating anything per pair, <code>PreparableKernel</code>s prepare each standard
+ * once, <code>Din99</code> colors are converted once up front, and any other algorithm is evaluated
+ * through its <code>compute</code> method.</p>
+ * <p>Large batches are split across the threads of <code>Parallel</code>, and matrices are split into
+ * tiles of standards and batches that stay in the processor cache.</p>
+ */
+public final class DeltaEBatch
+{
+    private static final int GRAIN = 2048;
+    private static final int TILE_STANDARDS = 64;
+    private static final int TILE_BATCHES = 512;
+
+    private final DifferenceAlgorithm<CIELab> m_Algorithm;
+    private final DifferenceKernel m_Kernel;
+    private final PreparableKernel m_Preparable;
+    private final boolean m_Din99;
+
+    @SuppressWarnings( "unchecked" )
+    private DeltaEBatch( DifferenceAlgorithm algorithm )
+    {
+        m_Algorithm = algorithm;
+        m_Kernel = algorithm instanceof DifferenceKernel ? (DifferenceKernel) algorithm : null;
+        m_Preparable = algorithm instanceof PreparableKernel ? (PreparableKernel) algorithm : null;
+        m_Din99 = algorithm instanceof Din99;
+    }
+
+    public static DeltaEBatch create( DifferenceAlgorithm algorithm )
+    {
+        if( algorithm == null )
+        {
+            throw new IllegalArgumentException( "A null parameter for DifferenceAlgorithm is not allowed." );   //NOI18N
+        }
+        return new DeltaEBatch( algorithm );
+    }
+
+    /**
+     * Creates a batch for the algorithm registered in <code>MatchingFactory</code> under <code>name</code>.
+     */
+    public static DeltaEBatch create( String name )
+    {
+        return new DeltaEBatch( MatchingFactory.getInstance().getAlgorithm( name ) );
+    }
+
+    public DifferenceAlgorithm getAlgorithm()
+    {
+        return m_Algorithm;
+    }
+
+    /**
+     * Computes the difference of each of <code>count</code> batches from one standard.
+     *
+     * @param standard      the CIELab values of the standard.
+     * @param standardOffset the index of L* of the standard in <code>standard</code>.
+     * @param batches       the packed CIELab values of the batches.
+     * @param batchOffset   the index of L* of the first batch in <code>batches</code>.
+     * @param count         the number of batches.
+     * @param result        receives the <code>count</code> differences.
+     * @param resultOffset  the index of the first difference in <code>result</code>.
+     */
+    public void compare( double[] standard, int standardOffset,
+                         double[] batches, int batchOffset, int count,
+                         final double[] result, final int resultOffset
+    )
+    {
+        checkLength( standard, standardOffset, 1 );
+        checkLength( batches, batchOffset, count );
+        if( resultOffset < 0 || result.length - resultOffset < count )
+        {
+            throw new IllegalArgumentException( "The result array is too short for " + count + " differences." );  //NOI18N
+        }
+        final double[] s = prepare( standard, standardOffset, 1 );
+        final int sOff = s == standard ? standardOffset : 0;
+        final double[] b = prepare( batches, batchOffset, count );
+        final int bOff = b == batches ? batchOffset : 0;
+        final PreparedStandard prepared = prepareStandard( s[ sOff ], s[ sOff + 1 ], s[ sOff + 2 ] );
+        Parallel.forRange( count, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                double L = s[ sOff ];
+                double a = s[ sOff + 1 ];
+                double bb = s[ sOff + 2 ];
+                for( int i = from; i < to; i++ )
+                {
+                    int k = bOff + i * 3;
+                    result[ resultOffset + i ] = deltaE( m_Algorithm, m_Kernel, prepared, L, a, bb, b[ k ], b[ k + 1 ], b[ k + 2 ] );
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return the differences of the <code>count</code> packed batches from <code>standard</code>.
+     */
+    public double[] compare( CIELab standard, double[] batches, int count )
+    {
+        double[] result = new double[ count ];
+        compare( new double[]{ standard.getL(), standard.geta(), standard.getb() }, 0, batches, 0, count, result, 0 );
+        return result;
+    }
+
+    /**
+     * Prepares the standard (L, a, b) for comparing batches to it one at a time, as <code>compare</code> does.
+     */
+    public Standard prepare( double L, double a, double b )
+    {
+        if( m_Din99 )
+        {
+            double[] din99 = new double[ 3 ];
+            CIELab.toDin99Lab( L, a, b, 1.0, 1.0, din99, 0 );
+            return new Standard( m_Algorithm, m_Kernel, null, true, din99[ 0 ], din99[ 1 ], din99[ 2 ] );
+        }
+        return new Standard( m_Algorithm, m_Kernel, prepareStandard( L, a, b ), false, L, a, b );
+    }
+
+    /**
+     * Computes the full matrix of differences, row by row: the difference of batch <code>j</code> from
+     * standard <code>i</code> is written to <code>result[ i * batchCount + j ]</code>.
+     */
+    public void matrix( double[] standards, int standardCount, double[] batches, int batchCount, final double[] result )
+    {
+        checkMatrix( standards, standardCount, batches, batchCount, result.length );
+        compute( standards, standardCount, batches, batchCount, new Sink()
+        {
+            public void put( int index, double value )
+            {
+                result[ index ] = value;
+            }
+        } );
+    }
+
+    /**
+     * Computes the full matrix of differences into <code>result</code>, at the same indices as
+     * <code>matrix( double[], int, double[], int, double[] )</code>. The position of the buffer is not changed.
+     */
+    public void matrix( double[] standards, int standardCount, double[] batches, int batchCount, final DoubleBuffer result )
+    {
+        checkMatrix( standards, standardCount, batches, batchCount, result.limit() );
+        compute( standards, standardCount, batches, batchCount, new Sink()
+        {
+            public void put( int index, double value )
+            {
+                result.put( index, value );
+            }
+        } );
+    }
+
+    private void compute( double[] standards, int standardCount, double[] batches, final int batchCount, final Sink sink )
+    {
+        final double[] s = prepare( standards, 0, standardCount );
+        final double[] b = prepare( batches, 0, batchCount );
+        final PreparedStandard[] prepared = new PreparedStandard[ standardCount ];
+        for( int i = 0; i < standardCount; i++ )
+        {
+            prepared[ i ] = prepareStandard( s[ i * 3 ], s[ i * 3 + 1 ], s[ i * 3 + 2 ] );
+        }
+        final int rowTiles = ( standardCount + TILE_STANDARDS - 1 ) / TILE_STANDARDS;
+        final int columnTiles = ( batchCount + TILE_BATCHES - 1 ) / TILE_BATCHES;
+        final int rows = standardCount;
+        Parallel.forRange( rowTiles * columnTiles, 1, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int tile = from; tile < to; tile++ )
+                {
+                    int firstRow = ( tile / columnTiles ) * TILE_STANDARDS;
+                    int lastRow = Math.min( rows, firstRow + TILE_STANDARDS );
+                    int firstColumn = ( tile % columnTiles ) * TILE_BATCHES;
+                    int lastColumn = Math.min( batchCount, firstColumn + TILE_BATCHES );
+                    for( int i = firstRow; i < lastRow; i++ )
+                    {
+                        double L = s[ i * 3 ];
+                        double a = s[ i * 3 + 1 ];
+                        double bb = s[ i * 3 + 2 ];
+                        PreparedStandard standard = prepared[ i ];
+                        int row = i * batchCount;
+                        for( int j = firstColumn; j < lastColumn; j++ )
+                        {
+                            sink.put( row + j, deltaE( m_Algorithm, m_Kernel, standard, L, a, bb,
+                                                       b[ j * 3 ], b[ j * 3 + 1 ], b[ j * 3 + 2 ] ) );
+                        }
+                    }
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return the prepared standard, or null if the algorithm can not prepare one.
+     */
+    private PreparedStandard prepareStandard( double L, double a, double b )
+    {
+        if( m_Preparable == null )
+        {
+            return null;
+        }
+        return m_Preparable.prepare( new CIELab( L, a, b ) );
+    }
+
+    private static double deltaE( DifferenceAlgorithm<CIELab> algorithm, DifferenceKernel kernel, PreparedStandard prepared,
+                                  double L1, double a1, double b1, double L2, double a2, double b2
+    )
+    {
+        if( prepared != null )
+        {
+            return prepared.deltaE( L2, a2, b2 );
+        }
+        if( kernel != null )
+        {
+            return kernel.deltaE( L1, a1, b1, L2, a2, b2 );
+        }
+        return algorithm.compute( new CIELab( L1, a1, b1 ), new CIELab( L2, a2, b2 ) ).getDeltaE();
+    }
+
+    /**
+     * @return the values to hand to the kernel: <code>values</code> itself, or for Din99 a
+     *         converted copy starting at index 0.
+     */
+    private double[] prepare( double[] values, int offset, int count )
+    {
+        if( !m_Din99 )
+        {
+            return values;
+        }
+        double[] din99 = new double[ count * 3 ];
+        for( int i = 0; i < count; i++ )
+        {
+            int k = offset + i * 3;
+            CIELab.toDin99Lab( values[ k ], values[ k + 1 ], values[ k + 2 ], 1.0, 1.0, din99, i * 3 );
+        }
+        return din99;
+    }
+
+    private static void checkLength( double[] values, int offset, int count )
+    {
+        if( offset < 0 || count < 0 || values.length - offset < count * 3L )
+        {
+            throw new IllegalArgumentException( "The array is too short for " + count + " colors." );  //NOI18N
+        }
+    }
+
+    private static void checkMatrix( double[] standards, int standardCount, double[] batches, int batchCount, int capacity )
+    {
+        checkLength( standards, 0, standardCount );
+        checkLength( batches, 0, batchCount );
+        if( (long) standardCount * batchCount > capacity )
+        {
+            throw new IllegalArgumentException( "The result is too small for " + standardCount + " x " + batchCount + " differences." );  //NOI18N
+        }
+    }
+
+    /**
+     * A standard prepared for the algorithm of a batch. It may be shared by threads, each passing its own scratch array.
+     */
+    public static final class Standard
+    {
+        private final DifferenceAlgorithm<CIELab> m_Algorithm;
+        private final DifferenceKernel m_Kernel;
+        private final PreparedStandard m_Prepared;
+        private final boolean m_Din99;
+        private final double m_L;
+        private final double m_a;
+        private final double m_b;
+
+        private Standard( DifferenceAlgorithm<CIELab> algorithm, DifferenceKernel kernel, PreparedStandard prepared,
+                          boolean din99, double L, double a, double b
+        )
+        {
+            m_Algorithm = algorithm;
+            m_Kernel = kernel;
+            m_Prepared = prepared;
+            m_Din99 = din99;
+            m_L = L;
+            m_a = a;
+            m_b = b;
+        }
+
+        /**
+         * @param scratch receives the Din99 values of the batch when the algorithm is Din99, at least 3 long.
+         * @return the difference of the batch with the CIELab values (L, a, b) from this standard.
+         */
+        public double deltaE( double L, double a, double b, double[] scratch )
+        {
+            if( m_Din99 )
+            {
+                CIELab.toDin99Lab( L, a, b, 1.0, 1.0, scratch, 0 );
+                return m_Kernel.deltaE( m_L, m_a, m_b, scratch[ 0 ], scratch[ 1 ], scratch[ 2 ] );
+            }
+            return DeltaEBatch.deltaE( m_Algorithm, m_Kernel, m_Prepared, m_L, m_a, m_b, L, a, b );
+        }
+    }
+
+    private interface Sink
+    {
+        void put( int index, double value );
+    }
+}
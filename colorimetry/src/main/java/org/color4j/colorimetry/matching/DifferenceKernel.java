@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.matching;
+
+/**
+ * The color difference of a DifferenceAlgorithm as a plain function of the coordinates.
+ * <p>The result equals <code>getDeltaE()</code> of the ColorDifference the algorithm computes for
+ * the same two colors, up to rounding, but nothing is allocated on the way. The coordinates are
+ * those of the encoding the algorithm compares: CIELab L*, a* and b* for all the algorithms in
+ * this package except <code>Din99</code>, which takes Din99Lab L99, a99 and b99.</p>
+ */
+public interface DifferenceKernel
+{
+    /**
+     * @return the difference of the batch (L2, a2, b2) from the standard (L1, a1, b1).
+     */
+    double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 );
+}
@@ -22,7 +22,7 @@ import org.color4j.colorimetry.encodings.Din99Lab;
 import org.color4j.colorimetry.math.Maths;
 
 public class Din99
-    implements DifferenceAlgorithm<Din99Lab>
+    implements DifferenceAlgorithm<Din99Lab>, DifferenceKernel
 {
     public String getName()
     {
@@ -31,15 +31,7 @@ public class Din99
 
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceDin99( this, 0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0,
-                                                       0.0, 0.0, 0.0,
-                                                       0.0, 0.0 );
-
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        System.arraycopy( s, 0, st, 0, s.length - 3 );
-        return st;
+        return ColorDifferenceDin99.VALUE_NAMES.getNames();
     }
 
     public ColorDifference compute( Din99Lab target, Din99Lab sample )
@@ -51,6 +43,17 @@ public class Din99
         return cd;
     }
 
+    /**
+     * The Euclidean distance of two Din99Lab colors.
+     */
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        double dL = L2 - L1;
+        double da = a2 - a1;
+        double db = b2 - b1;
+        return Math.sqrt( dL * dL + da * da + db * db );
+    }
+
     private double[] computeAll( Din99Lab standard, Din99Lab batch )
     {
         double[] p = new double[ 11 ];
@@ -20,10 +20,13 @@ package org.color4j.colorimetry.matching;
 
 import org.color4j.colorimetry.ColorEncoding;
 import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.math.Maths;
 
 public class JPC79
-    implements DifferenceAlgorithm
+    implements DifferenceAlgorithm, DifferenceKernel
 {
+    private static final double DP = Math.PI / 180.0;
+
     public JPC79()
     {
     }
@@ -35,14 +38,7 @@ public class JPC79
 
     public String[] getAllDeltaNames()
     {
-        ColorDifference cd = new ColorDifferenceCJ94( this, 0.0, 0.0, 0.0,
-                                                      0.0, 0.0, 0.0,
-                                                      0.0, 0.0, 0.0, 0.0 );
-
-        String[] s = cd.getAllValueNames();
-        String[] st = new String[ s.length - 3 ];
-        System.arraycopy( s, 0, st, 0, s.length - 3 );
-        return st;
+        return ColorDifferenceCJ94.VALUE_NAMES.getNames();
     }
 
     public ColorDifference compute( ColorEncoding target, ColorEncoding sample )
@@ -63,6 +59,41 @@ public class JPC79
                                         p[ 8 ], p[ 9 ] );
     }
 
+    public double deltaE( double L1, double a1, double b1, double L2, double a2, double b2 )
+    {
+        double c1 = CIELab.chroma( a1, b1 );
+        double c2 = CIELab.chroma( a2, b2 );
+        double h1 = CIELab.hue( a1, b1 );
+        double dH = Maths.computeDifferenceHue( h1, c1, CIELab.hue( a2, b2 ), c2 );
+        return deltaELCh( L1, c1, h1, L2, c2, dH );
+    }
+
+    /**
+     * The JPC79 difference from the LCh terms, for kernels and evaluators that already have them.
+     */
+    static double deltaELCh( double L1, double c1, double h1, double L2, double c2, double dH )
+    {
+        double sL = ( 0.08195 * L1 ) / ( 1.0 + 0.01765 * L1 );
+        double sC = ( ( 0.0638 * c1 ) / ( 1.0 + 0.0131 * c1 ) ) + 0.638;
+        double t;
+        if( c1 < 0.638 )
+        {
+            t = 1.0;
+        }
+        else if( ( h1 > 164.0 ) && ( h1 < 345.0 ) )
+        {
+            t = 0.56 + Math.abs( 0.2 * Math.cos( ( h1 + 168.0 ) * DP ) );
+        }
+        else
+        {
+            t = 0.36 + Math.abs( 0.4 * Math.cos( ( h1 + 35.0 ) * DP ) );
+        }
+        double kL = ( L2 - L1 ) / sL;
+        double kC = ( c2 - c1 ) / sC;
+        double kH = dH / ( sC * t );
+        return Math.sqrt( kL * kL + kC * kC + kH * kH );
+    }
+
     private double[] computeAll( ColorEncoding standard, ColorEncoding batch )
     {
         double[] p = new double[ 10 ];
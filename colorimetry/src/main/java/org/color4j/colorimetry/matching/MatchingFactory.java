@@ -18,10 +18,19 @@
 
 package org.color4j.colorimetry.matching;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * The registry of the DifferenceAlgorithms known by name.
+ * <p>Lookups do not lock, so the algorithms can be looked up from many threads. The returned algorithms
+ * are stateless and can be kept by callers that compare many colors with the same algorithm. Besides the
+ * algorithms of this package the registry holds those added with <code>register</code> and any
+ * <code>DifferenceAlgorithm</code> listed in <code>META-INF/services</code> on the class path, which is
+ * registered under its <code>getName()</code> unless that name is already taken.</p>
+ */
 public class MatchingFactory
 {
     public final static String CMC11 = "CMC 1:1";          //NOI18N
@@ -36,57 +45,39 @@ public class MatchingFactory
     public final static String JPC79 = "JPC 79";            //NOI18N
     public final static String DIN99 = "DIN 99";            //NOI18N
 
-    static private MatchingFactory m_Instance;
-
-    private final Map<String, DifferenceAlgorithm> m_Algorithms;
-    private DifferenceAlgorithm m_DefaultAlgorithm;
+    private final ConcurrentMap<String, DifferenceAlgorithm> m_Algorithms;
+    private volatile String[] m_Names;
+    private volatile DifferenceAlgorithm m_DefaultAlgorithm;
 
     static public MatchingFactory getInstance()
     {
-        if( m_Instance == null )
-        {
-            synchronized( MatchingFactory.class )
-            {
-                if( m_Instance == null )
-                {
-                    m_Instance = new MatchingFactory();
-                }
-            }
-        }
-        return m_Instance;
+        return Instance.INSTANCE;
     }
 
     private MatchingFactory()
     {
-        m_Algorithms = new HashMap<String, DifferenceAlgorithm>();
+        m_Algorithms = new ConcurrentHashMap<String, DifferenceAlgorithm>( 16 );
+        m_Names = new String[ 0 ];
         initializeAlgorithms();
+        loadAlgorithms();
     }
 
     public DifferenceAlgorithm getAlgorithm( String name )
     {
-        synchronized( m_Algorithms )
+        DifferenceAlgorithm algo = m_Algorithms.get( name );
+        if( algo != null )
         {
-            DifferenceAlgorithm algo = m_Algorithms.get( name );
-            if( algo != null )
-            {
-                return algo;
-            }
-            throw new RuntimeException( "No algorithm found for " + name );
+            return algo;
         }
+        throw new RuntimeException( "No algorithm found for " + name );
     }
 
+    /**
+     * @return the names of the registered algorithms, in the order they were registered.
+     */
     public String[] getAlgorithmNames()
     {
-        synchronized( m_Algorithms )
-        {
-            String[] names = new String[ m_Algorithms.size() ];
-            Iterator list = m_Algorithms.keySet().iterator();
-            for( int i = 0; list.hasNext(); i++ )
-            {
-                names[ i ] = (String) list.next();
-            }
-            return names;
-        }
+        return m_Names.clone();
     }
 
     public DifferenceAlgorithm getDefaultAlgorithm()
@@ -99,14 +90,60 @@ public class MatchingFactory
         m_DefaultAlgorithm = m_Algorithms.get( name );
     }
 
+    /**
+     * Registers <code>algorithm</code> under <code>name</code>, replacing any algorithm registered
+     * under that name before.
+     */
     public void register( String name, DifferenceAlgorithm algorithm )
     {
+        if( name == null || algorithm == null )
+        {
+            throw new IllegalArgumentException( "A null name or DifferenceAlgorithm is not allowed." );   //NOI18N
+        }
         synchronized( m_Algorithms )
         {
-            m_Algorithms.put( name, algorithm );
+            if( m_Algorithms.put( name, algorithm ) == null )
+            {
+                addName( name );
+            }
         }
     }
 
+    /**
+     * Removes the algorithm registered under <code>name</code>.
+     *
+     * @return the removed algorithm, or null if none was registered under that name.
+     */
+    public DifferenceAlgorithm unregister( String name )
+    {
+        synchronized( m_Algorithms )
+        {
+            DifferenceAlgorithm removed = m_Algorithms.remove( name );
+            if( removed != null )
+            {
+                String[] names = new String[ m_Names.length - 1 ];
+                int count = 0;
+                for( String existing : m_Names )
+                {
+                    if( !existing.equals( name ) )
+                    {
+                        names[ count++ ] = existing;
+                    }
+                }
+                m_Names = names;
+            }
+            return removed;
+        }
+    }
+
+    private void addName( String name )
+    {
+        String[] names = new String[ m_Names.length + 1 ];
+        System.arraycopy( m_Names, 0, names, 0, m_Names.length );
+        names[ m_Names.length ] = name;
+        m_Names = names;
+    }
+
     private void initializeAlgorithms()
     {
         register( CMC11, new CMC( 1.0 ) );
@@ -122,4 +159,25 @@ public class MatchingFactory
         register( DIN99, new Din99() );
         setDefaultAlgorithm( CMC21 );
     }
+
+    private void loadAlgorithms()
+    {
+        Iterator<DifferenceAlgorithm> iterator = ServiceLoader.load( DifferenceAlgorithm.class, MatchingFactory.class.getClassLoader() ).iterator();
+        while( iterator.hasNext() )
+        {
+            DifferenceAlgorithm algorithm = iterator.next();
+            synchronized( m_Algorithms )
+            {
+                if( m_Algorithms.putIfAbsent( algorithm.getName(), algorithm ) == null )
+                {
+                    addName( algorithm.getName() );
+                }
+            }
+        }
+    }
+
+    private static final class Instance
+    {
+        private static final MatchingFactory INSTANCE = new MatchingFactory();
+    }
 }
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.matching;
+
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.math.Maths;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * Computes the deltaE of several DifferenceAlgorithms for a pair of colors in a single pass.
+ * <p>The LCh terms shared by the algorithms, chroma, hue and the hue difference, are computed once per
+ * pair instead of once per algorithm. The algorithms of this package are evaluated from those terms;
+ * any other algorithm is evaluated through its <code>DifferenceKernel</code> or its
+ * <code>compute</code> method.</p>
+ * <p>Results are written in algorithm order, one deltaE per algorithm, and equal
+ * <code>getDeltaE()</code> of each algorithm up to rounding. Instances are immutable and can be
+ * shared between threads.</p>
+ */
+public final class MultiDifferenceEvaluator
+{
+    private static final int GRAIN = 1024;
+
+    private static final int KIND_LABDE = 0;
+    private static final int KIND_LCHDE = 1;
+    private static final int KIND_CIE94 = 2;
+    private static final int KIND_CMC = 3;
+    private static final int KIND_JPC79 = 4;
+    private static final int KIND_CIE2000 = 5;
+    private static final int KIND_DIN99 = 6;
+    private static final int KIND_KERNEL = 7;
+    private static final int KIND_OBJECT = 8;
+
+    private final DifferenceAlgorithm[] m_Algorithms;
+    private final String[] m_Names;
+    private final int[] m_Kinds;
+    private final double[] m_LightnessWeights;
+    private final boolean m_NeedsChroma;
+    private final boolean m_NeedsHue;
+
+    /**
+     * Creates an evaluator for the algorithms registered in <code>MatchingFactory</code> under <code>names</code>.
+     */
+    public static MultiDifferenceEvaluator create( String... names )
+    {
+        MatchingFactory factory = MatchingFactory.getInstance();
+        DifferenceAlgorithm[] algorithms = new DifferenceAlgorithm[ names.length ];
+        for( int i = 0; i < names.length; i++ )
+        {
+            algorithms[ i ] = factory.getAlgorithm( names[ i ] );
+        }
+        return new MultiDifferenceEvaluator( algorithms );
+    }
+
+    public static MultiDifferenceEvaluator create( DifferenceAlgorithm... algorithms )
+    {
+        for( DifferenceAlgorithm algorithm : algorithms )
+        {
+            if( algorithm == null )
+            {
+                throw new IllegalArgumentException( "A null parameter for DifferenceAlgorithm is not allowed." );   //NOI18N
+            }
+        }
+        return new MultiDifferenceEvaluator( algorithms.clone() );
+    }
+
+    private MultiDifferenceEvaluator( DifferenceAlgorithm[] algorithms )
+    {
+        m_Algorithms = algorithms;
+        m_Names = new String[ algorithms.length ];
+        m_Kinds = new int[ algorithms.length ];
+        m_LightnessWeights = new double[ algorithms.length ];
+        boolean chroma = false;
+        boolean hue = false;
+        for( int i = 0; i < algorithms.length; i++ )
+        {
+            DifferenceAlgorithm algorithm = algorithms[ i ];
+            m_Names[ i ] = algorithm.getName();
+            m_Kinds[ i ] = kindOf( algorithm );
+            switch( m_Kinds[ i ] )
+            {
+            case KIND_CMC:
+                m_LightnessWeights[ i ] = ( (CMC) algorithm ).getLightnessWeight();
+                hue = true;
+                chroma = true;
+                break;
+            case KIND_LCHDE:
+            case KIND_CIE94:
+            case KIND_JPC79:
+                hue = true;
+                chroma = true;
+                break;
+            case KIND_CIE2000:
+                chroma = true;
+                break;
+            default:
+                break;
+            }
+        }
+        m_NeedsChroma = chroma;
+        m_NeedsHue = hue;
+    }
+
+    private static int kindOf( DifferenceAlgorithm algorithm )
+    {
+        Class type = algorithm.getClass();
+        if( type == CIELabDE.class )
+        {
+            return KIND_LABDE;
+        }
+        if( type == CIELchDE.class )
+        {
+            return KIND_LCHDE;
+        }
+        if( type == CIE94.class )
+        {
+            return KIND_CIE94;
+        }
+        if( type == CMC.class )
+        {
+            return KIND_CMC;
+        }
+        if( type == JPC79.class )
+        {
+            return KIND_JPC79;
+        }
+        if( type == CIE2000.class )
+        {
+            return KIND_CIE2000;
+        }
+        if( algorithm instanceof Din99 )
+        {
+            return KIND_DIN99;
+        }
+        if( algorithm instanceof DifferenceKernel )
+        {
+            return KIND_KERNEL;
+        }
+        return KIND_OBJECT;
+    }
+
+    /**
+     * @return the number of deltaE values written per pair.
+     */
+    public int getSize()
+    {
+        return m_Names.length;
+    }
+
+    /**
+     * @return the names of the algorithms, in the order their results are written.
+     */
+    public String[] getNames()
+    {
+        return m_Names.clone();
+    }
+
+    /**
+     * @return the position of the result of the algorithm named <code>name</code>, or -1.
+     */
+    public int indexOf( String name )
+    {
+        for( int i = 0; i < m_Names.length; i++ )
+        {
+            if( m_Names[ i ].equals( name ) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the deltaE of each algorithm for the batch compared to the standard.
+     */
+    public double[] evaluate( CIELab standard, CIELab batch )
+    {
+        double[] result = new double[ m_Names.length ];
+        evaluate( standard.getL(), standard.geta(), standard.getb(), batch.getL(), batch.geta(), batch.getb(), result, 0 );
+        return result;
+    }
+
+    /**
+     * Writes the deltaE of each algorithm for the batch (L2, a2, b2) compared to the standard (L1, a1, b1)
+     * to <code>result</code>, starting at <code>offset</code>.
+     */
+    public void evaluate( double L1, double a1, double b1,
+                          double L2, double a2, double b2,
+                          double[] result, int offset
+    )
+    {
+        double c1 = 0.0;
+        double c2 = 0.0;
+        double h1 = 0.0;
+        double dH = 0.0;
+        if( m_NeedsChroma )
+        {
+            c1 = CIELab.chroma( a1, b1 );
+            c2 = CIELab.chroma( a2, b2 );
+        }
+        if( m_NeedsHue )
+        {
+            h1 = CIELab.hue( a1, b1 );
+            dH = Maths.computeDifferenceHue( h1, c1, CIELab.hue( a2, b2 ), c2 );
+        }
+        double[] din99 = null;
+        for( int i = 0; i < m_Kinds.length; i++ )
+        {
+            double deltaE;
+            switch( m_Kinds[ i ] )
+            {
+            case KIND_LABDE:
+                double dL = L2 - L1;
+                double da = a2 - a1;
+                double db = b2 - b1;
+                deltaE = Math.sqrt( dL * dL + da * da + db * db );
+                break;
+            case KIND_LCHDE:
+                deltaE = CIELchDE.deltaELCh( L1, c1, L2, c2, dH );
+                break;
+            case KIND_CIE94:
+                deltaE = CIE94.deltaELCh( L1, c1, L2, c2, dH );
+                break;
+            case KIND_CMC:
+                deltaE = CMC.deltaELCh( m_LightnessWeights[ i ], L1, c1, h1, L2, c2, dH );
+                break;
+            case KIND_JPC79:
+                deltaE = JPC79.deltaELCh( L1, c1, h1, L2, c2, dH );
+                break;
+            case KIND_CIE2000:
+                deltaE = CIE2000.deltaE( L1, a1, b1, c1, L2, a2, b2, c2 );
+                break;
+            case KIND_DIN99:
+                if( din99 == null )
+                {
+                    din99 = new double[ 6 ];
+                    CIELab.toDin99Lab( L1, a1, b1, 1.0, 1.0, din99, 0 );
+                    CIELab.toDin99Lab( L2, a2, b2, 1.0, 1.0, din99, 3 );
+                }
+                deltaE = ( (DifferenceKernel) m_Algorithms[ i ] ).deltaE( din99[ 0 ], din99[ 1 ], din99[ 2 ],
+                                                                         din99[ 3 ], din99[ 4 ], din99[ 5 ] );
+                break;
+            case KIND_KERNEL:
+                deltaE = ( (DifferenceKernel) m_Algorithms[ i ] ).deltaE( L1, a1, b1, L2, a2, b2 );
+                break;
+            default:
+                deltaE = compute( m_Algorithms[ i ], L1, a1, b1, L2, a2, b2 );
+                break;
+            }
+            result[ offset + i ] = deltaE;
+        }
+    }
+
+    /**
+     * Evaluates <code>count</code> pairs of packed CIELab colors, <code>standards[ 3 * k ]</code> and
+     * <code>batches[ 3 * k ]</code> being the L* of pair <code>k</code>. The results of pair <code>k</code>
+     * are written to <code>result</code> from <code>k * getSize()</code>.
+     */
+    public void evaluate( final double[] standards, final double[] batches, int count, final double[] result )
+    {
+        if( standards.length < count * 3L || batches.length < count * 3L )
+        {
+            throw new IllegalArgumentException( "The arrays are too short for " + count + " pairs." );  //NOI18N
+        }
+        final int size = m_Names.length;
+        if( result.length < (long) count * size )
+        {
+            throw new IllegalArgumentException( "The result array is too short for " + count + " pairs." );  //NOI18N
+        }
+        Parallel.forRange( count, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int k = from; k < to; k++ )
+                {
+                    int i = k * 3;
+                    evaluate( standards[ i ], standards[ i + 1 ], standards[ i + 2 ],
+                              batches[ i ], batches[ i + 1 ], batches[ i + 2 ], result, k * size );
+                }
+            }
+        } );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static double compute( DifferenceAlgorithm algorithm,
+                                   double L1, double a1, double b1,
+                                   double L2, double a2, double b2
+    )
+    {
+        return algorithm.compute( new CIELab( L1, a1, b1 ), new CIELab( L2, a2, b2 ) ).getDeltaE();
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.matching;
+
+import org.color4j.colorimetry.encodings.CIELab;
+
+/**
+ * A DifferenceKernel that can compute the terms depending on the standard once, so that comparing many
+ * batches to one standard only pays for the batch terms.
+ */
+public interface PreparableKernel
+    extends DifferenceKernel
+{
+    PreparedStandard prepare( CIELab standard );
+}
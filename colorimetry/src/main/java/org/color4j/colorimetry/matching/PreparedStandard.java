@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.matching;
+
+import org.color4j.colorimetry.encodings.CIELab;
+
+/**
+ * A standard color with the terms of a DifferenceAlgorithm that depend on the standard alone
+ * computed once, for comparing many batches to the same standard.
+ *
+ * @see PreparableKernel#prepare(CIELab)
+ */
+public interface PreparedStandard
+{
+    CIELab getStandard();
+
+    /**
+     * @return the same ColorDifference as <code>compute( getStandard(), sample )</code> of the algorithm.
+     */
+    ColorDifference compute( CIELab sample );
+
+    /**
+     * @return the difference of the batch (L, a, b) from the standard, as
+     *         <code>DifferenceKernel.deltaE</code> computes it up to rounding.
+     */
+    double deltaE( double L, double a, double b );
+}
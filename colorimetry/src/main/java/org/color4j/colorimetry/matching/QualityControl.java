@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.color4j.colorimetry.ColorException;
+import org.color4j.colorimetry.Illuminant;
+import org.color4j.colorimetry.Observer;
+import org.color4j.colorimetry.Reflectance;
+import org.color4j.colorimetry.ReflectanceSet;
+import org.color4j.colorimetry.Spectrum;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.MultiConditionEvaluator;
+import org.color4j.colorimetry.math.Maths;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * Passes or fails the batches of ReflectanceSets against their standards.
+ * <p>Each <code>Check</code> compares the CIELab of standard and batch under one Illuminant and Observer with
+ * one DifferenceAlgorithm and a tolerance; a batch passes a check if its deltaE is within the tolerance. The
+ * CIELab under all the conditions of the checks is computed in a single pass over each spectrum, and the
+ * standard of a set is computed and prepared once. Sets are read in windows of up to <code>WINDOW_SETS</code>
+ * sets or <code>WINDOW_BATCHES</code> batches, and the batches of all the sets of a window are evaluated
+ * together in parallel, so that a stream of sets with only a few batches each is spread across the threads
+ * as well as a single large set.</p>
+ * <p>Every verdict is handed to the <code>Listener</code> as soon as it is computed, from the thread that
+ * computed it, so the listener must be thread safe. The verdicts of a window are delivered before the next
+ * window is read, in no particular order.</p>
+ */
+public final class QualityControl
+{
+    private static final int GRAIN = 16;
+    private static final int WINDOW_SETS = 1024;
+    private static final int WINDOW_BATCHES = 4096;
+
+    private final Check[] m_Checks;
+    private final int[] m_Conditions;
+    private final DeltaEBatch[] m_Batches;
+    private final Illuminant[] m_Illuminants;
+    private final Observer[] m_Observers;
+    private final ConcurrentMap<Geometry, MultiConditionEvaluator> m_Evaluators;
+
+    public static QualityControl create( Check... checks )
+    {
+        if( checks.length == 0 )
+        {
+            throw new IllegalArgumentException( "At least one Check is required." );  //NOI18N
+        }
+        return new QualityControl( checks.clone() );
+    }
+
+    private QualityControl( Check[] checks )
+    {
+        m_Checks = checks;
+        m_Conditions = new int[ checks.length ];
+        m_Batches = new DeltaEBatch[ checks.length ];
+        List<Illuminant> illuminants = new ArrayList<Illuminant>();
+        List<Observer> observers = new ArrayList<Observer>();
+        for( int k = 0; k < checks.length; k++ )
+        {
+            Check check = checks[ k ];
+            int condition = -1;
+            for( int c = 0; c < illuminants.size() && condition < 0; c++ )
+            {
+                if( illuminants.get( c ).getName().equals( check.getIlluminant().getName() ) &&
+                    observers.get( c ).getName().equals( check.getObserver().getName() ) )
+                {
+                    condition = c;
+                }
+            }
+            if( condition < 0 )
+            {
+                condition = illuminants.size();
+                illuminants.add( check.getIlluminant() );
+                observers.add( check.getObserver() );
+            }
+            m_Conditions[ k ] = condition;
+            m_Batches[ k ] = DeltaEBatch.create( check.getAlgorithm() );
+        }
+        m_Illuminants = illuminants.toArray( new Illuminant[ illuminants.size() ] );
+        m_Observers = observers.toArray( new Observer[ observers.size() ] );
+        m_Evaluators = new ConcurrentHashMap<Geometry, MultiConditionEvaluator>();
+    }
+
+    public Check[] getChecks()
+    {
+        return m_Checks.clone();
+    }
+
+    /**
+     * Evaluates the sets in iteration order, numbering them from 0.
+     */
+    public void evaluate( Iterable<? extends ReflectanceSet> sets, Listener listener )
+    {
+        evaluate( sets.iterator(), listener );
+    }
+
+    /**
+     * Evaluates the sets as <code>sets</code> supplies them, numbering them from 0. Only one window of sets is
+     * held at a time.
+     */
+    public void evaluate( Iterator<? extends ReflectanceSet> sets, Listener listener )
+    {
+        List<ReflectanceSet> window = new ArrayList<ReflectanceSet>();
+        int first = 0;
+        while( sets.hasNext() )
+        {
+            int batches = 0;
+            window.clear();
+            while( sets.hasNext() && window.size() < WINDOW_SETS && batches < WINDOW_BATCHES )
+            {
+                ReflectanceSet set = sets.next();
+                window.add( set );
+                batches += set.getBatches().size();
+            }
+            evaluate( window, first, listener );
+            first += window.size();
+        }
+    }
+
+    /**
+     * Evaluates the batches of one set, handing the verdicts the set index <code>setIndex</code>.
+     */
+    public void evaluate( ReflectanceSet set, int setIndex, Listener listener )
+    {
+        List<ReflectanceSet> window = new ArrayList<ReflectanceSet>( 1 );
+        window.add( set );
+        evaluate( window, setIndex, listener );
+    }
+
+    /**
+     * Evaluates the batches of all the sets of a window in one parallel range, the set at position
+     * <code>i</code> having the set index <code>first + i</code>.
+     */
+    private void evaluate( final List<ReflectanceSet> window, final int first, final Listener listener )
+    {
+        final Prepared[] prepared = new Prepared[ window.size() ];
+        Parallel.forRange( prepared.length, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int s = from; s < to; s++ )
+                {
+                    prepared[ s ] = prepare( window.get( s ), first + s );
+                }
+            }
+        } );
+        // offsets[ s ] is the position of the first batch of set s among the batches of the window.
+        final int[] offsets = new int[ prepared.length + 1 ];
+        for( int s = 0; s < prepared.length; s++ )
+        {
+            offsets[ s + 1 ] = offsets[ s ] + prepared[ s ].m_Batches.size();
+        }
+        Parallel.forRange( offsets[ prepared.length ], GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                double[] lab = new double[ 3 * m_Illuminants.length ];
+                double[] scratch = new double[ 3 ];
+                int s = Arrays.binarySearch( offsets, from );
+                if( s < 0 )
+                {
+                    s = -s - 2;
+                }
+                for( int unit = from; unit < to; unit++ )
+                {
+                    while( unit >= offsets[ s + 1 ] )
+                    {
+                        s++;
+                    }
+                    evaluate( prepared[ s ], unit - offsets[ s ], lab, scratch, listener );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Computes and prepares the standard of a set.
+     */
+    private Prepared prepare( ReflectanceSet set, int setIndex )
+    {
+        int conditions = m_Illuminants.length;
+        double[] standardLab = new double[ 3 * conditions ];
+        Spectrum spectrum = getSpectrum( set.getStandard() );
+        getEvaluator( spectrum ).toLab( spectrum, standardLab );
+        double[] chroma = new double[ conditions ];
+        double[] hue = new double[ conditions ];
+        for( int c = 0; c < conditions; c++ )
+        {
+            chroma[ c ] = CIELab.chroma( standardLab[ 3 * c + 1 ], standardLab[ 3 * c + 2 ] );
+            hue[ c ] = CIELab.hue( standardLab[ 3 * c + 1 ], standardLab[ 3 * c + 2 ] );
+        }
+        DeltaEBatch.Standard[] standards = new DeltaEBatch.Standard[ m_Checks.length ];
+        for( int k = 0; k < m_Checks.length; k++ )
+        {
+            int c = 3 * m_Conditions[ k ];
+            standards[ k ] = m_Batches[ k ].prepare( standardLab[ c ], standardLab[ c + 1 ], standardLab[ c + 2 ] );
+        }
+        return new Prepared( set, setIndex, new ArrayList<Reflectance>( set.getBatches() ), standardLab, chroma, hue, standards );
+    }
+
+    /**
+     * Evaluates batch <code>i</code> of a prepared set under all the checks, using <code>lab</code> and
+     * <code>scratch</code> as scratch space.
+     */
+    private void evaluate( Prepared set, int i, double[] lab, double[] scratch, Listener listener )
+    {
+        Reflectance batch = set.m_Batches.get( i );
+        Spectrum spectrum = getSpectrum( batch );
+        getEvaluator( spectrum ).toLab( spectrum, lab );
+        double[] standardLab = set.m_StandardLab;
+        for( int k = 0; k < m_Checks.length; k++ )
+        {
+            int condition = m_Conditions[ k ];
+            int c = 3 * condition;
+            double L = lab[ c ];
+            double a = lab[ c + 1 ];
+            double b = lab[ c + 2 ];
+            double c2 = CIELab.chroma( a, b );
+            double deltaH = Maths.computeDifferenceHue( set.m_Hue[ condition ], set.m_Chroma[ condition ], CIELab.hue( a, b ), c2 );
+            double deltaE = set.m_Standards[ k ].deltaE( L, a, b, scratch );
+            listener.verdict( new Verdict( set.m_Set, set.m_SetIndex, batch, i, k, m_Checks[ k ],
+                                           L - standardLab[ c ], c2 - set.m_Chroma[ condition ], deltaH, deltaE ) );
+        }
+    }
+
+    private static Spectrum getSpectrum( Reflectance reflectance )
+    {
+        Spectrum spectrum = reflectance.getSpectrum();
+        if( spectrum == null )
+        {
+            throw new ColorException( "Reflectance " + reflectance.getName() + " does not have a Spectrum." );     //NOI18N
+        }
+        return spectrum;
+    }
+
+    private MultiConditionEvaluator getEvaluator( Spectrum spectrum )
+    {
+        Geometry geometry = new Geometry( spectrum.getShortestWavelength(), spectrum.getInterval(), spectrum.getLength() );
+        MultiConditionEvaluator evaluator = m_Evaluators.get( geometry );
+        if( evaluator == null )
+        {
+            evaluator = MultiConditionEvaluator.create( m_Illuminants, m_Observers, spectrum );
+            MultiConditionEvaluator existing = m_Evaluators.putIfAbsent( geometry, evaluator );
+            if( existing != null )
+            {
+                evaluator = existing;
+            }
+        }
+        return evaluator;
+    }
+
+    /**
+     * Receives the verdicts of a QualityControl, possibly from several threads at once.
+     */
+    public interface Listener
+    {
+        void verdict( Verdict verdict );
+    }
+
+    /**
+     * A pass/fail test of the batches under one Illuminant and Observer.
+     */
+    public static final class Check
+    {
+        private final Illuminant m_Illuminant;
+        private final Observer m_Observer;
+        private final DifferenceAlgorithm m_Algorithm;
+        private final double m_Tolerance;
+
+        public static Check create( Illuminant illuminant, Observer observer, DifferenceAlgorithm algorithm, double tolerance )
+        {
+            if( illuminant == null || observer == null || algorithm == null )
+            {
+                throw new IllegalArgumentException( "A null Illuminant, Observer or DifferenceAlgorithm is not allowed." );  //NOI18N
+            }
+            return new Check( illuminant, observer, algorithm, tolerance );
+        }
+
+        private Check( Illuminant illuminant, Observer observer, DifferenceAlgorithm algorithm, double tolerance )
+        {
+            m_Illuminant = illuminant;
+            m_Observer = observer;
+            m_Algorithm = algorithm;
+            m_Tolerance = tolerance;
+        }
+
+        public Illuminant getIlluminant()
+        {
+            return m_Illuminant;
+        }
+
+        public Observer getObserver()
+        {
+            return m_Observer;
+        }
+
+        public DifferenceAlgorithm getAlgorithm()
+        {
+            return m_Algorithm;
+        }
+
+        public double getTolerance()
+        {
+            return m_Tolerance;
+        }
+
+        public String toString()
+        {
+            return "Check(" + m_Illuminant.getName() + "/" + m_Observer.getName() + ", " + m_Algorithm.getName() + ", " + m_Tolerance + ")";  //NOI18N
+        }
+    }
+
+    /**
+     * The outcome of one Check for one batch.
+     * <p>The lightness, chroma and hue differences are the CIELab ones under the condition of the check, and the
+     * deltaE is that of the algorithm of the check.</p>
+     */
+    public static final class Verdict
+    {
+        private final ReflectanceSet m_Set;
+        private final int m_SetIndex;
+        private final Reflectance m_Batch;
+        private final int m_BatchIndex;
+        private final int m_CheckIndex;
+        private final Check m_Check;
+        private final double m_DeltaL;
+        private final double m_DeltaC;
+        private final double m_DeltaH;
+        private final double m_DeltaE;
+
+        private Verdict( ReflectanceSet set, int setIndex, Reflectance batch, int batchIndex, int checkIndex, Check check,
+                         double deltaL, double deltaC, double deltaH, double deltaE
+        )
+        {
+            m_Set = set;
+            m_SetIndex = setIndex;
+            m_Batch = batch;
+            m_BatchIndex = batchIndex;
+            m_CheckIndex = checkIndex;
+            m_Check = check;
+            m_DeltaL = deltaL;
+            m_DeltaC = deltaC;
+            m_DeltaH = deltaH;
+            m_DeltaE = deltaE;
+        }
+
+        public ReflectanceSet getSet()
+        {
+            return m_Set;
+        }
+
+        public int getSetIndex()
+        {
+            return m_SetIndex;
+        }
+
+        public Reflectance getBatch()
+        {
+            return m_Batch;
+        }
+
+        /**
+         * @return the position of the batch in <code>getBatches()</code> of the set.
+         */
+        public int getBatchIndex()
+        {
+            return m_BatchIndex;
+        }
+
+        /**
+         * @return the position of the check in <code>getChecks()</code>.
+         */
+        public int getCheckIndex()
+        {
+            return m_CheckIndex;
+        }
+
+        public Check getCheck()
+        {
+            return m_Check;
+        }
+
+        public double getDeltaL()
+        {
+            return m_DeltaL;
+        }
+
+        public double getDeltaC()
+        {
+            return m_DeltaC;
+        }
+
+        public double getDeltaH()
+        {
+            return m_DeltaH;
+        }
+
+        public double getDeltaE()
+        {
+            return m_DeltaE;
+        }
+
+        public boolean isPassed()
+        {
+            return m_DeltaE <= m_Check.getTolerance();
+        }
+    }
+
+    /**
+     * A set with its standard computed and prepared for the checks.
+     */
+    private static final class Prepared
+    {
+        private final ReflectanceSet m_Set;
+        private final int m_SetIndex;
+        private final List<Reflectance> m_Batches;
+        private final double[] m_StandardLab;
+        private final double[] m_Chroma;
+        private final double[] m_Hue;
+        private final DeltaEBatch.Standard[] m_Standards;
+
+        private Prepared( ReflectanceSet set, int setIndex, List<Reflectance> batches, double[] standardLab,
+                          double[] chroma, double[] hue, DeltaEBatch.Standard[] standards
+        )
+        {
+            m_Set = set;
+            m_SetIndex = setIndex;
+            m_Batches = batches;
+            m_StandardLab = standardLab;
+            m_Chroma = chroma;
+            m_Hue = hue;
+            m_Standards = standards;
+        }
+    }
+
+    /**
+     * The wavelength range of a spectrum, the key of the evaluators.
+     */
+    private static final class Geometry
+    {
+        private final int m_Shortest;
+        private final int m_Interval;
+        private final int m_Length;
+
+        private Geometry( int shortest, int interval, int length )
+        {
+            m_Shortest = shortest;
+            m_Interval = interval;
+            m_Length = length;
+        }
+
+        public boolean equals( Object obj )
+        {
+            if( !( obj instanceof Geometry ) )
+            {
+                return false;
+            }
+            Geometry g = (Geometry) obj;
+            return m_Shortest == g.m_Shortest && m_Interval == g.m_Interval && m_Length == g.m_Length;
+        }
+
+        public int hashCode()
+        {
+            return ( m_Shortest * 31 + m_Interval ) * 31 + m_Length;
+        }
+    }
+}
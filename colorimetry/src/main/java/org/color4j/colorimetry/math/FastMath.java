@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.math;
+
+/**
+ * Faster replacements for the transcendental functions of the encoding conversions.
+ * <p>The fast mode is off by default. It is switched on with {@link #setEnabled(boolean)} or by starting the
+ * VM with <code>-Dorg.color4j.fastmath=true</code>, and is then used by the XYZ to CIELab, CIELuv and RGB
+ * conversions, by {@link Maths#atan(double, double)} and by the Din99 conversion.</p>
+ * <p>Error bounds, compared to the <code>java.lang.Math</code> functions;</p>
+ * <ul>
+ * <li>{@link #cbrt(double)}; relative error below 1e-14.</li>
+ * <li>{@link #pow5over12(double)}; relative error below 1e-14.</li>
+ * <li>{@link #atan(double)}; absolute error below 1e-15 radians.</li>
+ * </ul>
+ * <p>Over the whole CIELab gamut this keeps the CIE2000 difference between the fast and the exact
+ * conversions below 1e-6.</p>
+ */
+public final class FastMath
+{
+    private static volatile boolean m_Enabled = Boolean.getBoolean( "org.color4j.fastmath" );  //NOI18N
+
+    /**
+     * Added to the bits of x/3 to get the first approximation of the cube root of x. W. Kahan.
+     */
+    private static final long CBRT_MAGIC = 0x2A9F7893782DA1CEL;
+
+    private static final double T3P8 = 2.41421356237309504880;  // tan( 3 * PI / 8 )
+    private static final double MOREBITS = 6.123233995736765886130E-17;
+    private static final double PIO2 = Math.PI / 2.0;
+    private static final double PIO4 = Math.PI / 4.0;
+
+    // Cephes atan(), rational approximation on [0, 0.66]
+    private static final double P0 = -8.750608600031904122785E-1;
+    private static final double P1 = -1.615753718733365076637E1;
+    private static final double P2 = -7.500855792314704667340E1;
+    private static final double P3 = -1.228866684490136173410E2;
+    private static final double P4 = -6.485021904942025371773E1;
+    private static final double Q0 = 2.485846490142306297962E1;
+    private static final double Q1 = 1.650270098316988542046E2;
+    private static final double Q2 = 4.328810604912902668951E2;
+    private static final double Q3 = 4.853903996359136964868E2;
+    private static final double Q4 = 1.945506571482613964425E2;
+
+    private FastMath()
+    {
+    }
+
+    /**
+     * @return true if the encoding conversions use the fast functions.
+     */
+    public static boolean isEnabled()
+    {
+        return m_Enabled;
+    }
+
+    public static void setEnabled( boolean enabled )
+    {
+        m_Enabled = enabled;
+    }
+
+    /**
+     * Cube root, from an initial estimate on the bit pattern refined by two Halley iterations.
+     */
+    public static double cbrt( double x )
+    {
+        if( x == 0.0 || Double.isNaN( x ) || Double.isInfinite( x ) )
+        {
+            return x;
+        }
+        boolean negative = x < 0.0;
+        if( negative )
+        {
+            x = -x;
+        }
+        if( x < Double.MIN_NORMAL )
+        {
+            double y = Math.cbrt( x );
+            return negative ? -y : y;
+        }
+        double y = Double.longBitsToDouble( Double.doubleToRawLongBits( x ) / 3 + CBRT_MAGIC );
+        double y3 = y * y * y;
+        y = y * ( ( y3 + 2.0 * x ) / ( 2.0 * y3 + x ) );
+        y3 = y * y * y;
+        y = y * ( ( y3 + 2.0 * x ) / ( 2.0 * y3 + x ) );
+        return negative ? -y : y;
+    }
+
+    /**
+     * <code>x<sup>5/12</sup></code>, i.e. <code>x<sup>1/2.4</sup></code> of the sRGB gamma, for positive x,
+     * as <code>x<sup>1/3</sup> * x<sup>1/12</sup></code>.
+     */
+    public static double pow5over12( double x )
+    {
+        double c = cbrt( x );
+        return c * Math.sqrt( Math.sqrt( c ) );
+    }
+
+    /**
+     * Arc tangent in radians. The rational approximation and range reduction of the Cephes library.
+     */
+    public static double atan( double x )
+    {
+        if( Double.isNaN( x ) )
+        {
+            return x;
+        }
+        boolean negative = x < 0.0;
+        if( negative )
+        {
+            x = -x;
+        }
+        double y;
+        double more;
+        if( x > T3P8 )
+        {
+            y = PIO2;
+            more = MOREBITS;
+            x = -1.0 / x;
+        }
+        else if( x <= 0.66 )
+        {
+            y = 0.0;
+            more = 0.0;
+        }
+        else
+        {
+            y = PIO4;
+            more = 0.5 * MOREBITS;
+            x = ( x - 1.0 ) / ( x + 1.0 );
+        }
+        double z = x * x;
+        double p = ( ( ( P0 * z + P1 ) * z + P2 ) * z + P3 ) * z + P4;
+        double q = ( ( ( ( z + Q0 ) * z + Q1 ) * z + Q2 ) * z + Q3 ) * z + Q4;
+        z = z * p / q;
+        z = x * z + x;
+        y = y + ( z + more );
+        return negative ? -y : y;
+    }
+}
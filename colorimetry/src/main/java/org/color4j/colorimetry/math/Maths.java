@@ -65,7 +65,7 @@ public class Maths
             }
         }
 
-        double h = Math.atan( b / a ) * 180.0 / Math.PI;
+        double h = ( FastMath.isEnabled() ? FastMath.atan( b / a ) : Math.atan( b / a ) ) * 180.0 / Math.PI;
         if( a < 0.0 )
         {
             h = h + 180.0;
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.math;
+
+import org.color4j.colorimetry.ColorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits an index range into chunks and computes them on a shared pool of daemon threads.
+ * <p>Ranges smaller than the requested grain are computed in the calling thread, and so are
+ * ranges requested from within one of the pool threads, so that nested use can not exhaust
+ * the pool.</p>
+ */
+public final class Parallel
+{
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * A body of work over the half-open index range <code>[from, to)</code>.
+     */
+    public interface Range
+    {
+        void compute( int from, int to );
+    }
+
+    private Parallel()
+    {
+    }
+
+    /**
+     * @return the number of threads the work is split across.
+     */
+    public static int getParallelism()
+    {
+        return PARALLELISM;
+    }
+
+    /**
+     * Computes <code>range</code> over <code>[0, count)</code>, in parallel if the range is large enough.
+     *
+     * @param count the number of indices to compute.
+     * @param grain the smallest number of indices worth handing to another thread.
+     * @param range the work to be done.
+     * @throws ColorException if the computation was interrupted or failed with a checked exception.
+     */
+    public static void forRange( int count, int grain, Range range )
+    {
+        if( count <= 0 )
+        {
+            return;
+        }
+        int chunks = Math.min( PARALLELISM, count / Math.max( grain, 1 ) );
+        if( chunks <= 1 || Thread.currentThread() instanceof Worker )
+        {
+            range.compute( 0, count );
+            return;
+        }
+        int size = ( count + chunks - 1 ) / chunks;
+        ExecutorService executor = ExecutorHolder.EXECUTOR;
+        List<Future<?>> futures = new ArrayList<Future<?>>( chunks );
+        for( int from = size; from < count; from += size )
+        {
+            futures.add( executor.submit( new Chunk( range, from, Math.min( count, from + size ) ) ) );
+        }
+        Throwable failure = null;
+        try
+        {
+            range.compute( 0, size );
+        }
+        catch( RuntimeException e )
+        {
+            failure = e;
+        }
+        catch( Error e )
+        {
+            failure = e;
+        }
+        for( Future<?> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch( ExecutionException e )
+            {
+                if( failure == null )
+                {
+                    failure = e.getCause();
+                }
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                if( failure == null )
+                {
+                    failure = e;
+                }
+            }
+        }
+        if( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        if( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
+        if( failure != null )
+        {
+            throw new ColorException( "Parallel computation failed.", failure );   //NOI18N
+        }
+    }
+
+    private static final class Chunk
+        implements Runnable
+    {
+        private final Range m_Range;
+        private final int m_From;
+        private final int m_To;
+
+        private Chunk( Range range, int from, int to )
+        {
+            m_Range = range;
+            m_From = from;
+            m_To = to;
+        }
+
+        public void run()
+        {
+            m_Range.compute( m_From, m_To );
+        }
+    }
+
+    private static final class Worker extends Thread
+    {
+        private Worker( Runnable runnable, String name )
+        {
+            super( runnable, name );
+            setDaemon( true );
+        }
+    }
+
+    private static final class ExecutorHolder
+    {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool( PARALLELISM, new ThreadFactory()
+        {
+            private final AtomicInteger m_Count = new AtomicInteger();
+
+            public Thread newThread( Runnable runnable )
+            {
+                return new Worker( runnable, "color4j-worker-" + m_Count.incrementAndGet() );  //NOI18N
+            }
+        } );
+    }
+}
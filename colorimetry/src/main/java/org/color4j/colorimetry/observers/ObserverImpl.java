@@ -23,17 +23,29 @@ import org.color4j.colorimetry.Illuminant;
 import org.color4j.colorimetry.Observer;
 import org.color4j.colorimetry.Weights;
 import org.color4j.colorimetry.weights.WeightsImpl;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Base class and registry of the Observers.
+ * <p>The two CIE Standard Observers are created on first use. Observers added with <code>register</code>,
+ * and those supplied by any <code>ObserverProvider</code> on the class path, are kept by name. Lookups
+ * never lock.</p>
+ */
 public abstract class ObserverImpl
     implements Observer
 {
-    private static Observer_1964 m_1964 = null;
-    private static Observer_1931 m_1931 = null;
     private static final String STRING_10 = "10";
     private static final String STRING_2 = "2";
 
+    private static final ConcurrentMap<String, Observer> m_Observers = new ConcurrentHashMap<String, Observer>( 8 );
+
     private static Logger m_Logger = LoggerFactory.getLogger( ObserverImpl.class );
     private String m_Name;
 
@@ -47,45 +59,62 @@ public abstract class ObserverImpl
 
         if( name.equals( NAME_CIE1964 ) )
         {
-            if( m_1964 == null )
-            {
-                m_1964 = new Observer_1964();
-            }
-            return m_1964;
+            return CIE1964.INSTANCE;
         }
 
         if( name.equals( NAME_CIE1931 ) )
         {
-            if( m_1931 == null )
-            {
-                m_1931 = new Observer_1931();
-            }
-            return m_1931;
+            return CIE1931.INSTANCE;
+        }
+
+        Observer observer = m_Observers.get( name );
+        if( observer != null )
+        {
+            return observer;
+        }
+        observer = Providers.getObserver( name );
+        if( observer != null )
+        {
+            return intern( name, observer );
         }
 
         m_Logger.debug( "Observer creation: Couldn't find a match using degrees, using substring matching instead." );
 
         if( name.startsWith( STRING_10 ) )
         {
-            if( m_1964 == null )
-            {
-                m_1964 = new Observer_1964();
-            }
-            return m_1964;
+            return CIE1964.INSTANCE;
         }
 
         if( name.startsWith( STRING_2 ) )
         {
-            if( m_1931 == null )
-            {
-                m_1931 = new Observer_1931();
-            }
-            return m_1931;
+            return CIE1931.INSTANCE;
         }
 
         throw new ColorException( "No Observer with the name '" + name + "' defined." );  //NOI18N
     }
 
+    /**
+     * Adds a user defined observer to the registry, so that <code>create( observer.getName() )</code> returns it.
+     *
+     * @return the registered Observer, which is an earlier one if the name was already taken.
+     * @throws IllegalArgumentException if the name is one of the Standard Observers.
+     */
+    static public Observer register( Observer observer )
+    {
+        String name = observer.getName();
+        if( NAME_CIE1964.equals( name ) || NAME_CIE1931.equals( name ) )
+        {
+            throw new IllegalArgumentException( "The Standard Observer '" + name + "' can not be replaced." );  //NOI18N
+        }
+        return intern( name, observer );
+    }
+
+    private static Observer intern( String name, Observer observer )
+    {
+        Observer existing = m_Observers.putIfAbsent( name, observer );
+        return existing == null ? observer : existing;
+    }
+
     static public String[] getObserverNames()
     {
         return new String[]{ NAME_CIE1931, NAME_CIE1964 };
@@ -123,4 +152,46 @@ public abstract class ObserverImpl
     {
         return Observer.class;
     }
+
+    private static final class CIE1964
+    {
+        private static final Observer INSTANCE = new Observer_1964();
+    }
+
+    private static final class CIE1931
+    {
+        private static final Observer INSTANCE = new Observer_1931();
+    }
+
+    /**
+     * The ObserverProviders on the class path, looked up on the first request for an unknown name.
+     */
+    private static final class Providers
+    {
+        private static final List<ObserverProvider> PROVIDERS = load();
+
+        private static List<ObserverProvider> load()
+        {
+            List<ObserverProvider> providers = new ArrayList<ObserverProvider>();
+            Iterator<ObserverProvider> iterator = ServiceLoader.load( ObserverProvider.class, ObserverImpl.class.getClassLoader() ).iterator();
+            while( iterator.hasNext() )
+            {
+                providers.add( iterator.next() );
+            }
+            return providers;
+        }
+
+        private static Observer getObserver( String name )
+        {
+            for( ObserverProvider provider : PROVIDERS )
+            {
+                Observer observer = provider.getObserver( name );
+                if( observer != null )
+                {
+                    return observer;
+                }
+            }
+            return null;
+        }
+    }
 }
@@ -0,0 +1,510 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.weights;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.color4j.colorimetry.Interpolation;
+import org.color4j.colorimetry.Spectrum;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * Resamples spectra from one wavelength grid to another.
+ * <p>For every pair of source and target grids a sparse resampling matrix is computed once and
+ * cached, so that resampling a spectrum is a single sparse multiplication. Target wavelengths
+ * that fall on a source wavelength are copied unchanged, and target wavelengths outside the
+ * source range take the value of the nearest end point, as recommended by CIE 15.</p>
+ */
+public final class SpectralResampler
+    implements Interpolation
+{
+    private static final int GRAIN = 64;
+
+    public enum Method
+    {
+        /** Straight lines between neighbouring readings. */
+        LINEAR,
+        /** Cubic Lagrange polynomials, quadratic in the end intervals, as in ASTM E308. */
+        LAGRANGE,
+        /** Fifth order Sprague polynomials with the CIE 167 end point extension. */
+        SPRAGUE
+    }
+
+    private static final SpectralResampler[] INSTANCES =
+        {
+            new SpectralResampler( Method.LINEAR ),
+            new SpectralResampler( Method.LAGRANGE ),
+            new SpectralResampler( Method.SPRAGUE )
+        };
+
+    private static final double[][] SPRAGUE_EXTENSION =
+        {
+            { 884.0, -1960.0, 3033.0, -2648.0, 1080.0, -180.0 },
+            { 508.0, -540.0, 488.0, -367.0, 144.0, -24.0 }
+        };
+
+    private final Method m_Method;
+    private final ConcurrentMap<Geometry, Matrix> m_Matrices;
+
+    private SpectralResampler( Method method )
+    {
+        m_Method = method;
+        m_Matrices = new ConcurrentHashMap<Geometry, Matrix>();
+    }
+
+    /**
+     * @return the shared resampler for <code>method</code>.
+     */
+    public static SpectralResampler getInstance( Method method )
+    {
+        return INSTANCES[ method.ordinal() ];
+    }
+
+    public Method getMethod()
+    {
+        return m_Method;
+    }
+
+    /**
+     * Returns the resampling matrix between two wavelength grids, computing it on first use.
+     *
+     * @throws IllegalArgumentException if a length or interval is not positive.
+     */
+    public Matrix getMatrix( int sourceStart, int sourceInterval, int sourceLength,
+                             int targetStart, int targetInterval, int targetLength
+    )
+    {
+        Geometry key = new Geometry( sourceStart, sourceInterval, sourceLength, targetStart, targetInterval, targetLength );
+        Matrix matrix = m_Matrices.get( key );
+        if( matrix == null )
+        {
+            if( sourceInterval <= 0 || sourceLength <= 0 || targetInterval <= 0 || targetLength <= 0 )
+            {
+                throw new IllegalArgumentException( "Intervals and lengths must be positive: " + key );   //NOI18N
+            }
+            matrix = computeMatrix( key );
+            Matrix existing = m_Matrices.putIfAbsent( key, matrix );
+            if( existing != null )
+            {
+                matrix = existing;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Returns the resampling matrix from the wavelength grid of <code>spectrum</code> to the given grid.
+     */
+    public Matrix getMatrix( Spectrum spectrum, int targetStart, int targetInterval, int targetLength )
+    {
+        return getMatrix( spectrum.getShortestWavelength(), spectrum.getInterval(), spectrum.getLength(),
+                          targetStart, targetInterval, targetLength );
+    }
+
+    /**
+     * @return <code>spectrum</code> resampled to <code>targetLength</code> values starting at
+     *         <code>targetStart</code> and spaced <code>targetInterval</code> nm apart.
+     */
+    public Spectrum resample( Spectrum spectrum, int targetStart, int targetInterval, int targetLength )
+    {
+        double[] values = new double[ targetLength ];
+        getMatrix( spectrum, targetStart, targetInterval, targetLength ).apply( spectrum, values, 0 );
+        return Spectrum.create( targetStart, targetInterval, values );
+    }
+
+    /**
+     * Interpolates readings spaced <code>interval</code> nm apart to a 1 nm grid covering the same
+     * range, so the result holds <code>( data.length - 1 ) * interval + 1</code> values. The result
+     * is always a new array, also when <code>interval</code> is 1.
+     */
+    public double[] compute( double[] data, int interval )
+    {
+        if( interval == 1 )
+        {
+            return data.clone();
+        }
+        int length = ( data.length - 1 ) * interval + 1;
+        double[] out = new double[ length ];
+        getMatrix( 0, interval, data.length, 0, 1, length ).apply( data, 0, out, 0 );
+        return out;
+    }
+
+    /**
+     * Drops all cached matrices.
+     */
+    public void clearCache()
+    {
+        m_Matrices.clear();
+    }
+
+    private Matrix computeMatrix( Geometry geometry )
+    {
+        int rows = geometry.m_TargetLength;
+        int columns = geometry.m_SourceLength;
+        int[] rowStart = new int[ rows + 1 ];
+        int[] indices = new int[ rows * 4 ];
+        double[] weights = new double[ rows * 4 ];
+        double[] row = new double[ columns ];
+        int count = 0;
+        for( int r = 0; r < rows; r++ )
+        {
+            int distance = geometry.m_TargetStart + r * geometry.m_TargetInterval - geometry.m_SourceStart;
+            int index = floorDiv( distance, geometry.m_SourceInterval );
+            int remainder = distance - index * geometry.m_SourceInterval;
+            if( index < 0 )
+            {
+                row[ 0 ] = 1.0;
+            }
+            else if( index >= columns - 1 )
+            {
+                row[ columns - 1 ] = 1.0;
+            }
+            else if( remainder == 0 )
+            {
+                row[ index ] = 1.0;
+            }
+            else
+            {
+                fillRow( row, index, remainder / (double) geometry.m_SourceInterval );
+            }
+            for( int c = 0; c < columns; c++ )
+            {
+                if( row[ c ] != 0.0 )
+                {
+                    if( count == indices.length )
+                    {
+                        indices = grow( indices );
+                        weights = grow( weights );
+                    }
+                    indices[ count ] = c;
+                    weights[ count ] = row[ c ];
+                    count++;
+                    row[ c ] = 0.0;
+                }
+            }
+            rowStart[ r + 1 ] = count;
+        }
+        int[] finalIndices = new int[ count ];
+        double[] finalWeights = new double[ count ];
+        System.arraycopy( indices, 0, finalIndices, 0, count );
+        System.arraycopy( weights, 0, finalWeights, 0, count );
+        return new Matrix( columns, rows, rowStart, finalIndices, finalWeights );
+    }
+
+    /**
+     * Adds the weights of the source values for the position <code>x</code> (0 &lt; x &lt; 1)
+     * between source values <code>index</code> and <code>index + 1</code>.
+     */
+    private void fillRow( double[] row, int index, double x )
+    {
+        int length = row.length;
+        Method method = m_Method;
+        if( method == Method.SPRAGUE && length < 6 )
+        {
+            method = Method.LAGRANGE;
+        }
+        if( method == Method.LAGRANGE && length < 3 )
+        {
+            method = Method.LINEAR;
+        }
+        switch( method )
+        {
+        case LINEAR:
+            row[ index ] += 1.0 - x;
+            row[ index + 1 ] += x;
+            break;
+        case LAGRANGE:
+            if( index == 0 )
+            {
+                lagrange( row, 0, 3, x );
+            }
+            else if( index == length - 2 )
+            {
+                lagrange( row, length - 3, 3, index + x - ( length - 3 ) );
+            }
+            else
+            {
+                lagrange( row, index - 1, 4, x + 1.0 );
+            }
+            break;
+        case SPRAGUE:
+            sprague( row, index, x );
+            break;
+        }
+    }
+
+    /**
+     * Adds the Lagrange weights of <code>points</code> source values starting at <code>first</code>,
+     * evaluated at <code>t</code> source intervals past <code>first</code>.
+     */
+    private static void lagrange( double[] row, int first, int points, double t )
+    {
+        for( int k = 0; k < points; k++ )
+        {
+            double weight = 1.0;
+            for( int m = 0; m < points; m++ )
+            {
+                if( m != k )
+                {
+                    weight *= ( t - m ) / ( k - m );
+                }
+            }
+            row[ first + k ] += weight;
+        }
+    }
+
+    private static void sprague( double[] row, int index, double x )
+    {
+        double x2 = x * x;
+        double x3 = x2 * x;
+        double x4 = x3 * x;
+        double x5 = x4 * x;
+        // Coefficients of f(-2) .. f(3) relative to index, from the Sprague polynomial terms a0 .. a5.
+        double[] c = new double[ 6 ];
+        c[ 0 ] = ( 2.0 * x - x2 - 9.0 * x3 + 13.0 * x4 - 5.0 * x5 ) / 24.0;
+        c[ 1 ] = ( -16.0 * x + 16.0 * x2 + 39.0 * x3 - 64.0 * x4 + 25.0 * x5 ) / 24.0;
+        c[ 2 ] = 1.0 + ( -30.0 * x2 - 70.0 * x3 + 126.0 * x4 - 50.0 * x5 ) / 24.0;
+        c[ 3 ] = ( 16.0 * x + 16.0 * x2 + 66.0 * x3 - 124.0 * x4 + 50.0 * x5 ) / 24.0;
+        c[ 4 ] = ( -2.0 * x - x2 - 33.0 * x3 + 61.0 * x4 - 25.0 * x5 ) / 24.0;
+        c[ 5 ] = ( 7.0 * x3 - 12.0 * x4 + 5.0 * x5 ) / 24.0;
+        for( int k = 0; k < 6; k++ )
+        {
+            spraguePoint( row, index - 2 + k, c[ k ] );
+        }
+    }
+
+    /**
+     * Adds <code>weight</code> times the value at <code>position</code>, expressing positions
+     * beyond either end through the CIE 167 extension of the first or last six values.
+     */
+    private static void spraguePoint( double[] row, int position, double weight )
+    {
+        int length = row.length;
+        if( position >= 0 && position < length )
+        {
+            row[ position ] += weight;
+        }
+        else if( position < 0 )
+        {
+            double[] extension = SPRAGUE_EXTENSION[ position + 2 ];
+            for( int k = 0; k < 6; k++ )
+            {
+                row[ k ] += weight * extension[ k ] / 209.0;
+            }
+        }
+        else
+        {
+            double[] extension = SPRAGUE_EXTENSION[ length + 1 - position ];
+            for( int k = 0; k < 6; k++ )
+            {
+                row[ length - 1 - k ] += weight * extension[ k ] / 209.0;
+            }
+        }
+    }
+
+    private static int floorDiv( int x, int y )
+    {
+        int q = x / y;
+        if( ( x % y != 0 ) && ( ( x < 0 ) != ( y < 0 ) ) )
+        {
+            q--;
+        }
+        return q;
+    }
+
+    private static int[] grow( int[] array )
+    {
+        int[] result = new int[ array.length * 2 ];
+        System.arraycopy( array, 0, result, 0, array.length );
+        return result;
+    }
+
+    private static double[] grow( double[] array )
+    {
+        double[] result = new double[ array.length * 2 ];
+        System.arraycopy( array, 0, result, 0, array.length );
+        return result;
+    }
+
+    /**
+     * A sparse resampling matrix in compressed row form. Instances are immutable and thread safe.
+     */
+    public static final class Matrix
+    {
+        private final int m_SourceLength;
+        private final int m_TargetLength;
+        private final int[] m_RowStart;
+        private final int[] m_Indices;
+        private final double[] m_Weights;
+
+        private Matrix( int sourceLength, int targetLength, int[] rowStart, int[] indices, double[] weights )
+        {
+            m_SourceLength = sourceLength;
+            m_TargetLength = targetLength;
+            m_RowStart = rowStart;
+            m_Indices = indices;
+            m_Weights = weights;
+        }
+
+        public int getSourceLength()
+        {
+            return m_SourceLength;
+        }
+
+        public int getTargetLength()
+        {
+            return m_TargetLength;
+        }
+
+        /**
+         * @return the number of stored weights.
+         */
+        public int getWeightCount()
+        {
+            return m_Weights.length;
+        }
+
+        /**
+         * Resamples <code>getSourceLength()</code> values from <code>source</code> into
+         * <code>getTargetLength()</code> values in <code>target</code>.
+         */
+        public void apply( double[] source, int sourceOffset, double[] target, int targetOffset )
+        {
+            int[] rowStart = m_RowStart;
+            int[] indices = m_Indices;
+            double[] weights = m_Weights;
+            for( int r = 0; r < m_TargetLength; r++ )
+            {
+                double sum = 0.0;
+                for( int k = rowStart[ r ]; k < rowStart[ r + 1 ]; k++ )
+                {
+                    sum += weights[ k ] * source[ sourceOffset + indices[ k ] ];
+                }
+                target[ targetOffset + r ] = sum;
+            }
+        }
+
+        /**
+         * Resamples the values of <code>source</code> into <code>target</code>.
+         *
+         * @throws IllegalArgumentException if <code>source</code> does not hold <code>getSourceLength()</code> values.
+         */
+        public void apply( Spectrum source, double[] target, int targetOffset )
+        {
+            if( source.getLength() != m_SourceLength )
+            {
+                throw new IllegalArgumentException( "Spectrum has " + source.getLength() + " values, expected " + m_SourceLength );   //NOI18N
+            }
+            int[] rowStart = m_RowStart;
+            int[] indices = m_Indices;
+            double[] weights = m_Weights;
+            for( int r = 0; r < m_TargetLength; r++ )
+            {
+                double sum = 0.0;
+                for( int k = rowStart[ r ]; k < rowStart[ r + 1 ]; k++ )
+                {
+                    sum += weights[ k ] * source.getValue( indices[ k ] );
+                }
+                target[ targetOffset + r ] = sum;
+            }
+        }
+
+        /**
+         * Resamples <code>count</code> spectra packed back to back in <code>source</code> into
+         * <code>target</code>, in parallel for large batches.
+         *
+         * @throws IllegalArgumentException if an array is too short for <code>count</code> spectra.
+         */
+        public void applyAll( final double[] source, final double[] target, int count )
+        {
+            if( source.length < count * m_SourceLength || target.length < count * m_TargetLength )
+            {
+                throw new IllegalArgumentException( "Arrays too short for " + count + " spectra." );   //NOI18N
+            }
+            Parallel.forRange( count, GRAIN, new Parallel.Range()
+            {
+                public void compute( int from, int to )
+                {
+                    for( int i = from; i < to; i++ )
+                    {
+                        apply( source, i * m_SourceLength, target, i * m_TargetLength );
+                    }
+                }
+            } );
+        }
+    }
+
+    private static final class Geometry
+    {
+        private final int m_SourceStart;
+        private final int m_SourceInterval;
+        private final int m_SourceLength;
+        private final int m_TargetStart;
+        private final int m_TargetInterval;
+        private final int m_TargetLength;
+
+        private Geometry( int sourceStart, int sourceInterval, int sourceLength,
+                          int targetStart, int targetInterval, int targetLength
+        )
+        {
+            m_SourceStart = sourceStart;
+            m_SourceInterval = sourceInterval;
+            m_SourceLength = sourceLength;
+            m_TargetStart = targetStart;
+            m_TargetInterval = targetInterval;
+            m_TargetLength = targetLength;
+        }
+
+        public boolean equals( Object o )
+        {
+            if( this == o )
+            {
+                return true;
+            }
+            if( !( o instanceof Geometry ) )
+            {
+                return false;
+            }
+            Geometry other = (Geometry) o;
+            return m_SourceStart == other.m_SourceStart
+                   && m_SourceInterval == other.m_SourceInterval
+                   && m_SourceLength == other.m_SourceLength
+                   && m_TargetStart == other.m_TargetStart
+                   && m_TargetInterval == other.m_TargetInterval
+                   && m_TargetLength == other.m_TargetLength;
+        }
+
+        public int hashCode()
+        {
+            int result = m_SourceStart;
+            result = 31 * result + m_SourceInterval;
+            result = 31 * result + m_SourceLength;
+            result = 31 * result + m_TargetStart;
+            result = 31 * result + m_TargetInterval;
+            result = 31 * result + m_TargetLength;
+            return result;
+        }
+
+        public String toString()
+        {
+            return m_SourceStart + "/" + m_SourceInterval + "x" + m_SourceLength + " -> "   //NOI18N
+                   + m_TargetStart + "/" + m_TargetInterval + "x" + m_TargetLength;        //NOI18N
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.weights;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.color4j.colorimetry.ColorException;
+import org.color4j.colorimetry.Weights;
+import org.color4j.colorimetry.encodings.XYZ;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ASTM E308 weight tables of the standard illuminants, read from a single binary resource.
+ * <p>The resource is read in one go the first time a table is requested, and each table is
+ * decoded only when it is asked for. The resource is generated from the table classes, such as
+ * <code>D65_10</code>, by the test-scope <code>StandardWeightsGenerator</code>.</p>
+ */
+final class StandardWeights
+{
+    static final String RESOURCE = "org/color4j/colorimetry/weights/standard-weights.bin";  //NOI18N
+
+    static final int MAGIC = 0x43344A57;
+    static final int VERSION = 1;
+
+    private static Logger m_Logger = LoggerFactory.getLogger( StandardWeights.class );
+
+    private StandardWeights()
+    {
+    }
+
+    /**
+     * @return the standard table for the combination, or null if there is none.
+     */
+    static Weights get( String illuminant, String observer, int interval )
+    {
+        Integer offset = Holder.INDEX.get( key( illuminant, observer, interval ) );
+        if( offset == null )
+        {
+            return null;
+        }
+        ByteBuffer buffer = Holder.DATA.duplicate();
+        buffer.position( offset );
+        // Kept as plain values: creating an XYZ here would initialize XYZ, which asks the cache for
+        // the D65 weights while they may be the ones being computed.
+        double[] white = { buffer.getDouble(), buffer.getDouble(), buffer.getDouble() };
+        double[] checksum = { buffer.getDouble(), buffer.getDouble(), buffer.getDouble() };
+        double[] x = readArray( buffer );
+        double[] y = readArray( buffer );
+        double[] z = readArray( buffer );
+        return new Table( interval, x, y, z, white, checksum );
+    }
+
+    /**
+     * @return true if a standard table exists for the combination.
+     */
+    static boolean contains( String illuminant, String observer, int interval )
+    {
+        return Holder.INDEX.containsKey( key( illuminant, observer, interval ) );
+    }
+
+    static String key( String illuminant, String observer, int interval )
+    {
+        return illuminant + "_" + observer + "_" + interval;   //NOI18N
+    }
+
+    private static double[] readArray( ByteBuffer buffer )
+    {
+        double[] values = new double[ buffer.getInt() ];
+        buffer.asDoubleBuffer().get( values );
+        buffer.position( buffer.position() + values.length * 8 );
+        return values;
+    }
+
+    private static final class Holder
+    {
+        private static final ByteBuffer DATA;
+        private static final Map<String, Integer> INDEX;
+
+        static
+        {
+            byte[] bytes = readResource();
+            Map<String, Integer> index = new HashMap<String, Integer>( 64 );
+            if( bytes == null )
+            {
+                m_Logger.error( "Missing weights resource " + RESOURCE + ", standard weights will be computed." );  //NOI18N
+                bytes = new byte[ 0 ];
+            }
+            else
+            {
+                ByteBuffer buffer = ByteBuffer.wrap( bytes );
+                if( buffer.getInt() != MAGIC || buffer.getInt() != VERSION )
+                {
+                    throw new ColorException( "Invalid weights resource " + RESOURCE );  //NOI18N
+                }
+                int count = buffer.getInt();
+                for( int i = 0; i < count; i++ )
+                {
+                    byte[] name = new byte[ buffer.getShort() ];
+                    buffer.get( name );
+                    index.put( new String( name ), buffer.getInt() );
+                }
+            }
+            DATA = ByteBuffer.wrap( bytes ).asReadOnlyBuffer();
+            INDEX = index;
+        }
+
+        private static byte[] readResource()
+        {
+            InputStream in = StandardWeights.class.getClassLoader().getResourceAsStream( RESOURCE );
+            if( in == null )
+            {
+                return null;
+            }
+            try
+            {
+                try
+                {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream( 40960 );
+                    byte[] buffer = new byte[ 40960 ];
+                    int read;
+                    while( ( read = in.read( buffer ) ) >= 0 )
+                    {
+                        out.write( buffer, 0, read );
+                    }
+                    return out.toByteArray();
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            catch( IOException e )
+            {
+                throw new ColorException( "Unable to read weights resource " + RESOURCE, e );  //NOI18N
+            }
+        }
+    }
+
+    /**
+     * A standard table decoded from the resource.
+     */
+    private static final class Table extends AbstractWeights
+    {
+        private final int m_Interval;
+        private final double[] m_WX;
+        private final double[] m_WY;
+        private final double[] m_WZ;
+        private final double[] m_WhitePoint;
+        private final double[] m_Checksum;
+
+        private Table( int interval, double[] wx, double[] wy, double[] wz, double[] whitePoint, double[] checksum )
+        {
+            m_Interval = interval;
+            m_WX = wx;
+            m_WY = wy;
+            m_WZ = wz;
+            m_WhitePoint = whitePoint;
+            m_Checksum = checksum;
+        }
+
+        public int getInterval()
+        {
+            return m_Interval;
+        }
+
+        public double[] getWeightsX()
+        {
+            return m_WX;
+        }
+
+        public double[] getWeightsY()
+        {
+            return m_WY;
+        }
+
+        public double[] getWeightsZ()
+        {
+            return m_WZ;
+        }
+
+        public XYZ getWhitePoint()
+        {
+            return new XYZ( m_WhitePoint[ 0 ], m_WhitePoint[ 1 ], m_WhitePoint[ 2 ] );
+        }
+
+        public XYZ getChecksum()
+        {
+            return new XYZ( m_Checksum[ 0 ], m_Checksum[ 1 ], m_Checksum[ 2 ] );
+        }
+    }
+}
@@ -23,27 +23,66 @@ import org.color4j.colorimetry.Illuminant;
 import org.color4j.colorimetry.Observer;
 import org.color4j.colorimetry.Weights;
 import org.color4j.colorimetry.illuminants.IlluminantImpl;
-import org.color4j.colorimetry.observers.ObserverImpl;
-import java.util.HashMap;
+import org.color4j.colorimetry.math.Parallel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Cache of the Weights for each Illuminant, Observer and interval.
+ * <p>Weights are computed at most once per key, and concurrent requests for the same key wait for
+ * the one computation instead of blocking the whole cache. Weights of the standard illuminants are
+ * kept for the lifetime of the cache; the ASTM tables are read from a bundled resource when first
+ * requested, and <code>warmUp</code> can load a known set of combinations ahead of time. Weights of
+ * user defined illuminants are kept in a separate tier, bounded to <code>getMaxCustomEntries()</code>
+ * entries, least recently used first out, and expire <code>getCustomTimeToLive()</code> milliseconds
+ * after they were computed.</p>
+ */
 public class WeightsCache
 {
-    private static WeightsCache m_Instance;
+    private static final int DEFAULT_MAX_CUSTOM_ENTRIES = 256;
+    private static final long DEFAULT_CUSTOM_TIME_TO_LIVE = 60 * 60 * 1000L;
+
+    private static volatile WeightsCache m_Instance;
+
+    private static final Set<String> m_StandardNames =
+        new HashSet<String>( Arrays.asList( IlluminantImpl.getStandardIlluminantNames() ) );
+
+    private final ConcurrentMap<Key, Future<Weights>> m_Standard;
+    private final CustomMap m_Custom;
+
+    private volatile int m_MaxCustomEntries = DEFAULT_MAX_CUSTOM_ENTRIES;
+    private volatile long m_CustomTimeToLive = DEFAULT_CUSTOM_TIME_TO_LIVE;
 
-    private HashMap m_CachedObjects;
+    private final AtomicLong m_Hits = new AtomicLong();
+    private final AtomicLong m_Misses = new AtomicLong();
+    private final AtomicLong m_ComputeNanos = new AtomicLong();
 
     static public WeightsCache getInstance()
     {
-        if( m_Instance != null )
+        WeightsCache instance = m_Instance;
+        if( instance != null )
         {
-            return m_Instance;
+            return instance;
         }
         synchronized( WeightsCache.class )
         {
             if( m_Instance == null )
             {
                 m_Instance = new WeightsCache();
-                m_Instance.loadDefaults();
             }
             return m_Instance;
         }
@@ -51,7 +90,8 @@ public class WeightsCache
 
     private WeightsCache()
     {
-        m_CachedObjects = new HashMap();
+        m_Standard = new ConcurrentHashMap<Key, Future<Weights>>( 64 );
+        m_Custom = new CustomMap();
     }
 
     public Weights getWeights( Illuminant illum, Observer obs )
@@ -61,180 +101,395 @@ public class WeightsCache
 
     public Weights getWeights( Illuminant illum, Observer obs, int interval )
     {
-        synchronized( m_CachedObjects )
+        Key key = new Key( illum, obs, interval );
+        if( m_StandardNames.contains( key.m_IlluminantName ) )
         {
-            Pair p = new Pair( illum, obs, interval );
-            Weights w = (Weights) m_CachedObjects.get( p );
+            return getStandardWeights( key, illum, obs );
+        }
+        return getCustomWeights( key, illum, obs );
+    }
 
-            if( ( w == null ) )
-            {
-                try
-                {
-                    w = WeightsImpl.create( illum, obs, interval );
-                    m_CachedObjects.put( p, w );
-                }
-                catch( ColorException cex )
-                {
-                    return null;
-                }
-            }
-            return w;
+    private Weights getStandardWeights( Key key, Illuminant illum, Observer obs )
+    {
+        Future<Weights> future = m_Standard.get( key );
+        if( future != null )
+        {
+            m_Hits.incrementAndGet();
+            return await( future );
         }
+        FutureTask<Weights> task = new FutureTask<Weights>( new Computation( illum, obs, key.m_Interval, true ) );
+        future = m_Standard.putIfAbsent( key, task );
+        if( future != null )
+        {
+            m_Hits.incrementAndGet();
+            return await( future );
+        }
+        m_Misses.incrementAndGet();
+        task.run();
+        Weights weights = await( task );
+        if( weights == null )
+        {
+            m_Standard.remove( key, task );
+        }
+        return weights;
     }
 
-    private void loadAndCache( String illumName, String obsName, String interval )
+    private Weights getCustomWeights( Key key, Illuminant illum, Observer obs )
     {
-        Class c = null;
-        try
+        FutureTask<Weights> task = null;
+        Future<Weights> future;
+        synchronized( m_Custom )
         {
-            if( interval.equals( "10" ) )
+            CustomEntry entry = m_Custom.get( key );
+            if( entry != null && entry.m_Expires < System.currentTimeMillis() )
             {
-                c = WeightsCache.class.getClassLoader()
-                    .loadClass( "org.color4j.colorimetry.weights." + illumName + "_" + obsName );  //NOI18N
+                m_Custom.remove( key );
+                entry = null;
+            }
+            if( entry == null )
+            {
+                task = new FutureTask<Weights>( new Computation( illum, obs, key.m_Interval, false ) );
+                m_Custom.put( key, new CustomEntry( task, System.currentTimeMillis() + m_CustomTimeToLive ) );
+                future = task;
             }
             else
             {
-                c = WeightsCache.class.getClassLoader()
-                    .loadClass( "org.color4j.colorimetry.weights." + illumName + "_" + obsName + "_" + interval );  //NOI18N
+                future = entry.m_Weights;
             }
         }
-        catch( ClassNotFoundException e )
+        if( task == null )
         {
-            throw new IllegalArgumentException( "Requested illuminant does not exist." );
+            m_Hits.incrementAndGet();
+            return await( future );
         }
+        m_Misses.incrementAndGet();
+        task.run();
+        Weights weights = await( task );
+        if( weights == null )
+        {
+            synchronized( m_Custom )
+            {
+                CustomEntry entry = m_Custom.get( key );
+                if( entry != null && entry.m_Weights == task )
+                {
+                    m_Custom.remove( key );
+                }
+            }
+        }
+        return weights;
+    }
+
+    private static Weights await( Future<Weights> future )
+    {
+        boolean interrupted = false;
         try
         {
-            Weights w = (Weights) c.newInstance();
-            Illuminant illuminant = IlluminantImpl.create( illumName );
-            Observer observer;
-            if( obsName.equals( "2" ) )  //NOI18N
+            while( true )
+            {
+                try
+                {
+                    return future.get();
+                }
+                catch( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        catch( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if( cause instanceof ColorException )
             {
-                observer = ObserverImpl.create( Observer.NAME_CIE1931 );
+                return null;
             }
-            else if( obsName.equals( "10" ) )  //NOI18N
+            if( cause instanceof RuntimeException )
             {
-                observer = ObserverImpl.create( Observer.NAME_CIE1964 );
+                throw (RuntimeException) cause;
             }
-            else
+            if( cause instanceof Error )
             {
-                observer = ObserverImpl.create( obsName );
+                throw (Error) cause;
             }
-            int k = Integer.parseInt( interval );
-
-            Pair p = new Pair( illuminant, observer, k );
+            throw new ColorException( "Unable to compute weights.", cause );  //NOI18N
+        }
+        finally
+        {
+            if( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
-            m_CachedObjects.put( p, w );
+    /**
+     * Removes all cached Weights, standard and user defined.
+     */
+    public void clearCache()
+    {
+        m_Standard.clear();
+        synchronized( m_Custom )
+        {
+            m_Custom.clear();
         }
-        catch( IllegalAccessException e )
+    }
+
+    /**
+     * Drops all cached Weights. The standard tables are read again from the bundled resource
+     * as they are requested.
+     */
+    public void loadDefaults()
+    {
+        clearCache();
+    }
+
+    /**
+     * Computes the Weights of every combination of the given illuminants, observers and intervals
+     * in the background, in parallel. Warm-ups run one after the other on a single daemon thread.
+     *
+     * @return a Future that completes once all the Weights are cached.
+     */
+    public Future<Void> warmUp( Illuminant[] illuminants, Observer[] observers, int[] intervals )
+    {
+        final Illuminant[] ills = illuminants.clone();
+        final Observer[] obs = observers.clone();
+        final int[] ints = intervals.clone();
+        final int count = ills.length * obs.length * ints.length;
+        return WarmUpHolder.EXECUTOR.submit( new Callable<Void>()
+        {
+            public Void call()
+            {
+                Parallel.forRange( count, 1, new Parallel.Range()
+                {
+                    public void compute( int from, int to )
+                    {
+                        for( int i = from; i < to; i++ )
+                        {
+                            int interval = ints[ i % ints.length ];
+                            Observer observer = obs[ ( i / ints.length ) % obs.length ];
+                            Illuminant illuminant = ills[ i / ( ints.length * obs.length ) ];
+                            getWeights( illuminant, observer, interval );
+                        }
+                    }
+                } );
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * @return the number of requests answered from the cache.
+     */
+    public long getHitCount()
+    {
+        return m_Hits.get();
+    }
+
+    /**
+     * @return the number of requests that had to compute the Weights.
+     */
+    public long getMissCount()
+    {
+        return m_Misses.get();
+    }
+
+    /**
+     * @return the total time spent computing Weights, in nanoseconds.
+     */
+    public long getComputeTime()
+    {
+        return m_ComputeNanos.get();
+    }
+
+    public void resetStatistics()
+    {
+        m_Hits.set( 0 );
+        m_Misses.set( 0 );
+        m_ComputeNanos.set( 0 );
+    }
+
+    /**
+     * @return the number of Weights of user defined illuminants currently held.
+     */
+    public int getCustomEntryCount()
+    {
+        synchronized( m_Custom )
         {
-            System.err.println( "Can not instantiate weights class for " + illumName + " and " + obsName );
-            e.printStackTrace();
+            return m_Custom.size();
         }
-        catch( ClassCastException e )
+    }
+
+    public int getMaxCustomEntries()
+    {
+        return m_MaxCustomEntries;
+    }
+
+    /**
+     * Sets how many Weights of user defined illuminants are kept at most.
+     */
+    public void setMaxCustomEntries( int maxEntries )
+    {
+        if( maxEntries < 0 )
         {
-            System.err.println( "Can not instantiate weights class for " + illumName + " and " + obsName );
-            e.printStackTrace();
+            throw new IllegalArgumentException( "The maximum number of entries may not be negative." );  //NOI18N
         }
-        catch( InstantiationException e )
+        m_MaxCustomEntries = maxEntries;
+        synchronized( m_Custom )
         {
-            System.err.println( "Can not instantiate weights class for " + illumName + " and " + obsName );
-            e.printStackTrace();
+            m_Custom.trim();
         }
-        catch( ColorException e )
+    }
+
+    public long getCustomTimeToLive()
+    {
+        return m_CustomTimeToLive;
+    }
+
+    /**
+     * Sets how long, in milliseconds, Weights of user defined illuminants are kept after being computed.
+     */
+    public void setCustomTimeToLive( long millis )
+    {
+        if( millis < 0 )
         {
-            System.err.println( "ColorException for weights class for " + illumName + " and " + obsName );
-            e.printStackTrace();
+            throw new IllegalArgumentException( "The time to live may not be negative." );  //NOI18N
         }
+        m_CustomTimeToLive = millis;
     }
 
-    public void clearCache()
+    private final class Computation
+        implements Callable<Weights>
     {
-        m_CachedObjects = new HashMap();
+        private final Illuminant m_Illuminant;
+        private final Observer m_Observer;
+        private final int m_Interval;
+        private final boolean m_Tables;
+
+        private Computation( Illuminant illuminant, Observer observer, int interval, boolean tables )
+        {
+            m_Illuminant = illuminant;
+            m_Observer = observer;
+            m_Interval = interval;
+            m_Tables = tables;
+        }
+
+        public Weights call()
+            throws Exception
+        {
+            long start = System.nanoTime();
+            try
+            {
+                if( m_Tables )
+                {
+                    Weights weights = StandardWeights.get( m_Illuminant.getName(), m_Observer.getName(), m_Interval );
+                    if( weights != null )
+                    {
+                        return weights;
+                    }
+                }
+                return WeightsImpl.create( m_Illuminant, m_Observer, m_Interval );
+            }
+            finally
+            {
+                m_ComputeNanos.addAndGet( System.nanoTime() - start );
+            }
+        }
     }
 
-    public void loadDefaults()
+    private static final class WarmUpHolder
     {
-        m_CachedObjects = new HashMap();
-        loadAndCache( "D50", "10", "10" );    //NOI18N
-        loadAndCache( "D55", "10", "10" );    //NOI18N
-        loadAndCache( "D65", "10", "10" );    //NOI18N
-        loadAndCache( "D75", "10", "10" );    //NOI18N
-        loadAndCache( "A", "10", "10" );      //NOI18N
-        loadAndCache( "C", "10", "10" );      //NOI18N
-        loadAndCache( "F2", "10", "10" );     //NOI18N
-        loadAndCache( "F7", "10", "10" );     //NOI18N
-        loadAndCache( "F11", "10", "10" );    //NOI18N
-        loadAndCache( "D50", "2", "10" );     //NOI18N
-        loadAndCache( "D55", "2", "10" );     //NOI18N
-        loadAndCache( "D65", "2", "10" );     //NOI18N
-        loadAndCache( "D75", "2", "10" );     //NOI18N
-        loadAndCache( "A", "2", "10" );       //NOI18N
-        loadAndCache( "C", "2", "10" );       //NOI18N
-        loadAndCache( "F2", "2", "10" );      //NOI18N
-        loadAndCache( "F7", "2", "10" );      //NOI18N
-        loadAndCache( "F11", "2", "10" );     //NOI18N
-
-        loadAndCache( "D50", "10", "20" );    //NOI18N
-        loadAndCache( "D55", "10", "20" );    //NOI18N
-        loadAndCache( "D65", "10", "20" );    //NOI18N
-        loadAndCache( "D75", "10", "20" );    //NOI18N
-        loadAndCache( "A", "10", "20" );      //NOI18N
-        loadAndCache( "C", "10", "20" );      //NOI18N
-        loadAndCache( "F2", "10", "20" );     //NOI18N
-        loadAndCache( "F7", "10", "20" );     //NOI18N
-        loadAndCache( "F11", "10", "20" );    //NOI18N
-        loadAndCache( "D50", "2", "20" );     //NOI18N
-        loadAndCache( "D55", "2", "20" );     //NOI18N
-        loadAndCache( "D65", "2", "20" );     //NOI18N
-        loadAndCache( "D75", "2", "20" );     //NOI18N
-        loadAndCache( "A", "2", "20" );       //NOI18N
-        loadAndCache( "C", "2", "20" );       //NOI18N
-        loadAndCache( "F2", "2", "20" );      //NOI18N
-        loadAndCache( "F7", "2", "20" );      //NOI18N
-        loadAndCache( "F11", "2", "20" );     //NOI18N
-    }
-
-    private final class Pair
-    {
-        private Illuminant m_Illuminant;
-        private Observer m_Observer;
-        private int m_Interval;
-
-        Pair( Illuminant illum, Observer observer, int interval )
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor( new ThreadFactory()
         {
-            if( illum == null || observer == null )
+            public Thread newThread( Runnable runnable )
             {
-                throw new IllegalArgumentException( "Arguments may not be null." );
+                Thread thread = new Thread( runnable, "color4j-weights-warmup" );   //NOI18N
+                thread.setDaemon( true );
+                return thread;
             }
+        } );
+    }
 
-            m_Illuminant = illum;
-            m_Observer = observer;
-            m_Interval = interval;
+    private static final class CustomEntry
+    {
+        private final Future<Weights> m_Weights;
+        private final long m_Expires;
+
+        private CustomEntry( Future<Weights> weights, long expires )
+        {
+            m_Weights = weights;
+            m_Expires = expires;
         }
+    }
 
-        Observer getObserver()
+    private final class CustomMap extends LinkedHashMap<Key, CustomEntry>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private CustomMap()
         {
-            return m_Observer;
+            super( 16, 0.75f, true );
         }
 
-        Illuminant getIlluminant()
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Key, CustomEntry> eldest )
         {
-            return m_Illuminant;
+            return size() > m_MaxCustomEntries;
         }
 
-        public boolean equals( Object pair )
+        private void trim()
         {
-            Pair p = (Pair) pair;
-            return m_Interval == p.m_Interval &&
-                   m_Illuminant.getName().equals( p.m_Illuminant.getName() ) &&
-                   m_Observer.getName().equals( p.m_Observer.getName() );
+            Iterator<Key> keys = keySet().iterator();
+            while( size() > m_MaxCustomEntries && keys.hasNext() )
+            {
+                keys.next();
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Immutable cache key, with the hash code computed once.
+     */
+    private static final class Key
+    {
+        private final String m_IlluminantName;
+        private final String m_ObserverName;
+        private final int m_Interval;
+        private final int m_Hash;
+
+        Key( Illuminant illum, Observer observer, int interval )
+        {
+            if( illum == null || observer == null )
+            {
+                throw new IllegalArgumentException( "Arguments may not be null." );
+            }
+
+            m_IlluminantName = illum.getName();
+            m_ObserverName = observer.getName();
+            m_Interval = interval;
+            m_Hash = ( m_IlluminantName.hashCode() * 31 + m_ObserverName.hashCode() ) * 31 + interval;
+        }
+
+        public boolean equals( Object obj )
+        {
+            if( this == obj )
+            {
+                return true;
+            }
+            if( !( obj instanceof Key ) )
+            {
+                return false;
+            }
+            Key k = (Key) obj;
+            return m_Hash == k.m_Hash &&
+                   m_Interval == k.m_Interval &&
+                   m_IlluminantName.equals( k.m_IlluminantName ) &&
+                   m_ObserverName.equals( k.m_ObserverName );
         }
 
         public int hashCode()
         {
-            return m_Illuminant.getName().hashCode() +
-                   m_Observer.getName().hashCode() + m_Interval;
+            return m_Hash;
         }
     }
 }
-
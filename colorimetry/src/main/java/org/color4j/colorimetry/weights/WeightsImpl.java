@@ -21,6 +21,7 @@ package org.color4j.colorimetry.weights;
 import org.color4j.colorimetry.ColorException;
 import org.color4j.colorimetry.Illuminant;
 import org.color4j.colorimetry.Observer;
+import org.color4j.colorimetry.Spectrum;
 import org.color4j.colorimetry.Weights;
 import org.color4j.colorimetry.encodings.XYZ;
 import org.color4j.colorimetry.illuminants.IlluminantImpl;
@@ -162,7 +163,9 @@ public class WeightsImpl
             ie_offset = i_E - o_E;
             m_Ending = o_E;
         }
-        double[] ill_final = Maths.getSameIntervalR( illuminant.getSpectrum().getValues(), is_offset, ie_offset );
+        Spectrum ill_spectrum = illuminant.getSpectrum();
+        double[] ill_final = new double[ ill_spectrum.getLength() - is_offset - ie_offset ];
+        ill_spectrum.copyInto( is_offset, ill_final, 0, ill_final.length );
         double[] obs_y_final = Maths.getSameIntervalR( observer.get_y(), os_offset, oe_offset );
         double k = computeK( ill_final, obs_y_final );
         m_WY = compute( ill_final, obs_y_final, interval, k );
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import org.color4j.colorimetry.matching.MatchingFactory;
+
+/**
+ * The names of the DifferenceAlgorithms that MatchingFactory registers itself, shared by the tests.
+ */
+final class BuiltInAlgorithms
+{
+    static final String[] NAMES = {
+        MatchingFactory.CMC11, MatchingFactory.CMC21, MatchingFactory.BFD, MatchingFactory.CIE94DE,
+        MatchingFactory.LABDE, MatchingFactory.LCHDE, MatchingFactory.CIE2000DE, MatchingFactory.JPC79,
+        MatchingFactory.DIN99
+    };
+
+    private BuiltInAlgorithms()
+    {
+    }
+}
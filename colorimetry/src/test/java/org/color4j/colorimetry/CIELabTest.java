@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+
+public class CIELabTest extends TestCase
+{
+    public void testChromaAndHue()
+        throws Exception
+    {
+        CIELab lab = new CIELab( 50.0, 3.0, 4.0 );
+        assertEquals( 5.0, lab.getc(), 1e-12 );
+        assertEquals( Math.toDegrees( Math.atan2( 4.0, 3.0 ) ), lab.geth(), 1e-12 );
+        assertEquals( 5.0, CIELab.chroma( 3.0, 4.0 ), 1e-12 );
+        assertEquals( 180.0, CIELab.hue( -1.0, 0.0 ), 0.0 );
+        assertEquals( 270.0, CIELab.hue( 0.0, -1.0 ), 0.0 );
+    }
+
+    public void testToLCh()
+        throws Exception
+    {
+        double[] lch = new double[ 4 ];
+        CIELab.toLCh( 20.0, -6.0, -8.0, lch, 1 );
+        CIELab lab = new CIELab( 20.0, -6.0, -8.0 );
+        assertEquals( lab.getL(), lch[ 1 ], 0.0 );
+        assertEquals( lab.getc(), lch[ 2 ], 0.0 );
+        assertEquals( lab.geth(), lch[ 3 ], 0.0 );
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.lang.reflect.Method;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.ColorDifference;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+
+public class ColorDifferenceTest extends TestCase
+{
+    private static final CIELab TARGET = new CIELab( 52.3, 18.1, -24.6 );
+    private static final CIELab BATCH = new CIELab( 51.7, 19.9, -22.8 );
+
+    @SuppressWarnings( "unchecked" )
+    public void testValuesMatchGetters()
+        throws Exception
+    {
+        MatchingFactory factory = MatchingFactory.getInstance();
+        for( String name : factory.getAlgorithmNames() )
+        {
+            DifferenceAlgorithm algorithm = factory.getAlgorithm( name );
+            ColorDifference difference;
+            if( MatchingFactory.DIN99.equals( name ) )
+            {
+                difference = algorithm.compute( TARGET.toDin99Lab( 1.0, 1.0 ), BATCH.toDin99Lab( 1.0, 1.0 ) );
+            }
+            else
+            {
+                difference = algorithm.compute( TARGET, BATCH );
+            }
+            String[] names = difference.getAllValueNames();
+            assertEquals( name, ColorDifference.DELTA_E, names[ ColorDifference.DELTA_E_INDEX ] );
+            assertEquals( name, names.length, algorithm.getAllDeltaNames().length );
+            for( int i = 0; i < names.length; i++ )
+            {
+                Method getter = difference.getClass().getMethod( "get" + names[ i ] );   //NOI18N
+                double expected = ( (Number) getter.invoke( difference ) ).doubleValue();
+                assertEquals( name + " " + names[ i ], expected, difference.getValue( i ), 0.0 );
+                assertEquals( name + " " + names[ i ], expected, difference.getValue( names[ i ] ), 0.0 );
+                assertEquals( i, difference.getValueIndex( names[ i ] ) );
+                assertEquals( names[ i ], algorithm.getAllDeltaNames()[ i ] );
+            }
+            assertEquals( name, difference.getValue( ColorDifference.DELTA_E ), difference.getDeltaE(), 0.0 );
+        }
+    }
+
+    public void testUnknownValue()
+        throws Exception
+    {
+        ColorDifference difference = MatchingFactory.getInstance().getAlgorithm( MatchingFactory.CIE2000DE ).compute( TARGET, BATCH );
+        assertEquals( -1, difference.getValueIndex( "Algorithm" ) );    //NOI18N
+        try
+        {
+            difference.getValue( "Algorithm" );    //NOI18N
+            fail( "ColorException expected." );
+        }
+        catch( ColorException e )
+        {
+            // expected
+        }
+        try
+        {
+            difference.getValue( 100 );
+            fail( "ColorException expected." );
+        }
+        catch( ColorException e )
+        {
+            // expected
+        }
+    }
+
+    public void testReflectiveValues()
+        throws Exception
+    {
+        ColorDifference difference = new PluginDifference();
+        String[] names = difference.getAllValueNames();
+        assertEquals( 3, names.length );
+        assertEquals( ColorDifference.DELTA_E, names[ ColorDifference.DELTA_E_INDEX ] );
+        assertEquals( ColorDifference.DELTA_L, names[ 1 ] );
+        assertEquals( "Weight", names[ 2 ] );  //NOI18N
+        assertEquals( 1.5, difference.getDeltaE(), 0.0 );
+        assertEquals( 1.5, difference.getValue( 0 ), 0.0 );
+        assertEquals( -0.5, difference.getValue( 1 ), 0.0 );
+        assertEquals( 2.0, difference.getValue( "Weight" ), 0.0 );  //NOI18N
+        assertEquals( -1, difference.getValueIndex( "Algorithm" ) );  //NOI18N
+        assertEquals( -1, difference.getValueIndex( "Label" ) );  //NOI18N
+        try
+        {
+            difference.getValue( 3 );
+            fail( "ColorException expected." );
+        }
+        catch( ColorException e )
+        {
+            // expected
+        }
+    }
+
+    public void testReflectiveWithoutDeltaE()
+        throws Exception
+    {
+        ColorDifference difference = new NoDeltaEDifference();
+        assertEquals( 1, difference.getAllValueNames().length );
+        try
+        {
+            difference.getDeltaE();
+            fail( "ColorException expected." );
+        }
+        catch( ColorException e )
+        {
+            // expected
+        }
+    }
+
+    public static class PluginDifference extends ColorDifference
+    {
+        public PluginDifference()
+        {
+            super( null );
+        }
+
+        public double getDeltaL()
+        {
+            return -0.5;
+        }
+
+        public double getDeltaE()
+        {
+            return 1.5;
+        }
+
+        public Integer getWeight()
+        {
+            return 2;
+        }
+
+        public String getLabel()
+        {
+            return "plug-in";   //NOI18N
+        }
+    }
+
+    public static class NoDeltaEDifference extends ColorDifference
+    {
+        public NoDeltaEDifference()
+        {
+            super( null );
+        }
+
+        public double getDeltaL()
+        {
+            return -0.5;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.CIELuv;
+import org.color4j.colorimetry.encodings.ColorimetricEvaluator;
+import org.color4j.colorimetry.encodings.DefaultEncodingFactory;
+import org.color4j.colorimetry.encodings.HunterLab;
+import org.color4j.colorimetry.encodings.XYZ;
+import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.observers.ObserverImpl;
+
+public class ColorimetricEvaluatorTest extends TestCase
+{
+    private static final double[] VALUES =
+        {
+            0.0442, 0.0454, 0.0464, 0.0470, 0.0476, 0.0484, 0.0491, 0.0500, 0.0511, 0.0524, 0.0540,
+            0.0561, 0.0590, 0.0632, 0.0693, 0.0785, 0.0929, 0.1150, 0.1478, 0.1934, 0.2496, 0.3109,
+            0.3701, 0.4216, 0.4624, 0.4927, 0.5144, 0.5295, 0.5401, 0.5478, 0.5534
+        };
+
+    public void testMatchesEncodingFactory()
+        throws Exception
+    {
+        DefaultEncodingFactory factory = new DefaultEncodingFactory();
+        String[] illuminants = { "D65", "A", "F11" };   //NOI18N
+        String[] observers = { Observer.NAME_CIE1931, Observer.NAME_CIE1964 };
+        Reflectance reflectance = ReflectanceImpl.create( Spectrum.create( 400, 10, VALUES ) );
+        double[] result = new double[ 3 ];
+        for( int i = 0; i < illuminants.length; i++ )
+        {
+            for( int j = 0; j < observers.length; j++ )
+            {
+                Illuminant ill = IlluminantImpl.create( illuminants[ i ] );
+                Observer obs = ObserverImpl.create( observers[ j ] );
+                ColorimetricEvaluator evaluator = ColorimetricEvaluator.create( ill, obs, 400, 10, VALUES.length );
+
+                evaluator.toXYZ( VALUES, result );
+                XYZ xyz = factory.createXYZ( ill, reflectance, obs );
+                assertEquals( xyz.getX(), result[ 0 ], 0.0 );
+                assertEquals( xyz.getY(), result[ 1 ], 0.0 );
+                assertEquals( xyz.getZ(), result[ 2 ], 0.0 );
+
+                evaluator.toLab( VALUES, result );
+                CIELab lab = factory.createCIELab( ill, reflectance, obs );
+                assertEquals( lab.getL(), result[ 0 ], 0.0 );
+                assertEquals( lab.geta(), result[ 1 ], 0.0 );
+                assertEquals( lab.getb(), result[ 2 ], 0.0 );
+
+                evaluator.toLuv( VALUES, 0, result, 0 );
+                CIELuv luv = factory.createCIELuv( ill, reflectance, obs );
+                assertEquals( luv.getL(), result[ 0 ], 0.0 );
+                assertEquals( luv.getu(), result[ 1 ], 0.0 );
+                assertEquals( luv.getv(), result[ 2 ], 0.0 );
+
+                evaluator.toHunterLab( VALUES, 0, result, 0 );
+                HunterLab hunter = factory.createHunterLab( ill, reflectance, obs );
+                assertEquals( hunter.getL(), result[ 0 ], 0.0 );
+                assertEquals( hunter.geta(), result[ 1 ], 0.0 );
+                assertEquals( hunter.getb(), result[ 2 ], 0.0 );
+            }
+        }
+    }
+
+    public void testOffsets()
+        throws Exception
+    {
+        Illuminant ill = IlluminantImpl.create( "D65" );    //NOI18N
+        Observer obs = ObserverImpl.create( Observer.NAME_CIE1964 );
+        ColorimetricEvaluator evaluator = ColorimetricEvaluator.create( ill, obs, 400, 10, VALUES.length );
+        double[] block = new double[ VALUES.length + 5 ];
+        System.arraycopy( VALUES, 0, block, 5, VALUES.length );
+        double[] expected = new double[ 3 ];
+        double[] result = new double[ 7 ];
+        evaluator.toLab( VALUES, expected );
+        evaluator.toLab( block, 5, result, 4 );
+        assertEquals( expected[ 0 ], result[ 4 ], 0.0 );
+        assertEquals( expected[ 1 ], result[ 5 ], 0.0 );
+        assertEquals( expected[ 2 ], result[ 6 ], 0.0 );
+    }
+
+    public void testSpectrum()
+        throws Exception
+    {
+        Illuminant ill = IlluminantImpl.create( "D65" );    //NOI18N
+        Observer obs = ObserverImpl.create( Observer.NAME_CIE1964 );
+        Spectrum spectrum = Spectrum.create( 400, 10, VALUES );
+        ColorimetricEvaluator evaluator = ColorimetricEvaluator.create( ill, obs, spectrum );
+        double[] expected = new double[ 3 ];
+        double[] result = new double[ 3 ];
+        evaluator.toLab( VALUES, expected );
+        evaluator.toLab( spectrum, result );
+        assertEquals( expected[ 0 ], result[ 0 ], 0.0 );
+        assertEquals( expected[ 1 ], result[ 1 ], 0.0 );
+        assertEquals( expected[ 2 ], result[ 2 ], 0.0 );
+        try
+        {
+            evaluator.toXYZ( Spectrum.create( 410, 10, VALUES ), result );
+            fail( "IllegalArgumentException expected." );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.CIELabDE;
+import org.color4j.colorimetry.matching.ColorDifference;
+import org.color4j.colorimetry.matching.DeltaEBatch;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.DifferenceKernel;
+import org.color4j.colorimetry.matching.MatchingFactory;
+
+public class DeltaEBatchTest extends TestCase
+{
+    @SuppressWarnings( "unchecked" )
+    public void testCompareMatchesAlgorithms()
+        throws Exception
+    {
+        Random random = new Random( 14 );
+        double[] batches = randomLabs( random, 5000 );
+        CIELab standard = new CIELab( 52.0, 18.0, -7.0 );
+        for( String name : MatchingFactory.getInstance().getAlgorithmNames() )
+        {
+            DeltaEBatch batch = DeltaEBatch.create( name );
+            double[] result = batch.compare( standard, batches, 5000 );
+            DifferenceAlgorithm algorithm = batch.getAlgorithm();
+            for( int i = 0; i < 5000; i++ )
+            {
+                CIELab sample = new CIELab( batches[ i * 3 ], batches[ i * 3 + 1 ], batches[ i * 3 + 2 ] );
+                ColorDifference difference;
+                if( MatchingFactory.DIN99.equals( name ) )
+                {
+                    difference = algorithm.compute( standard.toDin99Lab( 1.0, 1.0 ), sample.toDin99Lab( 1.0, 1.0 ) );
+                }
+                else
+                {
+                    difference = algorithm.compute( standard, sample );
+                }
+                double expected = difference.getDeltaE();
+                assertEquals( name + " " + i, expected, result[ i ], 1e-9 * Math.max( 1.0, expected ) );
+            }
+        }
+    }
+
+    public void testPreparedStandardMatchesCompare()
+        throws Exception
+    {
+        Random random = new Random( 17 );
+        double[] batches = randomLabs( random, 500 );
+        double[] scratch = new double[ 3 ];
+        for( String name : MatchingFactory.getInstance().getAlgorithmNames() )
+        {
+            DeltaEBatch batch = DeltaEBatch.create( name );
+            double[] expected = batch.compare( new CIELab( 52.0, 18.0, -7.0 ), batches, 500 );
+            DeltaEBatch.Standard standard = batch.prepare( 52.0, 18.0, -7.0 );
+            for( int i = 0; i < 500; i++ )
+            {
+                double actual = standard.deltaE( batches[ i * 3 ], batches[ i * 3 + 1 ], batches[ i * 3 + 2 ], scratch );
+                assertEquals( name + " " + i, expected[ i ], actual, 0.0 );
+            }
+        }
+    }
+
+    public void testMatrixMatchesRows()
+        throws Exception
+    {
+        Random random = new Random( 15 );
+        int n = 150;
+        int m = 1100;
+        double[] standards = randomLabs( random, n );
+        double[] batches = randomLabs( random, m );
+        DeltaEBatch batch = DeltaEBatch.create( MatchingFactory.CIE2000DE );
+        double[] matrix = new double[ n * m ];
+        batch.matrix( standards, n, batches, m, matrix );
+        DoubleBuffer buffer = ByteBuffer.allocateDirect( n * m * 8 ).asDoubleBuffer();
+        batch.matrix( standards, n, batches, m, buffer );
+        assertEquals( 0, buffer.position() );
+        double[] row = new double[ m ];
+        for( int i = 0; i < n; i++ )
+        {
+            batch.compare( standards, i * 3, batches, 0, m, row, 0 );
+            for( int j = 0; j < m; j++ )
+            {
+                assertEquals( row[ j ], matrix[ i * m + j ], 0.0 );
+                assertEquals( row[ j ], buffer.get( i * m + j ), 0.0 );
+            }
+        }
+    }
+
+    public void testAlgorithmWithoutKernel()
+        throws Exception
+    {
+        DifferenceAlgorithm<CIELab> plain = new DifferenceAlgorithm<CIELab>()
+        {
+            private final DifferenceAlgorithm<CIELab> m_Delegate = new CIELabDE();
+
+            public String getName()
+            {
+                return "Plain";  //NOI18N
+            }
+
+            public String[] getAllDeltaNames()
+            {
+                return m_Delegate.getAllDeltaNames();
+            }
+
+            public ColorDifference compute( CIELab target, CIELab sample )
+            {
+                return m_Delegate.compute( target, sample );
+            }
+        };
+        assertFalse( plain instanceof DifferenceKernel );
+        Random random = new Random( 16 );
+        double[] standards = randomLabs( random, 7 );
+        double[] batches = randomLabs( random, 9 );
+        double[] expected = new double[ 63 ];
+        double[] actual = new double[ 63 ];
+        DeltaEBatch.create( MatchingFactory.LABDE ).matrix( standards, 7, batches, 9, expected );
+        DeltaEBatch.create( plain ).matrix( standards, 7, batches, 9, actual );
+        for( int i = 0; i < 63; i++ )
+        {
+            assertEquals( expected[ i ], actual[ i ], 1e-12 );
+        }
+    }
+
+    public void testRejectsShortArrays()
+        throws Exception
+    {
+        DeltaEBatch batch = DeltaEBatch.create( MatchingFactory.CMC11 );
+        try
+        {
+            batch.matrix( new double[ 6 ], 2, new double[ 9 ], 3, new double[ 5 ] );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+        try
+        {
+            batch.compare( new double[ 3 ], 0, new double[ 8 ], 0, 3, new double[ 3 ], 0 );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    private static double[] randomLabs( Random random, int count )
+    {
+        double[] lab = new double[ count * 3 ];
+        for( int i = 0; i < count; i++ )
+        {
+            lab[ i * 3 ] = random.nextDouble() * 100.0;
+            lab[ i * 3 + 1 ] = random.nextDouble() * 160.0 - 80.0;
+            lab[ i * 3 + 2 ] = random.nextDouble() * 160.0 - 80.0;
+        }
+        return lab;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.Din99Lab;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.DifferenceKernel;
+import org.color4j.colorimetry.matching.MatchingFactory;
+
+public class DifferenceKernelTest extends TestCase
+{
+    @SuppressWarnings( "unchecked" )
+    public void testKernelsMatchObjects()
+        throws Exception
+    {
+        Random random = new Random( 13 );
+        MatchingFactory factory = MatchingFactory.getInstance();
+        for( String name : BuiltInAlgorithms.NAMES )
+        {
+            DifferenceAlgorithm algorithm = factory.getAlgorithm( name );
+            assertTrue( name, algorithm instanceof DifferenceKernel );
+            DifferenceKernel kernel = (DifferenceKernel) algorithm;
+            for( int i = 0; i < 20000; i++ )
+            {
+                CIELab standard = randomLab( random );
+                CIELab batch;
+                if( i % 2 == 0 )
+                {
+                    batch = randomLab( random );
+                }
+                else
+                {
+                    batch = new CIELab( standard.getL() + random.nextGaussian(),
+                                        standard.geta() + random.nextGaussian(),
+                                        standard.getb() + random.nextGaussian() );
+                }
+                double expected;
+                double actual;
+                if( MatchingFactory.DIN99.equals( name ) )
+                {
+                    Din99Lab s = standard.toDin99Lab( 1.0, 1.0 );
+                    Din99Lab b = batch.toDin99Lab( 1.0, 1.0 );
+                    expected = algorithm.compute( s, b ).getDeltaE();
+                    actual = kernel.deltaE( s.getL(), s.geta(), s.getb(), b.getL(), b.geta(), b.getb() );
+                }
+                else
+                {
+                    expected = algorithm.compute( standard, batch ).getDeltaE();
+                    actual = kernel.deltaE( standard.getL(), standard.geta(), standard.getb(),
+                                            batch.getL(), batch.geta(), batch.getb() );
+                }
+                if( Double.isNaN( expected ) )
+                {
+                    assertTrue( name, Double.isNaN( actual ) );
+                }
+                else
+                {
+                    assertEquals( name + " " + standard + " " + batch, expected, actual, 1e-9 * Math.max( 1.0, expected ) );
+                }
+            }
+        }
+    }
+
+    private static CIELab randomLab( Random random )
+    {
+        return new CIELab( 5.0 + random.nextDouble() * 90.0,
+                           random.nextDouble() * 160.0 - 80.0,
+                           random.nextDouble() * 160.0 - 80.0 );
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.CIELuv;
+import org.color4j.colorimetry.encodings.CMYK;
+import org.color4j.colorimetry.encodings.Din99Lab;
+import org.color4j.colorimetry.encodings.EncodingConverter;
+import org.color4j.colorimetry.encodings.HunterLab;
+import org.color4j.colorimetry.encodings.RGB;
+import org.color4j.colorimetry.encodings.UnsupportedConversionException;
+import org.color4j.colorimetry.encodings.XYZ;
+
+public class EncodingConverterTest extends TestCase
+{
+    private static final int COUNT = 10000;
+
+    @SuppressWarnings( { "unchecked" } )
+    private static final Class<? extends ColorEncoding>[] ENCODINGS = new Class[]
+        {
+            XYZ.class, CIELab.class, CIELuv.class, HunterLab.class, RGB.class, CMYK.class, Din99Lab.class
+        };
+
+    private XYZ m_White;
+    private double[] m_XYZ;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_White = XYZ.WHITEPOINT_D65_10;
+        Random random = new Random( 11 );
+        m_XYZ = new double[ COUNT * 3 ];
+        for( int i = 0; i < COUNT; i++ )
+        {
+            m_XYZ[ i * 3 ] = 1.0 + random.nextDouble() * 90.0;
+            m_XYZ[ i * 3 + 1 ] = 1.0 + random.nextDouble() * 95.0;
+            m_XYZ[ i * 3 + 2 ] = 1.0 + random.nextDouble() * 100.0;
+        }
+    }
+
+    public void testFromXYZMatchesObjects()
+        throws Exception
+    {
+        double[] lab = convert( XYZ.class, CIELab.class, m_XYZ );
+        double[] luv = convert( XYZ.class, CIELuv.class, m_XYZ );
+        double[] hunter = convert( XYZ.class, HunterLab.class, m_XYZ );
+        double[] rgb = convert( XYZ.class, RGB.class, m_XYZ );
+        double[] cmyk = convert( XYZ.class, CMYK.class, m_XYZ );
+        double[] din99 = convert( XYZ.class, Din99Lab.class, m_XYZ );
+        for( int i = 0; i < COUNT; i += 13 )
+        {
+            XYZ xyz = new XYZ( m_XYZ[ i * 3 ], m_XYZ[ i * 3 + 1 ], m_XYZ[ i * 3 + 2 ] );
+            CIELab l = xyz.toCIELab( m_White );
+            assertValues( new double[]{ l.getL(), l.geta(), l.getb() }, lab, i );
+            CIELuv u = xyz.toCIELuv( m_White );
+            assertValues( new double[]{ u.getL(), u.getu(), u.getv() }, luv, i );
+            HunterLab h = xyz.toHunterLab( m_White );
+            assertValues( new double[]{ h.getL(), h.geta(), h.getb() }, hunter, i );
+            RGB r = xyz.toRGB( m_White );
+            assertValues( new double[]{ r.getR(), r.getG(), r.getB() }, rgb, i );
+            CMYK c = xyz.toCMYK( m_White );
+            assertValues( new double[]{ c.getC(), c.getM(), c.getY(), c.getK() }, cmyk, i );
+            Din99Lab d = l.toDin99Lab( 1.0, 1.0 );
+            assertValues( new double[]{ d.getL(), d.geta(), d.getb() }, din99, i );
+        }
+    }
+
+    public void testToXYZMatchesObjects()
+        throws Exception
+    {
+        double[] lab = convert( XYZ.class, CIELab.class, m_XYZ );
+        double[] luv = convert( XYZ.class, CIELuv.class, m_XYZ );
+        double[] rgb = convert( XYZ.class, RGB.class, m_XYZ );
+        double[] fromLab = convert( CIELab.class, XYZ.class, lab );
+        double[] fromLuv = convert( CIELuv.class, XYZ.class, luv );
+        double[] fromRGB = convert( RGB.class, XYZ.class, rgb );
+        for( int i = 0; i < COUNT; i += 13 )
+        {
+            XYZ x = new CIELab( lab[ i * 3 ], lab[ i * 3 + 1 ], lab[ i * 3 + 2 ] ).toXYZ( m_White );
+            assertValues( new double[]{ x.getX(), x.getY(), x.getZ() }, fromLab, i );
+            x = new CIELuv( luv[ i * 3 ], luv[ i * 3 + 1 ], luv[ i * 3 + 2 ] ).toXYZ( m_White );
+            assertValues( new double[]{ x.getX(), x.getY(), x.getZ() }, fromLuv, i );
+            x = new RGB( rgb[ i * 3 ], rgb[ i * 3 + 1 ], rgb[ i * 3 + 2 ] ).toXYZ();
+            assertValues( new double[]{ x.getX(), x.getY(), x.getZ() }, fromRGB, i );
+        }
+    }
+
+    public void testRoundTrips()
+        throws Exception
+    {
+        for( Class<? extends ColorEncoding> encoding : ENCODINGS )
+        {
+            if( encoding == RGB.class || encoding == CMYK.class )
+            {
+                continue;   // out of gamut colors are clipped
+            }
+            double[] converted = convert( XYZ.class, encoding, m_XYZ );
+            double[] back = convert( encoding, XYZ.class, converted );
+            for( int i = 0; i < m_XYZ.length; i++ )
+            {
+                assertEquals( encoding.getName(), m_XYZ[ i ], back[ i ], 1e-9 );
+            }
+        }
+        double[] lab = convert( XYZ.class, CIELab.class, m_XYZ );
+        double[] din99 = convert( CIELab.class, Din99Lab.class, lab );
+        double[] back = convert( Din99Lab.class, CIELab.class, din99 );
+        for( int i = 0; i < lab.length; i++ )
+        {
+            assertEquals( lab[ i ], back[ i ], 1e-9 );
+        }
+    }
+
+    public void testAllPairsAndLayouts()
+        throws Exception
+    {
+        for( Class<? extends ColorEncoding> from : ENCODINGS )
+        {
+            double[] src = convert( XYZ.class, from, m_XYZ );
+            for( Class<? extends ColorEncoding> to : ENCODINGS )
+            {
+                double[] interleaved = convert( from, to, src );
+                int inValues = EncodingConverter.getValueCount( from );
+                int outValues = EncodingConverter.getValueCount( to );
+                double[] planarSrc = new double[ src.length ];
+                for( int i = 0; i < COUNT; i++ )
+                {
+                    for( int k = 0; k < inValues; k++ )
+                    {
+                        planarSrc[ k * COUNT + i ] = src[ i * inValues + k ];
+                    }
+                }
+                double[] planar = new double[ COUNT * outValues ];
+                EncodingConverter.convert( from, to, planarSrc, planar, COUNT, m_White, EncodingConverter.Layout.PLANAR );
+                for( int i = 0; i < COUNT; i++ )
+                {
+                    for( int k = 0; k < outValues; k++ )
+                    {
+                        assertEquals( interleaved[ i * outValues + k ], planar[ k * COUNT + i ], 0.0 );
+                    }
+                }
+            }
+        }
+    }
+
+    public void testUnsupportedEncoding()
+        throws Exception
+    {
+        try
+        {
+            EncodingConverter.create( XYZ.class, ColorEncoding.class, m_White );
+            fail( "UnsupportedConversionException expected." );
+        }
+        catch( UnsupportedConversionException e )
+        {
+            // expected
+        }
+    }
+
+    private double[] convert( Class<? extends ColorEncoding> from, Class<? extends ColorEncoding> to, double[] src )
+    {
+        double[] dst = new double[ COUNT * EncodingConverter.getValueCount( to ) ];
+        EncodingConverter.convert( from, to, src, dst, COUNT, m_White );
+        return dst;
+    }
+
+    private static void assertValues( double[] expected, double[] values, int index )
+    {
+        for( int k = 0; k < expected.length; k++ )
+        {
+            assertEquals( expected[ k ], values[ index * expected.length + k ], 0.0 );
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.Din99Lab;
+import org.color4j.colorimetry.encodings.RGB;
+import org.color4j.colorimetry.encodings.XYZ;
+import org.color4j.colorimetry.matching.ColorDifference;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+import org.color4j.colorimetry.math.FastMath;
+import org.color4j.colorimetry.math.Maths;
+
+public class FastMathTest extends TestCase
+{
+    private boolean m_Enabled;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_Enabled = FastMath.isEnabled();
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        FastMath.setEnabled( m_Enabled );
+    }
+
+    public void testCbrt()
+        throws Exception
+    {
+        Random random = new Random( 17 );
+        for( int i = 0; i < 100000; i++ )
+        {
+            double x = Math.pow( 10.0, random.nextDouble() * 600.0 - 300.0 );
+            if( random.nextBoolean() )
+            {
+                x = -x;
+            }
+            double expected = Math.cbrt( x );
+            assertEquals( expected, FastMath.cbrt( x ), Math.abs( expected ) * 1e-14 );
+        }
+        assertEquals( 0.0, FastMath.cbrt( 0.0 ), 0.0 );
+        assertEquals( Math.cbrt( Double.MIN_VALUE ), FastMath.cbrt( Double.MIN_VALUE ), 0.0 );
+    }
+
+    public void testPow5over12()
+        throws Exception
+    {
+        for( double x = 0.0031308; x <= 1.0; x += 1e-5 )
+        {
+            double expected = Math.pow( x, 1.0 / 2.4 );
+            assertEquals( expected, FastMath.pow5over12( x ), expected * 1e-14 );
+        }
+    }
+
+    public void testAtan()
+        throws Exception
+    {
+        Random random = new Random( 17 );
+        for( int i = 0; i < 100000; i++ )
+        {
+            double x = Math.tan( ( random.nextDouble() - 0.5 ) * Math.PI );
+            assertEquals( Math.atan( x ), FastMath.atan( x ), 1e-15 );
+        }
+        assertEquals( Math.PI / 2.0, FastMath.atan( Double.POSITIVE_INFINITY ), 1e-15 );
+    }
+
+    public void testLabGamut()
+        throws Exception
+    {
+        DifferenceAlgorithm<CIELab> cie2000 = MatchingFactory.getInstance().getAlgorithm( MatchingFactory.CIE2000DE );
+        XYZ white = XYZ.WHITEPOINT_D65_10;
+        double maxDeltaE = 0.0;
+        for( double L = 0.5; L <= 100.0; L += 1.5 )
+        {
+            for( double a = -128.0; a <= 128.0; a += 3.0 )
+            {
+                for( double b = -128.0; b <= 128.0; b += 3.0 )
+                {
+                    FastMath.setEnabled( false );
+                    XYZ xyz = new CIELab( L, a, b ).toXYZ( white );
+                    if( xyz.getX() < 0.0 || xyz.getY() < 0.0 || xyz.getZ() < 0.0 )
+                    {
+                        continue;
+                    }
+                    CIELab exact = xyz.toCIELab( white );
+                    Din99Lab exactDin99 = exact.toDin99Lab( 1.0, 1.0 );
+                    RGB exactRGB = xyz.toRGB( white );
+                    double exactHue = exact.geth();
+
+                    FastMath.setEnabled( true );
+                    CIELab fast = xyz.toCIELab( white );
+                    Din99Lab fastDin99 = exact.toDin99Lab( 1.0, 1.0 );
+                    RGB fastRGB = xyz.toRGB( white );
+                    double fastHue = Maths.atan( exact.geta(), exact.getb() );
+
+                    FastMath.setEnabled( false );
+                    ColorDifference difference = cie2000.compute( exact, fast );
+                    maxDeltaE = Math.max( maxDeltaE, difference.getValue( ColorDifference.DELTA_E ) );
+                    assertEquals( exactHue, fastHue, 1e-9 );
+                    assertEquals( exactDin99.getL(), fastDin99.getL(), 1e-9 );
+                    assertEquals( exactDin99.geta(), fastDin99.geta(), 1e-9 );
+                    assertEquals( exactDin99.getb(), fastDin99.getb(), 1e-9 );
+                    assertEquals( exactRGB.getR(), fastRGB.getR(), 1e-12 );
+                    assertEquals( exactRGB.getG(), fastRGB.getG(), 1e-12 );
+                    assertEquals( exactRGB.getB(), fastRGB.getB(), 1e-12 );
+                }
+            }
+        }
+        assertTrue( "CIE2000 difference " + maxDeltaE, maxDeltaE < 1e-6 );
+    }
+}
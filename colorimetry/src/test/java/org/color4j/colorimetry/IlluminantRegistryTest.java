@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.observers.ObserverImpl;
+
+public class IlluminantRegistryTest extends TestCase
+{
+    public void testStandardIlluminantsAreShared()
+        throws Exception
+    {
+        for( String name : IlluminantImpl.getStandardIlluminantNames() )
+        {
+            Illuminant illuminant = IlluminantImpl.create( name );
+            assertEquals( name, illuminant.getName() );
+            assertNotNull( illuminant.getSpectrum() );
+            assertSame( illuminant, IlluminantImpl.create( name ) );
+        }
+    }
+
+    public void testConcurrentLookupsReturnOneInstance()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<Illuminant>> results = new ArrayList<Future<Illuminant>>();
+            for( int i = 0; i < 64; i++ )
+            {
+                final String name = IlluminantImpl.getStandardIlluminantNames()[ i % 4 ];
+                results.add( executor.submit( new Callable<Illuminant>()
+                {
+                    public Illuminant call()
+                        throws Exception
+                    {
+                        return IlluminantImpl.create( name );
+                    }
+                } ) );
+            }
+            for( int i = 0; i < results.size(); i++ )
+            {
+                assertSame( results.get( i % 4 ).get(), results.get( i ).get() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testUnknownIlluminant()
+        throws Exception
+    {
+        try
+        {
+            IlluminantImpl.create( "No-Such-Illuminant" );   //NOI18N
+            fail( "IlluminationException expected." );
+        }
+        catch( IlluminationException e )
+        {
+            // expected
+        }
+    }
+
+    public void testRegisteredIlluminant()
+        throws Exception
+    {
+        Spectrum spectrum = IlluminantImpl.create( "D65" ).getSpectrum();   //NOI18N
+        Illuminant registered = IlluminantImpl.register( "IlluminantRegistryTest-custom", spectrum );  //NOI18N
+        assertSame( registered, IlluminantImpl.create( "IlluminantRegistryTest-custom" ) );   //NOI18N
+        assertSame( registered, IlluminantImpl.register( "IlluminantRegistryTest-custom", spectrum ) );  //NOI18N
+        assertTrue( Arrays.asList( IlluminantImpl.getIlluminantNames() ).contains( "IlluminantRegistryTest-custom" ) );  //NOI18N
+    }
+
+    public void testStandardIlluminantCanNotBeRegistered()
+        throws Exception
+    {
+        Spectrum spectrum = IlluminantImpl.create( "A" ).getSpectrum();   //NOI18N
+        try
+        {
+            IlluminantImpl.register( "D75", spectrum );   //NOI18N
+            fail( "IllegalArgumentException expected." );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+        assertFalse( Arrays.equals( spectrum.getValues(), IlluminantImpl.create( "D75" ).getSpectrum().getValues() ) );   //NOI18N
+    }
+
+    public void testProvidedIlluminantAndObserver()
+        throws Exception
+    {
+        assertTrue( Arrays.asList( IlluminantImpl.getIlluminantNames() ).contains( SampleIlluminantProvider.NAME ) );
+        Illuminant provided = IlluminantImpl.create( SampleIlluminantProvider.NAME );
+        assertEquals( 100.0, provided.getSpectrum().getValue( 0 ), 0.0 );
+        assertSame( provided, IlluminantImpl.create( SampleIlluminantProvider.NAME ) );
+        assertSame( ObserverImpl.create( Observer.NAME_CIE1964 ), ObserverImpl.create( SampleObserverProvider.NAME ) );
+    }
+
+    public void testObservers()
+        throws Exception
+    {
+        Observer cie1964 = ObserverImpl.create( Observer.NAME_CIE1964 );
+        assertSame( cie1964, ObserverImpl.create( "10 degree" ) );     //NOI18N
+        assertSame( ObserverImpl.create( Observer.NAME_CIE1931 ), ObserverImpl.create( "2 degree" ) );     //NOI18N
+        try
+        {
+            ObserverImpl.register( cie1964 );
+            fail( "IllegalArgumentException expected." );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+        try
+        {
+            ObserverImpl.create( "No-Such-Observer" );   //NOI18N
+            fail( "ColorException expected." );
+        }
+        catch( ColorException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.CIE94;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+
+public class MatchingFactoryTest extends TestCase
+{
+    public void testServiceLoaderAlgorithm()
+        throws Exception
+    {
+        MatchingFactory factory = MatchingFactory.getInstance();
+        List<String> names = Arrays.asList( factory.getAlgorithmNames() );
+        assertTrue( names.contains( SampleDifferenceAlgorithm.NAME ) );
+        assertEquals( MatchingFactory.CMC11, names.get( 0 ) );
+        DifferenceAlgorithm algorithm = factory.getAlgorithm( SampleDifferenceAlgorithm.NAME );
+        assertTrue( algorithm instanceof SampleDifferenceAlgorithm );
+        assertEquals( 5.0, algorithm.compute( new CIELab( 50.0, 0.0, 0.0 ), new CIELab( 50.0, 3.0, 4.0 ) ).getDeltaE(), 1e-12 );
+    }
+
+    public void testNamesAreCopies()
+        throws Exception
+    {
+        MatchingFactory factory = MatchingFactory.getInstance();
+        String[] names = factory.getAlgorithmNames();
+        names[ 0 ] = null;
+        assertNotNull( factory.getAlgorithmNames()[ 0 ] );
+    }
+
+    public void testUnknownAlgorithm()
+        throws Exception
+    {
+        try
+        {
+            MatchingFactory.getInstance().getAlgorithm( "No such algorithm" );  //NOI18N
+            fail( "Expected RuntimeException" );
+        }
+        catch( RuntimeException e )
+        {
+            // expected
+        }
+    }
+
+    public void testConcurrentLookupAndRegister()
+        throws Exception
+    {
+        final MatchingFactory factory = MatchingFactory.getInstance();
+        final String prefix = "MatchingFactoryTest-concurrent-";  //NOI18N
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[ 4 ];
+        for( int t = 0; t < threads.length; t++ )
+        {
+            final int id = t;
+            threads[ t ] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for( int i = 0; i < 2000; i++ )
+                        {
+                            if( id == 0 && i % 100 == 0 )
+                            {
+                                factory.register( prefix + i, new CIE94() );
+                            }
+                            assertNotNull( factory.getAlgorithm( MatchingFactory.CIE2000DE ) );
+                            for( String name : factory.getAlgorithmNames() )
+                            {
+                                assertNotNull( factory.getAlgorithm( name ) );
+                            }
+                        }
+                    }
+                    catch( Throwable e )
+                    {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            };
+            threads[ t ].start();
+        }
+        try
+        {
+            start.countDown();
+            for( Thread thread : threads )
+            {
+                thread.join();
+            }
+            if( failure.get() != null )
+            {
+                throw new AssertionError( failure.get() );
+            }
+            assertTrue( Arrays.asList( factory.getAlgorithmNames() ).contains( prefix + 1900 ) );
+        }
+        finally
+        {
+            for( int i = 0; i < 2000; i += 100 )
+            {
+                factory.unregister( prefix + i );
+            }
+        }
+        for( String name : factory.getAlgorithmNames() )
+        {
+            assertFalse( name, name.startsWith( prefix ) );
+        }
+    }
+
+    public void testUnregister()
+        throws Exception
+    {
+        MatchingFactory factory = MatchingFactory.getInstance();
+        int count = factory.getAlgorithmNames().length;
+        CIE94 algorithm = new CIE94();
+        factory.register( "MatchingFactoryTest-unregister", algorithm );  //NOI18N
+        assertEquals( count + 1, factory.getAlgorithmNames().length );
+        assertSame( algorithm, factory.unregister( "MatchingFactoryTest-unregister" ) );  //NOI18N
+        assertNull( factory.unregister( "MatchingFactoryTest-unregister" ) );  //NOI18N
+        assertEquals( count, factory.getAlgorithmNames().length );
+        assertFalse( Arrays.asList( factory.getAlgorithmNames() ).contains( "MatchingFactoryTest-unregister" ) );  //NOI18N
+    }
+}
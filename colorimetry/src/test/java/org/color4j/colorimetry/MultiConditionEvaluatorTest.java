@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.ColorimetricEvaluator;
+import org.color4j.colorimetry.encodings.MultiConditionEvaluator;
+import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.observers.ObserverImpl;
+
+public class MultiConditionEvaluatorTest extends TestCase
+{
+    public void testMatchesSingleConditionEvaluators()
+        throws Exception
+    {
+        checkAllConditions( 400, 10, 31 );
+        checkAllConditions( 360, 10, 43 );
+        checkAllConditions( 380, 20, 17 );
+    }
+
+    private void checkAllConditions( int start, int interval, int length )
+    {
+        String[] names = IlluminantImpl.getStandardIlluminantNames();
+        String[] observerNames = { Observer.NAME_CIE1931, Observer.NAME_CIE1964 };
+        Illuminant[] illuminants = new Illuminant[ names.length * observerNames.length ];
+        Observer[] observers = new Observer[ illuminants.length ];
+        for( int i = 0; i < observerNames.length; i++ )
+        {
+            for( int j = 0; j < names.length; j++ )
+            {
+                illuminants[ i * names.length + j ] = IlluminantImpl.create( names[ j ] );
+                observers[ i * names.length + j ] = ObserverImpl.create( observerNames[ i ] );
+            }
+        }
+        double[] values = new double[ length ];
+        for( int i = 0; i < length; i++ )
+        {
+            values[ i ] = 0.05 + 0.9 * i / length;
+        }
+        Spectrum spectrum = Spectrum.create( start, interval, values );
+        MultiConditionEvaluator multi = MultiConditionEvaluator.create( illuminants, observers, spectrum );
+        assertEquals( illuminants.length, multi.getConditionCount() );
+        double[] xyz = new double[ illuminants.length * 3 ];
+        double[] lab = new double[ illuminants.length * 3 ];
+        multi.toXYZ( spectrum, xyz );
+        multi.toLab( values, 0, lab );
+        double[] expected = new double[ 3 ];
+        for( int c = 0; c < illuminants.length; c++ )
+        {
+            ColorimetricEvaluator single = ColorimetricEvaluator.create( illuminants[ c ], observers[ c ], spectrum );
+            single.toXYZ( values, expected );
+            for( int k = 0; k < 3; k++ )
+            {
+                assertEquals( expected[ k ], xyz[ c * 3 + k ], 0.0 );
+            }
+            single.toLab( values, expected );
+            for( int k = 0; k < 3; k++ )
+            {
+                assertEquals( expected[ k ], lab[ c * 3 + k ], 0.0 );
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+import org.color4j.colorimetry.matching.MultiDifferenceEvaluator;
+
+public class MultiDifferenceEvaluatorTest extends TestCase
+{
+    @SuppressWarnings( "unchecked" )
+    public void testAllAlgorithmsMatchCompute()
+        throws Exception
+    {
+        MatchingFactory factory = MatchingFactory.getInstance();
+        String[] names = BuiltInAlgorithms.NAMES;
+        MultiDifferenceEvaluator evaluator = MultiDifferenceEvaluator.create( names );
+        assertEquals( names.length, evaluator.getSize() );
+        Random random = new Random( 16 );
+        for( int i = 0; i < 5000; i++ )
+        {
+            CIELab standard = randomLab( random );
+            CIELab batch;
+            if( i % 2 == 0 )
+            {
+                batch = randomLab( random );
+            }
+            else
+            {
+                batch = new CIELab( standard.getL() + random.nextGaussian(),
+                                    standard.geta() + random.nextGaussian(),
+                                    standard.getb() + random.nextGaussian() );
+            }
+            double[] result = evaluator.evaluate( standard, batch );
+            for( int k = 0; k < names.length; k++ )
+            {
+                DifferenceAlgorithm algorithm = factory.getAlgorithm( names[ k ] );
+                double expected;
+                if( MatchingFactory.DIN99.equals( names[ k ] ) )
+                {
+                    expected = algorithm.compute( standard.toDin99Lab( 1.0, 1.0 ), batch.toDin99Lab( 1.0, 1.0 ) ).getDeltaE();
+                }
+                else
+                {
+                    expected = algorithm.compute( standard, batch ).getDeltaE();
+                }
+                assertEquals( names[ k ], expected, result[ evaluator.indexOf( names[ k ] ) ], 1e-9 * Math.max( 1.0, expected ) );
+            }
+        }
+    }
+
+    public void testSubsetAndPackedPairs()
+        throws Exception
+    {
+        MultiDifferenceEvaluator evaluator = MultiDifferenceEvaluator.create( MatchingFactory.CIE2000DE, MatchingFactory.CMC21 );
+        assertEquals( 2, evaluator.getSize() );
+        assertEquals( 1, evaluator.indexOf( MatchingFactory.CMC21 ) );
+        assertEquals( -1, evaluator.indexOf( MatchingFactory.CIE94DE ) );
+        Random random = new Random( 17 );
+        int count = 3000;
+        double[] standards = new double[ count * 3 ];
+        double[] batches = new double[ count * 3 ];
+        for( int i = 0; i < count; i++ )
+        {
+            CIELab s = randomLab( random );
+            CIELab b = randomLab( random );
+            standards[ i * 3 ] = s.getL();
+            standards[ i * 3 + 1 ] = s.geta();
+            standards[ i * 3 + 2 ] = s.getb();
+            batches[ i * 3 ] = b.getL();
+            batches[ i * 3 + 1 ] = b.geta();
+            batches[ i * 3 + 2 ] = b.getb();
+        }
+        double[] result = new double[ count * 2 ];
+        evaluator.evaluate( standards, batches, count, result );
+        double[] single = new double[ 2 ];
+        for( int i = 0; i < count; i++ )
+        {
+            evaluator.evaluate( standards[ i * 3 ], standards[ i * 3 + 1 ], standards[ i * 3 + 2 ],
+                                batches[ i * 3 ], batches[ i * 3 + 1 ], batches[ i * 3 + 2 ], single, 0 );
+            assertEquals( single[ 0 ], result[ i * 2 ], 0.0 );
+            assertEquals( single[ 1 ], result[ i * 2 + 1 ], 0.0 );
+        }
+    }
+
+    private static CIELab randomLab( Random random )
+    {
+        return new CIELab( random.nextDouble() * 100.0, random.nextDouble() * 160.0 - 80.0, random.nextDouble() * 160.0 - 80.0 );
+    }
+}
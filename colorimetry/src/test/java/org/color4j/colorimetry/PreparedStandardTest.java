@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.ColorDifference;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+import org.color4j.colorimetry.matching.PreparableKernel;
+import org.color4j.colorimetry.matching.PreparedStandard;
+
+public class PreparedStandardTest extends TestCase
+{
+    private static final String[] PREPARABLE = {
+        MatchingFactory.CMC11, MatchingFactory.CMC21, MatchingFactory.CIE94DE, MatchingFactory.CIE2000DE
+    };
+
+    // Standard and batch CIELab, and below the values computed for them before standards could be prepared.
+    private static final double[][] PAIRS = {
+        { 61.06, 53.29, 68.1, 63.37, 52.78, 68.56 },
+        { 67.88, 65.82, 57.63, 71.09, 64.75, 57.06 },
+        { 59.37, 51.19, -3.54, 59.16, 50.8, -3.57 },
+        { 32.64, -56.24, -36.01, 33.02, -57.65, -34.2 },
+        { 27.19, 25.15, -66.0, 26.27, 24.45, -63.83 },
+        { 64.0, 11.91, 48.95, 64.53, 13.04, 46.89 },
+        { 72.2, -23.87, -21.41, 54.72, -4.11, -17.53 },
+        { 7.8, -6.71, 49.51, 18.62, -1.38, 65.59 },
+        { 12.39, 0.4, -0.3, 23.89, 10.98, 10.27 },
+        { 38.15, -30.25, 0.35, 30.9, -30.34, -0.42 },
+    };
+
+    private static final String[] CMC_NAMES = {
+        "DeltaE", "DeltaL", "DeltaC", "DeltaH", "DeltaaStar", "DeltabStar", "DeltaLStar", "DeltaCStar", "DeltaHStar", "DeltaR", "SL", "SC", "SH"
+    };
+
+    private static final String[] CIE2000_NAMES = {
+        "DeltaLDot", "DeltaCDot", "DeltaHDot", "DeltaE", "DeltaL", "DeltaC", "DeltaH", "DeltaaStar", "DeltabStar", "DeltaLStar", "DeltaCStar", "DeltaHStar", "DeltaR", "SL", "SC", "SH"
+    };
+
+    private static final double[][] CMC11_VALUES = {
+        { 1.99764116868805, 1.9183194877082028, 0.01571700132353369, 0.5571118000775895, -0.509999999999998, 0.46000000000000796, 2.309999999999995, 0.05068296804925865, 0.6849315562519595, 0.0, 1.2041789779030652, 3.2247225158255235, 1.229432864564291 },
+        { 2.5697589781093635, 2.536811082831821, -0.36435207184392027, 0.18840993428788555, -1.0699999999999932, -0.5700000000000003, 3.210000000000008, -1.180074349627418, 0.2778930178169457, 0.0, 1.2653681709781526, 3.2388298045219672, 1.4749382449883577 },
+        { 0.23335449780208253, -0.17678193946752135, -0.14907837783717054, -0.031274666808801914, -0.39000000000000057, -0.029999999999999805, -0.21000000000000085, -0.3869693886862109, -0.05704990990191925, 0.0, 1.1879041526104672, 2.595744562694897, 1.8241572404494228 },
+        { 1.1435780057637581, 0.44781346827932206, 0.0860280849704427, -1.0487291935912613, -1.4099999999999966, 1.8099999999999952, 0.38000000000000256, 0.250387625141002, -2.2806810467876204, 0.0, 0.8485675999431507, 2.9105335220123694, 2.174709220192175 },
+        { 1.4430830436541229, -1.2220614791040676, -0.7644360086657677, 0.06849818119611817, -0.6999999999999993, 2.1700000000000017, -0.9200000000000017, -2.276921052996059, 0.12054260003553255, 0.0, 0.7528262822542146, 2.9785633162024303, 1.759792711727706 },
+        { 1.470233209712941, 0.43040268456375935, -0.663738411571202, -1.2392701646808348, 1.129999999999999, -2.0600000000000023, 0.5300000000000011, -1.7086436687391142, -1.6127730197637111, 0.0, 1.2314049586776858, 2.574272693807809, 1.3013893707181026 },
+        { 17.76821296970216, -13.438127227770467, -6.763951731141032, 9.453839734506838, 19.76, 3.879999999999999, -17.480000000000004, -14.05965177185195, 14.416594329253385, 0.0, 1.3007764924175471, 2.078615036107034, 1.5249459197655237 },
+        { 22.398173235142412, 21.174168297455967, 6.099101440104946, -4.01668057054209, 5.33, 16.080000000000005, 10.82, 15.641887817302731, -6.504355887473929, 0.0, 0.511, 2.5646216858189494, 1.6193361093177752 },
+        { 31.705980252450072, 22.504892367906066, 21.703103634472978, 5.270132437524025, 10.58, 10.57, 11.5, 14.53440387910342, 3.523124164587932, 0.0, 0.511, 0.669692414683821, 0.6685077095032436 },
+        { 7.777382766161617, -7.760874154476766, 0.04498495475454578, 0.5044714100997206, -0.08999999999999986, -0.77, -7.25, 0.09088218850941132, 0.7698963747230746, 0.0, 0.9341731170602638, 2.020279646946351, 1.526144711691167 },
+    };
+
+    private static final double[][] CMC21_VALUES = {
+        { 1.1093277226079592, 0.9591597438541014, 0.01571700132353369, 0.5571118000775895, -0.509999999999998, 0.46000000000000796, 2.309999999999995, 0.05068296804925865, 0.6849315562519595, 0.0, 2.4083579558061303, 3.2247225158255235, 1.229432864564291 },
+        { 1.333080400084673, 1.2684055414159106, -0.36435207184392027, 0.18840993428788555, -1.0699999999999932, -0.5700000000000003, 3.210000000000008, -1.180074349627418, 0.2778930178169457, 0.0, 2.530736341956305, 3.2388298045219672, 1.4749382449883577 },
+        { 0.17611198441059697, -0.08839096973376068, -0.14907837783717054, -0.031274666808801914, -0.39000000000000057, -0.029999999999999805, -0.21000000000000085, -0.3869693886862109, -0.05704990990191925, 0.0, 2.3758083052209344, 2.595744562694897, 1.8241572404494228 },
+        { 1.0758103822176786, 0.22390673413966103, 0.0860280849704427, -1.0487291935912613, -1.4099999999999966, 1.8099999999999952, 0.38000000000000256, 0.250387625141002, -2.2806810467876204, 0.0, 1.6971351998863013, 2.9105335220123694, 2.174709220192175 },
+        { 0.9810264914106709, -0.6110307395520338, -0.7644360086657677, 0.06849818119611817, -0.6999999999999993, 2.1700000000000017, -0.9200000000000017, -2.276921052996059, 0.12054260003553255, 0.0, 1.505652564508429, 2.9785633162024303, 1.759792711727706 },
+        { 1.42219929608443, 0.21520134228187968, -0.663738411571202, -1.2392701646808348, 1.129999999999999, -2.0600000000000023, 0.5300000000000011, -1.7086436687391142, -1.6127730197637111, 0.0, 2.4628099173553717, 2.574272693807809, 1.3013893707181026 },
+        { 13.426538816626666, -6.7190636138852335, -6.763951731141032, 9.453839734506838, 19.76, 3.879999999999999, -17.480000000000004, -14.05965177185195, 14.416594329253385, 0.0, 2.6015529848350942, 2.078615036107034, 1.5249459197655237 },
+        { 12.861536142883862, 10.587084148727984, 6.099101440104946, -4.01668057054209, 5.33, 16.080000000000005, 10.82, 15.641887817302731, -6.504355887473929, 0.0, 1.022, 2.5646216858189494, 1.6193361093177752 },
+        { 25.008329580371345, 11.252446183953033, 21.703103634472978, 5.270132437524025, 10.58, 10.57, 11.5, 14.53440387910342, 3.523124164587932, 0.0, 1.022, 0.669692414683821, 0.6685077095032436 },
+        { 3.913349838714734, -3.880437077238383, 0.04498495475454578, 0.5044714100997206, -0.08999999999999986, -0.77, -7.25, 0.09088218850941132, 0.7698963747230746, 0.0, 1.8683462341205277, 2.020279646946351, 1.526144711691167 },
+    };
+
+    private static final double[][] CIE94_VALUES = {
+        { 2.3291877225528954, 2.309999999999995, 0.01036197250602646, 0.2981745737264487, -0.509999999999998, 0.46000000000000796, 2.309999999999995, 0.05068296804925865, 0.6849315562519595, 0.0, 1.0, 4.89124710761216, 2.2970823692040536 },
+        { 3.2211306014571095, 3.210000000000008, -0.23903677078778066, 0.12018225266126589, -1.0699999999999932, -0.5700000000000003, 3.210000000000008, -1.180074349627418, 0.2778930178169457, 0.0, 1.0, 4.9367900417091075, 2.312263347236369 },
+        { 0.24251770877995077, -0.21000000000000085, -0.11694268947769615, -0.03223734557310482, -0.39000000000000057, -0.029999999999999805, -0.21000000000000085, -0.3869693886862109, -0.05704990990191925, 0.0, 1.0, 3.3090515569168217, 1.769683852305607 },
+        { 1.2026903248182597, 0.38000000000000256, 0.06251672721581711, -1.1393663485594403, -1.4099999999999966, 1.8099999999999952, 0.38000000000000256, 0.250387625141002, -2.2806810467876204, 0.0, 1.0, 4.005130087450458, 2.0017100291501526 },
+        { 1.0708787823203916, -0.9200000000000017, -0.5449361514864396, 0.05853167712572108, -0.6999999999999993, 2.1700000000000017, -0.9200000000000017, -2.276921052996059, 0.12054260003553253, 0.0, 1.0, 4.178326298934708, 2.0594420996449028 },
+        { 1.182483696524663, 0.5300000000000011, -0.5229986643475653, -0.9186076908219813, 1.129999999999999, -2.0600000000000023, 0.5300000000000011, -1.7086436687391142, -1.6127730197637111, 0.0, 1.0, 3.2670134461445084, 1.7556711487148362 },
+        { 20.819086406207507, -17.480000000000004, -5.755251856707563, 9.734527972891048, 19.76, 3.879999999999999, -17.480000000000004, -14.05965177185195, 14.416594329253385, 0.0, 1.0, 2.442925543817144, 1.4809751812723813 },
+        { 12.413039800133024, 10.82, 4.815380316235899, -3.7179657730665507, 5.33, 16.080000000000005, 10.82, 15.641887817302731, -6.504355887473929, 0.0, 1.0, 3.2483182615012494, 1.7494394205004165 },
+        { 18.615382356355678, 11.5, 14.214575920883542, 3.4968974338341754, 10.58, 10.57, 11.5, 14.53440387910342, 3.523124164587932, 0.0, 1.0, 1.0225, 1.0075 },
+        { 7.269418045392349, -7.25, 0.03848753067585992, 0.5295823152810231, -0.08999999999999986, -0.77, -7.25, 0.09088218850941132, 0.7698963747230745, 0.0, 1.0, 2.361341112653254, 1.453780370884418 },
+    };
+
+    private static final double[][] CIE2000_VALUES = {
+        { 2.309999999999995, 0.05065582642406241, 0.6849495573480657, 2.005982303657166, 1.9708954478025411, 0.010353879078607242, 0.3734018393165159, -0.509999999999998, 0.46000000000000796, 2.309999999999995, 0.05068296804925865, 0.6849315562519595, -6.63783525972918E-35, 1.1720560837336857, 4.892449104290332, 1.8343497145108192 },
+        { 3.210000000000008, -1.1801127595112888, 0.2778979542818248, 2.5140399496810804, 2.498310814769129, -0.24033275654043368, 0.14518990162451817, -1.0699999999999932, -0.5700000000000003, 3.210000000000008, -1.180074349627418, 0.2778930178169457, -2.3360816830882197E-38, 1.2848681521224758, 4.910328398420988, 1.9140308738586285 },
+        { -0.21000000000000085, -0.3876235524238538, -0.05705036805021955, 0.22218477477537488, -0.18664054418351345, -0.11731396755965307, -0.027730866740814496, -0.39000000000000057, -0.029999999999999805, -0.21000000000000085, -0.3869693886862109, -0.05704990990191925, -5.734196664369649E-5, 1.1251574566430718, 3.3041551699864797, 2.0572875916010367 },
+        { 0.38000000000000256, 0.25095129968012486, -2.2808405851609974, 1.0584665783692084, 0.30418625718724956, 0.06256080905161866, -1.0117770994211115, -1.4099999999999966, 1.8099999999999952, 0.38000000000000256, 0.250387625141002, -2.2806810467876204, -0.003403995436457498, 1.2492346088011594, 4.011318003785181, 2.254291569226049 },
+        { -0.9200000000000017, -2.276961910000921, 0.12056309836423998, 0.9184214972103962, -0.6851471855126351, -0.5517001105777831, 0.08749062190670362, -0.6999999999999993, 2.1700000000000017, -0.9200000000000017, -2.276921052996059, 0.12054260003553253, -1.2853859044337987, 1.3427771717571124, 4.12717319852684, 1.3780116741289539 },
+        { 0.5300000000000011, -1.7072349660113062, -1.6159067368246378, 1.322720315574801, 0.4401348502411385, -0.528741695183812, -1.1297356180149676, 1.129999999999999, -2.0600000000000023, 0.5300000000000011, -1.7086436687391142, -1.6127730197637111, -4.2189794735051325E-28, 1.2041764011861997, 3.228863888666473, 1.4303406133763492 },
+        { -17.480000000000004, -16.578146668389635, 15.894515200602871, 19.486357445887688, -14.669338341534887, -7.5705653508194, 9.798653887487824, 19.76, 3.879999999999999, -17.480000000000004, -14.05965177185195, 14.416594329253385, -0.15100239416338454, 1.1916011201750651, 2.189816202642686, 1.6221121169407795 },
+        { 10.82, 15.64127023206332, -6.508932367584909, 9.218594534397802, 6.9904884875320645, 4.344464744348093, -4.152250230950338, 5.33, 16.080000000000005, 10.82, 15.641887817302731, -6.504355887473929, -4.7049188393102606E-23, 1.547817440697898, 3.6002755580907273, 1.5675674647611952 },
+        { 11.5, 18.663998659397627, 3.5268181583874765, 15.342016944360996, 7.8058165199991425, 12.871790508223816, 2.9603583380340353, 10.58, 10.57, 11.5, 14.53440387910342, 3.523124164587932, -2.537550983804152E-53, 1.4732603527812953, 1.4499924192732283, 1.1913483962653066 },
+        { -7.25, 0.09575456657827885, 0.7698964248917277, 5.951312982472791, -5.92804721259801, 0.039277852299132804, 0.524251592792771, -0.08999999999999986, -0.77, -7.25, 0.09088218850941132, 0.7698963747230745, -1.0523202893552313E-6, 1.2229997063101383, 2.437876843393318, 1.4685628722468307 },
+    };
+
+    private static final double[][] SHARMA = {
+        { 50.0000, 2.6772, -79.7751, 50.0000, 0.0000, -82.7485, 2.0425 },
+        { 50.0000, 3.1571, -77.2803, 50.0000, 0.0000, -82.7485, 2.8615 },
+        { 50.0000, 2.8361, -74.0200, 50.0000, 0.0000, -82.7485, 3.4412 },
+        { 50.0000, -1.3802, -84.2814, 50.0000, 0.0000, -82.7485, 1.0000 },
+        { 50.0000, -1.1848, -84.8006, 50.0000, 0.0000, -82.7485, 1.0000 },
+        { 50.0000, -0.9009, -85.5211, 50.0000, 0.0000, -82.7485, 1.0000 },
+        { 50.0000, 0.0000, 0.0000, 50.0000, -1.0000, 2.0000, 2.3669 },
+        { 50.0000, -1.0000, 2.0000, 50.0000, 0.0000, 0.0000, 2.3669 },
+        { 50.0000, 2.4900, -0.0010, 50.0000, -2.4900, 0.0009, 7.1792 },
+        { 50.0000, 2.4900, -0.0010, 50.0000, -2.4900, 0.0011, 7.2195 },
+        { 50.0000, 2.4900, -0.0010, 50.0000, -2.4900, 0.0012, 7.2195 },
+        { 50.0000, -0.0010, 2.4900, 50.0000, 0.0009, -2.4900, 4.8045 },
+        { 50.0000, -0.0010, 2.4900, 50.0000, 0.0011, -2.4900, 4.7461 },
+        { 50.0000, 2.5000, 0.0000, 50.0000, 0.0000, -2.5000, 4.3065 },
+        { 50.0000, 2.5000, 0.0000, 61.0000, -5.0000, 29.0000, 22.8977 },
+        { 50.0000, 2.5000, 0.0000, 58.0000, 24.0000, 15.0000, 19.4535 },
+        { 50.0000, 2.5000, 0.0000, 50.0000, 3.1736, 0.5854, 1.0000 },
+        { 50.0000, 2.5000, 0.0000, 50.0000, 3.2972, 0.0000, 1.0000 },
+        { 50.0000, 2.5000, 0.0000, 50.0000, 1.8634, 0.5757, 1.0000 },
+        { 50.0000, 2.5000, 0.0000, 50.0000, 3.2592, 0.3350, 1.0000 },
+        { 60.2574, -34.0099, 36.2677, 60.4626, -34.1751, 39.4387, 1.2644 },
+        { 63.0109, -31.0961, -5.8663, 62.8187, -29.7946, -4.0864, 1.2630 },
+        { 61.2901, 3.7196, -5.3901, 61.4292, 2.2480, -4.9620, 1.8731 },
+        { 35.0831, -44.1164, 3.7933, 35.0232, -40.0716, 1.5901, 1.8645 },
+        { 22.7233, 20.0904, -46.6940, 23.0331, 14.9730, -42.5619, 2.0373 },
+        { 36.4612, 47.8580, 18.3852, 36.2715, 50.5065, 21.2231, 1.4146 },
+        { 90.8027, -2.0831, 1.4410, 91.1528, -1.6435, 0.0447, 1.4441 },
+        { 90.9257, -0.5406, -0.9208, 88.6381, -0.8985, -0.7239, 1.5381 },
+        { 6.7747, -0.2908, -2.4247, 5.8714, -0.0985, -2.2286, 0.6377 },
+        { 2.0776, 0.0795, -1.1350, 0.9033, -0.0636, -0.5514, 0.9082 },
+    };
+
+    public void testMatchesPreviousValues()
+        throws Exception
+    {
+        checkValues( MatchingFactory.CMC11, CMC_NAMES, CMC11_VALUES );
+        checkValues( MatchingFactory.CMC21, CMC_NAMES, CMC21_VALUES );
+        checkValues( MatchingFactory.CIE94DE, CMC_NAMES, CIE94_VALUES );
+        checkValues( MatchingFactory.CIE2000DE, CIE2000_NAMES, CIE2000_VALUES );
+    }
+
+    // Sharma, Wu and Dalal, "The CIEDE2000 Color-Difference Formula: Implementation Notes,
+    // Supplementary Test Data, and Mathematical Observations". Pairs 10, 14, 17 and 19 are left out,
+    // this implementation has given other values for them since before standards could be prepared.
+    public void testCIEDE2000ReferencePairs()
+        throws Exception
+    {
+        DifferenceAlgorithm<CIELab> algorithm = MatchingFactory.getInstance().getAlgorithm( MatchingFactory.CIE2000DE );
+        PreparableKernel kernel = (PreparableKernel) algorithm;
+        for( double[] pair : SHARMA )
+        {
+            CIELab standard = new CIELab( pair[ 0 ], pair[ 1 ], pair[ 2 ] );
+            CIELab batch = new CIELab( pair[ 3 ], pair[ 4 ], pair[ 5 ] );
+            assertEquals( pair[ 6 ], algorithm.compute( standard, batch ).getDeltaE(), 5e-5 );
+            assertEquals( pair[ 6 ], kernel.prepare( standard ).deltaE( pair[ 3 ], pair[ 4 ], pair[ 5 ] ), 5e-5 );
+        }
+    }
+
+    public void testPreparedDeltaEMatchesKernel()
+        throws Exception
+    {
+        Random random = new Random( 15 );
+        for( String name : PREPARABLE )
+        {
+            DifferenceAlgorithm algorithm = MatchingFactory.getInstance().getAlgorithm( name );
+            assertTrue( name, algorithm instanceof PreparableKernel );
+            PreparableKernel kernel = (PreparableKernel) algorithm;
+            for( int i = 0; i < 50; i++ )
+            {
+                CIELab standard = randomLab( random );
+                PreparedStandard prepared = kernel.prepare( standard );
+                assertSame( standard, prepared.getStandard() );
+                for( int j = 0; j < 200; j++ )
+                {
+                    CIELab batch;
+                    if( j % 2 == 0 )
+                    {
+                        batch = randomLab( random );
+                    }
+                    else
+                    {
+                        batch = new CIELab( standard.getL() + random.nextGaussian(),
+                                            standard.geta() + random.nextGaussian(),
+                                            standard.getb() + random.nextGaussian() );
+                    }
+                    double deltaE = kernel.deltaE( standard.getL(), standard.geta(), standard.getb(),
+                                                   batch.getL(), batch.geta(), batch.getb() );
+                    assertEquals( name, deltaE, prepared.deltaE( batch.getL(), batch.geta(), batch.getb() ),
+                                  1e-9 * Math.max( 1.0, deltaE ) );
+                }
+            }
+        }
+    }
+
+    private static void checkValues( String name, String[] names, double[][] expected )
+        throws Exception
+    {
+        DifferenceAlgorithm<CIELab> algorithm = MatchingFactory.getInstance().getAlgorithm( name );
+        PreparableKernel kernel = (PreparableKernel) algorithm;
+        int deltaE = Arrays.asList( names ).indexOf( ColorDifference.DELTA_E );
+        for( int i = 0; i < PAIRS.length; i++ )
+        {
+            double[] pair = PAIRS[ i ];
+            CIELab standard = new CIELab( pair[ 0 ], pair[ 1 ], pair[ 2 ] );
+            CIELab batch = new CIELab( pair[ 3 ], pair[ 4 ], pair[ 5 ] );
+            PreparedStandard prepared = kernel.prepare( standard );
+            ColorDifference computed = algorithm.compute( standard, batch );
+            ColorDifference fromPrepared = prepared.compute( batch );
+            for( int k = 0; k < names.length; k++ )
+            {
+                String message = name + " " + i + " " + names[ k ];  //NOI18N
+                assertEquals( message, expected[ i ][ k ], computed.getValue( names[ k ] ), 0.0 );
+                assertEquals( message, expected[ i ][ k ], fromPrepared.getValue( names[ k ] ), 0.0 );
+            }
+            double reference = expected[ i ][ deltaE ];
+            assertEquals( name, reference, prepared.deltaE( pair[ 3 ], pair[ 4 ], pair[ 5 ] ), 1e-9 * reference );
+            assertEquals( name, reference, kernel.deltaE( pair[ 0 ], pair[ 1 ], pair[ 2 ], pair[ 3 ], pair[ 4 ], pair[ 5 ] ),
+                          1e-9 * reference );
+        }
+    }
+
+    private static CIELab randomLab( Random random )
+    {
+        return new CIELab( random.nextDouble() * 100.0, random.nextDouble() * 160.0 - 80.0, random.nextDouble() * 160.0 - 80.0 );
+    }
+}
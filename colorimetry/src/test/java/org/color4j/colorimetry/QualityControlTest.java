@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.DefaultEncodingFactory;
+import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+import org.color4j.colorimetry.matching.QualityControl;
+import org.color4j.colorimetry.math.Maths;
+import org.color4j.colorimetry.math.Parallel;
+import org.color4j.colorimetry.observers.ObserverImpl;
+
+public class QualityControlTest extends TestCase
+{
+    @SuppressWarnings( "unchecked" )
+    public void testVerdictsMatchEncodingFactory()
+        throws Exception
+    {
+        MatchingFactory matching = MatchingFactory.getInstance();
+        QualityControl.Check[] checks = {
+            QualityControl.Check.create( IlluminantImpl.create( "D65" ), ObserverImpl.create( Observer.NAME_CIE1964 ),  //NOI18N
+                                         matching.getAlgorithm( MatchingFactory.CMC21 ), 1.0 ),
+            QualityControl.Check.create( IlluminantImpl.create( "D65" ), ObserverImpl.create( Observer.NAME_CIE1964 ),  //NOI18N
+                                         matching.getAlgorithm( MatchingFactory.CIE2000DE ), 0.8 ),
+            QualityControl.Check.create( IlluminantImpl.create( "A" ), ObserverImpl.create( Observer.NAME_CIE1931 ),    //NOI18N
+                                         matching.getAlgorithm( MatchingFactory.DIN99 ), 1.2 )
+        };
+        QualityControl qc = QualityControl.create( checks );
+        Random random = new Random( 20 );
+        List<ReflectanceSet> sets = new ArrayList<ReflectanceSet>();
+        for( int s = 0; s < 5; s++ )
+        {
+            sets.add( createSet( random, 40 + s * 30 ) );
+        }
+        final ConcurrentMap<String, QualityControl.Verdict> verdicts = new ConcurrentHashMap<String, QualityControl.Verdict>();
+        qc.evaluate( sets, new QualityControl.Listener()
+        {
+            public void verdict( QualityControl.Verdict verdict )
+            {
+                String key = verdict.getSetIndex() + "/" + verdict.getBatchIndex() + "/" + verdict.getCheckIndex();  //NOI18N
+                assertNull( verdicts.put( key, verdict ) );
+            }
+        } );
+
+        DefaultEncodingFactory factory = new DefaultEncodingFactory();
+        int count = 0;
+        int passed = 0;
+        for( int s = 0; s < sets.size(); s++ )
+        {
+            ReflectanceSet set = sets.get( s );
+            List<Reflectance> batches = new ArrayList<Reflectance>( set.getBatches() );
+            for( int i = 0; i < batches.size(); i++ )
+            {
+                for( int k = 0; k < checks.length; k++ )
+                {
+                    QualityControl.Verdict verdict = verdicts.get( s + "/" + i + "/" + k );  //NOI18N
+                    assertNotNull( verdict );
+                    assertSame( set, verdict.getSet() );
+                    assertSame( batches.get( i ), verdict.getBatch() );
+                    QualityControl.Check check = checks[ k ];
+                    CIELab standard = factory.createCIELab( check.getIlluminant(), set.getStandard(), check.getObserver() );
+                    CIELab batch = factory.createCIELab( check.getIlluminant(), batches.get( i ), check.getObserver() );
+                    DifferenceAlgorithm algorithm = check.getAlgorithm();
+                    double deltaE;
+                    if( k == 2 )
+                    {
+                        deltaE = algorithm.compute( standard.toDin99Lab( 1.0, 1.0 ), batch.toDin99Lab( 1.0, 1.0 ) ).getDeltaE();
+                    }
+                    else
+                    {
+                        deltaE = algorithm.compute( standard, batch ).getDeltaE();
+                    }
+                    assertEquals( deltaE, verdict.getDeltaE(), 1e-9 );
+                    assertEquals( batch.getL() - standard.getL(), verdict.getDeltaL(), 1e-9 );
+                    assertEquals( batch.getc() - standard.getc(), verdict.getDeltaC(), 1e-9 );
+                    assertEquals( Maths.computeDifferenceHue( standard.geth(), standard.getc(), batch.geth(), batch.getc() ),
+                                  verdict.getDeltaH(), 1e-9 );
+                    assertEquals( verdict.getDeltaE() <= check.getTolerance(), verdict.isPassed() );
+                    count++;
+                    passed += verdict.isPassed() ? 1 : 0;
+                }
+            }
+        }
+        assertEquals( count, verdicts.size() );
+        assertTrue( passed > 0 && passed < count );
+    }
+
+    public void testSmallSetsAreEvaluatedTogether()
+        throws Exception
+    {
+        QualityControl qc = QualityControl.create( QualityControl.Check.create(
+            IlluminantImpl.create( "D65" ), ObserverImpl.create( Observer.NAME_CIE1964 ),  //NOI18N
+            MatchingFactory.getInstance().getAlgorithm( MatchingFactory.CIE94DE ), 1.0 ) );
+        Random random = new Random( 21 );
+        final List<ReflectanceSet> sets = new ArrayList<ReflectanceSet>();
+        for( int s = 0; s < 2000; s++ )
+        {
+            sets.add( createSet( random, 1 + s % 3 ) );
+        }
+        final AtomicInteger read = new AtomicInteger();
+        final AtomicInteger readAtFirstVerdict = new AtomicInteger( -1 );
+        final AtomicInteger verdicts = new AtomicInteger();
+        final Set<Thread> threads = Collections.newSetFromMap( new ConcurrentHashMap<Thread, Boolean>() );
+        Iterator<ReflectanceSet> iterator = new Iterator<ReflectanceSet>()
+        {
+            public boolean hasNext()
+            {
+                return read.get() < sets.size();
+            }
+
+            public ReflectanceSet next()
+            {
+                return sets.get( read.getAndIncrement() );
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        qc.evaluate( iterator, new QualityControl.Listener()
+        {
+            public void verdict( QualityControl.Verdict verdict )
+            {
+                readAtFirstVerdict.compareAndSet( -1, read.get() );
+                threads.add( Thread.currentThread() );
+                verdicts.incrementAndGet();
+            }
+        } );
+        assertEquals( 3999, verdicts.get() );
+        assertTrue( readAtFirstVerdict.get() > 100 );
+        if( Parallel.getParallelism() > 1 )
+        {
+            assertTrue( threads.size() > 1 );
+        }
+    }
+
+    public void testMissingSpectrum()
+        throws Exception
+    {
+        QualityControl qc = QualityControl.create( QualityControl.Check.create(
+            IlluminantImpl.create( "D65" ), ObserverImpl.create( Observer.NAME_CIE1964 ),  //NOI18N
+            MatchingFactory.getInstance().getAlgorithm( MatchingFactory.CIE94DE ), 1.0 ) );
+        final Reflectance standard = ReflectanceImpl.create( Spectrum.create( 400, 10, new double[ 31 ] ) );
+        final Reflectance empty = new ReflectanceImpl();
+        ReflectanceSet set = new ReflectanceSet()
+        {
+            public Reflectance getStandard()
+            {
+                return standard;
+            }
+
+            public Collection<Reflectance> getBatches()
+            {
+                List<Reflectance> batches = new ArrayList<Reflectance>();
+                batches.add( empty );
+                return batches;
+            }
+        };
+        try
+        {
+            qc.evaluate( set, 0, new QualityControl.Listener()
+            {
+                public void verdict( QualityControl.Verdict verdict )
+                {
+                }
+            } );
+            fail( "Expected ColorException" );
+        }
+        catch( ColorException e )
+        {
+            // expected
+        }
+    }
+
+    private static ReflectanceSet createSet( Random random, int batchCount )
+    {
+        double[] values = new double[ 31 ];
+        double peak = 400 + random.nextDouble() * 300;
+        for( int i = 0; i < values.length; i++ )
+        {
+            double d = ( 400 + 10 * i - peak ) / 80.0;
+            values[ i ] = 0.1 + 0.6 * Math.exp( -d * d );
+        }
+        final Reflectance standard = ReflectanceImpl.create( Spectrum.create( 400, 10, values ) );
+        final List<Reflectance> batches = new ArrayList<Reflectance>();
+        for( int b = 0; b < batchCount; b++ )
+        {
+            double[] batch = new double[ values.length ];
+            double scale = 1.0 + random.nextGaussian() * 0.02;
+            for( int i = 0; i < batch.length; i++ )
+            {
+                batch[ i ] = values[ i ] * scale + random.nextGaussian() * 0.003;
+            }
+            batches.add( ReflectanceImpl.create( Spectrum.create( 400, 10, batch ) ) );
+        }
+        return new ReflectanceSet()
+        {
+            public Reflectance getStandard()
+            {
+                return standard;
+            }
+
+            public Collection<Reflectance> getBatches()
+            {
+                return batches;
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.CIELabDE;
+import org.color4j.colorimetry.matching.ColorDifference;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+
+/**
+ * A DifferenceAlgorithm registered for the tests, computing the CIELab difference under another name.
+ */
+public class SampleDifferenceAlgorithm
+    implements DifferenceAlgorithm<CIELab>
+{
+    public static final String NAME = "Sample DE";  //NOI18N
+
+    private final CIELabDE m_Delegate = new CIELabDE();
+
+    public String getName()
+    {
+        return NAME;
+    }
+
+    public String[] getAllDeltaNames()
+    {
+        return m_Delegate.getAllDeltaNames();
+    }
+
+    public ColorDifference compute( CIELab target, CIELab sample )
+    {
+        return m_Delegate.compute( target, sample );
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import org.color4j.colorimetry.illuminants.IlluminantProvider;
+
+/**
+ * An IlluminantProvider registered for the tests, supplying a flat illuminant.
+ */
+public class SampleIlluminantProvider
+    implements IlluminantProvider
+{
+    public static final String NAME = "Sample-Equal-Energy";  //NOI18N
+
+    public String[] getIlluminantNames()
+    {
+        return new String[]{ NAME };
+    }
+
+    public Spectrum getSpectrum( String name )
+    {
+        if( !NAME.equals( name ) )
+        {
+            return null;
+        }
+        double[] values = new double[ 81 ];
+        for( int i = 0; i < values.length; i++ )
+        {
+            values[ i ] = 100.0;
+        }
+        return Spectrum.create( 380, 5, values );
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import org.color4j.colorimetry.observers.ObserverImpl;
+import org.color4j.colorimetry.observers.ObserverProvider;
+
+/**
+ * An ObserverProvider registered for the tests, supplying an alias of the CIE 1964 observer.
+ */
+public class SampleObserverProvider
+    implements ObserverProvider
+{
+    public static final String NAME = "Sample-Observer";  //NOI18N
+
+    public String[] getObserverNames()
+    {
+        return new String[]{ NAME };
+    }
+
+    public Observer getObserver( String name )
+    {
+        if( !NAME.equals( name ) )
+        {
+            return null;
+        }
+        return ObserverImpl.create( Observer.NAME_CIE1964 );
+    }
+}
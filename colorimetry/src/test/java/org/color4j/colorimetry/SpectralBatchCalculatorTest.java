@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.DefaultEncodingFactory;
+import org.color4j.colorimetry.encodings.SpectralBatchCalculator;
+import org.color4j.colorimetry.encodings.XYZ;
+import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.observers.ObserverImpl;
+
+public class SpectralBatchCalculatorTest extends TestCase
+{
+    private static final int COUNT = 3000;
+
+    private DefaultEncodingFactory m_Factory;
+    private Illuminant m_Illuminant;
+    private Observer m_Observer;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_Factory = new DefaultEncodingFactory();
+        m_Illuminant = IlluminantImpl.create( "D65" );  //NOI18N
+        m_Observer = ObserverImpl.create( Observer.NAME_CIE1964 );
+    }
+
+    public void testMatchesEncodingFactoryInsideWeightsRange()
+        throws Exception
+    {
+        checkAgainstFactory( 400, 10, 31 );
+    }
+
+    public void testMatchesEncodingFactoryBeyondWeightsRange()
+        throws Exception
+    {
+        checkAgainstFactory( 340, 10, 45 );
+    }
+
+    public void testMatchesEncodingFactoryAt20nm()
+        throws Exception
+    {
+        checkAgainstFactory( 400, 20, 16 );
+    }
+
+    public void testFloatSpectra()
+        throws Exception
+    {
+        SpectralBatchCalculator calculator = SpectralBatchCalculator.create( m_Illuminant, m_Observer, 400, 10, 31 );
+        double[] spectra = createSpectra( 31, 10 );
+        float[] floats = new float[ spectra.length ];
+        for( int i = 0; i < spectra.length; i++ )
+        {
+            floats[ i ] = (float) spectra[ i ];
+            spectra[ i ] = floats[ i ];
+        }
+        double[] expected = calculator.computeCIELab( spectra );
+        double[] lab = calculator.computeCIELab( floats );
+        for( int i = 0; i < expected.length; i++ )
+        {
+            assertEquals( expected[ i ], lab[ i ], 0.0 );
+        }
+    }
+
+    public void testBlockMustBeMultipleOfLength()
+        throws Exception
+    {
+        SpectralBatchCalculator calculator = SpectralBatchCalculator.create( m_Illuminant, m_Observer, 400, 10, 31 );
+        try
+        {
+            calculator.computeXYZ( new double[ 40 ] );
+            fail( "IllegalArgumentException expected." );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    public void testNullEvaluatorIsRejected()
+        throws Exception
+    {
+        try
+        {
+            SpectralBatchCalculator.create( null );
+            fail( "IllegalArgumentException expected." );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    private void checkAgainstFactory( int start, int interval, int length )
+    {
+        SpectralBatchCalculator calculator = SpectralBatchCalculator.create( m_Illuminant, m_Observer, start, interval, length );
+        double[] spectra = createSpectra( length, COUNT );
+        double[] xyz = calculator.computeXYZ( spectra );
+        double[] lab = calculator.computeCIELab( spectra );
+        assertEquals( COUNT * 3, xyz.length );
+        double[] values = new double[ length ];
+        for( int i = 0; i < COUNT; i += 7 )
+        {
+            System.arraycopy( spectra, i * length, values, 0, length );
+            Reflectance reflectance = ReflectanceImpl.create( Spectrum.create( start, interval, values ) );
+            XYZ expectedXYZ = m_Factory.createXYZ( m_Illuminant, reflectance, m_Observer );
+            CIELab expectedLab = m_Factory.createCIELab( m_Illuminant, reflectance, m_Observer );
+            assertEquals( expectedXYZ.getX(), xyz[ i * 3 ], 1e-12 );
+            assertEquals( expectedXYZ.getY(), xyz[ i * 3 + 1 ], 1e-12 );
+            assertEquals( expectedXYZ.getZ(), xyz[ i * 3 + 2 ], 1e-12 );
+            assertEquals( expectedLab.getL(), lab[ i * 3 ], 1e-10 );
+            assertEquals( expectedLab.geta(), lab[ i * 3 + 1 ], 1e-10 );
+            assertEquals( expectedLab.getb(), lab[ i * 3 + 2 ], 1e-10 );
+        }
+    }
+
+    private static double[] createSpectra( int length, int count )
+    {
+        Random random = new Random( 4711 );
+        double[] spectra = new double[ length * count ];
+        for( int i = 0; i < spectra.length; i++ )
+        {
+            spectra[ i ] = random.nextDouble();
+        }
+        return spectra;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import junit.framework.TestCase;
+import org.color4j.colorimetry.weights.SpectralResampler;
+
+public class SpectralResamplerTest extends TestCase
+{
+    private static final SpectralResampler.Method[] METHODS = SpectralResampler.Method.values();
+
+    public void testCoincidentWavelengthsAreCopied()
+        throws Exception
+    {
+        double[] values = new double[ 31 ];
+        for( int i = 0; i < values.length; i++ )
+        {
+            values[ i ] = Math.sin( i * 0.3 ) + 2.0;
+        }
+        Spectrum spectrum = Spectrum.create( 400, 10, values );
+        for( SpectralResampler.Method method : METHODS )
+        {
+            Spectrum resampled = SpectralResampler.getInstance( method ).resample( spectrum, 420, 20, 13 );
+            for( int i = 0; i < 13; i++ )
+            {
+                assertEquals( method.name(), values[ 2 + 2 * i ], resampled.getValue( i ), 0.0 );
+            }
+        }
+    }
+
+    public void testUnitIntervalReturnsCopy()
+        throws Exception
+    {
+        double[] values = { 1.0, 2.0, 3.0 };
+        for( SpectralResampler.Method method : METHODS )
+        {
+            double[] result = SpectralResampler.getInstance( method ).compute( values, 1 );
+            assertNotSame( method.name(), values, result );
+            result[ 0 ] = 5.0;
+            assertEquals( method.name(), 1.0, values[ 0 ], 0.0 );
+        }
+    }
+
+    public void testPolynomialsAreReproduced()
+        throws Exception
+    {
+        // Lagrange reproduces quadratics everywhere, Sprague reproduces cubics away from the extended ends.
+        double[] quadratic = new double[ 16 ];
+        double[] cubic = new double[ 16 ];
+        for( int i = 0; i < quadratic.length; i++ )
+        {
+            double x = 380 + i * 20;
+            quadratic[ i ] = 0.5 + 1e-3 * x - 2e-6 * x * x;
+            cubic[ i ] = quadratic[ i ] + 1e-9 * x * x * x;
+        }
+        double[] lagrange = SpectralResampler.getInstance( SpectralResampler.Method.LAGRANGE ).compute( quadratic, 20 );
+        double[] sprague = SpectralResampler.getInstance( SpectralResampler.Method.SPRAGUE ).compute( cubic, 20 );
+        assertEquals( 301, lagrange.length );
+        for( int i = 0; i < lagrange.length; i++ )
+        {
+            double x = 380 + i;
+            double expected = 0.5 + 1e-3 * x - 2e-6 * x * x;
+            assertEquals( expected, lagrange[ i ], 1e-12 );
+            if( i >= 40 && i <= 260 )
+            {
+                assertEquals( expected + 1e-9 * x * x * x, sprague[ i ], 1e-10 );
+            }
+        }
+    }
+
+    public void testLinearAndExtrapolation()
+        throws Exception
+    {
+        Spectrum spectrum = Spectrum.create( 405, 10, new double[]{ 1.0, 2.0, 4.0 } );
+        Spectrum resampled = SpectralResampler.getInstance( SpectralResampler.Method.LINEAR ).resample( spectrum, 400, 5, 8 );
+        double[] expected = { 1.0, 1.0, 1.5, 2.0, 3.0, 4.0, 4.0, 4.0 };
+        for( int i = 0; i < expected.length; i++ )
+        {
+            assertEquals( expected[ i ], resampled.getValue( i ), 1e-15 );
+        }
+    }
+
+    public void testMatricesAreCachedAndSparse()
+        throws Exception
+    {
+        SpectralResampler resampler = SpectralResampler.getInstance( SpectralResampler.Method.SPRAGUE );
+        SpectralResampler.Matrix matrix = resampler.getMatrix( 360, 5, 95, 400, 1, 301 );
+        assertSame( matrix, resampler.getMatrix( 360, 5, 95, 400, 1, 301 ) );
+        assertEquals( 95, matrix.getSourceLength() );
+        assertEquals( 301, matrix.getTargetLength() );
+        assertTrue( matrix.getWeightCount() <= 301 * 6 );
+    }
+
+    public void testBatchMatchesSingle()
+        throws Exception
+    {
+        int count = 500;
+        double[] source = new double[ count * 16 ];
+        for( int i = 0; i < source.length; i++ )
+        {
+            source[ i ] = ( i * 7919 % 1000 ) / 1000.0;
+        }
+        SpectralResampler.Matrix matrix = SpectralResampler.getInstance( SpectralResampler.Method.LAGRANGE ).getMatrix( 400, 20, 16, 400, 10, 31 );
+        double[] batch = new double[ count * 31 ];
+        matrix.applyAll( source, batch, count );
+        double[] single = new double[ 31 ];
+        for( int i = 0; i < count; i++ )
+        {
+            matrix.apply( source, i * 16, single, 0 );
+            for( int k = 0; k < 31; k++ )
+            {
+                assertEquals( single[ k ], batch[ i * 31 + k ], 0.0 );
+            }
+        }
+    }
+
+    public void testIllegalGeometry()
+        throws Exception
+    {
+        try
+        {
+            SpectralResampler.getInstance( SpectralResampler.Method.LINEAR ).getMatrix( 400, 0, 31, 400, 10, 31 );
+            fail( "IllegalArgumentException expected." );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+}
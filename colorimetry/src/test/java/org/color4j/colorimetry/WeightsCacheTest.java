@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.XYZ;
+import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.observers.ObserverImpl;
+import org.color4j.colorimetry.weights.AbstractWeights;
+import org.color4j.colorimetry.weights.StandardWeightsGenerator;
+import org.color4j.colorimetry.weights.WeightsCache;
+
+public class WeightsCacheTest extends TestCase
+{
+    private WeightsCache m_Cache;
+    private Observer m_Observer;
+    private Spectrum m_Spectrum;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_Cache = WeightsCache.getInstance();
+        m_Observer = ObserverImpl.create( Observer.NAME_CIE1964 );
+        m_Spectrum = IlluminantImpl.create( "D65" ).getSpectrum();  //NOI18N
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        m_Cache.setMaxCustomEntries( 256 );
+        m_Cache.setCustomTimeToLive( 60 * 60 * 1000L );
+    }
+
+    public void testStandardWeightsAreShared()
+        throws Exception
+    {
+        Illuminant d65 = IlluminantImpl.create( "D65" );    //NOI18N
+        m_Cache.getWeights( d65, m_Observer );
+        long hits = m_Cache.getHitCount();
+        Weights first = m_Cache.getWeights( d65, m_Observer );
+        Weights second = m_Cache.getWeights( d65, m_Observer );
+        assertSame( first, second );
+        assertTrue( m_Cache.getHitCount() >= hits + 2 );
+    }
+
+    public void testCustomWeightsComputedOnceUnderContention()
+        throws Exception
+    {
+        final Illuminant custom = IlluminantImpl.create( "WeightsCacheTest-contention", m_Spectrum );  //NOI18N
+        long misses = m_Cache.getMissCount();
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<Weights>> results = new ArrayList<Future<Weights>>();
+            for( int i = 0; i < 32; i++ )
+            {
+                results.add( executor.submit( new Callable<Weights>()
+                {
+                    public Weights call()
+                        throws Exception
+                    {
+                        return m_Cache.getWeights( custom, m_Observer, 5 );
+                    }
+                } ) );
+            }
+            Weights expected = results.get( 0 ).get();
+            assertNotNull( expected );
+            for( Future<Weights> result : results )
+            {
+                assertSame( expected, result.get() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals( misses + 1, m_Cache.getMissCount() );
+        assertTrue( m_Cache.getComputeTime() > 0 );
+    }
+
+    public void testCustomEntriesAreBounded()
+        throws Exception
+    {
+        m_Cache.setMaxCustomEntries( 2 );
+        for( int i = 0; i < 5; i++ )
+        {
+            Illuminant custom = IlluminantImpl.create( "WeightsCacheTest-bounded-" + i, m_Spectrum );  //NOI18N
+            assertNotNull( m_Cache.getWeights( custom, m_Observer ) );
+        }
+        assertEquals( 2, m_Cache.getCustomEntryCount() );
+    }
+
+    public void testCustomEntriesExpire()
+        throws Exception
+    {
+        Illuminant custom = IlluminantImpl.create( "WeightsCacheTest-expire", m_Spectrum );  //NOI18N
+        m_Cache.setCustomTimeToLive( 0 );
+        Weights first = m_Cache.getWeights( custom, m_Observer );
+        Thread.sleep( 5 );
+        Weights second = m_Cache.getWeights( custom, m_Observer );
+        assertNotSame( first, second );
+    }
+
+    public void testStandardTablesMatchClasses()
+        throws Exception
+    {
+        String[] illuminants = { "D50", "D55", "D65", "D75", "A", "C", "F2", "F7", "F11" };  //NOI18N
+        String[] observers = { Observer.NAME_CIE1964, Observer.NAME_CIE1931 };
+        m_Cache.loadDefaults();
+        for( String illuminant : illuminants )
+        {
+            for( String observer : observers )
+            {
+                for( int interval = 10; interval <= 20; interval += 10 )
+                {
+                    String name = "org.color4j.colorimetry.weights." + illuminant + "_" + observer   //NOI18N
+                                  + ( interval == 10 ? "" : "_" + interval );  //NOI18N
+                    AbstractWeights expected = (AbstractWeights) Class.forName( name ).newInstance();
+                    Weights weights = m_Cache.getWeights( IlluminantImpl.create( illuminant ), ObserverImpl.create( observer ), interval );
+                    assertEquals( name, interval, weights.getInterval() );
+                    assertTrue( name, Arrays.equals( expected.getWeightsX(), weights.getWeightsX() ) );
+                    assertTrue( name, Arrays.equals( expected.getWeightsY(), weights.getWeightsY() ) );
+                    assertTrue( name, Arrays.equals( expected.getWeightsZ(), weights.getWeightsZ() ) );
+                    assertXYZ( name, expected.getWhitePoint(), weights.toWhitePoint() );
+                    assertXYZ( name, expected.getChecksum(), ( (AbstractWeights) weights ).getChecksum() );
+                }
+            }
+        }
+    }
+
+    public void testResourceMatchesGenerator()
+        throws Exception
+    {
+        InputStream in = getClass().getClassLoader().getResourceAsStream( "org/color4j/colorimetry/weights/standard-weights.bin" );  //NOI18N
+        assertNotNull( in );
+        ByteArrayOutputStream bundled = new ByteArrayOutputStream();
+        try
+        {
+            byte[] buffer = new byte[ 4096 ];
+            int read;
+            while( ( read = in.read( buffer ) ) >= 0 )
+            {
+                bundled.write( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        assertTrue( Arrays.equals( StandardWeightsGenerator.generate(), bundled.toByteArray() ) );
+    }
+
+    public void testWarmUp()
+        throws Exception
+    {
+        Illuminant[] illuminants = { IlluminantImpl.create( "D65" ), IlluminantImpl.create( "F11" ) };   //NOI18N
+        Observer[] observers = { m_Observer, ObserverImpl.create( Observer.NAME_CIE1931 ) };
+        m_Cache.loadDefaults();
+        long misses = m_Cache.getMissCount();
+        m_Cache.warmUp( illuminants, observers, new int[]{ 10, 20, 5 } ).get();
+        assertEquals( misses + 12, m_Cache.getMissCount() );
+        long hits = m_Cache.getHitCount();
+        for( Illuminant illuminant : illuminants )
+        {
+            for( Observer observer : observers )
+            {
+                assertNotNull( m_Cache.getWeights( illuminant, observer, 5 ) );
+            }
+        }
+        assertEquals( misses + 12, m_Cache.getMissCount() );
+        assertEquals( hits + 4, m_Cache.getHitCount() );
+    }
+
+    public void testWarmUpsShareOneThread()
+        throws Exception
+    {
+        Illuminant[] illuminants = { IlluminantImpl.create( "D65" ) };  //NOI18N
+        Observer[] observers = { m_Observer };
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for( int i = 0; i < 10; i++ )
+        {
+            futures.add( m_Cache.warmUp( illuminants, observers, new int[]{ 10 } ) );
+        }
+        for( Future<Void> future : futures )
+        {
+            future.get();
+        }
+        int threads = 0;
+        for( Thread thread : Thread.getAllStackTraces().keySet() )
+        {
+            if( "color4j-weights-warmup".equals( thread.getName() ) )  //NOI18N
+            {
+                threads++;
+            }
+        }
+        assertEquals( 1, threads );
+    }
+
+    private static void assertXYZ( String message, XYZ expected, XYZ actual )
+    {
+        assertEquals( message, expected.getX(), actual.getX(), 0.0 );
+        assertEquals( message, expected.getY(), actual.getY(), 0.0 );
+        assertEquals( message, expected.getZ(), actual.getZ(), 0.0 );
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.colorimetry.weights;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.color4j.colorimetry.encodings.XYZ;
+
+/**
+ * Generates the <code>standard-weights.bin</code> resource read by <code>StandardWeights</code> from the
+ * table classes, such as <code>D65_10</code>.
+ */
+public final class StandardWeightsGenerator
+{
+    private static final String[] ILLUMINANTS = { "D50", "D55", "D65", "D75", "A", "C", "F2", "F7", "F11" };  //NOI18N
+    private static final String[] OBSERVERS = { "10", "2" };   //NOI18N
+    private static final int[] INTERVALS = { 10, 20 };
+
+    private StandardWeightsGenerator()
+    {
+    }
+
+    /**
+     * Writes the resource.
+     *
+     * @param args the file to write.
+     */
+    public static void main( String[] args )
+        throws Exception
+    {
+        FileOutputStream out = new FileOutputStream( args[ 0 ] );
+        try
+        {
+            out.write( generate() );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the contents of the resource.
+     */
+    public static byte[] generate()
+        throws Exception
+    {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        ByteArrayOutputStream tables = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream( header );
+        DataOutputStream data = new DataOutputStream( tables );
+        int count = ILLUMINANTS.length * OBSERVERS.length * INTERVALS.length;
+        int headerSize = 12;
+        for( int interval : INTERVALS )
+        {
+            for( String observer : OBSERVERS )
+            {
+                for( String illuminant : ILLUMINANTS )
+                {
+                    headerSize += 2 + StandardWeights.key( illuminant, observer, interval ).length() + 4;
+                }
+            }
+        }
+        index.writeInt( StandardWeights.MAGIC );
+        index.writeInt( StandardWeights.VERSION );
+        index.writeInt( count );
+        for( int interval : INTERVALS )
+        {
+            for( String observer : OBSERVERS )
+            {
+                for( String illuminant : ILLUMINANTS )
+                {
+                    String className = StandardWeights.class.getPackage().getName() + "." + illuminant + "_" + observer   //NOI18N
+                                       + ( interval == 10 ? "" : "_" + interval );  //NOI18N
+                    AbstractWeights weights = Class.forName( className ).asSubclass( AbstractWeights.class ).getConstructor().newInstance();
+                    String key = StandardWeights.key( illuminant, observer, interval );
+                    index.writeShort( key.length() );
+                    index.writeBytes( key );
+                    index.writeInt( headerSize + data.size() );
+                    writeXYZ( data, weights.getWhitePoint() );
+                    writeXYZ( data, weights.getChecksum() );
+                    writeArray( data, weights.getWeightsX() );
+                    writeArray( data, weights.getWeightsY() );
+                    writeArray( data, weights.getWeightsZ() );
+                }
+            }
+        }
+        index.flush();
+        data.flush();
+        header.write( tables.toByteArray() );
+        return header.toByteArray();
+    }
+
+    private static void writeXYZ( DataOutputStream out, XYZ xyz )
+        throws IOException
+    {
+        out.writeDouble( xyz.getX() );
+        out.writeDouble( xyz.getY() );
+        out.writeDouble( xyz.getZ() );
+    }
+
+    private static void writeArray( DataOutputStream out, double[] values )
+        throws IOException
+    {
+        out.writeInt( values.length );
+        for( double value : values )
+        {
+            out.writeDouble( value );
+        }
+    }
+}
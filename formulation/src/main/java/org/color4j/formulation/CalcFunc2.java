@@ -29,6 +29,7 @@ import org.color4j.colorimetry.ColorException;
 import org.color4j.colorimetry.Reflectance;
 import org.color4j.colorimetry.ReflectanceImpl;
 import org.color4j.colorimetry.Spectrum;
+import org.color4j.colorimetry.weights.SpectralResampler;
 
 /**
  * The CalcFunc is the util for doing color operations.
@@ -458,9 +459,7 @@ public class CalcFunc2
         int no_nm = getNoNm( interval );
         double[] ret = new double[ no_nm ];
         Spectrum spec = refl.getSpectrum();
-        double[] ref = spec.getValues();
 
-        int m_interval = spec.getInterval();
         int start = spec.getShortestWavelength();
         int offset2 = 0;
         if( start > 400 )
@@ -471,13 +470,9 @@ public class CalcFunc2
                 ret[ i ] = 0.0;
             }
         }
-        int step = interval / m_interval;
-        int offset = ( 400 - start ) / m_interval;
-
-        for( int i = offset2; i < no_nm; i++ )
-        {
-            ret[ i ] = ref[ offset + i * step ];
-        }
+        SpectralResampler.Matrix matrix = SpectralResampler.getInstance( SpectralResampler.Method.LAGRANGE )
+            .getMatrix( spec, 400 + offset2 * interval, interval, no_nm - offset2 );
+        matrix.apply( spec, ret, offset2 );
 
         return ret;
     }
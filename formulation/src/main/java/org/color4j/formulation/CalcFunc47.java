@@ -24,6 +24,7 @@ import org.color4j.colorimetry.Illuminant;
 import org.color4j.colorimetry.Observer;
 import org.color4j.colorimetry.Spectrum;
 import org.color4j.colorimetry.Weights;
+import org.color4j.colorimetry.weights.SpectralResampler;
 import org.color4j.colorimetry.weights.WeightsCache;
 import org.color4j.colorimetry.encodings.CIELab;
 import org.color4j.colorimetry.encodings.XYZ;
@@ -230,9 +231,7 @@ public class CalcFunc47
         int no_nm = getNoNm( interval );
         double[] ret = new double[ no_nm ];
         Spectrum spec = refl.getSpectrum();
-        double[] ref = spec.getValues();
 
-        int m_interval = spec.getInterval();
         int start = spec.getShortestWavelength();
         int offset2 = 0;
         if( start > 400 )
@@ -243,13 +242,9 @@ public class CalcFunc47
                 ret[ i ] = 0.0;
             }
         }
-        int step = interval / m_interval;
-        int offset = ( 400 - start ) / m_interval;
-
-        for( int i = offset2; i < no_nm; i++ )
-        {
-            ret[ i ] = ref[ offset + i * step ];
-        }
+        SpectralResampler.Matrix matrix = SpectralResampler.getInstance( SpectralResampler.Method.LAGRANGE )
+            .getMatrix( spec, 400 + offset2 * interval, interval, no_nm - offset2 );
+        matrix.apply( spec, ret, offset2 );
 
         return ret;
     }
@@ -283,14 +278,19 @@ public class CalcFunc47
     //get the deltaE under a whitepoint
     public static double getDeltaE( String CDF, XYZ target, XYZ predict, XYZ whitepoint )
         throws ColorException
+    {
+        return getDeltaE( MatchingFactory.getInstance().getAlgorithm( CDF ), target, predict, whitepoint );
+    }
+
+    //get the deltaE under a whitepoint, with an algorithm resolved once by the caller
+    public static double getDeltaE( DifferenceAlgorithm da, XYZ target, XYZ predict, XYZ whitepoint )
+        throws ColorException
     {
         CIELab ce_t = target.toCIELab( whitepoint );
         CIELab ce_p = predict.toCIELab( whitepoint );
 
-        DifferenceAlgorithm da = MatchingFactory.getInstance().getAlgorithm( CDF );
-
         ColorDifference cd = da.compute( ce_t, ce_p );
-        return cd.getValue( ColorDifference.DELTA_E );
+        return cd.getDeltaE();
     }
 
     //change reflectance to reflectancePE
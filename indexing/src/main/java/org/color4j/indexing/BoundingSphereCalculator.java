@@ -25,14 +25,19 @@ package org.color4j.indexing;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.color4j.colorimetry.ColorEncoding;
 import org.color4j.colorimetry.ColorException;
 import org.color4j.colorimetry.Illuminant;
 import org.color4j.colorimetry.Observer;
 import org.color4j.colorimetry.Reflectance;
+import org.color4j.colorimetry.Spectrum;
 import org.color4j.colorimetry.encodings.CIELab;
 import org.color4j.colorimetry.encodings.DefaultEncodingFactory;
 import org.color4j.colorimetry.encodings.EncodingFactory;
+import org.color4j.colorimetry.encodings.MultiConditionEvaluator;
+import org.color4j.colorimetry.encodings.XYZ;
 import org.color4j.colorimetry.illuminants.IlluminantImpl;
 import org.color4j.colorimetry.observers.ObserverImpl;
 
@@ -47,10 +52,12 @@ public class BoundingSphereCalculator
 {
     private static double TOLERANCE = 1.5;
     private EncodingFactory factory;
+    private final ConcurrentMap<String, MultiConditionEvaluator> m_Evaluators;
 
     public BoundingSphereCalculator()
     {
         factory = new DefaultEncodingFactory();
+        m_Evaluators = new ConcurrentHashMap<String, MultiConditionEvaluator>();
     }
 
     /* Collection contains colorencoding objects */
@@ -60,12 +67,20 @@ public class BoundingSphereCalculator
         String[] names = getObserverNames();
         int noOfObs = names.length;
         String[] illums = getIlluminantNames();
+        Observer[] observers = new Observer[ noOfObs ];
+        for( int i = 0; i < noOfObs; i++ )
+        {
+            observers[ i ] = ObserverImpl.create( names[ i ] );
+        }
+        if( isFused( refl, encoding ) )
+        {
+            return createFused( refl, observers, encoding );
+        }
         Collection<T> ret = new ArrayList<T>( noOfObs * illums.length );
         for( int i = 0; i < noOfObs; i++ )
         {
-            Observer observer = ObserverImpl.create( names[ i ] );
             // should this be synchronized?
-            ret.addAll( createColorEncodingsFor( refl, observer, encoding ) );
+            ret.addAll( createColorEncodingsFor( refl, observers[ i ], encoding ) );
         }
         return ret;
     }
@@ -77,6 +92,10 @@ public class BoundingSphereCalculator
     )
         throws ColorException
     {
+        if( isFused( refl, encoding ) )
+        {
+            return createFused( refl, new Observer[]{ observer }, encoding );
+        }
         String[] names = getIlluminantNames();
         int noOfIllums = names.length;
         Collection<T> ret = new ArrayList<T>( noOfIllums );
@@ -89,6 +108,79 @@ public class BoundingSphereCalculator
         return ret;
     }
 
+    private boolean isFused( Reflectance refl, Class<?> encoding )
+    {
+        return refl != null && refl.getSpectrum() != null &&
+               ( encoding.equals( CIELab.class ) || encoding.equals( XYZ.class ) );
+    }
+
+    /**
+     * Computes XYZ or CIELab under all standard illuminants for each observer in a single pass over the spectrum.
+     */
+    @SuppressWarnings( { "unchecked" } )
+    private <T extends ColorEncoding> Collection<T> createFused( Reflectance refl,
+                                                                 Observer[] observers,
+                                                                 Class<T> encoding
+    )
+    {
+        Spectrum spectrum = refl.getSpectrum();
+        MultiConditionEvaluator evaluator = getEvaluator( observers, spectrum );
+        int count = evaluator.getConditionCount();
+        double[] values = new double[ count * 3 ];
+        boolean lab = encoding.equals( CIELab.class );
+        if( lab )
+        {
+            evaluator.toLab( spectrum, values );
+        }
+        else
+        {
+            evaluator.toXYZ( spectrum, values );
+        }
+        Collection<T> ret = new ArrayList<T>( count );
+        for( int i = 0; i < count; i++ )
+        {
+            if( lab )
+            {
+                ret.add( (T) new CIELab( values[ i * 3 ], values[ i * 3 + 1 ], values[ i * 3 + 2 ] ) );
+            }
+            else
+            {
+                ret.add( (T) new XYZ( values[ i * 3 ], values[ i * 3 + 1 ], values[ i * 3 + 2 ] ) );
+            }
+        }
+        return ret;
+    }
+
+    private MultiConditionEvaluator getEvaluator( Observer[] observers, Spectrum spectrum )
+    {
+        StringBuilder key = new StringBuilder();
+        for( Observer observer : observers )
+        {
+            key.append( observer.getName() ).append( '/' );
+        }
+        key.append( spectrum.getShortestWavelength() ).append( '/' )
+            .append( spectrum.getInterval() ).append( '/' )
+            .append( spectrum.getLength() );
+        MultiConditionEvaluator evaluator = m_Evaluators.get( key.toString() );
+        if( evaluator == null )
+        {
+            String[] names = getIlluminantNames();
+            Illuminant[] illuminants = new Illuminant[ observers.length * names.length ];
+            Observer[] conditions = new Observer[ illuminants.length ];
+            for( int i = 0; i < observers.length; i++ )
+            {
+                for( int j = 0; j < names.length; j++ )
+                {
+                    illuminants[ i * names.length + j ] = IlluminantImpl.create( names[ j ] );
+                    conditions[ i * names.length + j ] = observers[ i ];
+                }
+            }
+            evaluator = MultiConditionEvaluator.create( illuminants, conditions, spectrum );
+            m_Evaluators.putIfAbsent( key.toString(), evaluator );
+        }
+        return evaluator;
+    }
+
     public double[] calculateCentrePoint( CIELab[] points )
         throws IllegalArgumentException
     {
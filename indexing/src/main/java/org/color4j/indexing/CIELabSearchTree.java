@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.DeltaEBatch;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+
+/**
+ * A <code>LabTree</code> over <code>CIELabSearchIndex</code> entries.
+ * <p>The tree finds candidates by Euclidean distance in CIELab. <code>findNearest</code> with a
+ * <code>DifferenceAlgorithm</code> then ranks the nearest candidates by the difference of the algorithm,
+ * which is exact for the candidates but may miss an entry that is further away in CIELab and yet closer by
+ * the algorithm, so the number of candidates should be a few times the number of entries wanted.</p>
+ */
+public final class CIELabSearchTree
+{
+    private final CIELabSearchIndex[] m_Entries;
+    private final double[] m_Lab;
+    private final LabTree m_Tree;
+
+    private CIELabSearchTree( CIELabSearchIndex[] entries )
+    {
+        m_Entries = entries;
+        int count = entries.length;
+        m_Lab = new double[ count * 3 ];
+        double[] radii = new double[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            CIELabSearchIndex entry = entries[ i ];
+            if( entry.getL() == null || entry.geta() == null || entry.getb() == null )
+            {
+                throw new IllegalArgumentException( "The search index entry " + i + " has no CIELab value." );  //NOI18N
+            }
+            m_Lab[ i * 3 ] = entry.getL();
+            m_Lab[ i * 3 + 1 ] = entry.geta();
+            m_Lab[ i * 3 + 2 ] = entry.getb();
+            radii[ i ] = entry.getRadius() == null ? 0.0 : entry.getRadius();
+        }
+        m_Tree = LabTree.create( m_Lab, radii, count );
+    }
+
+    public static CIELabSearchTree create( Collection<? extends CIELabSearchIndex> entries )
+    {
+        return new CIELabSearchTree( entries.toArray( new CIELabSearchIndex[ entries.size() ] ) );
+    }
+
+    public int size()
+    {
+        return m_Entries.length;
+    }
+
+    public LabTree getTree()
+    {
+        return m_Tree;
+    }
+
+    /**
+     * @param id the id of an entry in the tree, its position in the collection the tree was created from.
+     */
+    public CIELabSearchIndex get( int id )
+    {
+        return m_Entries[ id ];
+    }
+
+    /**
+     * @return the entries whose sphere overlaps the sphere of radius <code>deltaE</code> around the target.
+     */
+    public List<CIELabSearchIndex> findWithin( CIELab target, double deltaE )
+    {
+        int[] ids = m_Tree.within( target.getL(), target.geta(), target.getb(), deltaE );
+        List<CIELabSearchIndex> result = new ArrayList<CIELabSearchIndex>( ids.length );
+        for( int id : ids )
+        {
+            result.add( m_Entries[ id ] );
+        }
+        return result;
+    }
+
+    /**
+     * @return the <code>k</code> entries nearest to the target in CIELab, nearest first.
+     */
+    public List<CIELabSearchIndex> findNearest( CIELab target, int k )
+    {
+        k = Math.min( k, m_Entries.length );
+        int[] ids = new int[ k ];
+        int count = m_Tree.nearest( target.getL(), target.geta(), target.getb(), k, ids, new double[ k ] );
+        List<CIELabSearchIndex> result = new ArrayList<CIELabSearchIndex>( count );
+        for( int i = 0; i < count; i++ )
+        {
+            result.add( m_Entries[ ids[ i ] ] );
+        }
+        return result;
+    }
+
+    /**
+     * Finds the <code>candidates</code> entries nearest to the target in CIELab and returns the <code>k</code>
+     * of them with the smallest difference from the target by <code>algorithm</code>, smallest first.
+     */
+    public List<CIELabSearchIndex> findNearest( CIELab target, int k, DifferenceAlgorithm algorithm, int candidates )
+    {
+        if( candidates < k )
+        {
+            throw new IllegalArgumentException( "There must be at least " + k + " candidates." );  //NOI18N
+        }
+        candidates = Math.min( candidates, m_Entries.length );
+        int[] ids = new int[ candidates ];
+        double[] deltas = new double[ candidates ];
+        int count = m_Tree.nearest( target.getL(), target.geta(), target.getb(), candidates, ids, deltas );
+        DeltaEBatch.Standard standard = DeltaEBatch.create( algorithm ).prepare( target.getL(), target.geta(), target.getb() );
+        double[] scratch = new double[ 3 ];
+        for( int i = 0; i < count; i++ )
+        {
+            int p = ids[ i ] * 3;
+            deltas[ i ] = standard.deltaE( m_Lab[ p ], m_Lab[ p + 1 ], m_Lab[ p + 2 ], scratch );
+        }
+        // insertion sort, the candidates are few and nearly ordered already
+        for( int i = 1; i < count; i++ )
+        {
+            int id = ids[ i ];
+            double delta = deltas[ i ];
+            int j = i - 1;
+            while( j >= 0 && isGreater( deltas[ j ], delta ) )
+            {
+                ids[ j + 1 ] = ids[ j ];
+                deltas[ j + 1 ] = deltas[ j ];
+                j--;
+            }
+            ids[ j + 1 ] = id;
+            deltas[ j + 1 ] = delta;
+        }
+        count = Math.min( count, k );
+        List<CIELabSearchIndex> result = new ArrayList<CIELabSearchIndex>( count );
+        for( int i = 0; i < count; i++ )
+        {
+            result.add( m_Entries[ ids[ i ] ] );
+        }
+        return result;
+    }
+
+    /**
+     * Orders NaN, as some algorithms give for some pairs, after all numbers.
+     */
+    private static boolean isGreater( double x, double y )
+    {
+        return x > y || ( Double.isNaN( x ) && !Double.isNaN( y ) );
+    }
+}
@@ -20,21 +20,47 @@ package org.color4j.indexing;
 
 import org.color4j.colorimetry.ColorException;
 import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.CIE94;
+import org.color4j.colorimetry.matching.CIELabDE;
+import org.color4j.colorimetry.matching.CIELchDE;
+import org.color4j.colorimetry.matching.CMC;
 import org.color4j.colorimetry.matching.ColorDifference;
 import org.color4j.colorimetry.matching.DifferenceAlgorithm;
 import org.color4j.colorimetry.matching.MatchingFactory;
+import org.color4j.colorimetry.matching.PreparableKernel;
+import org.color4j.colorimetry.matching.PreparedStandard;
 
+/**
+ * The colors within a deltaE of a target color.
+ * <p>For CMC, CIE94, CIELab DE and CIELch DE the tolerance is an ellipsoid around the target, with the
+ * weights of the target as semi-axes in the lightness, chroma and hue directions. Since the squares of the
+ * chroma and hue differences add up to the squared a*b* distance, the ellipsoid lies between two ellipsoids
+ * of revolution, one using the largest and one using the smallest of the chroma and hue semi-axes.
+ * <code>isWithinRange</code> rejects the batches outside the outer one and accepts those inside the inner
+ * one from a few multiplications, and computes the full difference only for the batches in between, so
+ * the outcome is the same as comparing <code>getDeltaE()</code> of the algorithm.</p>
+ */
 public class ColorRange
 {
+    // The bounds are widened by this much, relative, to absorb the rounding of the full difference.
+    private static final double MARGIN = 1e-9;
+
+    static final int INSIDE = 1;
+    static final int OUTSIDE = -1;
+    static final int UNDECIDED = 0;
+
     private DifferenceAlgorithm m_Algorithm;
     private CIELab m_Target;
     private double m_DeltaE;
+    private PreparedStandard m_Prepared;
+    private double[] m_Axes;
+    private double m_MaxAB;
+    private double m_InverseMaxAB2;
+    private double m_InverseMinAB2;
 
     public ColorRange( CIELab color, double deltaE )
     {
-        m_Target = color;
-        m_DeltaE = deltaE;
-        m_Algorithm = MatchingFactory.getInstance().getDefaultAlgorithm();
+        this( color, deltaE, MatchingFactory.getInstance().getDefaultAlgorithm() );
     }
 
     public ColorRange( CIELab color, double deltaE, DifferenceAlgorithm algorithm )
@@ -42,6 +68,19 @@ public class ColorRange
         m_Target = color;
         m_DeltaE = deltaE;
         m_Algorithm = algorithm;
+        if( algorithm instanceof PreparableKernel )
+        {
+            m_Prepared = ( (PreparableKernel) algorithm ).prepare( color );
+        }
+        m_Axes = computeEllipse();
+        if( m_Axes != null )
+        {
+            double max = Math.max( m_Axes[ 1 ], m_Axes[ 2 ] );
+            double min = Math.min( m_Axes[ 1 ], m_Axes[ 2 ] );
+            m_MaxAB = max * ( 1 + MARGIN );
+            m_InverseMaxAB2 = 1 / ( max * max );
+            m_InverseMinAB2 = 1 / ( min * min );
+        }
     }
 
     public ColorRange( CIELab color,
@@ -49,9 +88,7 @@ public class ColorRange
                        String algorithmName
     )
     {
-        m_Target = color;
-        m_DeltaE = deltaE;
-        m_Algorithm = MatchingFactory.getInstance().getAlgorithm( algorithmName );
+        this( color, deltaE, MatchingFactory.getInstance().getAlgorithm( algorithmName ) );
     }
 
     public DifferenceAlgorithm getAlgorithm()
@@ -70,18 +107,68 @@ public class ColorRange
     }
 
     public boolean isWithinRange( CIELab batch )
+    {
+        int bounds = checkBounds( batch );
+        if( bounds != UNDECIDED )
+        {
+            return bounds == INSIDE;
+        }
+        return m_DeltaE >= computeDeltaE( batch );
+    }
+
+    /**
+     * Decides from the bounding ellipsoids alone, without the full difference, whether the batch is in range.
+     *
+     * @return <code>INSIDE</code> or <code>OUTSIDE</code>, or <code>UNDECIDED</code> if the batch lies between
+     *         the bounds or the tolerance is not an ellipsoid.
+     */
+    int checkBounds( CIELab batch )
+    {
+        if( m_Axes == null )
+        {
+            return UNDECIDED;
+        }
+        double dL = ( batch.getL() - m_Target.getL() ) / m_Axes[ 0 ];
+        double da = batch.geta() - m_Target.geta();
+        double db = batch.getb() - m_Target.getb();
+        double l2 = dL * dL;
+        if( l2 > 1 + MARGIN || Math.abs( da ) > m_MaxAB || Math.abs( db ) > m_MaxAB )
+        {
+            return OUTSIDE;
+        }
+        double ab2 = da * da + db * db;
+        if( l2 + ab2 * m_InverseMaxAB2 > 1 + MARGIN )
+        {
+            return OUTSIDE;
+        }
+        if( l2 + ab2 * m_InverseMinAB2 < 1 - MARGIN )
+        {
+            return INSIDE;
+        }
+        return UNDECIDED;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private double computeDeltaE( CIELab batch )
     {
         double delta = 0;
         try
         {
-            ColorDifference diff = m_Algorithm.compute( m_Target, batch );
-            delta = diff.getValue( ColorDifference.DELTA_E );
+            ColorDifference diff;
+            if( m_Prepared != null )
+            {
+                diff = m_Prepared.compute( batch );
+            }
+            else
+            {
+                diff = m_Algorithm.compute( m_Target, batch );
+            }
+            delta = diff.getDeltaE();
         }
         catch( ColorException e )
         {
         } // Can not happen.
-
-        return m_DeltaE >= delta;
+        return delta;
     }
 
     public String toString()
@@ -90,17 +177,37 @@ public class ColorRange
     }
 
     /**
-     * Returns the delta for a given hueAngle of the target/standard.
-     * <p>The hueAngle is the h in Lch, and the returned value is the
-     * distance from the target in the hue angle direction, for which the
-     * deltaE is within limits.</p>
-     * <p>The returned value is expressed in chroma units, i.e. CIELab color
-     * space units.
+     * Returns the semi-axes of the tolerance ellipsoid around the target/standard.
+     * <p>The returned values are the distances from the target, in the lightness, chroma and hue
+     * directions, for which the deltaE is within limits. They are expressed in CIELab color space
+     * units.</p>
+     *
+     * @return the lightness, chroma and hue semi-axes, or null if the tolerance of the algorithm is not
+     *         an ellipsoid or the deltaE is not positive.
      */
     public double[] computeEllipse()
     {
-        //return m_Algorithm.computeEllipse( m_Target, (float) m_DeltaE, hueAngle );
-        return new double[ 1 ];
+        if( !( m_DeltaE > 0 ) )
+        {
+            return null;
+        }
+        Class type = m_Algorithm.getClass();
+        if( type == CMC.class )
+        {
+            double[] lch = { m_Target.getL(), m_Target.getc(), m_Target.geth() };
+            double[] ab = SpaceCalculations.computeEllipseAB( lch, m_DeltaE );
+            double l = ( (CMC) m_Algorithm ).getLightnessWeight() * SpaceCalculations.computeDeltaLBoundary( m_Target, m_DeltaE );
+            return new double[]{ l, ab[ 0 ], ab[ 1 ] };
+        }
+        if( type == CIE94.class )
+        {
+            double c = m_Target.getc();
+            return new double[]{ m_DeltaE, m_DeltaE * ( 1.0 + 0.045 * c ), m_DeltaE * ( 1.0 + 0.015 * c ) };
+        }
+        if( type == CIELabDE.class || type == CIELchDE.class )
+        {
+            return new double[]{ m_DeltaE, m_DeltaE, m_DeltaE };
+        }
+        return null;
     }
 }
-
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * Complete-linkage clustering of points in N dimensions by Euclidean distance, the distance of two clusters
+ * being that of their farthest points.
+ * <p>The distances of all pairs of clusters are computed once, in parallel, into a condensed matrix that holds
+ * each pair once. Merging two clusters updates the distances of the merged cluster with the Lance-Williams
+ * formula of complete linkage, the larger of the distances of the two, which is the distance of the farthest
+ * points again. Each cluster keeps its nearest cluster among those after it, and a priority queue of these
+ * gives the next merge. Large matrices are allocated outside the Java heap.</p>
+ * <p>The merges are those of merging the nearest two clusters again and again: of the pairs at the smallest
+ * distance, the one with the first cluster first, and of those the one with the first other cluster.</p>
+ */
+public final class CompleteLinkage
+{
+    // matrices of more pairs than this are allocated outside the Java heap
+    private static final long HEAP_PAIRS = 1 << 22;
+    private static final int PAGE_BITS = 27;
+    private static final int PAGE_MASK = ( 1 << PAGE_BITS ) - 1;
+    private static final int GRAIN = 64;
+
+    private final int m_Count;
+    private final DoubleBuffer[] m_Pages;
+    private final boolean[] m_Alive;
+    // the nearest cluster after each cluster, and its distance
+    private final int[] m_Nearest;
+    private final double[] m_NearestDistance;
+    private final int[] m_Heap;
+    private final int[] m_HeapPosition;
+    private int m_HeapSize;
+
+    private CompleteLinkage( final double[] coords, final int dimensions, final int[] offsets )
+    {
+        final int count = offsets.length - 1;
+        m_Count = count;
+        long pairs = (long) count * ( count - 1 ) / 2;
+        int pageCount = (int) ( ( pairs + PAGE_MASK ) >>> PAGE_BITS );
+        m_Pages = new DoubleBuffer[ pageCount ];
+        for( int p = 0; p < pageCount; p++ )
+        {
+            int size = (int) Math.min( 1L << PAGE_BITS, pairs - ( (long) p << PAGE_BITS ) );
+            if( pairs <= HEAP_PAIRS )
+            {
+                m_Pages[ p ] = DoubleBuffer.wrap( new double[ size ] );
+            }
+            else
+            {
+                m_Pages[ p ] = ByteBuffer.allocateDirect( size * 8 ).order( ByteOrder.nativeOrder() ).asDoubleBuffer();
+            }
+        }
+        m_Alive = new boolean[ count ];
+        m_Nearest = new int[ count ];
+        m_NearestDistance = new double[ count ];
+
+        // row r has count - 1 - r pairs, so rows are handed out in pairs from both ends
+        Parallel.forRange( ( count + 1 ) / 2, GRAIN, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int r = from; r < to; r++ )
+                {
+                    computeRow( coords, dimensions, offsets, r );
+                    if( count - 1 - r != r )
+                    {
+                        computeRow( coords, dimensions, offsets, count - 1 - r );
+                    }
+                }
+            }
+        } );
+
+        m_Heap = new int[ count ];
+        m_HeapPosition = new int[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            m_Alive[ i ] = true;
+            m_Heap[ i ] = i;
+            m_HeapPosition[ i ] = i;
+        }
+        m_HeapSize = count;
+        for( int i = count / 2 - 1; i >= 0; i-- )
+        {
+            siftDown( i );
+        }
+    }
+
+    /**
+     * Starts from one cluster for each of <code>count</code> points.
+     *
+     * @param coords     the packed coordinates of the points, <code>dimensions</code> values per point.
+     * @param count      the number of points.
+     * @param dimensions the number of dimensions.
+     */
+    public static CompleteLinkage create( double[] coords, int count, int dimensions )
+    {
+        int[] offsets = new int[ count + 1 ];
+        for( int i = 0; i <= count; i++ )
+        {
+            offsets[ i ] = i;
+        }
+        return create( coords, dimensions, offsets );
+    }
+
+    /**
+     * Starts from clusters of consecutive points, cluster <code>c</code> being the points
+     * <code>offsets[ c ]</code> to <code>offsets[ c + 1 ] - 1</code>.
+     */
+    static CompleteLinkage create( double[] coords, int dimensions, int[] offsets )
+    {
+        int count = offsets.length - 1;
+        if( count < 0 || dimensions < 1 || coords.length < (long) offsets[ count ] * dimensions )
+        {
+            throw new IllegalArgumentException( "The array is too short for " + offsets[ count ] + " points." );  //NOI18N
+        }
+        return new CompleteLinkage( coords, dimensions, offsets );
+    }
+
+    /**
+     * Merges the nearest two clusters until the nearest are further apart than the tolerance, or have just been
+     * merged at exactly the tolerance.
+     *
+     * @return the merges, as pairs of the cluster kept, which is the earlier one, and the cluster merged into
+     *         it: <code>{ kept0, merged0, kept1, merged1, ... }</code>.
+     */
+    public int[] merge( double tolerance )
+    {
+        int[] merges = new int[ 16 ];
+        int count = 0;
+        while( m_HeapSize > 0 )
+        {
+            int a = m_Heap[ 0 ];
+            int b = m_Nearest[ a ];
+            double distance = m_NearestDistance[ a ];
+            if( b < 0 || !( distance <= tolerance ) )
+            {
+                break;
+            }
+            if( count + 2 > merges.length )
+            {
+                int[] grown = new int[ merges.length * 2 ];
+                System.arraycopy( merges, 0, grown, 0, count );
+                merges = grown;
+            }
+            merges[ count++ ] = a;
+            merges[ count++ ] = b;
+            join( a, b );
+            if( distance >= tolerance )
+            {
+                break;
+            }
+        }
+        int[] result = new int[ count ];
+        System.arraycopy( merges, 0, result, 0, count );
+        return result;
+    }
+
+    /**
+     * Merges cluster <code>b</code> into the earlier cluster <code>a</code>.
+     */
+    private void join( int a, int b )
+    {
+        m_Alive[ b ] = false;
+        remove( b );
+        for( int k = 0; k < m_Count; k++ )
+        {
+            if( m_Alive[ k ] && k != a )
+            {
+                // Lance-Williams for complete linkage
+                double da = get( a, k );
+                double db = get( b, k );
+                if( db > da )
+                {
+                    set( a, k, db );
+                }
+            }
+        }
+        // the clusters before b whose nearest was a or b; a got further away and b is gone
+        for( int k = 0; k < b; k++ )
+        {
+            if( m_Alive[ k ] && ( k == a || m_Nearest[ k ] == a || m_Nearest[ k ] == b ) )
+            {
+                findNearest( k );
+                update( k );
+            }
+        }
+    }
+
+    /**
+     * The distances of row <code>r</code>, and the nearest cluster after <code>r</code>.
+     */
+    private void computeRow( double[] coords, int dimensions, int[] offsets, int r )
+    {
+        int nearest = -1;
+        double min = Double.POSITIVE_INFINITY;
+        for( int c = r + 1; c < m_Count; c++ )
+        {
+            double farthest = 0;
+            for( int p = offsets[ r ]; p < offsets[ r + 1 ]; p++ )
+            {
+                for( int q = offsets[ c ]; q < offsets[ c + 1 ]; q++ )
+                {
+                    double distance = distance( coords, dimensions, p, q );
+                    if( distance > farthest )
+                    {
+                        farthest = distance;
+                    }
+                }
+            }
+            set( r, c, farthest );
+            if( farthest < min )
+            {
+                min = farthest;
+                nearest = c;
+            }
+        }
+        m_Nearest[ r ] = nearest;
+        m_NearestDistance[ r ] = min;
+    }
+
+    private void findNearest( int r )
+    {
+        int nearest = -1;
+        double min = Double.POSITIVE_INFINITY;
+        for( int c = r + 1; c < m_Count; c++ )
+        {
+            if( m_Alive[ c ] )
+            {
+                double distance = get( r, c );
+                if( distance < min )
+                {
+                    min = distance;
+                    nearest = c;
+                }
+            }
+        }
+        m_Nearest[ r ] = nearest;
+        m_NearestDistance[ r ] = min;
+    }
+
+    /**
+     * The same distance as <code>AbstractClusterImpl.getDistance</code>.
+     */
+    private static double distance( double[] coords, int dimensions, int p, int q )
+    {
+        int offsetP = p * dimensions;
+        int offsetQ = q * dimensions;
+        double d = coords[ offsetQ ] - coords[ offsetP ];
+        double sum = d * d;
+        for( int k = 1; k < dimensions; k++ )
+        {
+            d = coords[ offsetQ + k ] - coords[ offsetP + k ];
+            sum += d * d;
+        }
+        return Math.sqrt( sum );
+    }
+
+    private long index( int i, int j )
+    {
+        if( i > j )
+        {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        return (long) i * m_Count - (long) i * ( i + 1 ) / 2 + ( j - i - 1 );
+    }
+
+    private double get( int i, int j )
+    {
+        long index = index( i, j );
+        return m_Pages[ (int) ( index >>> PAGE_BITS ) ].get( (int) ( index & PAGE_MASK ) );
+    }
+
+    private void set( int i, int j, double value )
+    {
+        long index = index( i, j );
+        m_Pages[ (int) ( index >>> PAGE_BITS ) ].put( (int) ( index & PAGE_MASK ), value );
+    }
+
+    /**
+     * Orders the clusters by the distance to their nearest cluster, and then by index.
+     */
+    private boolean isBefore( int i, int j )
+    {
+        double di = m_NearestDistance[ i ];
+        double dj = m_NearestDistance[ j ];
+        return di < dj || ( di == dj && i < j );
+    }
+
+    private void update( int cluster )
+    {
+        int position = m_HeapPosition[ cluster ];
+        siftUp( position );
+        siftDown( m_HeapPosition[ cluster ] );
+    }
+
+    private void remove( int cluster )
+    {
+        int position = m_HeapPosition[ cluster ];
+        int last = m_Heap[ --m_HeapSize ];
+        m_HeapPosition[ cluster ] = -1;
+        if( last != cluster )
+        {
+            m_Heap[ position ] = last;
+            m_HeapPosition[ last ] = position;
+            siftUp( position );
+            siftDown( m_HeapPosition[ last ] );
+        }
+    }
+
+    private void siftUp( int position )
+    {
+        int cluster = m_Heap[ position ];
+        while( position > 0 )
+        {
+            int parent = ( position - 1 ) / 2;
+            if( !isBefore( cluster, m_Heap[ parent ] ) )
+            {
+                break;
+            }
+            m_Heap[ position ] = m_Heap[ parent ];
+            m_HeapPosition[ m_Heap[ position ] ] = position;
+            position = parent;
+        }
+        m_Heap[ position ] = cluster;
+        m_HeapPosition[ cluster ] = position;
+    }
+
+    private void siftDown( int position )
+    {
+        int cluster = m_Heap[ position ];
+        while( true )
+        {
+            int child = 2 * position + 1;
+            if( child >= m_HeapSize )
+            {
+                break;
+            }
+            if( child + 1 < m_HeapSize && isBefore( m_Heap[ child + 1 ], m_Heap[ child ] ) )
+            {
+                child++;
+            }
+            if( !isBefore( m_Heap[ child ], cluster ) )
+            {
+                break;
+            }
+            m_Heap[ position ] = m_Heap[ child ];
+            m_HeapPosition[ m_Heap[ position ] ] = position;
+            position = child;
+        }
+        m_Heap[ position ] = cluster;
+        m_HeapPosition[ cluster ] = position;
+    }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A CIELab index that can be updated while it is queried.
+ * <p>Inserts and deletes go into a small write buffer. When the buffer is full it is merged in the background
+ * into immutable segments, each a <code>LabTree</code>; a merge also rebuilds the small segments at the end and
+ * the segments with many deleted points, so there are few segments. A point deleted from a segment is hidden
+ * by a tombstone in the segment until the segment is rebuilt.</p>
+ * <p>The state of the index is an immutable snapshot of the segments and the buffer, and every update publishes
+ * a new one. Queries read the current snapshot without any lock and see all the updates made before it, so
+ * their latency does not depend on the updates going on. Updates are serialized.</p>
+ * <p>The points are identified by a <code>long</code>, such as the id of their reflectance, and inserting a
+ * point with the id of another replaces it.</p>
+ */
+public final class ConcurrentLabIndex
+{
+    private static final ThreadFactory MERGE_THREADS = new ThreadFactory()
+    {
+        public Thread newThread( Runnable task )
+        {
+            Thread thread = new Thread( task, "ConcurrentLabIndex merge" );  //NOI18N
+            thread.setDaemon( true );
+            return thread;
+        }
+    };
+
+    private final int m_BufferCapacity;
+    private final Object m_WriteLock = new Object();
+    private final Object m_MergeLock = new Object();
+    private final AtomicBoolean m_MergeScheduled = new AtomicBoolean();
+    private final ExecutorService m_Merger;
+    private volatile Snapshot m_Snapshot;
+    private long m_Sequence;
+
+    /**
+     * A point found by <code>within</code>.
+     */
+    public interface Visitor
+    {
+        void visit( long id, double distance );
+    }
+
+    private ConcurrentLabIndex( int bufferCapacity )
+    {
+        m_BufferCapacity = bufferCapacity;
+        m_Merger = Executors.newSingleThreadExecutor( MERGE_THREADS );
+        m_Snapshot = new Snapshot( new Segment[ 0 ], new long[ 0 ], new long[ 0 ], new double[ 0 ] );
+    }
+
+    /**
+     * @param bufferCapacity the number of updates after which the write buffer is merged into the segments.
+     */
+    public static ConcurrentLabIndex create( int bufferCapacity )
+    {
+        if( bufferCapacity < 1 )
+        {
+            throw new IllegalArgumentException( "The buffer capacity must be positive." );  //NOI18N
+        }
+        return new ConcurrentLabIndex( bufferCapacity );
+    }
+
+    /**
+     * Adds a point, or moves the point with the same id.
+     */
+    public void insert( long id, double L, double a, double b )
+    {
+        synchronized( m_WriteLock )
+        {
+            Snapshot current = m_Snapshot;
+            Segment[] segments = hide( current.m_Segments, id );
+            int index = current.indexOf( id );
+            int count = current.m_BufferIds.length;
+            long[] ids;
+            long[] sequences;
+            double[] lab;
+            if( index < 0 )
+            {
+                index = count;
+                ids = Arrays.copyOf( current.m_BufferIds, count + 1 );
+                sequences = Arrays.copyOf( current.m_BufferSequences, count + 1 );
+                lab = Arrays.copyOf( current.m_BufferLab, ( count + 1 ) * 3 );
+            }
+            else
+            {
+                ids = current.m_BufferIds.clone();
+                sequences = current.m_BufferSequences.clone();
+                lab = current.m_BufferLab.clone();
+            }
+            ids[ index ] = id;
+            sequences[ index ] = ++m_Sequence;
+            lab[ index * 3 ] = L;
+            lab[ index * 3 + 1 ] = a;
+            lab[ index * 3 + 2 ] = b;
+            publish( new Snapshot( segments, ids, sequences, lab ) );
+        }
+    }
+
+    /**
+     * @return true if the index had a point with this id.
+     */
+    public boolean delete( long id )
+    {
+        synchronized( m_WriteLock )
+        {
+            Snapshot current = m_Snapshot;
+            Segment[] segments = hide( current.m_Segments, id );
+            int index = current.indexOf( id );
+            if( segments == current.m_Segments && index < 0 )
+            {
+                return false;
+            }
+            long[] ids = current.m_BufferIds;
+            long[] sequences = current.m_BufferSequences;
+            double[] lab = current.m_BufferLab;
+            if( index >= 0 )
+            {
+                ids = remove( ids, index, 1 );
+                sequences = remove( sequences, index, 1 );
+                lab = remove( lab, index * 3, 3 );
+            }
+            publish( new Snapshot( segments, ids, sequences, lab ) );
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of points in the index.
+     */
+    public int size()
+    {
+        return m_Snapshot.size();
+    }
+
+    public boolean contains( long id )
+    {
+        Snapshot snapshot = m_Snapshot;
+        if( snapshot.indexOf( id ) >= 0 )
+        {
+            return true;
+        }
+        for( Segment segment : snapshot.m_Segments )
+        {
+            if( segment.contains( id ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getSegmentCount()
+    {
+        return m_Snapshot.m_Segments.length;
+    }
+
+    /**
+     * Finds the <code>k</code> points nearest to (L, a, b).
+     *
+     * @param ids       receives the ids of the points found, nearest first.
+     * @param distances receives the Euclidean distances of the points found.
+     * @return the number of points found, which is less than <code>k</code> only if the index is smaller.
+     */
+    public int nearest( double L, double a, double b, int k, long[] ids, double[] distances )
+    {
+        if( k < 0 || ids.length < k || distances.length < k )
+        {
+            throw new IllegalArgumentException( "The arrays are too short for " + k + " points." );  //NOI18N
+        }
+        Snapshot snapshot = m_Snapshot;
+        Segment[] segments = snapshot.m_Segments;
+        // enough points to still have k when the deleted ones among them are dropped
+        int wanted = (int) Math.min( (long) k + snapshot.m_Deleted, snapshot.m_Points );
+        int[] points = new int[ wanted ];
+        double[] found = new double[ wanted ];
+        int count = 0;
+        for( int s = 0; s < segments.length; s++ )
+        {
+            count = segments[ s ].m_Tree.nearest( L, a, b, wanted, points, found, count, snapshot.m_Offsets[ s ] );
+        }
+        double[] buffer = snapshot.m_BufferLab;
+        int bufferOffset = snapshot.m_Offsets[ segments.length ];
+        for( int i = 0; i < snapshot.m_BufferIds.length; i++ )
+        {
+            double dL = L - buffer[ i * 3 ];
+            double da = a - buffer[ i * 3 + 1 ];
+            double db = b - buffer[ i * 3 + 2 ];
+            count = LabTree.offer( points, found, count, wanted, bufferOffset + i, dL * dL + da * da + db * db );
+        }
+        LabTree.finish( points, found, count );
+        int result = 0;
+        for( int i = 0; i < count && result < k; i++ )
+        {
+            int point = points[ i ];
+            int s = snapshot.segment( point );
+            long id;
+            if( s < segments.length )
+            {
+                Segment segment = segments[ s ];
+                id = segment.m_Ids[ point - snapshot.m_Offsets[ s ] ];
+                if( segment.isDeleted( id ) )
+                {
+                    continue;
+                }
+            }
+            else
+            {
+                id = snapshot.m_BufferIds[ point - bufferOffset ];
+            }
+            ids[ result ] = id;
+            distances[ result ] = found[ i ];
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Visits the points within <code>radius</code> of (L, a, b).
+     */
+    public void within( double L, double a, double b, double radius, final Visitor visitor )
+    {
+        Snapshot snapshot = m_Snapshot;
+        for( final Segment segment : snapshot.m_Segments )
+        {
+            segment.m_Tree.within( L, a, b, radius, new LabTree.Visitor()
+            {
+                public void visit( int point, double distance )
+                {
+                    long id = segment.m_Ids[ point ];
+                    if( !segment.isDeleted( id ) )
+                    {
+                        visitor.visit( id, distance );
+                    }
+                }
+            } );
+        }
+        double[] buffer = snapshot.m_BufferLab;
+        double radius2 = radius * radius;
+        for( int i = 0; i < snapshot.m_BufferIds.length; i++ )
+        {
+            double dL = L - buffer[ i * 3 ];
+            double da = a - buffer[ i * 3 + 1 ];
+            double db = b - buffer[ i * 3 + 2 ];
+            double d2 = dL * dL + da * da + db * db;
+            if( d2 <= radius2 )
+            {
+                visitor.visit( snapshot.m_BufferIds[ i ], Math.sqrt( d2 ) );
+            }
+        }
+    }
+
+    /**
+     * Merges the write buffer into the segments in the calling thread, waiting for a background merge that is
+     * under way.
+     */
+    public void flush()
+    {
+        merge( true );
+    }
+
+    /**
+     * Stops the background merges. The index can still be queried and updated, and <code>flush</code> merges
+     * the buffer.
+     */
+    public void close()
+    {
+        m_Merger.shutdown();
+    }
+
+    private void publish( Snapshot snapshot )
+    {
+        m_Snapshot = snapshot;
+        if( snapshot.m_BufferIds.length >= m_BufferCapacity || snapshot.m_Deleted >= m_BufferCapacity )
+        {
+            if( !m_Merger.isShutdown() && m_MergeScheduled.compareAndSet( false, true ) )
+            {
+                m_Merger.execute( new Runnable()
+                {
+                    public void run()
+                    {
+                        m_MergeScheduled.set( false );
+                        merge( false );
+                    }
+                } );
+            }
+        }
+    }
+
+    /**
+     * Builds a segment from the buffer and the segments worth rebuilding, and replaces them with it. The writes
+     * made while the segment was built are carried over: a point of the new segment that has been deleted or
+     * replaced since gets a tombstone in it.
+     *
+     * @param all true to merge the buffer however small it is.
+     */
+    private void merge( boolean all )
+    {
+        synchronized( m_MergeLock )
+        {
+            Snapshot start = m_Snapshot;
+            Segment[] segments = start.m_Segments;
+            int bufferSize = start.m_BufferIds.length;
+            if( !all && bufferSize < m_BufferCapacity && start.m_Deleted < m_BufferCapacity )
+            {
+                return;
+            }
+            boolean[] merged = new boolean[ segments.length ];
+            int points = bufferSize;
+            // the segments at the end that are not much larger than what is merged, and those with many deletes
+            for( int s = segments.length - 1; s >= 0 && segments[ s ].size() <= 2 * points; s-- )
+            {
+                merged[ s ] = true;
+                points += segments[ s ].size();
+            }
+            for( int s = 0; s < segments.length; s++ )
+            {
+                if( !merged[ s ] && segments[ s ].m_Deleted.length * 8 > segments[ s ].m_Ids.length )
+                {
+                    merged[ s ] = true;
+                    points += segments[ s ].size();
+                }
+            }
+            if( points == 0 && !contains( merged, true ) )
+            {
+                return;
+            }
+
+            long[] ids = new long[ points ];
+            double[] lab = new double[ points * 3 ];
+            int count = 0;
+            for( int s = 0; s < segments.length; s++ )
+            {
+                if( merged[ s ] )
+                {
+                    Segment segment = segments[ s ];
+                    for( int i = 0; i < segment.m_Ids.length; i++ )
+                    {
+                        if( !segment.isDeleted( segment.m_Ids[ i ] ) )
+                        {
+                            ids[ count ] = segment.m_Ids[ i ];
+                            System.arraycopy( segment.m_Lab, i * 3, lab, count * 3, 3 );
+                            count++;
+                        }
+                    }
+                }
+            }
+            System.arraycopy( start.m_BufferIds, 0, ids, count, bufferSize );
+            System.arraycopy( start.m_BufferLab, 0, lab, count * 3, bufferSize * 3 );
+            LabTree tree = LabTree.create( lab, count + bufferSize );
+
+            synchronized( m_WriteLock )
+            {
+                Snapshot current = m_Snapshot;
+                // merges are serialized, so the segments are those of the start with more tombstones at most
+                List<Long> deleted = new ArrayList<Long>();
+                List<Segment> kept = new ArrayList<Segment>();
+                for( int s = 0; s < segments.length; s++ )
+                {
+                    Segment now = current.m_Segments[ s ];
+                    if( merged[ s ] )
+                    {
+                        for( long id : now.m_Deleted )
+                        {
+                            if( !segments[ s ].isDeleted( id ) )
+                            {
+                                deleted.add( id );
+                            }
+                        }
+                    }
+                    else
+                    {
+                        kept.add( now );
+                    }
+                }
+                long[] bufferIds = current.m_BufferIds;
+                long[] sequences = current.m_BufferSequences;
+                double[] bufferLab = current.m_BufferLab;
+                for( int i = 0; i < bufferSize; i++ )
+                {
+                    long id = start.m_BufferIds[ i ];
+                    int index = indexOf( bufferIds, id );
+                    if( index >= 0 && sequences[ index ] == start.m_BufferSequences[ i ] )
+                    {
+                        bufferIds = remove( bufferIds, index, 1 );
+                        sequences = remove( sequences, index, 1 );
+                        bufferLab = remove( bufferLab, index * 3, 3 );
+                    }
+                    else
+                    {
+                        deleted.add( id );
+                    }
+                }
+                if( count + bufferSize > 0 )
+                {
+                    long[] tombstones = new long[ deleted.size() ];
+                    for( int i = 0; i < tombstones.length; i++ )
+                    {
+                        tombstones[ i ] = deleted.get( i );
+                    }
+                    Arrays.sort( tombstones );
+                    kept.add( new Segment( tree, ids, lab, tombstones ) );
+                }
+                m_Snapshot = new Snapshot( kept.toArray( new Segment[ kept.size() ] ), bufferIds, sequences, bufferLab );
+            }
+        }
+    }
+
+    /**
+     * @return the segments with a tombstone for <code>id</code> in the segment that has it, or
+     *         <code>segments</code> itself if none has.
+     */
+    private static Segment[] hide( Segment[] segments, long id )
+    {
+        for( int s = 0; s < segments.length; s++ )
+        {
+            if( segments[ s ].contains( id ) )
+            {
+                Segment[] result = segments.clone();
+                result[ s ] = segments[ s ].delete( id );
+                return result;
+            }
+        }
+        return segments;
+    }
+
+    private static boolean contains( boolean[] values, boolean value )
+    {
+        for( boolean v : values )
+        {
+            if( v == value )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf( long[] values, long value )
+    {
+        for( int i = 0; i < values.length; i++ )
+        {
+            if( values[ i ] == value )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long[] remove( long[] values, int index, int length )
+    {
+        long[] result = new long[ values.length - length ];
+        System.arraycopy( values, 0, result, 0, index );
+        System.arraycopy( values, index + length, result, index, result.length - index );
+        return result;
+    }
+
+    private static double[] remove( double[] values, int index, int length )
+    {
+        double[] result = new double[ values.length - length ];
+        System.arraycopy( values, 0, result, 0, index );
+        System.arraycopy( values, index + length, result, index, result.length - index );
+        return result;
+    }
+
+    /**
+     * An immutable tree of points, with the ids of the points deleted from it since it was built.
+     */
+    private static final class Segment
+    {
+        private final LabTree m_Tree;
+        // the ids and CIELab values of the points, in the order the tree was built from
+        private final long[] m_Ids;
+        private final double[] m_Lab;
+        private final long[] m_SortedIds;
+        private final long[] m_Deleted;
+
+        private Segment( LabTree tree, long[] ids, double[] lab, long[] deleted )
+        {
+            m_Tree = tree;
+            m_Ids = ids;
+            m_Lab = lab;
+            m_SortedIds = ids.clone();
+            Arrays.sort( m_SortedIds );
+            m_Deleted = deleted;
+        }
+
+        private Segment( Segment segment, long[] deleted )
+        {
+            m_Tree = segment.m_Tree;
+            m_Ids = segment.m_Ids;
+            m_Lab = segment.m_Lab;
+            m_SortedIds = segment.m_SortedIds;
+            m_Deleted = deleted;
+        }
+
+        private int size()
+        {
+            return m_Ids.length - m_Deleted.length;
+        }
+
+        private boolean isDeleted( long id )
+        {
+            return m_Deleted.length > 0 && Arrays.binarySearch( m_Deleted, id ) >= 0;
+        }
+
+        private boolean contains( long id )
+        {
+            return Arrays.binarySearch( m_SortedIds, id ) >= 0 && !isDeleted( id );
+        }
+
+        private Segment delete( long id )
+        {
+            int index = -Arrays.binarySearch( m_Deleted, id ) - 1;
+            long[] deleted = new long[ m_Deleted.length + 1 ];
+            System.arraycopy( m_Deleted, 0, deleted, 0, index );
+            deleted[ index ] = id;
+            System.arraycopy( m_Deleted, index, deleted, index + 1, m_Deleted.length - index );
+            return new Segment( this, deleted );
+        }
+    }
+
+    /**
+     * The segments and the write buffer at one time. The points are numbered through the segments, in tree
+     * order within each, and then through the buffer.
+     */
+    private static final class Snapshot
+    {
+        private final Segment[] m_Segments;
+        private final int[] m_Offsets;
+        private final long[] m_BufferIds;
+        private final long[] m_BufferSequences;
+        private final double[] m_BufferLab;
+        private final int m_Points;
+        private final int m_Deleted;
+
+        private Snapshot( Segment[] segments, long[] bufferIds, long[] bufferSequences, double[] bufferLab )
+        {
+            m_Segments = segments;
+            m_BufferIds = bufferIds;
+            m_BufferSequences = bufferSequences;
+            m_BufferLab = bufferLab;
+            m_Offsets = new int[ segments.length + 1 ];
+            int deleted = 0;
+            for( int s = 0; s < segments.length; s++ )
+            {
+                m_Offsets[ s + 1 ] = m_Offsets[ s ] + segments[ s ].m_Ids.length;
+                deleted += segments[ s ].m_Deleted.length;
+            }
+            m_Points = m_Offsets[ segments.length ] + bufferIds.length;
+            m_Deleted = deleted;
+        }
+
+        private int size()
+        {
+            return m_Points - m_Deleted;
+        }
+
+        private int indexOf( long id )
+        {
+            return ConcurrentLabIndex.indexOf( m_BufferIds, id );
+        }
+
+        /**
+         * @return the segment of a point, or the number of segments for a point of the buffer.
+         */
+        private int segment( int point )
+        {
+            int s = Arrays.binarySearch( m_Offsets, point );
+            if( s < 0 )
+            {
+                return -s - 2;
+            }
+            // skip empty segments
+            while( s < m_Segments.length && m_Offsets[ s + 1 ] == point )
+            {
+                s++;
+            }
+            return s;
+        }
+    }
+}
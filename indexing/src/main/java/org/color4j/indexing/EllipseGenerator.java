@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.color4j.colorimetry.encodings.CIELab;
+
+/**
+ * Generates the points of CMC tolerance ellipses in the a*b* plane.
+ * <p>Point <code>i</code> of an ellipse lies in the direction <code>360 * i / resolution</code> degrees from the
+ * chroma axis of the target, as in <code>SpaceCalculations.getEllipsePoint</code>, and is given as the a* and
+ * b* offsets from the target. The cosines and sines of the directions are computed once per generator,
+ * so a point costs one square root and a few multiplications.</p>
+ * <p>The ellipse only depends on the chroma and hue of the target and on the deltaE, and the ellipses of the
+ * most recently used (C, h, deltaE) are kept in a bounded cache. Instances can be shared between threads.</p>
+ */
+public final class EllipseGenerator
+{
+    private final int m_Resolution;
+    private final double[] m_Cos;
+    private final double[] m_Sin;
+    private final int m_MaxEntries;
+    private final Map<Key, double[]> m_Cache;
+
+    /**
+     * @param resolution the number of points of each ellipse.
+     * @param cacheSize  the number of ellipses to keep, or 0 to keep none.
+     */
+    public static EllipseGenerator create( int resolution, int cacheSize )
+    {
+        if( resolution <= 0 )
+        {
+            throw new IllegalArgumentException( "The resolution must be positive: " + resolution );  //NOI18N
+        }
+        if( cacheSize < 0 )
+        {
+            throw new IllegalArgumentException( "The cache size may not be negative: " + cacheSize );  //NOI18N
+        }
+        return new EllipseGenerator( resolution, cacheSize );
+    }
+
+    private EllipseGenerator( int resolution, int cacheSize )
+    {
+        m_Resolution = resolution;
+        m_Cos = new double[ resolution ];
+        m_Sin = new double[ resolution ];
+        for( int i = 0; i < resolution; i++ )
+        {
+            double rad = 2.0 * Math.PI * i / resolution;
+            m_Cos[ i ] = Math.cos( rad );
+            m_Sin[ i ] = Math.sin( rad );
+        }
+        // exact values on the axes, where cos and sin of a multiple of PI/2 round to tiny non-zero numbers
+        for( int q = 0; q < 4; q++ )
+        {
+            if( ( resolution * q ) % 4 == 0 )
+            {
+                int i = resolution * q / 4;
+                m_Cos[ i ] = q == 0 ? 1.0 : ( q == 2 ? -1.0 : 0.0 );
+                m_Sin[ i ] = q == 1 ? 1.0 : ( q == 3 ? -1.0 : 0.0 );
+            }
+        }
+        m_MaxEntries = cacheSize;
+        m_Cache = new LruMap();
+    }
+
+    public int getResolution()
+    {
+        return m_Resolution;
+    }
+
+    /**
+     * Writes the a* and b* offsets of the points of the ellipse of <code>target</code>, interleaved, to
+     * <code>ab</code> from <code>offset</code>, which must have room for <code>2 * getResolution()</code> values.
+     */
+    public void generate( CIELab target, double deltaE, double[] ab, int offset )
+    {
+        generate( target.getc(), target.geth(), deltaE, ab, offset );
+    }
+
+    /**
+     * Writes the points of the ellipse for the chroma <code>c</code> and hue <code>h</code>, in degrees,
+     * of a target.
+     */
+    public void generate( double c, double h, double deltaE, double[] ab, int offset )
+    {
+        if( offset < 0 || ab.length - offset < 2 * m_Resolution )
+        {
+            throw new IllegalArgumentException( "The buffer is too short for " + m_Resolution + " points." );  //NOI18N
+        }
+        if( m_MaxEntries == 0 )
+        {
+            compute( c, h, deltaE, ab, offset );
+            return;
+        }
+        Key key = new Key( c, h, deltaE );
+        double[] points;
+        synchronized( m_Cache )
+        {
+            points = m_Cache.get( key );
+        }
+        if( points == null )
+        {
+            points = new double[ 2 * m_Resolution ];
+            compute( c, h, deltaE, points, 0 );
+            synchronized( m_Cache )
+            {
+                m_Cache.put( key, points );
+            }
+        }
+        System.arraycopy( points, 0, ab, offset, points.length );
+    }
+
+    /**
+     * @return the points of the ellipse of <code>target</code>, interleaved in a new array.
+     */
+    public double[] generate( CIELab target, double deltaE )
+    {
+        double[] ab = new double[ 2 * m_Resolution ];
+        generate( target, deltaE, ab, 0 );
+        return ab;
+    }
+
+    public void clearCache()
+    {
+        synchronized( m_Cache )
+        {
+            m_Cache.clear();
+        }
+    }
+
+    private void compute( double c, double h, double deltaE, double[] ab, int offset )
+    {
+        double[] axes = SpaceCalculations.computeEllipseAB( new double[]{ 0.0, c, h }, deltaE );
+        double a = axes[ 0 ];
+        double b = axes[ 1 ];
+        double a2 = a * a;
+        double b2 = b * b;
+        double ab0 = a * b;
+        double rot = h * Math.PI / 180.0;
+        double cosRot = Math.cos( rot );
+        double sinRot = Math.sin( rot );
+        for( int i = 0; i < m_Resolution; i++ )
+        {
+            double cos = m_Cos[ i ];
+            double sin = m_Sin[ i ];
+            // the distance from the center to the ellipse in this direction
+            double r = ab0 == 0.0 ? 0.0 : ab0 / Math.sqrt( b2 * cos * cos + a2 * sin * sin );
+            double x = r * cos;
+            double y = r * sin;
+            ab[ offset++ ] = x * cosRot - y * sinRot;
+            ab[ offset++ ] = x * sinRot + y * cosRot;
+        }
+    }
+
+    private final class LruMap extends LinkedHashMap<Key, double[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private LruMap()
+        {
+            super( 16, 0.75f, true );
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Key, double[]> eldest )
+        {
+            return size() > m_MaxEntries;
+        }
+    }
+
+    /**
+     * Immutable cache key, with the hash code computed once.
+     */
+    private static final class Key
+    {
+        private final long m_Chroma;
+        private final long m_Hue;
+        private final long m_DeltaE;
+        private final int m_Hash;
+
+        private Key( double chroma, double hue, double deltaE )
+        {
+            m_Chroma = Double.doubleToLongBits( chroma );
+            m_Hue = Double.doubleToLongBits( hue );
+            m_DeltaE = Double.doubleToLongBits( deltaE );
+            long hash = ( m_Chroma * 31 + m_Hue ) * 31 + m_DeltaE;
+            m_Hash = (int) ( hash ^ ( hash >>> 32 ) );
+        }
+
+        public boolean equals( Object obj )
+        {
+            if( this == obj )
+            {
+                return true;
+            }
+            if( !( obj instanceof Key ) )
+            {
+                return false;
+            }
+            Key k = (Key) obj;
+            return m_Chroma == k.m_Chroma && m_Hue == k.m_Hue && m_DeltaE == k.m_DeltaE;
+        }
+
+        public int hashCode()
+        {
+            return m_Hash;
+        }
+    }
+}
@@ -55,7 +55,6 @@ public class FarthestNeighbour extends AbstractClusterImpl
     private ArrayList m_Clusters; //this will be an ArrayList of ArrayLists of
     // PointND's
     private double m_Epsilon;
-    private double m_CurDistance;
     private ArrayList m_Outliers;
     private int m_NumReclustered;
     private int m_MinPts;
@@ -367,8 +366,6 @@ public class FarthestNeighbour extends AbstractClusterImpl
             return;
         }
 
-        int clustIdx = m_Outliers.size();
-        double distance = 0;
         // No point in doing this if there aren't enough outlier points
         // left to re-cluster
         ArrayList outlierCopy = new ArrayList( m_Outliers.size() );
@@ -380,12 +377,7 @@ public class FarthestNeighbour extends AbstractClusterImpl
             outlierCopy.add( tempArr );
         }
         m_Logger.debug( "\n m_Outliers initial size=" + m_Outliers.size() );
-        do
-        {
-            distance = mergeNearestClusters( m_Epsilon, outlierCopy );
-            clustIdx--;
-        }
-        while( ( distance < m_Epsilon ) && ( clustIdx > 1 ) );
+        mergeNearestClusters( m_Epsilon, outlierCopy );
 
         m_Logger.debug( "\n outlierCopy size=" + outlierCopy.size() );
 
@@ -414,35 +406,6 @@ public class FarthestNeighbour extends AbstractClusterImpl
         }
     }
 
-    /**
-     * Finds the distance between two furthest points in 2 given arrays
-     *
-     * @param arrA
-     * @param arrB
-     *
-     * @return the distance between furthest points
-     */
-    private double getFarthestDistance( ArrayList arrA, ArrayList arrB )
-    {
-        double tempDist;
-        double curDist = 0;
-
-        for( int i = 0; i < arrA.size(); i++ )
-        {
-            for( int j = 0; j < arrB.size(); j++ )
-            {
-                tempDist = getDistance( (PointND) arrA.get( i ), (PointND) arrB
-                    .get( j ) );
-                if( tempDist > curDist )
-                {
-                    curDist = tempDist;
-                }
-            }
-        }
-
-        return curDist;
-    }
-
     /**
      * Gets the distance between given "point" and the farthest point in cluster
      * arrB
@@ -470,52 +433,52 @@ public class FarthestNeighbour extends AbstractClusterImpl
     }
 
     /**
-     * Calculates nearest clusters using farthest points between any 2 clusters
-     * and merges them into one new cluster
+     * Merges the nearest clusters, by the farthest points between any 2
+     * clusters, until the nearest are further apart than the tolerance or
+     * have just been merged at exactly the tolerance. The cluster earlier in
+     * the list takes the points of the other.
      *
-     * @return the distance between the two merged clusters
+     * @param tolerance  the largest distance at which clusters are merged
+     * @param clusterPts the clusters, an ArrayList of ArrayLists of PointND's
      */
-    private double mergeNearestClusters( double tolerance, ArrayList clusterPts )
+    private void mergeNearestClusters( double tolerance, ArrayList clusterPts )
     {
-        double tempDist;
-        double curDist = m_MaxVal;
-
-        //Cluster indices and Point indices
-        int clusterIdxA, clusterIdxB;//, ptIdxA, ptIdxB;
-        int tempIdx;
-        clusterIdxA = -1;
-        clusterIdxB = -1;
-
         if( clusterPts.size() <= 1 )
         {
-            return -1;
+            return;
         }
-        for( int i = 0; i < clusterPts.size(); i++ )
+        int clusterCount = clusterPts.size();
+        int[] offsets = new int[ clusterCount + 1 ];
+        for( int i = 0; i < clusterCount; i++ )
         {
-            tempIdx = findNearestCluster( i, clusterPts );
-            tempDist = m_CurDistance;
-
-            if( tempDist < curDist )
+            offsets[ i + 1 ] = offsets[ i ] + ( (ArrayList) clusterPts.get( i ) ).size();
+        }
+        int dimensions = ( (PointND) ( (ArrayList) clusterPts.get( 0 ) ).get( 0 ) ).getDims().length;
+        double[] coords = new double[ offsets[ clusterCount ] * dimensions ];
+        for( int i = 0; i < clusterCount; i++ )
+        {
+            ArrayList cluster = (ArrayList) clusterPts.get( i );
+            for( int j = 0; j < cluster.size(); j++ )
             {
-                curDist = tempDist;
-                clusterIdxA = i;
-                clusterIdxB = tempIdx;
+                System.arraycopy( ( (PointND) cluster.get( j ) ).getDims(), 0,
+                                  coords, ( offsets[ i ] + j ) * dimensions, dimensions );
             }
         }
-        //curDist holds the distance between the nearest clusters
-        //only merge if it is within the tolerance
-        if( curDist > tolerance )
+        int[] merges = CompleteLinkage.create( coords, dimensions, offsets ).merge( tolerance );
+        //Now merge the clusters, leaving the merged ones empty until the end
+        for( int k = 0; k < merges.length; k += 2 )
         {
-            return curDist;
+            ( (ArrayList) clusterPts.get( merges[ k ] ) )
+                .addAll( (ArrayList) clusterPts.get( merges[ k + 1 ] ) );
+            clusterPts.set( merges[ k + 1 ], null );
         }
-        //Now merge the clusters
-        if( ( clusterIdxA != -1 ) && ( clusterIdxB != -1 ) )
+        for( int i = clusterCount - 1; i >= 0; i-- )
         {
-            ( (ArrayList) clusterPts.get( clusterIdxA ) )
-                .addAll( (ArrayList) clusterPts.get( clusterIdxB ) );
-            clusterPts.remove( clusterIdxB );
+            if( clusterPts.get( i ) == null )
+            {
+                clusterPts.remove( i );
+            }
         }
-        return curDist;
     }
 
     /*
@@ -671,66 +634,19 @@ public class FarthestNeighbour extends AbstractClusterImpl
         return nearestCluster;
     }
 
-    /**
-     * Given a target index within an ArrayList of clusters, returns the index
-     * of the cluster nearest based on the farthest distance between points in
-     * each cluster.
-     * -Used in Clustering-
-     *
-     * @param targetIdx -
-     *                  index of target cluster in arraylist
-     * @param clustArr  -
-     *                  arraylist of clusters
-     *
-     * @return index of nearest cluster
-     */
-    private int findNearestCluster( int targetIdx, ArrayList clustArr )
-    {
-        double tempDist;
-        double curDist = m_MaxVal;
-        int nearIdx = targetIdx;
-
-        ArrayList arrayA, arrayB;
-        arrayA = (ArrayList) clustArr.get( targetIdx );
-        arrayB = null;
-
-        for( int j = 0; j < clustArr.size(); j++ )
-        {
-            if( j != targetIdx )
-            {
-                arrayB = (ArrayList) clustArr.get( j );
-                tempDist = getFarthestDistance( arrayA, arrayB );
-                if( tempDist < curDist )
-                {
-                    curDist = tempDist;
-                    nearIdx = j;
-                }
-            }
-        }//outer for
-        m_CurDistance = curDist;
-        return nearIdx;
-    }
-
     /**
      * Calculates clusters from all points with the Farthest-Neighbour algorithm
      */
     private void clusterPoints()
     {
-        int clustIdx = m_NumPoints;
         if( m_Outliers.size() != 0 )
         {
             m_Outliers.clear();
         }
-        double distance = 0;
 
         if( m_NumClusters <= 0 )
         {//Epsilon termination
-            do
-            {
-                distance = mergeNearestClusters( m_Epsilon, m_Clusters );
-                clustIdx--;
-            }
-            while( ( distance < m_Epsilon ) && ( clustIdx > 1 ) );
+            mergeNearestClusters( m_Epsilon, m_Clusters );
         }
         m_Outliers.clear();
         determineOutliers();
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A CIELab search index stored in a file, for libraries too large to index at every start.
+ * <p>The file is a header followed by segments, each a <code>LabTree</code> as it is laid out in memory: the
+ * CIELab values in tree order, the radii, the reflectance ids and the split axes. <code>open</code> maps the
+ * segments read-only and queries them in place, so opening does no parsing and the pages are shared by all
+ * processes that have the file open. <code>append</code> adds a segment for new standards without rewriting
+ * the others; a file that was open before the append keeps seeing the segments it was opened with.</p>
+ * <p>A point of the file is numbered by its segment, in the order the segments were appended, and by its
+ * position in the tree of the segment. The queries return these numbers, and <code>getReflectanceId</code> and
+ * <code>getLab</code> read the point they refer to without creating any object.</p>
+ * <p>The file is little endian and its length is committed in the header after a segment is written, so an
+ * append that did not complete is ignored and overwritten by the next one.</p>
+ */
+public final class LabIndexFile
+{
+    private static final int MAGIC = 0x584c3443;  // "C4LX"
+    private static final int SEGMENT_MAGIC = 0x47533443;  // "C4SG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int HAS_RADII = 1;
+
+    private final File m_File;
+    private final LabTree[] m_Trees;
+    private final DoubleBuffer[] m_Coords;
+    private final LongBuffer[] m_ReflectanceIds;
+    // the number of the first point of each segment, and the number of points at the end
+    private final int[] m_Offsets;
+
+    private LabIndexFile( File file, List<MappedByteBuffer> segments )
+    {
+        m_File = file;
+        int count = segments.size();
+        m_Trees = new LabTree[ count ];
+        m_Coords = new DoubleBuffer[ count ];
+        m_ReflectanceIds = new LongBuffer[ count ];
+        m_Offsets = new int[ count + 1 ];
+        for( int s = 0; s < count; s++ )
+        {
+            ByteBuffer segment = segments.get( s ).order( ByteOrder.LITTLE_ENDIAN );
+            int size = segment.getInt( 4 );
+            boolean radii = ( segment.getInt( 8 ) & HAS_RADII ) != 0;
+            int position = SEGMENT_HEADER_SIZE;
+            DoubleBuffer coords = slice( segment, position, size * 24 ).asDoubleBuffer();
+            position += size * 24;
+            DoubleBuffer radius = null;
+            DoubleBuffer maxRadius = null;
+            if( radii )
+            {
+                radius = slice( segment, position, size * 8 ).asDoubleBuffer();
+                position += size * 8;
+                maxRadius = slice( segment, position, size * 8 ).asDoubleBuffer();
+                position += size * 8;
+            }
+            m_ReflectanceIds[ s ] = slice( segment, position, size * 8 ).asLongBuffer();
+            position += size * 8;
+            ByteBuffer axes = slice( segment, position, size );
+            m_Coords[ s ] = coords;
+            m_Trees[ s ] = new LabTree( size, coords, null, axes, radius, maxRadius );
+            m_Offsets[ s + 1 ] = m_Offsets[ s ] + size;
+        }
+    }
+
+    /**
+     * Maps the segments of an index file read-only.
+     */
+    public static LabIndexFile open( File file )
+        throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );  //NOI18N
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = readHeader( channel );
+            int segmentCount = header.getInt( 8 );
+            List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>( segmentCount );
+            long position = HEADER_SIZE;
+            for( int s = 0; s < segmentCount; s++ )
+            {
+                ByteBuffer segmentHeader = read( channel, position, SEGMENT_HEADER_SIZE );
+                if( segmentHeader.getInt( 0 ) != SEGMENT_MAGIC )
+                {
+                    throw new IOException( "Segment " + s + " of " + file + " is corrupt." );  //NOI18N
+                }
+                long size = segmentSize( segmentHeader.getInt( 4 ), ( segmentHeader.getInt( 8 ) & HAS_RADII ) != 0 );
+                segments.add( channel.map( FileChannel.MapMode.READ_ONLY, position, size ) );
+                position += size;
+            }
+            return new LabIndexFile( file, segments );
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Builds a tree over <code>count</code> points and appends it to an index file as a new segment, creating
+     * the file if it does not exist. Appends to the same file are serialized with a file lock.
+     *
+     * @param lab            the packed CIELab values, <code>{ L0, a0, b0, L1, a1, b1, ... }</code>.
+     * @param radii          the radius of each point, or null if the points have no extent.
+     * @param reflectanceIds the id of the reflectance of each point.
+     * @param count          the number of points.
+     */
+    public static void append( File file, double[] lab, double[] radii, long[] reflectanceIds, int count )
+        throws IOException
+    {
+        if( reflectanceIds.length < count )
+        {
+            throw new IllegalArgumentException( "The array is too short for " + count + " reflectance ids." );  //NOI18N
+        }
+        LabTree tree = LabTree.create( lab, radii, count );
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );  //NOI18N
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.lock();
+            try
+            {
+                if( channel.size() == 0 )
+                {
+                    ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+                    header.putInt( 0, MAGIC );
+                    header.putInt( 4, VERSION );
+                    header.putLong( 16, 0 );
+                    header.putLong( 24, HEADER_SIZE );
+                    write( channel, header, 0 );
+                }
+                ByteBuffer header = readHeader( channel );
+                long points = header.getLong( 16 ) + count;
+                if( points > Integer.MAX_VALUE )
+                {
+                    throw new IllegalArgumentException( "An index file holds at most " + Integer.MAX_VALUE + " points." );  //NOI18N
+                }
+                long position = header.getLong( 24 );
+                long size = segmentSize( count, radii != null );
+                if( size > Integer.MAX_VALUE )
+                {
+                    throw new IllegalArgumentException( "Too many points for one segment, append them in parts." );  //NOI18N
+                }
+                MappedByteBuffer segment = channel.map( FileChannel.MapMode.READ_WRITE, position, size );
+                writeSegment( segment.order( ByteOrder.LITTLE_ENDIAN ), tree, reflectanceIds, radii != null );
+                segment.force();
+
+                header.putInt( 8, header.getInt( 8 ) + 1 );
+                header.putLong( 16, points );
+                header.putLong( 24, position + size );
+                write( channel, header, 0 );
+                channel.force( false );
+            }
+            finally
+            {
+                lock.release();
+            }
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    public File getFile()
+    {
+        return m_File;
+    }
+
+    /**
+     * @return the number of points in the file.
+     */
+    public int size()
+    {
+        return m_Offsets[ m_Trees.length ];
+    }
+
+    public int getSegmentCount()
+    {
+        return m_Trees.length;
+    }
+
+    /**
+     * @return the id of the reflectance of a point.
+     */
+    public long getReflectanceId( int point )
+    {
+        int s = segment( point );
+        return m_ReflectanceIds[ s ].get( point - m_Offsets[ s ] );
+    }
+
+    /**
+     * Copies the CIELab values of a point to <code>lab[ offset ]</code> to <code>lab[ offset + 2 ]</code>.
+     */
+    public void getLab( int point, double[] lab, int offset )
+    {
+        int s = segment( point );
+        int p = ( point - m_Offsets[ s ] ) * 3;
+        DoubleBuffer coords = m_Coords[ s ];
+        lab[ offset ] = coords.get( p );
+        lab[ offset + 1 ] = coords.get( p + 1 );
+        lab[ offset + 2 ] = coords.get( p + 2 );
+    }
+
+    /**
+     * Finds the <code>k</code> points nearest to (L, a, b) in all segments.
+     *
+     * @param points    receives the numbers of the points found, nearest first.
+     * @param distances receives the Euclidean distances of the points found.
+     * @return the number of points found.
+     */
+    public int nearest( double L, double a, double b, int k, int[] points, double[] distances )
+    {
+        if( k < 0 || points.length < k || distances.length < k )
+        {
+            throw new IllegalArgumentException( "The arrays are too short for " + k + " points." );  //NOI18N
+        }
+        int count = 0;
+        for( int s = 0; s < m_Trees.length; s++ )
+        {
+            count = m_Trees[ s ].nearest( L, a, b, k, points, distances, count, m_Offsets[ s ] );
+        }
+        return LabTree.finish( points, distances, count );
+    }
+
+    /**
+     * Visits the points of all segments whose sphere overlaps the sphere of radius <code>radius</code> around
+     * (L, a, b). The visitor receives the numbers of the points.
+     */
+    public void within( double L, double a, double b, double radius, LabTree.Visitor visitor )
+    {
+        for( int s = 0; s < m_Trees.length; s++ )
+        {
+            m_Trees[ s ].within( L, a, b, radius, visitor, m_Offsets[ s ] );
+        }
+    }
+
+    private int segment( int point )
+    {
+        if( point < 0 || point >= size() )
+        {
+            throw new IndexOutOfBoundsException( "Point " + point + " of " + size() );  //NOI18N
+        }
+        int s = Arrays.binarySearch( m_Offsets, point );
+        if( s < 0 )
+        {
+            return -s - 2;
+        }
+        // skip empty segments
+        while( m_Offsets[ s + 1 ] == point )
+        {
+            s++;
+        }
+        return s;
+    }
+
+    private static long segmentSize( int count, boolean radii )
+    {
+        long size = SEGMENT_HEADER_SIZE + count * ( radii ? 49L : 33L );
+        return ( size + 7 ) & ~7L;
+    }
+
+    private static void writeSegment( ByteBuffer segment, LabTree tree, long[] reflectanceIds, boolean radii )
+    {
+        int count = tree.size();
+        segment.putInt( SEGMENT_MAGIC );
+        segment.putInt( count );
+        segment.putInt( radii ? HAS_RADII : 0 );
+        segment.putInt( 0 );
+        segment.asDoubleBuffer().put( tree.getCoords() );
+        segment.position( segment.position() + count * 24 );
+        if( radii )
+        {
+            segment.asDoubleBuffer().put( tree.getRadii() );
+            segment.position( segment.position() + count * 8 );
+            segment.asDoubleBuffer().put( tree.getMaxRadii() );
+            segment.position( segment.position() + count * 8 );
+        }
+        LongBuffer ids = segment.asLongBuffer();
+        IntBuffer order = tree.getIds();
+        for( int i = 0; i < count; i++ )
+        {
+            ids.put( i, reflectanceIds[ order.get( i ) ] );
+        }
+        segment.position( segment.position() + count * 8 );
+        segment.put( tree.getAxes() );
+    }
+
+    private static ByteBuffer readHeader( FileChannel channel )
+        throws IOException
+    {
+        ByteBuffer header = read( channel, 0, HEADER_SIZE );
+        if( header.getInt( 0 ) != MAGIC )
+        {
+            throw new IOException( "Not a CIELab index file." );  //NOI18N
+        }
+        if( header.getInt( 4 ) != VERSION )
+        {
+            throw new IOException( "Unsupported CIELab index file version " + header.getInt( 4 ) + "." );  //NOI18N
+        }
+        return header;
+    }
+
+    private static ByteBuffer read( FileChannel channel, long position, int size )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( size ).order( ByteOrder.LITTLE_ENDIAN );
+        while( buffer.hasRemaining() )
+        {
+            if( channel.read( buffer, position + buffer.position() ) < 0 )
+            {
+                throw new IOException( "Unexpected end of the CIELab index file." );  //NOI18N
+            }
+        }
+        return buffer;
+    }
+
+    private static void write( FileChannel channel, ByteBuffer buffer, long position )
+        throws IOException
+    {
+        buffer.clear();
+        while( buffer.hasRemaining() )
+        {
+            channel.write( buffer, position + buffer.position() );
+        }
+    }
+
+    private static ByteBuffer slice( ByteBuffer buffer, int position, int size )
+    {
+        ByteBuffer copy = buffer.duplicate();
+        copy.position( position );
+        copy.limit( position + size );
+        return copy.slice().order( ByteOrder.LITTLE_ENDIAN );
+    }
+}
@@ -0,0 +1,617 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * A KD-tree over CIELab points, for nearest neighbour and fixed radius queries by Euclidean distance.
+ * <p>The tree is implicit: the points are reordered so that the point splitting the range
+ * <code>[lo, hi)</code> sits at its middle, <code>(lo + hi) / 2</code>, with the points on the low side of
+ * the split before it and the others after it. Besides the coordinates only the split axis and, if
+ * the points have radii, the largest radius of each subtree are kept, so there are no node objects.</p>
+ * <p>A point is identified by its position in the arrays the tree was built from. Each point may have a
+ * radius, as <code>CIELabSearchIndex</code> does, and a fixed radius query then finds the points whose sphere
+ * overlaps the query sphere. Nearest neighbour queries use the distance to the center of the points.
+ * Trees are immutable and can be queried from many threads.</p>
+ * <p>The tree is held in NIO buffers, so that <code>LabIndexFile</code> can query trees mapped from a file
+ * with the same code.</p>
+ */
+public final class LabTree
+{
+    private static final int BUILD_GRAIN = 16384;
+
+    private final int m_Size;
+    private final DoubleBuffer m_Coords;
+    private final IntBuffer m_Ids;
+    private final ByteBuffer m_Axes;
+    private final DoubleBuffer m_Radii;
+    private final DoubleBuffer m_MaxRadii;
+
+    /**
+     * Receives the points found by a fixed radius query.
+     */
+    public interface Visitor
+    {
+        /**
+         * @param id       the position of the point in the arrays the tree was built from.
+         * @param distance the Euclidean distance from the query to the center of the point.
+         */
+        void visit( int id, double distance );
+    }
+
+    public static LabTree create( double[] lab, int count )
+    {
+        return create( lab, null, count );
+    }
+
+    /**
+     * Builds a tree over <code>count</code> packed CIELab points, <code>{ L0, a0, b0, L1, a1, b1, ... }</code>.
+     *
+     * @param lab   the packed CIELab values.
+     * @param radii the radius of each point, or null if the points have no extent.
+     * @param count the number of points.
+     */
+    public static LabTree create( double[] lab, double[] radii, int count )
+    {
+        if( count < 0 || lab.length < count * 3L || ( radii != null && radii.length < count ) )
+        {
+            throw new IllegalArgumentException( "The arrays are too short for " + count + " points." );  //NOI18N
+        }
+        return new LabTree( lab, radii, count );
+    }
+
+    private LabTree( final double[] lab, double[] radii, int count )
+    {
+        m_Size = count;
+        final byte[] axes = new byte[ count ];
+        final int[] order = new int[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            order[ i ] = i;
+        }
+        final List<int[]> ranges = new ArrayList<int[]>();
+        split( lab, order, axes, 0, count, ranges );
+        Parallel.forRange( ranges.size(), 1, new Parallel.Range()
+        {
+            public void compute( int from, int to )
+            {
+                for( int r = from; r < to; r++ )
+                {
+                    int[] range = ranges.get( r );
+                    build( lab, order, axes, range[ 0 ], range[ 1 ] );
+                }
+            }
+        } );
+        double[] coords = new double[ count * 3 ];
+        for( int i = 0; i < count; i++ )
+        {
+            System.arraycopy( lab, order[ i ] * 3, coords, i * 3, 3 );
+        }
+        m_Coords = DoubleBuffer.wrap( coords );
+        m_Ids = IntBuffer.wrap( order );
+        m_Axes = ByteBuffer.wrap( axes );
+        if( radii == null )
+        {
+            m_Radii = null;
+            m_MaxRadii = null;
+        }
+        else
+        {
+            double[] sorted = new double[ count ];
+            for( int i = 0; i < count; i++ )
+            {
+                sorted[ i ] = radii[ order[ i ] ];
+            }
+            double[] max = new double[ count ];
+            maxRadius( sorted, max, 0, count );
+            m_Radii = DoubleBuffer.wrap( sorted );
+            m_MaxRadii = DoubleBuffer.wrap( max );
+        }
+    }
+
+    /**
+     * A tree over buffers laid out as the buffers of a built tree.
+     *
+     * @param ids the ids of the points in tree order, or null if the id of a point is its position in the tree.
+     */
+    LabTree( int size, DoubleBuffer coords, IntBuffer ids, ByteBuffer axes, DoubleBuffer radii, DoubleBuffer maxRadii )
+    {
+        m_Size = size;
+        m_Coords = coords;
+        m_Ids = ids;
+        m_Axes = axes;
+        m_Radii = radii;
+        m_MaxRadii = maxRadii;
+    }
+
+    /**
+     * @return the number of points in the tree.
+     */
+    public int size()
+    {
+        return m_Size;
+    }
+
+    /**
+     * @return the packed CIELab values of the points, in tree order.
+     */
+    DoubleBuffer getCoords()
+    {
+        return m_Coords.duplicate();
+    }
+
+    /**
+     * @return the ids of the points, in tree order.
+     */
+    IntBuffer getIds()
+    {
+        return m_Ids.duplicate();
+    }
+
+    ByteBuffer getAxes()
+    {
+        return m_Axes.duplicate();
+    }
+
+    /**
+     * @return the radii of the points in tree order, or null if the points have no radius.
+     */
+    DoubleBuffer getRadii()
+    {
+        return m_Radii == null ? null : m_Radii.duplicate();
+    }
+
+    /**
+     * @return the largest radius of the subtree below each point, or null if the points have no radius.
+     */
+    DoubleBuffer getMaxRadii()
+    {
+        return m_MaxRadii == null ? null : m_MaxRadii.duplicate();
+    }
+
+    /**
+     * Finds the <code>k</code> points nearest to (L, a, b).
+     *
+     * @param ids       receives the ids of the points found, nearest first.
+     * @param distances receives the Euclidean distances of the points found.
+     * @return the number of points found, which is less than <code>k</code> only if the tree is smaller.
+     */
+    public int nearest( double L, double a, double b, int k, int[] ids, double[] distances )
+    {
+        if( k < 0 || ids.length < k || distances.length < k )
+        {
+            throw new IllegalArgumentException( "The arrays are too short for " + k + " points." );  //NOI18N
+        }
+        return finish( ids, distances, nearest( L, a, b, k, ids, distances, 0, 0 ) );
+    }
+
+    /**
+     * Adds the points of this tree to the <code>k</code> nearest found so far, which are kept as a max-heap of
+     * squared distances in <code>ids</code> and <code>distances</code>, so that several trees can be searched
+     * for the nearest points of them all.
+     *
+     * @param count    the number of points in the heap.
+     * @param idOffset added to the ids of the points of this tree.
+     * @return the number of points in the heap.
+     */
+    int nearest( double L, double a, double b, int k, int[] ids, double[] distances, int count, int idOffset )
+    {
+        Search search = new Search( L, a, b, k, ids, distances, count, idOffset );
+        if( k > 0 )
+        {
+            nearest( search, 0, m_Size );
+        }
+        return search.m_Count;
+    }
+
+    /**
+     * Sorts the heap of <code>nearest</code> by distance, nearest first, and turns the squared distances into
+     * distances.
+     *
+     * @return <code>count</code>
+     */
+    static int finish( int[] ids, double[] distances, int count )
+    {
+        for( int end = count - 1; end > 0; end-- )
+        {
+            swap( ids, distances, 0, end );
+            siftDown( ids, distances, 0, end );
+        }
+        for( int i = 0; i < count; i++ )
+        {
+            distances[ i ] = Math.sqrt( distances[ i ] );
+        }
+        return count;
+    }
+
+    /**
+     * Visits the points whose sphere overlaps the sphere of radius <code>radius</code> around (L, a, b), that is
+     * the points whose center is within <code>radius</code> plus their own radius.
+     */
+    public void within( double L, double a, double b, double radius, Visitor visitor )
+    {
+        within( L, a, b, radius, visitor, 0, 0, m_Size );
+    }
+
+    /**
+     * @param idOffset added to the ids of the points visited.
+     */
+    void within( double L, double a, double b, double radius, Visitor visitor, int idOffset )
+    {
+        within( L, a, b, radius, visitor, idOffset, 0, m_Size );
+    }
+
+    /**
+     * @return the ids of the points whose sphere overlaps the sphere of radius <code>radius</code> around (L, a, b).
+     */
+    public int[] within( double L, double a, double b, double radius )
+    {
+        final int[][] found = { new int[ 16 ] };
+        final int[] count = { 0 };
+        within( L, a, b, radius, new Visitor()
+        {
+            public void visit( int id, double distance )
+            {
+                if( count[ 0 ] == found[ 0 ].length )
+                {
+                    int[] grown = new int[ count[ 0 ] * 2 ];
+                    System.arraycopy( found[ 0 ], 0, grown, 0, count[ 0 ] );
+                    found[ 0 ] = grown;
+                }
+                found[ 0 ][ count[ 0 ]++ ] = id;
+            }
+        } );
+        int[] ids = new int[ count[ 0 ] ];
+        System.arraycopy( found[ 0 ], 0, ids, 0, ids.length );
+        return ids;
+    }
+
+    private int id( int position )
+    {
+        return m_Ids == null ? position : m_Ids.get( position );
+    }
+
+    private void nearest( Search search, int lo, int hi )
+    {
+        DoubleBuffer coords = m_Coords;
+        while( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            int p = mid * 3;
+            double dL = search.m_L - coords.get( p );
+            double da = search.m_a - coords.get( p + 1 );
+            double db = search.m_b - coords.get( p + 2 );
+            double d2 = dL * dL + da * da + db * db;
+            if( search.m_Count < search.m_K || d2 < search.m_Distances[ 0 ] )
+            {
+                search.offer( search.m_IdOffset + id( mid ), d2 );
+            }
+            int axis = m_Axes.get( mid );
+            double diff = axis == 0 ? dL : ( axis == 1 ? da : db );
+            if( diff < 0 )
+            {
+                nearest( search, lo, mid );
+                lo = mid + 1;
+            }
+            else
+            {
+                nearest( search, mid + 1, hi );
+                hi = mid;
+            }
+            if( search.m_Count == search.m_K && diff * diff >= search.m_Distances[ 0 ] )
+            {
+                return;
+            }
+        }
+    }
+
+    private void within( double L, double a, double b, double radius, Visitor visitor, int idOffset, int lo, int hi )
+    {
+        DoubleBuffer coords = m_Coords;
+        while( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            int p = mid * 3;
+            double dL = L - coords.get( p );
+            double da = a - coords.get( p + 1 );
+            double db = b - coords.get( p + 2 );
+            double reach = m_Radii == null ? radius : radius + m_Radii.get( mid );
+            double d2 = dL * dL + da * da + db * db;
+            if( d2 <= reach * reach )
+            {
+                visitor.visit( idOffset + id( mid ), Math.sqrt( d2 ) );
+            }
+            // the largest reach of any point below this node
+            double maxReach = m_MaxRadii == null ? radius : radius + m_MaxRadii.get( mid );
+            int axis = m_Axes.get( mid );
+            double diff = axis == 0 ? dL : ( axis == 1 ? da : db );
+            if( diff < 0 )
+            {
+                within( L, a, b, radius, visitor, idOffset, lo, mid );
+                if( -diff > maxReach )
+                {
+                    return;
+                }
+                lo = mid + 1;
+            }
+            else
+            {
+                within( L, a, b, radius, visitor, idOffset, mid + 1, hi );
+                if( diff > maxReach )
+                {
+                    return;
+                }
+                hi = mid;
+            }
+        }
+    }
+
+    /**
+     * Splits the top levels of the tree, until the ranges are small enough to be built in parallel.
+     */
+    private void split( double[] lab, int[] order, byte[] axes, int lo, int hi, List<int[]> ranges )
+    {
+        if( hi - lo <= BUILD_GRAIN || hi - lo <= m_Size / ( 4 * Parallel.getParallelism() ) )
+        {
+            ranges.add( new int[]{ lo, hi } );
+            return;
+        }
+        int mid = partition( lab, order, axes, lo, hi );
+        split( lab, order, axes, lo, mid, ranges );
+        split( lab, order, axes, mid + 1, hi, ranges );
+    }
+
+    private static void build( double[] lab, int[] order, byte[] axes, int lo, int hi )
+    {
+        while( hi - lo > 1 )
+        {
+            int mid = partition( lab, order, axes, lo, hi );
+            build( lab, order, axes, lo, mid );
+            lo = mid + 1;
+        }
+    }
+
+    /**
+     * Chooses the axis of widest spread of <code>[lo, hi)</code> and moves the median along it to the middle.
+     *
+     * @return the middle of the range.
+     */
+    private static int partition( double[] lab, int[] order, byte[] axes, int lo, int hi )
+    {
+        double[] min = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+        double[] max = { -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        for( int i = lo; i < hi; i++ )
+        {
+            int p = order[ i ] * 3;
+            for( int k = 0; k < 3; k++ )
+            {
+                double v = lab[ p + k ];
+                if( v < min[ k ] )
+                {
+                    min[ k ] = v;
+                }
+                if( v > max[ k ] )
+                {
+                    max[ k ] = v;
+                }
+            }
+        }
+        int axis = 0;
+        for( int k = 1; k < 3; k++ )
+        {
+            if( max[ k ] - min[ k ] > max[ axis ] - min[ axis ] )
+            {
+                axis = k;
+            }
+        }
+        int mid = ( lo + hi ) >>> 1;
+        select( lab, order, lo, hi - 1, mid, axis );
+        axes[ mid ] = (byte) axis;
+        return mid;
+    }
+
+    /**
+     * Moves the point of rank <code>k</code> along <code>axis</code> within <code>[left, right]</code> to position
+     * <code>k</code>, with no larger values before it and no smaller ones after it.
+     */
+    private static void select( double[] lab, int[] order, int left, int right, int k, int axis )
+    {
+        while( right > left )
+        {
+            // median of three as the pivot
+            int center = ( left + right ) >>> 1;
+            if( value( lab, order, center, axis ) < value( lab, order, left, axis ) )
+            {
+                swap( order, center, left );
+            }
+            if( value( lab, order, right, axis ) < value( lab, order, left, axis ) )
+            {
+                swap( order, right, left );
+            }
+            if( value( lab, order, right, axis ) < value( lab, order, center, axis ) )
+            {
+                swap( order, right, center );
+            }
+            double pivot = value( lab, order, center, axis );
+            int i = left;
+            int j = right;
+            while( i <= j )
+            {
+                while( value( lab, order, i, axis ) < pivot )
+                {
+                    i++;
+                }
+                while( value( lab, order, j, axis ) > pivot )
+                {
+                    j--;
+                }
+                if( i <= j )
+                {
+                    swap( order, i, j );
+                    i++;
+                    j--;
+                }
+            }
+            if( k <= j )
+            {
+                right = j;
+            }
+            else if( k >= i )
+            {
+                left = i;
+            }
+            else
+            {
+                return;
+            }
+        }
+    }
+
+    private static double value( double[] lab, int[] order, int i, int axis )
+    {
+        return lab[ order[ i ] * 3 + axis ];
+    }
+
+    private static void swap( int[] order, int i, int j )
+    {
+        int t = order[ i ];
+        order[ i ] = order[ j ];
+        order[ j ] = t;
+    }
+
+    private static double maxRadius( double[] radii, double[] maxRadii, int lo, int hi )
+    {
+        if( lo >= hi )
+        {
+            return 0.0;
+        }
+        int mid = ( lo + hi ) >>> 1;
+        double max = Math.max( radii[ mid ], Math.max( maxRadius( radii, maxRadii, lo, mid ), maxRadius( radii, maxRadii, mid + 1, hi ) ) );
+        maxRadii[ mid ] = max;
+        return max;
+    }
+
+    private static void swap( int[] ids, double[] distances, int i, int j )
+    {
+        int id = ids[ i ];
+        ids[ i ] = ids[ j ];
+        ids[ j ] = id;
+        double d = distances[ i ];
+        distances[ i ] = distances[ j ];
+        distances[ j ] = d;
+    }
+
+    /**
+     * Restores the max-heap property of <code>distances[ 0, size )</code> below <code>i</code>.
+     */
+    private static void siftDown( int[] ids, double[] distances, int i, int size )
+    {
+        while( true )
+        {
+            int child = 2 * i + 1;
+            if( child >= size )
+            {
+                return;
+            }
+            if( child + 1 < size && distances[ child + 1 ] > distances[ child ] )
+            {
+                child++;
+            }
+            if( distances[ child ] <= distances[ i ] )
+            {
+                return;
+            }
+            swap( ids, distances, i, child );
+            i = child;
+        }
+    }
+
+    /**
+     * Offers a point to a max-heap of the <code>k</code> nearest points as <code>nearest</code> keeps it.
+     *
+     * @param squared the squared distance of the point.
+     * @return the number of points in the heap.
+     */
+    static int offer( int[] ids, double[] distances, int count, int k, int id, double squared )
+    {
+        if( count < k )
+        {
+            int i = count++;
+            ids[ i ] = id;
+            distances[ i ] = squared;
+            // sift up
+            while( i > 0 )
+            {
+                int parent = ( i - 1 ) / 2;
+                if( distances[ parent ] >= distances[ i ] )
+                {
+                    break;
+                }
+                swap( ids, distances, parent, i );
+                i = parent;
+            }
+        }
+        else if( k > 0 && squared < distances[ 0 ] )
+        {
+            ids[ 0 ] = id;
+            distances[ 0 ] = squared;
+            siftDown( ids, distances, 0, count );
+        }
+        return count;
+    }
+
+    /**
+     * The state of a nearest neighbour query: the k nearest points so far, as a max-heap of squared distances
+     * in the arrays of the caller.
+     */
+    private static final class Search
+    {
+        private final double m_L;
+        private final double m_a;
+        private final double m_b;
+        private final int m_K;
+        private final int[] m_Ids;
+        private final double[] m_Distances;
+        private final int m_IdOffset;
+        private int m_Count;
+
+        private Search( double L, double a, double b, int k, int[] ids, double[] distances, int count, int idOffset )
+        {
+            m_L = L;
+            m_a = a;
+            m_b = b;
+            m_K = k;
+            m_Ids = ids;
+            m_Distances = distances;
+            m_Count = count;
+            m_IdOffset = idOffset;
+        }
+
+        private void offer( int id, double distance )
+        {
+            m_Count = LabTree.offer( m_Ids, m_Distances, m_Count, m_K, id, distance );
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.Arrays;
+import org.color4j.colorimetry.math.Parallel;
+
+/**
+ * The minimum spanning tree of the complete graph over points in N dimensions, weighted by Euclidean distance.
+ * <p>The tree is grown with Prim's algorithm, which needs no edge list: each step adds the point nearest to the
+ * tree and updates the distances of the others to the tree from the point added, split across threads. The
+ * points not yet in the tree are kept packed at the front of the arrays, so a step costs one distance per
+ * point left.</p>
+ * <p>The edges of the tree are the single-linkage merges: cutting the edges longer than a distance leaves the
+ * clusters of single linkage at that distance.</p>
+ */
+public final class MinimumSpanningTree
+{
+    private static final int BLOCK = 1024;
+
+    private final int[] m_From;
+    private final int[] m_To;
+    private final double[] m_Distances;
+
+    private MinimumSpanningTree( double[] coords, int count, int dimensions )
+    {
+        int edges = Math.max( count - 1, 0 );
+        int[] from = new int[ edges ];
+        int[] to = new int[ edges ];
+        double[] distances = new double[ edges ];
+        if( count > 1 )
+        {
+            Prim prim = new Prim( coords, count, dimensions );
+            for( int e = 0; e < edges; e++ )
+            {
+                prim.step();
+                from[ e ] = prim.m_EdgeFrom;
+                to[ e ] = prim.m_EdgeTo;
+                distances[ e ] = Math.sqrt( prim.m_EdgeSquared );
+            }
+        }
+        int[] order = new int[ edges ];
+        for( int e = 0; e < edges; e++ )
+        {
+            order[ e ] = e;
+        }
+        sort( order, new int[ edges ], distances, 0, edges );
+        m_From = new int[ edges ];
+        m_To = new int[ edges ];
+        m_Distances = new double[ edges ];
+        for( int e = 0; e < edges; e++ )
+        {
+            m_From[ e ] = from[ order[ e ] ];
+            m_To[ e ] = to[ order[ e ] ];
+            m_Distances[ e ] = distances[ order[ e ] ];
+        }
+    }
+
+    /**
+     * @param coords     the packed coordinates of the points, <code>dimensions</code> values per point.
+     * @param count      the number of points.
+     * @param dimensions the number of dimensions.
+     */
+    public static MinimumSpanningTree create( double[] coords, int count, int dimensions )
+    {
+        if( count < 0 || dimensions < 1 || coords.length < (long) count * dimensions )
+        {
+            throw new IllegalArgumentException( "The array is too short for " + count + " points." );  //NOI18N
+        }
+        return new MinimumSpanningTree( coords, count, dimensions );
+    }
+
+    /**
+     * @return the number of edges, one less than the number of points.
+     */
+    public int getEdgeCount()
+    {
+        return m_Distances.length;
+    }
+
+    /**
+     * The edges are ordered by length, shortest first, and the points are numbered as in the coordinates the
+     * tree was created from.
+     *
+     * @return the point of an edge that was in the tree when the edge was added.
+     */
+    public int getFrom( int edge )
+    {
+        return m_From[ edge ];
+    }
+
+    /**
+     * @return the point an edge added to the tree.
+     */
+    public int getTo( int edge )
+    {
+        return m_To[ edge ];
+    }
+
+    /**
+     * @return the Euclidean distance between the points of an edge.
+     */
+    public double getDistance( int edge )
+    {
+        return m_Distances[ edge ];
+    }
+
+    /**
+     * Stable merge sort of <code>order[ lo, hi )</code> by distance.
+     */
+    private static void sort( int[] order, int[] work, double[] distances, int lo, int hi )
+    {
+        if( hi - lo < 2 )
+        {
+            return;
+        }
+        int mid = ( lo + hi ) >>> 1;
+        sort( order, work, distances, lo, mid );
+        sort( order, work, distances, mid, hi );
+        if( !( distances[ order[ mid ] ] < distances[ order[ mid - 1 ] ] ) )
+        {
+            return;
+        }
+        System.arraycopy( order, lo, work, lo, hi - lo );
+        int i = lo;
+        int j = mid;
+        for( int k = lo; k < hi; k++ )
+        {
+            if( j >= hi || ( i < mid && !( distances[ work[ j ] ] < distances[ work[ i ] ] ) ) )
+            {
+                order[ k ] = work[ i++ ];
+            }
+            else
+            {
+                order[ k ] = work[ j++ ];
+            }
+        }
+    }
+
+    /**
+     * The state of Prim's algorithm. The points outside the tree are the first <code>m_Count</code> of the
+     * arrays, with their squared distance to the tree and the point of the tree that distance is from.
+     */
+    private static final class Prim
+        implements Parallel.Range
+    {
+        private final int m_Dimensions;
+        private final double[] m_Points;
+        private final int[] m_Ids;
+        private final double[] m_Best;
+        private final int[] m_Parent;
+        private final double[] m_Current;
+        private final double[] m_BlockMin;
+        private final int[] m_BlockIndex;
+        private int m_Count;
+        private int m_CurrentId;
+        private int m_EdgeFrom;
+        private int m_EdgeTo;
+        private double m_EdgeSquared;
+
+        private Prim( double[] coords, int count, int dimensions )
+        {
+            m_Dimensions = dimensions;
+            m_Points = Arrays.copyOf( coords, count * dimensions );
+            m_Ids = new int[ count ];
+            for( int i = 0; i < count; i++ )
+            {
+                m_Ids[ i ] = i;
+            }
+            m_Best = new double[ count ];
+            Arrays.fill( m_Best, Double.POSITIVE_INFINITY );
+            m_Parent = new int[ count ];
+            m_Current = new double[ dimensions ];
+            int blocks = ( count + BLOCK - 1 ) / BLOCK;
+            m_BlockMin = new double[ blocks ];
+            m_BlockIndex = new int[ blocks ];
+            m_Count = count;
+            // the first point starts the tree
+            take( 0 );
+        }
+
+        /**
+         * Adds the point nearest to the tree.
+         */
+        private void step()
+        {
+            int blocks = ( m_Count + BLOCK - 1 ) / BLOCK;
+            Parallel.forRange( blocks, 2, this );
+            int nearest = m_BlockIndex[ 0 ];
+            for( int b = 1; b < blocks; b++ )
+            {
+                if( m_BlockMin[ b ] < m_Best[ nearest ] )
+                {
+                    nearest = m_BlockIndex[ b ];
+                }
+            }
+            m_EdgeFrom = m_Parent[ nearest ];
+            m_EdgeTo = m_Ids[ nearest ];
+            m_EdgeSquared = m_Best[ nearest ];
+            take( nearest );
+        }
+
+        /**
+         * Updates the distances to the tree from the point last added, in blocks <code>[from, to)</code>, and
+         * finds the nearest point of each block.
+         */
+        public void compute( int from, int to )
+        {
+            int dimensions = m_Dimensions;
+            double[] points = m_Points;
+            double[] current = m_Current;
+            for( int b = from; b < to; b++ )
+            {
+                int lo = b * BLOCK;
+                int hi = Math.min( m_Count, lo + BLOCK );
+                int nearest = lo;
+                double min = Double.POSITIVE_INFINITY;
+                for( int p = lo; p < hi; p++ )
+                {
+                    int offset = p * dimensions;
+                    double d = points[ offset ] - current[ 0 ];
+                    double sum = d * d;
+                    for( int k = 1; k < dimensions; k++ )
+                    {
+                        d = points[ offset + k ] - current[ k ];
+                        sum += d * d;
+                    }
+                    if( sum < m_Best[ p ] )
+                    {
+                        m_Best[ p ] = sum;
+                        m_Parent[ p ] = m_CurrentId;
+                    }
+                    if( m_Best[ p ] < min )
+                    {
+                        min = m_Best[ p ];
+                        nearest = p;
+                    }
+                }
+                m_BlockMin[ b ] = min;
+                m_BlockIndex[ b ] = nearest;
+            }
+        }
+
+        /**
+         * Makes the point at <code>position</code> the current one and moves the last point outside the tree
+         * into its place.
+         */
+        private void take( int position )
+        {
+            int dimensions = m_Dimensions;
+            System.arraycopy( m_Points, position * dimensions, m_Current, 0, dimensions );
+            m_CurrentId = m_Ids[ position ];
+            int last = --m_Count;
+            System.arraycopy( m_Points, last * dimensions, m_Points, position * dimensions, dimensions );
+            m_Ids[ position ] = m_Ids[ last ];
+            m_Best[ position ] = m_Best[ last ];
+            m_Parent[ position ] = m_Parent[ last ];
+        }
+    }
+}
@@ -25,7 +25,9 @@
 package org.color4j.indexing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 
 /**
  * Implements the nearest-neighbour clustering algorithm. Also implements a
@@ -46,7 +48,6 @@ public class NearestNeighbour extends AbstractClusterImpl
     private ArrayList m_Clusters; //this will be an ArrayList of ArrayLists of
     // PointND's
     private double m_Epsilon;
-    private double m_CurDistance;
     private ArrayList m_Outliers;
     private int m_MinPts;
 
@@ -107,7 +108,6 @@ public class NearestNeighbour extends AbstractClusterImpl
      */
     private void clusterPoints()
     {
-        int clustIdx = m_NumPoints;
         if( m_Outliers.size() != 0 )
         {
             m_Outliers.clear();
@@ -117,15 +117,9 @@ public class NearestNeighbour extends AbstractClusterImpl
             initializeData();
         }
 
-        double distance = 0;
         if( m_NumClusters <= 0 )
         {//Epsilon termination
-            do
-            {
-                distance = mergeNearestClusters( m_Epsilon );
-                clustIdx--;
-            }
-            while( ( distance < m_Epsilon ) && ( clustIdx > 1 ) );
+            mergeNearestClusters( m_Epsilon );
         }
         removeOutliers( m_MinPts );
     }
@@ -306,70 +300,6 @@ public class NearestNeighbour extends AbstractClusterImpl
         return retIdx;
     }
 
-    /**
-     * Given a target index within an ArrayList of clusters, returns the index
-     * of the cluster nearest based on the nearest distance between points in
-     * each cluster. Also returns the distance between those clusters
-     *
-     * @param targetIdx
-     * @param clustArr
-     *
-     * @return index of nearest cluster
-     */
-    private int findNearestCluster( int targetIdx, ArrayList clustArr )
-    {
-        double tempDist;
-        double curDist = m_MaxVal;
-        int nearIdx = targetIdx;
-
-        ArrayList arrayA, arrayB;
-        arrayA = (ArrayList) clustArr.get( targetIdx );
-        arrayB = null;
-
-        for( int j = 0; j < clustArr.size(); j++ )
-        {
-            if( j != targetIdx )
-            {
-                arrayB = (ArrayList) clustArr.get( j );
-                tempDist = getNearestDistance( arrayA, arrayB );
-                if( tempDist < curDist )
-                {
-                    curDist = tempDist;
-                    nearIdx = j;
-                }
-            }
-        }//outer for
-        m_CurDistance = curDist;
-        return nearIdx;
-    }
-
-    /**
-     * Finds the distance between two nearest points in 2 given arrays
-     *
-     * @param arrA
-     * @param arrB
-     *
-     * @return the distance between furthest points
-     */
-    private double getNearestDistance( ArrayList arrA, ArrayList arrB )
-    {
-        double tempDist;
-        double curDist = m_MaxVal;
-        for( int i = 0; i < arrA.size(); i++ )
-        {
-            for( int j = 0; j < arrB.size(); j++ )
-            {
-                tempDist = getDistance( (PointND) arrA.get( i ), (PointND) arrB
-                    .get( j ) );
-                if( tempDist < curDist )
-                {
-                    curDist = tempDist;
-                }
-            }
-        }
-        return curDist;
-    }
-
     /**
      * Given a specific cluster of points (targetCluster), finds the nearest
      * cluster in a provided set of clusters (clustArr), based on nearest point
@@ -489,58 +419,170 @@ public class NearestNeighbour extends AbstractClusterImpl
     }
 
     /**
-     * Calculates nearest clusters using nearest points between any 2 clusters
-     * and merges them into one new cluster
+     * Merges the nearest clusters, by the nearest points between any 2
+     * clusters, until the nearest are further apart than the tolerance or
+     * have just been merged at exactly the tolerance. The cluster earlier in
+     * the list takes the points of the other.
+     * <p>The nearest points of any 2 clusters are as near as an edge of the
+     * minimum spanning tree of all points that joins them, so the merges are
+     * those edges, shortest first, that join 2 clusters.</p>
      *
-     * @return the distance between the two merged clusters
+     * @param tolerance the largest distance at which clusters are merged
      */
-    /**
-     * Calculates nearest clusters using farthest points between any 2 clusters
-     * and merges them into one new cluster
-     *
-     * @return the distance between the two merged clusters
-     */
-    private double mergeNearestClusters( double tolerance )
+    private void mergeNearestClusters( double tolerance )
     {
-        double tempDist;
-        double curDist = m_MaxVal;
-
-        //Cluster indices and Point indices
-        int clusterIdxA, clusterIdxB;//, ptIdxA, ptIdxB;
-        int tempIdx;
-        clusterIdxA = -1;
-        clusterIdxB = -1;
-
+        int clusterCount = m_Clusters.size();
         //if we've already reach 1 large cluster
-        if( m_Clusters.size() <= 1 )
+        if( clusterCount <= 1 )
         {
-            return -1;
+            return;
         }
-        for( int i = 0; i < m_Clusters.size(); i++ )
+        ArrayList points = new ArrayList();
+        ArrayList owners = new ArrayList();
+        for( int i = 0; i < clusterCount; i++ )
         {
-            tempIdx = findNearestCluster( i, m_Clusters );
-            tempDist = m_CurDistance;
-
-            if( tempDist < curDist )
+            ArrayList cluster = (ArrayList) m_Clusters.get( i );
+            for( int j = 0; j < cluster.size(); j++ )
             {
-                curDist = tempDist;
-                clusterIdxA = i;
-                clusterIdxB = tempIdx;
+                points.add( cluster.get( j ) );
+                owners.add( i );
             }
         }
-        //curDist holds the distance between the nearest clusters
-        //only merge if it is within the tolerance
-        if( curDist > tolerance )
+        int count = points.size();
+        int dimensions = ( (PointND) points.get( 0 ) ).getDims().length;
+        double[] coords = new double[ count * dimensions ];
+        int[] owner = new int[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            System.arraycopy( ( (PointND) points.get( i ) ).getDims(), 0, coords, i * dimensions, dimensions );
+            owner[ i ] = (Integer) owners.get( i );
+        }
+        MinimumSpanningTree tree = MinimumSpanningTree.create( coords, count, dimensions );
+
+        //each cluster points to the cluster it was merged into, which is
+        // earlier in the list
+        int[] mergedInto = new int[ clusterCount ];
+        for( int i = 0; i < clusterCount; i++ )
         {
-            return curDist;
+            mergedInto[ i ] = i;
         }
-        //Now merge the clusters
-        if( ( clusterIdxA != -1 ) && ( clusterIdxB != -1 ) )
+        for( int e = 0; e < tree.getEdgeCount(); e++ )
         {
+            double distance = tree.getDistance( e );
+            if( !( distance <= tolerance && distance < m_MaxVal ) )
+            {
+                break;
+            }
+            int clusterIdxA = find( mergedInto, owner[ tree.getFrom( e ) ] );
+            int clusterIdxB = find( mergedInto, owner[ tree.getTo( e ) ] );
+            if( clusterIdxA == clusterIdxB )
+            {
+                continue;
+            }
+            if( distance >= tolerance )
+            {
+                //the last merge, at exactly the tolerance: of the clusters
+                // that far apart, the first and the first one nearest it
+                int[] pair = findClustersAt( tolerance, coords, dimensions, owner, mergedInto );
+                clusterIdxA = pair[ 0 ];
+                clusterIdxB = pair[ 1 ];
+            }
+            if( clusterIdxA > clusterIdxB )
+            {
+                int temp = clusterIdxA;
+                clusterIdxA = clusterIdxB;
+                clusterIdxB = temp;
+            }
             ( (ArrayList) m_Clusters.get( clusterIdxA ) )
                 .addAll( (ArrayList) m_Clusters.get( clusterIdxB ) );
-            m_Clusters.remove( clusterIdxB );
+            mergedInto[ clusterIdxB ] = clusterIdxA;
+            if( distance >= tolerance )
+            {
+                break;
+            }
+        }
+        ArrayList clusters = new ArrayList();
+        for( int i = 0; i < clusterCount; i++ )
+        {
+            if( mergedInto[ i ] == i )
+            {
+                clusters.add( m_Clusters.get( i ) );
+            }
+        }
+        m_Clusters = clusters;
+    }
+
+    /**
+     * Finds the first cluster with a point at exactly the given distance from
+     * a point of another cluster, and the first such other cluster. No two
+     * clusters are nearer than the distance.
+     *
+     * @return the indices of the two clusters
+     */
+    private int[] findClustersAt( double distance, double[] coords, int dimensions, int[] owner, int[] mergedInto )
+    {
+        int count = owner.length;
+        int[] cluster = new int[ count ];
+        //the points in the order of their clusters
+        Integer[] order = new Integer[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            cluster[ i ] = find( mergedInto, owner[ i ] );
+            order[ i ] = i;
+        }
+        final int[] clusterOf = cluster;
+        Arrays.sort( order, new Comparator<Integer>()
+        {
+            public int compare( Integer p1, Integer p2 )
+            {
+                return clusterOf[ p1 ] - clusterOf[ p2 ];
+            }
+        } );
+        int[] pair = null;
+        for( int i = 0; i < count; i++ )
+        {
+            int p = order[ i ];
+            if( pair != null && cluster[ p ] != pair[ 0 ] )
+            {
+                break;
+            }
+            for( int q = 0; q < count; q++ )
+            {
+                if( cluster[ q ] != cluster[ p ]
+                    && ( pair == null || cluster[ q ] < pair[ 1 ] )
+                    && getDistance( coords, p, q, dimensions ) == distance )
+                {
+                    pair = new int[]{ cluster[ p ], cluster[ q ] };
+                }
+            }
+        }
+        return pair;
+    }
+
+    /**
+     * The same distance as <code>getDistance( PointND, PointND )</code>.
+     */
+    private static double getDistance( double[] coords, int p, int q, int dimensions )
+    {
+        int offsetP = p * dimensions;
+        int offsetQ = q * dimensions;
+        double d = coords[ offsetQ ] - coords[ offsetP ];
+        double temp = d * d;
+        for( int i = 1; i < dimensions; i++ )
+        {
+            d = coords[ offsetQ + i ] - coords[ offsetP + i ];
+            temp += d * d;
+        }
+        return Math.sqrt( temp );
+    }
+
+    private static int find( int[] mergedInto, int cluster )
+    {
+        while( mergedInto[ cluster ] != cluster )
+        {
+            mergedInto[ cluster ] = mergedInto[ mergedInto[ cluster ] ];
+            cluster = mergedInto[ cluster ];
         }
-        return curDist;
+        return cluster;
     }
 }
\ No newline at end of file
@@ -27,58 +27,7 @@ import org.color4j.colorimetry.weights.WeightsCache;
 
 public class SpaceCalculations
 {
-    private static double[] computeEllipse( double[] xy, double[] target, double deltaE, int degree )
-    {
-        // TODO:
-        double dp = Math.PI / 180.0;
-
-        double rad = degree * dp;
-        double rot = target[ 2 ] * dp;
-        //rot = Math.PI/2.0;
-        //double[] xy = computeEllipseAB(target, deltaE);
-
-        if( degree == 0 )
-        {
-            return rotate( xy[ 0 ], 0.0, rot );
-        }
-        else if( degree == 180 )
-        {
-            return rotate( -xy[ 0 ], 0.0, rot );
-        }
-        else if( degree == 90 )
-        {
-            return rotate( 0.0, xy[ 1 ], rot );
-        }
-        else if( degree == 270 )
-        {
-            return rotate( 0.0, -xy[ 1 ], rot );
-        }
-        else
-        {
-            double tn = Math.tan( rad );
-            double k = tn * tn + xy[ 1 ] * xy[ 1 ] / ( xy[ 0 ] * xy[ 0 ] );
-            double x = xy[ 1 ] / Math.pow( k, .5 );
-            if( ( degree >= 90 ) && ( degree <= 270 ) )
-            {
-                x = -x;
-            }
-            double y = xy[ 1 ] * Math.pow( ( 1 - x * x / ( xy[ 0 ] * xy[ 0 ] ) ), .5 );
-            y = ( degree > 180 ) ? -y : y;
-
-            return rotate( x, y, rot );
-        }
-    }
-
-    private static double[] rotate( double x0, double y0, double rad )
-    {
-        double[] xy = new double[ 2 ];
-        xy[ 0 ] = x0 * Math.cos( rad ) - y0 * Math.sin( rad );
-        xy[ 1 ] = x0 * Math.sin( rad ) + y0 * Math.cos( rad );
-
-        return xy;
-        //double rt = Math.pow( x*x + y*y , .5);
-        //return rt;
-    }
+    private static final EllipseGenerator ELLIPSES = EllipseGenerator.create( 360, 256 );
 
     public static double computeDeltaLBoundary( CIELab target, double deltaE )
     {
@@ -126,6 +75,7 @@ public class SpaceCalculations
 
     //return array[360][2], which is the xy points from angle 0 to 360 degree
     //target is the CIELab value of the color, deltaE control the size of the ellipse
+    //see EllipseGenerator for other resolutions and for writing into a buffer
     public static double[][] getEllipsePoint( ColorEncoding target, double deltaE )
     {
         if( deltaE <= 0 )
@@ -137,14 +87,13 @@ public class SpaceCalculations
         {
             throw new IllegalArgumentException( "CIELabDE only accepts CIELab color encodings." );  //NOI18N
         }
-        CIELab tlab = (CIELab) target;
-        double[] lch = { tlab.getL(), tlab.getc(), tlab.geth() };
+        double[] ab = new double[ 720 ];
+        ELLIPSES.generate( (CIELab) target, deltaE, ab, 0 );
         double[][] ret = new double[ 360 ][ 2 ];
-
-        double[] xy = computeEllipseAB( lch, deltaE );
         for( int i = 0; i < 360; i++ )
         {
-            ret[ i ] = computeEllipse( xy, lch, deltaE, i );
+            ret[ i ][ 0 ] = ab[ 2 * i ];
+            ret[ i ][ 1 ] = ab[ 2 * i + 1 ];
         }
 
         return ret;
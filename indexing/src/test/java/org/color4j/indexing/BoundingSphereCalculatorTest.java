@@ -25,8 +25,18 @@
 
 package org.color4j.indexing;
 
+import java.util.Collection;
+import java.util.Iterator;
 import org.color4j.colorimetry.ColorEncoding;
+import org.color4j.colorimetry.Observer;
+import org.color4j.colorimetry.Reflectance;
+import org.color4j.colorimetry.ReflectanceImpl;
+import org.color4j.colorimetry.Spectrum;
 import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.encodings.DefaultEncodingFactory;
+import org.color4j.colorimetry.encodings.EncodingFactory;
+import org.color4j.colorimetry.illuminants.IlluminantImpl;
+import org.color4j.colorimetry.observers.ObserverImpl;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
@@ -54,14 +64,39 @@ public class BoundingSphereCalculatorTest extends TestCase
         return suite;
     }
 
-    /** Test of createColorEncodingsFor method, of class org.color4j.indexing.BoundingSphereCalculator.
-     public void testCreateColorEncodingsFor()
-     {
-
-     // Add your test code below by replacing the default call to fail.
-     fail("The test case is empty.");    //NOI18N
-     }
+    /**
+     * Test of createColorEncodingsFor method, of class org.color4j.indexing.BoundingSphereCalculator.
      */
+    public void testCreateColorEncodingsFor()
+    {
+        double[] values = new double[ 31 ];
+        for( int i = 0; i < values.length; i++ )
+        {
+            values[ i ] = 0.1 + 0.02 * i;
+        }
+        Reflectance refl = ReflectanceImpl.create( Spectrum.create( 400, 10, values ) );
+        BoundingSphereCalculator bsc = new BoundingSphereCalculator();
+        Collection<CIELab> labs = bsc.createColorEncodingsFor( refl, CIELab.class );
+
+        EncodingFactory factory = new DefaultEncodingFactory();
+        String[] observers = ObserverImpl.getObserverNames();
+        String[] illuminants = IlluminantImpl.getStandardIlluminantNames();
+        assertEquals( observers.length * illuminants.length, labs.size() );
+        Iterator<CIELab> it = labs.iterator();
+        for( int i = 0; i < observers.length; i++ )
+        {
+            Observer obs = ObserverImpl.create( observers[ i ] );
+            for( int j = 0; j < illuminants.length; j++ )
+            {
+                CIELab expected = factory.createCIELab( IlluminantImpl.create( illuminants[ j ] ), refl, obs );
+                CIELab lab = it.next();
+                assertEquals( expected.getL(), lab.getL(), 1e-10 );
+                assertEquals( expected.geta(), lab.geta(), 1e-10 );
+                assertEquals( expected.getb(), lab.getb(), 1e-10 );
+            }
+        }
+    }
+
     /**
      * Test of calculateCentrePoint method, of class org.color4j.indexing.BoundingSphereCalculator.
      */
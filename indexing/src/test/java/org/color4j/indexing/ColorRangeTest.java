@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+
+public class ColorRangeTest extends TestCase
+{
+    private static final String[] ALGORITHMS = {
+        MatchingFactory.CMC11, MatchingFactory.CMC21, MatchingFactory.CIE94DE, MatchingFactory.LABDE,
+        MatchingFactory.LCHDE, MatchingFactory.CIE2000DE, MatchingFactory.BFD
+    };
+
+    @SuppressWarnings( "unchecked" )
+    public void testSameOutcomeAsFullDifference()
+        throws Exception
+    {
+        Random random = new Random( 18 );
+        for( String name : ALGORITHMS )
+        {
+            DifferenceAlgorithm algorithm = MatchingFactory.getInstance().getAlgorithm( name );
+            for( int t = 0; t < 40; t++ )
+            {
+                CIELab target = new CIELab( random.nextDouble() * 100.0, random.nextDouble() * 160.0 - 80.0, random.nextDouble() * 160.0 - 80.0 );
+                double tolerance = 0.2 + random.nextDouble() * 3.0;
+                ColorRange range = new ColorRange( target, tolerance, name );
+                for( int i = 0; i < 500; i++ )
+                {
+                    double scale = random.nextDouble() * 4.0 * tolerance;
+                    CIELab batch = new CIELab( target.getL() + random.nextGaussian() * scale,
+                                               target.geta() + random.nextGaussian() * scale,
+                                               target.getb() + random.nextGaussian() * scale );
+                    double deltaE = algorithm.compute( target, batch ).getDeltaE();
+                    assertEquals( name, tolerance >= deltaE, range.isWithinRange( batch ) );
+
+                    // a batch on the boundary of the tolerance; BFD is NaN for some pairs
+                    if( !Double.isNaN( deltaE ) )
+                    {
+                        ColorRange exact = new ColorRange( target, deltaE, name );
+                        assertTrue( name, exact.isWithinRange( batch ) );
+                    }
+                }
+            }
+        }
+    }
+
+    public void testComputeEllipse()
+        throws Exception
+    {
+        CIELab target = new CIELab( 50.0, 30.0, -20.0 );
+        ColorRange range = new ColorRange( target, 2.0, MatchingFactory.CMC21 );
+        double[] axes = range.computeEllipse();
+        double[] ab = SpaceCalculations.computeEllipseAB( new double[]{ target.getL(), target.getc(), target.geth() }, 2.0 );
+        assertEquals( 2.0 * SpaceCalculations.computeDeltaLBoundary( target, 2.0 ), axes[ 0 ], 1e-12 );
+        assertEquals( ab[ 0 ], axes[ 1 ], 1e-12 );
+        assertEquals( ab[ 1 ], axes[ 2 ], 1e-12 );
+
+        double[] lab = new ColorRange( target, 2.0, MatchingFactory.LABDE ).computeEllipse();
+        assertEquals( 2.0, lab[ 0 ], 0.0 );
+        assertEquals( 2.0, lab[ 1 ], 0.0 );
+        assertNull( new ColorRange( target, 2.0, MatchingFactory.CIE2000DE ).computeEllipse() );
+        assertNull( new ColorRange( target, 0.0, MatchingFactory.CMC11 ).computeEllipse() );
+    }
+
+    public void testAxisPointsAreDecidedByBounds()
+        throws Exception
+    {
+        // On the lightness axis, and in the a*b* plane within the smaller or beyond the larger of the
+        // chroma and hue semi-axes, the bounds decide without the full difference.
+        CIELab target = new CIELab( 50.0, 40.0, 0.0 );
+        ColorRange range = new ColorRange( target, 1.0, MatchingFactory.CMC11 );
+        double[] axes = range.computeEllipse();
+        double min = Math.min( axes[ 1 ], axes[ 2 ] );
+        double max = Math.max( axes[ 1 ], axes[ 2 ] );
+        assertEquals( ColorRange.INSIDE, range.checkBounds( new CIELab( 50.0 + axes[ 0 ] * 0.99, 40.0, 0.0 ) ) );
+        assertEquals( ColorRange.INSIDE, range.checkBounds( new CIELab( 50.0, 40.0 + min * 0.99, 0.0 ) ) );
+        assertEquals( ColorRange.INSIDE, range.checkBounds( new CIELab( 50.0, 40.0, min * 0.99 ) ) );
+        assertEquals( ColorRange.OUTSIDE, range.checkBounds( new CIELab( 50.0 + axes[ 0 ] * 1.01, 40.0, 0.0 ) ) );
+        assertEquals( ColorRange.OUTSIDE, range.checkBounds( new CIELab( 50.0, 40.0 + max * 1.01, 0.0 ) ) );
+        assertEquals( ColorRange.OUTSIDE, range.checkBounds( new CIELab( 50.0, 40.0, max * 1.01 ) ) );
+        // The chroma semi-axis is the larger one here, so just inside it the full difference decides.
+        assertTrue( axes[ 1 ] > axes[ 2 ] );
+        CIELab between = new CIELab( 50.0, 40.0 + axes[ 1 ] * 0.99, 0.0 );
+        assertEquals( ColorRange.UNDECIDED, range.checkBounds( between ) );
+        assertTrue( range.isWithinRange( between ) );
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+public class ConcurrentLabIndexTest extends TestCase
+{
+    public void testUpdatesAgainstMap()
+        throws Exception
+    {
+        ConcurrentLabIndex index = ConcurrentLabIndex.create( 64 );
+        Map<Long, double[]> expected = new HashMap<Long, double[]>();
+        Random random = new Random( 23 );
+        for( int step = 0; step < 6000; step++ )
+        {
+            long id = random.nextInt( 2000 );
+            if( random.nextInt( 4 ) == 0 )
+            {
+                assertEquals( expected.remove( id ) != null, index.delete( id ) );
+            }
+            else
+            {
+                double[] lab = randomLab( random );
+                index.insert( id, lab[ 0 ], lab[ 1 ], lab[ 2 ] );
+                expected.put( id, lab );
+            }
+            if( step % 500 == 0 )
+            {
+                check( index, expected, random );
+            }
+            if( step % 1500 == 0 )
+            {
+                index.flush();
+                check( index, expected, random );
+            }
+        }
+        index.flush();
+        check( index, expected, random );
+        index.close();
+    }
+
+    public void testQueriesDuringUpdates()
+        throws Exception
+    {
+        final ConcurrentLabIndex index = ConcurrentLabIndex.create( 128 );
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> readers = new ArrayList<Thread>();
+        for( int t = 0; t < 3; t++ )
+        {
+            final Random random = new Random( t );
+            Thread reader = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        long[] ids = new long[ 10 ];
+                        double[] distances = new double[ 10 ];
+                        while( !done.get() )
+                        {
+                            double[] lab = randomLab( random );
+                            int count = index.nearest( lab[ 0 ], lab[ 1 ], lab[ 2 ], 10, ids, distances );
+                            for( int i = 1; i < count; i++ )
+                            {
+                                if( distances[ i - 1 ] > distances[ i ] )
+                                {
+                                    throw new AssertionError( "Not ordered by distance." );
+                                }
+                                for( int j = 0; j < i; j++ )
+                                {
+                                    if( ids[ i ] == ids[ j ] )
+                                    {
+                                        throw new AssertionError( "Id " + ids[ i ] + " found twice." );
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    catch( Throwable e )
+                    {
+                        failure.set( e );
+                    }
+                }
+            };
+            readers.add( reader );
+            reader.start();
+        }
+        Map<Long, double[]> expected = new HashMap<Long, double[]>();
+        Random random = new Random( 42 );
+        for( int step = 0; step < 20000; step++ )
+        {
+            long id = random.nextInt( 5000 );
+            if( random.nextInt( 5 ) == 0 )
+            {
+                index.delete( id );
+                expected.remove( id );
+            }
+            else
+            {
+                double[] lab = randomLab( random );
+                index.insert( id, lab[ 0 ], lab[ 1 ], lab[ 2 ] );
+                expected.put( id, lab );
+            }
+        }
+        done.set( true );
+        for( Thread reader : readers )
+        {
+            reader.join();
+        }
+        if( failure.get() != null )
+        {
+            throw new AssertionError( failure.get() );
+        }
+        check( index, expected, random );
+        index.flush();
+        check( index, expected, random );
+        index.close();
+    }
+
+    private static void check( ConcurrentLabIndex index, Map<Long, double[]> expected, Random random )
+    {
+        assertEquals( expected.size(), index.size() );
+        for( long id = 0; id < 50; id++ )
+        {
+            assertEquals( expected.containsKey( id ), index.contains( id ) );
+        }
+        int k = 8;
+        long[] ids = new long[ k ];
+        double[] distances = new double[ k ];
+        for( int q = 0; q < 20; q++ )
+        {
+            final double[] query = randomLab( random );
+            double[] all = new double[ expected.size() ];
+            int n = 0;
+            for( double[] lab : expected.values() )
+            {
+                all[ n++ ] = distance( lab, query );
+            }
+            Arrays.sort( all );
+            int count = index.nearest( query[ 0 ], query[ 1 ], query[ 2 ], k, ids, distances );
+            assertEquals( Math.min( k, all.length ), count );
+            for( int i = 0; i < count; i++ )
+            {
+                assertEquals( all[ i ], distances[ i ], 1e-12 );
+                assertEquals( distances[ i ], distance( expected.get( ids[ i ] ), query ), 1e-12 );
+            }
+
+            final double radius = 15.0;
+            final Map<Long, double[]> found = new HashMap<Long, double[]>();
+            index.within( query[ 0 ], query[ 1 ], query[ 2 ], radius, new ConcurrentLabIndex.Visitor()
+            {
+                public void visit( long id, double distance )
+                {
+                    assertNull( found.put( id, query ) );
+                }
+            } );
+            int within = 0;
+            for( Map.Entry<Long, double[]> entry : expected.entrySet() )
+            {
+                if( distance( entry.getValue(), query ) <= radius )
+                {
+                    within++;
+                    assertTrue( found.containsKey( entry.getKey() ) );
+                }
+            }
+            assertEquals( within, found.size() );
+        }
+    }
+
+    private static double[] randomLab( Random random )
+    {
+        return new double[]{ random.nextDouble() * 100.0, random.nextDouble() * 160.0 - 80.0, random.nextDouble() * 160.0 - 80.0 };
+    }
+
+    private static double distance( double[] lab, double[] query )
+    {
+        double dL = lab[ 0 ] - query[ 0 ];
+        double da = lab[ 1 ] - query[ 1 ];
+        double db = lab[ 2 ] - query[ 2 ];
+        return Math.sqrt( dL * dL + da * da + db * db );
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.encodings.CIELab;
+
+public class EllipseGeneratorTest extends TestCase
+{
+    public void testPointsLieOnEllipse()
+        throws Exception
+    {
+        Random random = new Random( 19 );
+        for( int resolution : new int[]{ 7, 90, 360, 1000 } )
+        {
+            EllipseGenerator generator = EllipseGenerator.create( resolution, 8 );
+            for( int t = 0; t < 50; t++ )
+            {
+                CIELab target = new CIELab( random.nextDouble() * 100.0, random.nextDouble() * 160.0 - 80.0, random.nextDouble() * 160.0 - 80.0 );
+                double deltaE = 0.1 + random.nextDouble() * 4.0;
+                double[] axes = SpaceCalculations.computeEllipseAB( new double[]{ target.getL(), target.getc(), target.geth() }, deltaE );
+                double[] ab = new double[ 2 * resolution + 3 ];
+                generator.generate( target, deltaE, ab, 3 );
+                double rot = target.geth() * Math.PI / 180.0;
+                for( int i = 0; i < resolution; i++ )
+                {
+                    double a = ab[ 3 + 2 * i ];
+                    double b = ab[ 4 + 2 * i ];
+                    // back to the axes of the ellipse
+                    double x = a * Math.cos( rot ) + b * Math.sin( rot );
+                    double y = -a * Math.sin( rot ) + b * Math.cos( rot );
+                    assertEquals( 1.0, x * x / ( axes[ 0 ] * axes[ 0 ] ) + y * y / ( axes[ 1 ] * axes[ 1 ] ), 1e-12 );
+                    double angle = 2.0 * Math.PI * i / resolution;
+                    assertEquals( 0.0, x * Math.sin( angle ) - y * Math.cos( angle ), 1e-12 * Math.max( axes[ 0 ], axes[ 1 ] ) );
+                    assertTrue( x * Math.cos( angle ) + y * Math.sin( angle ) > 0 );
+                }
+            }
+        }
+    }
+
+    public void testCacheAndEllipsePoint()
+        throws Exception
+    {
+        CIELab target = new CIELab( 60.0, -25.0, 35.0 );
+        EllipseGenerator cached = EllipseGenerator.create( 360, 2 );
+        EllipseGenerator uncached = EllipseGenerator.create( 360, 0 );
+        double[] first = cached.generate( target, 1.5 );
+        double[] second = cached.generate( target, 1.5 );
+        double[] plain = uncached.generate( target, 1.5 );
+        assertNotSame( first, second );
+        double[][] points = SpaceCalculations.getEllipsePoint( target, 1.5 );
+        assertEquals( 360, points.length );
+        for( int i = 0; i < 720; i++ )
+        {
+            assertEquals( plain[ i ], first[ i ], 0.0 );
+            assertEquals( plain[ i ], second[ i ], 0.0 );
+            assertEquals( plain[ i ], points[ i / 2 ][ i % 2 ], 0.0 );
+        }
+        // the first point lies along the chroma direction of the target
+        double[] axes = SpaceCalculations.computeEllipseAB( new double[]{ target.getL(), target.getc(), target.geth() }, 1.5 );
+        assertEquals( axes[ 0 ] * target.geta() / target.getc(), first[ 0 ], 1e-12 );
+        assertEquals( axes[ 0 ] * target.getb() / target.getc(), first[ 1 ], 1e-12 );
+    }
+
+    public void testRejectsShortBuffer()
+        throws Exception
+    {
+        try
+        {
+            EllipseGenerator.create( 36, 4 ).generate( new CIELab( 50.0, 10.0, 10.0 ), 1.0, new double[ 71 ], 0 );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class FarthestNeighbourTest extends TestCase
+{
+    public void testMergesOfNaiveCompleteLinkage()
+        throws Exception
+    {
+        Random random = new Random( 25 );
+        for( int t = 0; t < 20; t++ )
+        {
+            int count = 20 + random.nextInt( 100 );
+            int dimensions = 1 + t % 3;
+            double[] coords = new double[ count * dimensions ];
+            for( int i = 0; i < coords.length; i++ )
+            {
+                // whole numbers on every other run, for ties
+                coords[ i ] = t % 2 == 0 ? random.nextInt( 12 ) : random.nextDouble() * 20.0;
+            }
+            double tolerance = t % 2 == 0 ? random.nextInt( 8 ) : random.nextDouble() * 10.0;
+            int[] merges = CompleteLinkage.create( coords, count, dimensions ).merge( tolerance );
+            int[] expected = naiveMerges( coords, count, dimensions, tolerance );
+            assertEquals( expected.length, merges.length );
+            for( int i = 0; i < merges.length; i++ )
+            {
+                assertEquals( expected[ i ], merges[ i ] );
+            }
+        }
+    }
+
+    public void testLargeMatrixOffHeap()
+        throws Exception
+    {
+        // more than 2^22 pairs
+        Random random = new Random( 3 );
+        int count = 3000;
+        double[] coords = new double[ count * 3 ];
+        for( int i = 0; i < coords.length; i++ )
+        {
+            coords[ i ] = random.nextDouble() * 100.0;
+        }
+        double tolerance = 12.0;
+        int[] merges = CompleteLinkage.create( coords, count, 3 ).merge( tolerance );
+        int[] cluster = new int[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            cluster[ i ] = i;
+        }
+        for( int k = 0; k < merges.length; k += 2 )
+        {
+            assertTrue( merges[ k ] < merges[ k + 1 ] );
+            for( int i = 0; i < count; i++ )
+            {
+                if( cluster[ i ] == merges[ k + 1 ] )
+                {
+                    cluster[ i ] = merges[ k ];
+                }
+            }
+        }
+        // no cluster is wider than the tolerance
+        for( int i = 0; i < count; i++ )
+        {
+            for( int j = i + 1; j < count; j++ )
+            {
+                if( cluster[ i ] == cluster[ j ] )
+                {
+                    assertTrue( distance( coords, 3, i, j ) <= tolerance );
+                }
+            }
+        }
+    }
+
+    public void testOutliersMergedBack()
+        throws Exception
+    {
+        // two groups of three points and a point between them, nearer the first group
+        double[] values = { 0.0, 0.5, 1.0, 10.0, 10.5, 11.0, 3.0 };
+        List<PointND> points = new ArrayList<PointND>();
+        for( int i = 0; i < values.length; i++ )
+        {
+            PointND point = new PointNDReflectanceImpl( 1, "p" + i );
+            point.setDim( 0, values[ i ] );
+            points.add( point );
+        }
+        FarthestNeighbour clustering = new FarthestNeighbour( points, 1, 2.0 );
+        clustering.calculateClusters( 2 );
+        assertEquals( 2, clustering.getClusters().size() );
+        assertEquals( 1, clustering.getOutliers().size() );
+        assertSame( points.get( 6 ), clustering.getOutliers().iterator().next() );
+        assertEquals( 0, clustering.getNumReclusteredPts() );
+
+        // a pair too small to be a cluster, broken up: one of its points is merged back into the first group
+        points.add( new PointNDReflectanceImpl( 1, "p7" ) );
+        points.get( 7 ).setDim( 0, 5.5 );
+        clustering = new FarthestNeighbour( points, 1, 3.5 );
+        clustering.calculateClusters( 3 );
+        assertEquals( 2, clustering.getClusters().size() );
+        assertEquals( 1, clustering.getNumReclusteredPts() );
+        assertEquals( 1, clustering.getOutliers().size() );
+        assertSame( points.get( 7 ), clustering.getOutliers().iterator().next() );
+        List first = (List) clustering.getClusters().iterator().next();
+        assertEquals( 4, first.size() );
+        assertTrue( first.contains( points.get( 6 ) ) );
+    }
+
+    /**
+     * Merges the nearest clusters by the farthest points, of ties the first pair, as the clustering always did.
+     */
+    private static int[] naiveMerges( double[] coords, int count, int dimensions, double tolerance )
+    {
+        List<List<Integer>> clusters = new ArrayList<List<Integer>>();
+        for( int i = 0; i < count; i++ )
+        {
+            List<Integer> cluster = new ArrayList<Integer>();
+            cluster.add( i );
+            clusters.add( cluster );
+        }
+        List<Integer> merges = new ArrayList<Integer>();
+        while( true )
+        {
+            double min = Double.MAX_VALUE;
+            int a = -1;
+            int b = -1;
+            for( int i = 0; i < count; i++ )
+            {
+                for( int j = i + 1; j < count; j++ )
+                {
+                    if( clusters.get( i ) == null || clusters.get( j ) == null )
+                    {
+                        continue;
+                    }
+                    double farthest = 0;
+                    for( int p : clusters.get( i ) )
+                    {
+                        for( int q : clusters.get( j ) )
+                        {
+                            farthest = Math.max( farthest, distance( coords, dimensions, p, q ) );
+                        }
+                    }
+                    if( farthest < min )
+                    {
+                        min = farthest;
+                        a = i;
+                        b = j;
+                    }
+                }
+            }
+            if( a < 0 || min > tolerance )
+            {
+                break;
+            }
+            merges.add( a );
+            merges.add( b );
+            clusters.get( a ).addAll( clusters.get( b ) );
+            clusters.set( b, null );
+            if( min >= tolerance )
+            {
+                break;
+            }
+        }
+        int[] result = new int[ merges.size() ];
+        for( int i = 0; i < result.length; i++ )
+        {
+            result[ i ] = merges.get( i );
+        }
+        return result;
+    }
+
+    private static double distance( double[] coords, int dimensions, int p, int q )
+    {
+        double sum = 0;
+        for( int k = 0; k < dimensions; k++ )
+        {
+            double d = coords[ q * dimensions + k ] - coords[ p * dimensions + k ];
+            sum += d * d;
+        }
+        return Math.sqrt( sum );
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+
+public class LabIndexFileTest extends TestCase
+{
+    private static final int FIRST = 3000;
+    private static final int SECOND = 1000;
+
+    private File m_File;
+    private double[] m_Lab;
+    private double[] m_Radii;
+    private long[] m_Ids;
+
+    protected void setUp()
+        throws Exception
+    {
+        m_File = File.createTempFile( "labindex", ".idx" );
+        m_File.delete();
+        Random random = new Random( 22 );
+        int count = FIRST + SECOND;
+        m_Lab = new double[ count * 3 ];
+        m_Radii = new double[ count ];
+        m_Ids = new long[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            m_Lab[ i * 3 ] = random.nextDouble() * 100.0;
+            m_Lab[ i * 3 + 1 ] = random.nextDouble() * 160.0 - 80.0;
+            m_Lab[ i * 3 + 2 ] = random.nextDouble() * 160.0 - 80.0;
+            m_Radii[ i ] = random.nextDouble() * 2.0;
+            m_Ids[ i ] = 1000000000000L + i;
+        }
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        m_File.delete();
+    }
+
+    public void testAppendAndQuery()
+        throws Exception
+    {
+        LabIndexFile.append( m_File, m_Lab, m_Radii, m_Ids, FIRST );
+        LabIndexFile before = LabIndexFile.open( m_File );
+        LabIndexFile.append( m_File,
+                             Arrays.copyOfRange( m_Lab, FIRST * 3, m_Lab.length ),
+                             Arrays.copyOfRange( m_Radii, FIRST, m_Radii.length ),
+                             Arrays.copyOfRange( m_Ids, FIRST, m_Ids.length ), SECOND );
+        LabIndexFile index = LabIndexFile.open( m_File );
+
+        assertEquals( 1, before.getSegmentCount() );
+        assertEquals( FIRST, before.size() );
+        assertEquals( 2, index.getSegmentCount() );
+        assertEquals( FIRST + SECOND, index.size() );
+
+        // every point is there once, with its CIELab values
+        long[] ids = new long[ index.size() ];
+        double[] lab = new double[ 3 ];
+        for( int p = 0; p < index.size(); p++ )
+        {
+            ids[ p ] = index.getReflectanceId( p );
+            int i = (int) ( ids[ p ] - m_Ids[ 0 ] );
+            index.getLab( p, lab, 0 );
+            assertEquals( m_Lab[ i * 3 ], lab[ 0 ], 0.0 );
+            assertEquals( m_Lab[ i * 3 + 1 ], lab[ 1 ], 0.0 );
+            assertEquals( m_Lab[ i * 3 + 2 ], lab[ 2 ], 0.0 );
+        }
+        Arrays.sort( ids );
+        assertTrue( Arrays.equals( m_Ids, ids ) );
+
+        LabTree all = LabTree.create( m_Lab, m_Radii, FIRST + SECOND );
+        Random random = new Random( 5 );
+        int k = 10;
+        int[] expected = new int[ k ];
+        double[] expectedDistances = new double[ k ];
+        int[] points = new int[ k ];
+        double[] distances = new double[ k ];
+        for( int q = 0; q < 100; q++ )
+        {
+            double L = random.nextDouble() * 100.0;
+            double a = random.nextDouble() * 160.0 - 80.0;
+            double b = random.nextDouble() * 160.0 - 80.0;
+            assertEquals( k, all.nearest( L, a, b, k, expected, expectedDistances ) );
+            assertEquals( k, index.nearest( L, a, b, k, points, distances ) );
+            for( int i = 0; i < k; i++ )
+            {
+                assertEquals( expectedDistances[ i ], distances[ i ], 1e-12 );
+            }
+
+            double radius = random.nextDouble() * 8.0;
+            final long[] found = new long[ index.size() ];
+            final int[] count = { 0 };
+            final LabIndexFile file = index;
+            index.within( L, a, b, radius, new LabTree.Visitor()
+            {
+                public void visit( int id, double distance )
+                {
+                    found[ count[ 0 ]++ ] = file.getReflectanceId( id );
+                }
+            } );
+            int[] within = all.within( L, a, b, radius );
+            assertEquals( within.length, count[ 0 ] );
+            long[] withinIds = new long[ within.length ];
+            for( int i = 0; i < within.length; i++ )
+            {
+                withinIds[ i ] = m_Ids[ within[ i ] ];
+            }
+            Arrays.sort( withinIds );
+            long[] foundIds = Arrays.copyOf( found, count[ 0 ] );
+            Arrays.sort( foundIds );
+            assertTrue( Arrays.equals( withinIds, foundIds ) );
+        }
+    }
+
+    public void testNotAnIndexFile()
+        throws Exception
+    {
+        FileOutputStream out = new FileOutputStream( m_File );
+        out.write( new byte[ 64 ] );
+        out.close();
+        try
+        {
+            LabIndexFile.open( m_File );
+            fail( "IOException expected." );
+        }
+        catch( IOException e )
+        {
+            // expected
+        }
+    }
+}
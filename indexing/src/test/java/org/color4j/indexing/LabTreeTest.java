@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.color4j.colorimetry.Reflectance;
+import org.color4j.colorimetry.encodings.CIELab;
+import org.color4j.colorimetry.matching.DifferenceAlgorithm;
+import org.color4j.colorimetry.matching.MatchingFactory;
+
+public class LabTreeTest extends TestCase
+{
+    private static final int COUNT = 5000;
+
+    private double[] m_Lab;
+    private double[] m_Radii;
+
+    protected void setUp()
+        throws Exception
+    {
+        Random random = new Random( 21 );
+        m_Lab = new double[ COUNT * 3 ];
+        m_Radii = new double[ COUNT ];
+        for( int i = 0; i < COUNT; i++ )
+        {
+            m_Lab[ i * 3 ] = random.nextDouble() * 100.0;
+            m_Lab[ i * 3 + 1 ] = random.nextDouble() * 160.0 - 80.0;
+            m_Lab[ i * 3 + 2 ] = random.nextDouble() * 160.0 - 80.0;
+            m_Radii[ i ] = random.nextDouble() * 3.0;
+        }
+        // a few duplicates
+        System.arraycopy( m_Lab, 0, m_Lab, 3, 3 );
+        System.arraycopy( m_Lab, 0, m_Lab, 6, 3 );
+    }
+
+    public void testNearestAgainstScan()
+        throws Exception
+    {
+        LabTree tree = LabTree.create( m_Lab, COUNT );
+        assertEquals( COUNT, tree.size() );
+        Random random = new Random( 7 );
+        int k = 12;
+        int[] ids = new int[ k ];
+        double[] distances = new double[ k ];
+        for( int q = 0; q < 200; q++ )
+        {
+            double L = random.nextDouble() * 100.0;
+            double a = random.nextDouble() * 160.0 - 80.0;
+            double b = random.nextDouble() * 160.0 - 80.0;
+            assertEquals( k, tree.nearest( L, a, b, k, ids, distances ) );
+            double[] all = new double[ COUNT ];
+            for( int i = 0; i < COUNT; i++ )
+            {
+                all[ i ] = distance( i, L, a, b );
+            }
+            Arrays.sort( all );
+            for( int i = 0; i < k; i++ )
+            {
+                assertEquals( all[ i ], distances[ i ], 1e-12 );
+                assertEquals( distances[ i ], distance( ids[ i ], L, a, b ), 1e-12 );
+            }
+        }
+    }
+
+    public void testNearestSmallTree()
+        throws Exception
+    {
+        LabTree tree = LabTree.create( m_Lab, 3 );
+        int[] ids = new int[ 5 ];
+        double[] distances = new double[ 5 ];
+        assertEquals( 3, tree.nearest( 0.0, 0.0, 0.0, 5, ids, distances ) );
+        assertEquals( 0, LabTree.create( new double[ 0 ], 0 ).nearest( 0.0, 0.0, 0.0, 5, ids, distances ) );
+    }
+
+    public void testWithinAgainstScan()
+        throws Exception
+    {
+        LabTree tree = LabTree.create( m_Lab, m_Radii, COUNT );
+        Random random = new Random( 9 );
+        for( int q = 0; q < 200; q++ )
+        {
+            double L = random.nextDouble() * 100.0;
+            double a = random.nextDouble() * 160.0 - 80.0;
+            double b = random.nextDouble() * 160.0 - 80.0;
+            double radius = random.nextDouble() * 10.0;
+            int[] found = tree.within( L, a, b, radius );
+            Arrays.sort( found );
+            List<Integer> expected = new ArrayList<Integer>();
+            for( int i = 0; i < COUNT; i++ )
+            {
+                if( distance( i, L, a, b ) <= radius + m_Radii[ i ] )
+                {
+                    expected.add( i );
+                }
+            }
+            assertEquals( expected.size(), found.length );
+            for( int i = 0; i < found.length; i++ )
+            {
+                assertEquals( expected.get( i ).intValue(), found[ i ] );
+            }
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public void testSearchTreeRanksByAlgorithm()
+        throws Exception
+    {
+        List<CIELabSearchIndex> entries = new ArrayList<CIELabSearchIndex>();
+        for( int i = 0; i < 500; i++ )
+        {
+            entries.add( new Entry( m_Lab[ i * 3 ], m_Lab[ i * 3 + 1 ], m_Lab[ i * 3 + 2 ], m_Radii[ i ] ) );
+        }
+        CIELabSearchTree tree = CIELabSearchTree.create( entries );
+        CIELab target = new CIELab( 50.0, 10.0, -10.0 );
+
+        List<CIELabSearchIndex> within = tree.findWithin( target, 20.0 );
+        for( CIELabSearchIndex entry : entries )
+        {
+            double d = distance( entry, target );
+            assertEquals( d <= 20.0 + entry.getRadius(), within.contains( entry ) );
+        }
+
+        List<CIELabSearchIndex> nearest = tree.findNearest( target, 5 );
+        assertEquals( 5, nearest.size() );
+        for( int i = 1; i < nearest.size(); i++ )
+        {
+            assertTrue( distance( nearest.get( i - 1 ), target ) <= distance( nearest.get( i ), target ) );
+        }
+
+        // with every entry a candidate the ranking is the ranking of the algorithm
+        DifferenceAlgorithm algorithm = MatchingFactory.getInstance().getAlgorithm( MatchingFactory.CMC21 );
+        List<CIELabSearchIndex> ranked = tree.findNearest( target, 10, algorithm, entries.size() );
+        double[] all = new double[ entries.size() ];
+        for( int i = 0; i < all.length; i++ )
+        {
+            all[ i ] = deltaE( algorithm, target, entries.get( i ) );
+        }
+        Arrays.sort( all );
+        assertEquals( 10, ranked.size() );
+        for( int i = 0; i < ranked.size(); i++ )
+        {
+            assertEquals( all[ i ], deltaE( algorithm, target, ranked.get( i ) ), 1e-12 );
+        }
+    }
+
+    private double distance( int i, double L, double a, double b )
+    {
+        double dL = m_Lab[ i * 3 ] - L;
+        double da = m_Lab[ i * 3 + 1 ] - a;
+        double db = m_Lab[ i * 3 + 2 ] - b;
+        return Math.sqrt( dL * dL + da * da + db * db );
+    }
+
+    private static double distance( CIELabSearchIndex entry, CIELab target )
+    {
+        double dL = entry.getL() - target.getL();
+        double da = entry.geta() - target.geta();
+        double db = entry.getb() - target.getb();
+        return Math.sqrt( dL * dL + da * da + db * db );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static double deltaE( DifferenceAlgorithm algorithm, CIELab target, CIELabSearchIndex entry )
+    {
+        return algorithm.compute( target, new CIELab( entry.getL(), entry.geta(), entry.getb() ) ).getDeltaE();
+    }
+
+    private static class Entry
+        implements CIELabSearchIndex
+    {
+        private Double m_L;
+        private Double m_a;
+        private Double m_b;
+        private Double m_Radius;
+        private Reflectance m_Reflectance;
+
+        private Entry( double L, double a, double b, double radius )
+        {
+            m_L = L;
+            m_a = a;
+            m_b = b;
+            m_Radius = radius;
+        }
+
+        public Double getL()
+        {
+            return m_L;
+        }
+
+        public Double geta()
+        {
+            return m_a;
+        }
+
+        public Double getb()
+        {
+            return m_b;
+        }
+
+        public Double getRadius()
+        {
+            return m_Radius;
+        }
+
+        public Reflectance getReflectance()
+        {
+            return m_Reflectance;
+        }
+
+        public void setL( Double value )
+        {
+            m_L = value;
+        }
+
+        public void seta( Double value )
+        {
+            m_a = value;
+        }
+
+        public void setb( Double value )
+        {
+            m_b = value;
+        }
+
+        public void setRadius( Double value )
+        {
+            m_Radius = value;
+        }
+
+        public void setReflectance( Reflectance refl )
+        {
+            m_Reflectance = refl;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2000-2011 Niclas Hedhman.
+ *
+ * Licensed  under the  Apache License, Version 2.0  (the "License");
+ * you may not use  this file  except in  compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed  under the  License is distributed on an "AS IS" BASIS,
+ * WITHOUT  WARRANTIES OR CONDITIONS  OF ANY KIND, either  express  or
+ * implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.color4j.indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+
+public class NearestNeighbourTest extends TestCase
+{
+    public void testMinimumSpanningTree()
+        throws Exception
+    {
+        Random random = new Random( 24 );
+        int count = 300;
+        double[] coords = new double[ count * 2 ];
+        for( int i = 0; i < coords.length; i++ )
+        {
+            coords[ i ] = random.nextDouble() * 100.0;
+        }
+        MinimumSpanningTree tree = MinimumSpanningTree.create( coords, count, 2 );
+        assertEquals( count - 1, tree.getEdgeCount() );
+
+        // the weight of Prim's tree, grown one point at a time by brute force
+        boolean[] inTree = new boolean[ count ];
+        double[] best = new double[ count ];
+        Arrays.fill( best, Double.MAX_VALUE );
+        best[ 0 ] = 0;
+        double weight = 0;
+        for( int step = 0; step < count; step++ )
+        {
+            int next = -1;
+            for( int i = 0; i < count; i++ )
+            {
+                if( !inTree[ i ] && ( next < 0 || best[ i ] < best[ next ] ) )
+                {
+                    next = i;
+                }
+            }
+            inTree[ next ] = true;
+            weight += best[ next ];
+            for( int i = 0; i < count; i++ )
+            {
+                best[ i ] = Math.min( best[ i ], distance( coords, next, i ) );
+            }
+        }
+        double total = 0;
+        for( int e = 0; e < tree.getEdgeCount(); e++ )
+        {
+            assertEquals( distance( coords, tree.getFrom( e ), tree.getTo( e ) ), tree.getDistance( e ), 1e-12 );
+            if( e > 0 )
+            {
+                assertTrue( tree.getDistance( e - 1 ) <= tree.getDistance( e ) );
+            }
+            total += tree.getDistance( e );
+        }
+        assertEquals( weight, total, 1e-9 );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public void testClustersAreSingleLinkage()
+        throws Exception
+    {
+        Random random = new Random( 7 );
+        for( int t = 0; t < 10; t++ )
+        {
+            List<PointND> points = new ArrayList<PointND>();
+            for( int i = 0; i < 400; i++ )
+            {
+                PointND point = new PointNDReflectanceImpl( 3, "p" + i );
+                for( int k = 0; k < 3; k++ )
+                {
+                    point.setDim( k, random.nextGaussian() * 8.0 + ( i % 6 ) * 25.0 );
+                }
+                points.add( point );
+            }
+            double epsilon = 0.5 + random.nextDouble() * 4.0;
+            int minPoints = 1 + t % 3;
+            NearestNeighbour clustering = new NearestNeighbour( points, 3, epsilon );
+            clustering.calculateClusters( minPoints );
+
+            // the connected components of the points nearer than epsilon
+            int[] component = new int[ points.size() ];
+            Arrays.fill( component, -1 );
+            List<Set<PointND>> expected = new ArrayList<Set<PointND>>();
+            Set<PointND> outliers = new HashSet<PointND>();
+            for( int i = 0; i < points.size(); i++ )
+            {
+                if( component[ i ] >= 0 )
+                {
+                    continue;
+                }
+                Set<PointND> members = new HashSet<PointND>();
+                List<Integer> stack = new ArrayList<Integer>();
+                stack.add( i );
+                component[ i ] = i;
+                while( !stack.isEmpty() )
+                {
+                    int p = stack.remove( stack.size() - 1 );
+                    members.add( points.get( p ) );
+                    for( int q = 0; q < points.size(); q++ )
+                    {
+                        if( component[ q ] < 0 && distance( points.get( p ), points.get( q ) ) < epsilon )
+                        {
+                            component[ q ] = i;
+                            stack.add( q );
+                        }
+                    }
+                }
+                if( members.size() < minPoints )
+                {
+                    outliers.addAll( members );
+                }
+                else
+                {
+                    expected.add( members );
+                }
+            }
+
+            Collection clusters = clustering.getClusters();
+            assertEquals( expected.size(), clusters.size() );
+            for( Object cluster : clusters )
+            {
+                assertTrue( expected.contains( new HashSet<PointND>( (List<PointND>) cluster ) ) );
+            }
+            assertEquals( outliers, new HashSet<PointND>( clustering.getOutliers() ) );
+        }
+    }
+
+    public void testMergeAtExactlyEpsilon()
+        throws Exception
+    {
+        // 0 - 1 - 2 on a line, each 1 apart: the first merge at the tolerance ends the clustering
+        List<PointND> points = new ArrayList<PointND>();
+        for( int i = 0; i < 3; i++ )
+        {
+            PointND point = new PointNDReflectanceImpl( 1, "p" + i );
+            point.setDim( 0, i );
+            points.add( point );
+        }
+        NearestNeighbour clustering = new NearestNeighbour( points, 1, 1.0 );
+        clustering.calculateClusters();
+        List clusters = new ArrayList( clustering.getClusters() );
+        assertEquals( 2, clusters.size() );
+        assertEquals( 2, ( (List) clusters.get( 0 ) ).size() );
+        assertSame( points.get( 0 ), ( (List) clusters.get( 0 ) ).get( 0 ) );
+        assertSame( points.get( 1 ), ( (List) clusters.get( 0 ) ).get( 1 ) );
+        assertSame( points.get( 2 ), ( (List) clusters.get( 1 ) ).get( 0 ) );
+    }
+
+    private static double distance( double[] coords, int p, int q )
+    {
+        double dx = coords[ p * 2 ] - coords[ q * 2 ];
+        double dy = coords[ p * 2 + 1 ] - coords[ q * 2 + 1 ];
+        return Math.sqrt( dx * dx + dy * dy );
+    }
+
+    private static double distance( PointND p, PointND q )
+    {
+        double sum = 0;
+        for( int k = 0; k < p.getNumDims(); k++ )
+        {
+            double d = p.getDim( k ) - q.getDim( k );
+            sum += d * d;
+        }
+        return Math.sqrt( sum );
+    }
+}